@@ -13,20 +13,40 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.cardview.widget.CardView;
 
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QuerySnapshot;
 
+import org.smart.attendance_beta.data.AttendanceRepository;
+import org.smart.attendance_beta.data.FirestoreAttendanceRepository;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.sync.SessionSweepWorker;
+import org.smart.attendance_beta.utils.AdminStatsService;
+import org.smart.attendance_beta.utils.ArrivalHeatmap;
+import org.smart.attendance_beta.utils.ArrivalHeatmapUtils;
+import org.smart.attendance_beta.utils.DailyCounters;
+import org.smart.attendance_beta.utils.DateTimeUtils;
 import org.smart.attendance_beta.utils.FirebaseUtils;
+import org.smart.attendance_beta.utils.LeaderboardService;
+import org.smart.attendance_beta.utils.LiveAttendanceStats;
+import org.smart.attendance_beta.utils.ProfileStore;
+import org.smart.attendance_beta.utils.StartupMetrics;
+import org.smart.attendance_beta.utils.StartupRouteCache;
+import org.smart.attendance_beta.utils.TopKLeaderboard;
+import org.smart.attendance_beta.utils.Tracer;
+import org.smart.attendance_beta.utils.UiThrottle;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class AdminDashboardActivity extends AppCompatActivity {
 
+    private static final long LIVE_RENDER_INTERVAL_MS = 250; // At most 4 redraws a second in live mode
+    private static final int ARRIVAL_PEAK_DAYS = 28;
+    private static final String[] WEEKDAYS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
     private TextView tvTotalEmployees, tvPresentToday, tvLateArrivals, tvAvgHours;
     private CardView cvTotalEmployees, cvPresentToday, cvLateArrivals, cvAvgHours;
     private TextView tvWelcomeAdmin, tvLastUpdate;
@@ -34,14 +54,39 @@ public class AdminDashboardActivity extends AppCompatActivity {
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
 
+    private AdminStatsService adminStatsService;
+    private final LiveAttendanceStats liveStats = new LiveAttendanceStats();
+    private UiThrottle liveRenderThrottle;
+    private boolean liveMode = false;
+    private long totalEmployees = 0;
+    private LeaderboardService leaderboardService;
+    private boolean leaderboardsReady = false;
+    private boolean leaderboardListening = false;
+    private boolean resumed = false;
+    private AlertDialog leaderboardDialog; // The leaderboards list or a board, while one is showing
+    private String shownLeaderboardGroup;
+
+    // First load of the screen, from onCreate until the profile, stats and leaderboards are in
+    private Tracer.Span loadTrace = Tracer.NONE;
+
+    // Re-checks access and the greeting when users/{uid} changes
+    private final ProfileStore.Observer profileObserver = () -> {
+        verifyAdminAccess();
+        loadAdminProfile();
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_admin_dashboard);
+        StartupMetrics.trackFirstFrame(this, "admin");
 
         // Initialize Firebase
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        adminStatsService = new AdminStatsService(db);
+        liveRenderThrottle = new UiThrottle(LIVE_RENDER_INTERVAL_MS, this::renderLiveStats);
+        DailyCounters.refreshShardCount(db);
 
         // Setup toolbar
         Toolbar toolbar = findViewById(R.id.toolbar);
@@ -54,8 +99,15 @@ public class AdminDashboardActivity extends AppCompatActivity {
         initViews();
 
         // Load admin data
+        loadTrace = Tracer.app().begin("adminDashboardLoad");
+        ProfileStore.getInstance(this).addObserver(profileObserver);
         loadAdminProfile();
         loadDashboardData();
+        loadLeaderboards();
+        loadTrace.endAfterChildren();
+
+        // Close sessions whose devices stopped sending heartbeats
+        SessionSweepWorker.schedule(this);
     }
 
     private void initViews() {
@@ -105,9 +157,11 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
 
     private void loadAdminProfile() {
-        FirebaseUtils.getCurrentUserData(new FirebaseUtils.UserDataCallback() {
+        Tracer.Span step = loadStep("profile");
+        FirebaseUtils.getCurrentUserData(this, new FirebaseUtils.UserDataCallback() {
             @Override
-            public void onUserDataRetrieved(com.google.firebase.firestore.DocumentSnapshot userDocument) {
+            public void onUserDataRetrieved(ProfileStore.Profile userDocument) {
+                step.end();
                 String fullName = userDocument.getString("fullName");
                 if (tvWelcomeAdmin != null && fullName != null) {
                     tvWelcomeAdmin.setText("Welcome, " + fullName + "!");
@@ -116,6 +170,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
 
             @Override
             public void onError(String error) {
+                step.end();
                 Toast.makeText(AdminDashboardActivity.this,
                         "Error loading admin profile: " + error, Toast.LENGTH_SHORT).show();
             }
@@ -145,51 +200,85 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
 
     private void loadDashboardData() {
-        // Load total employees count
-        db.collection("users")
-                .whereEqualTo("isActive", true)
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                        if (task.isSuccessful()) {
-                            int totalEmployees = task.getResult().size();
-                            if (tvTotalEmployees != null) {
-                                tvTotalEmployees.setText(String.valueOf(totalEmployees));
-                            }
-
-                            // Update last update time
-                            if (tvLastUpdate != null) {
-                                String currentTime = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault()).format(new Date());
-                                tvLastUpdate.setText("Last updated: " + currentTime);
-                            }
-                        } else {
-                            Toast.makeText(AdminDashboardActivity.this,
-                                    "Error loading employee count: " + task.getException().getMessage(),
-                                    Toast.LENGTH_SHORT).show();
-                        }
-                    }
-                });
+        // Counts and averages are aggregated server-side, no attendance or user documents are downloaded
+        String todayDate = DateTimeUtils.getCurrentDate();
+        Tracer.Span step = loadStep("stats");
+        adminStatsService.load(todayDate, new AdminStatsService.StatsCallback() {
+            @Override
+            public void onStatsLoaded(AdminStatsService.DashboardStats stats) {
+                step.end();
+                totalEmployees = stats.totalEmployees;
+                if (liveMode) {
+                    renderLiveStats(); // Attendance figures come from the listener, only headcount is new
+                    return;
+                }
+
+                String currentTime = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault()).format(new Date());
+                showStats(stats, "Last updated: " + currentTime);
+            }
 
-        // Get today's date for attendance queries
-        String todayDate = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+            @Override
+            public void onError(String error) {
+                step.end();
+                Toast.makeText(AdminDashboardActivity.this,
+                        "Error loading dashboard stats: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-        // For now, set placeholder values for attendance data
-        // TODO: Implement actual attendance queries when attendance tracking is built
+    private void showStats(AdminStatsService.DashboardStats stats, String status) {
+        if (tvTotalEmployees != null) {
+            tvTotalEmployees.setText(String.valueOf(stats.totalEmployees));
+        }
         if (tvPresentToday != null) {
-            tvPresentToday.setText("0");
+            tvPresentToday.setText(String.valueOf(stats.presentToday));
         }
         if (tvLateArrivals != null) {
-            tvLateArrivals.setText("0");
+            tvLateArrivals.setText(String.valueOf(stats.lateToday));
         }
         if (tvAvgHours != null) {
-            tvAvgHours.setText("0.0");
+            tvAvgHours.setText(String.format(Locale.getDefault(), "%.1f", stats.averageHours));
+        }
+        if (tvLastUpdate != null) {
+            tvLastUpdate.setText(stats.earlyOutToday > 0
+                    ? status + " - " + stats.earlyOutToday + " early clock-outs"
+                    : status);
         }
     }
 
+    /**
+     * Live mode keeps one listener on today's attendance and applies each change to in-memory counters
+     */
+    private void setLiveMode(boolean enabled) {
+        liveMode = enabled;
+        if (enabled) {
+            startLiveStats();
+        } else {
+            stopLiveStats();
+            loadDashboardData();
+        }
+        updateLeaderboardListener();
+    }
+
+    private void startLiveStats() {
+        liveStats.clear();
+        liveStats.start(db, DateTimeUtils.getCurrentDate(), liveRenderThrottle::request);
+    }
+
+    private void stopLiveStats() {
+        liveStats.stop();
+        liveRenderThrottle.cancel();
+    }
+
+    private void renderLiveStats() {
+        String currentTime = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
+        showStats(liveStats.snapshot(totalEmployees), "Live - updated " + currentTime);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.admin_menu, menu);
+        menu.findItem(R.id.action_live_updates).setChecked(liveMode);
         return true;
     }
 
@@ -197,8 +286,15 @@ public class AdminDashboardActivity extends AppCompatActivity {
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         int id = item.getItemId();
 
-        if (id == R.id.action_reports) {
-            Toast.makeText(this, "Reports feature coming soon!", Toast.LENGTH_SHORT).show();
+        if (id == R.id.action_live_updates) {
+            setLiveMode(!liveMode);
+            item.setChecked(liveMode);
+            return true;
+        } else if (id == R.id.action_reports) {
+            showLeaderboardsDialog();
+            return true;
+        } else if (id == R.id.action_arrival_peaks) {
+            showArrivalPeaksDialog();
             return true;
         } else if (id == R.id.action_settings) {
             Toast.makeText(this, "Settings feature coming soon!", Toast.LENGTH_SHORT).show();
@@ -221,7 +317,203 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
 
     public void onGenerateReportsClick(android.view.View view) {
-        Toast.makeText(this, "Reports feature coming soon!", Toast.LENGTH_SHORT).show();
+        showLeaderboardsDialog();
+    }
+
+    private void loadLeaderboards() {
+        leaderboardService = new LeaderboardService();
+        Tracer.Span step = loadStep("leaderboards");
+        leaderboardService.rebuild(new LeaderboardService.LeaderboardCallback() {
+            @Override
+            public void onLeaderboardReady(LeaderboardService service) {
+                step.end();
+                leaderboardsReady = true;
+            }
+
+            @Override
+            public void onError(String error) {
+                step.end();
+                Toast.makeText(AdminDashboardActivity.this, error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * A step of the first load, or an untraced one once that load has finished
+     */
+    private Tracer.Span loadStep(String step) {
+        return loadTrace.durationNanos() < 0 ? Tracer.app().begin(step, loadTrace) : Tracer.NONE;
+    }
+
+    private void showLeaderboardsDialog() {
+        if (!leaderboardsReady) {
+            Toast.makeText(this, "Leaderboards are still loading...", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        List<String> groups = leaderboardService.getGroups(LeaderboardService.BOARD_LATENESS);
+        for (String group : leaderboardService.getGroups(LeaderboardService.BOARD_OVERTIME)) {
+            if (!groups.contains(group)) groups.add(group);
+        }
+
+        List<String> labels = new ArrayList<>();
+        for (String group : groups) {
+            labels.add(formatGroup(group));
+        }
+
+        showLeaderboardDialog(null, new AlertDialog.Builder(this)
+                .setTitle("Leaderboards - " + leaderboardService.getMonth())
+                .setItems(labels.toArray(new String[0]), (dialog, which) -> showLeaderboard(groups.get(which)))
+                .setNegativeButton("Close", null));
+    }
+
+    private void showLeaderboard(String group) {
+        showLeaderboardDialog(group, new AlertDialog.Builder(this)
+                .setTitle(formatGroup(group))
+                .setMessage(buildLeaderboardMessage(group))
+                .setPositiveButton("OK", null));
+    }
+
+    /**
+     * Today's part of the boards is only listened to while one of these dialogs is up (or in live mode)
+     */
+    private void showLeaderboardDialog(String group, AlertDialog.Builder builder) {
+        AlertDialog dialog = builder.create();
+        dialog.setOnDismissListener(d -> {
+            // Picking a group opens its board before the list is dismissed
+            if (leaderboardDialog != dialog) return;
+            leaderboardDialog = null;
+            shownLeaderboardGroup = null;
+            updateLeaderboardListener();
+        });
+        leaderboardDialog = dialog;
+        shownLeaderboardGroup = group;
+        dialog.show();
+        updateLeaderboardListener();
+    }
+
+    private String buildLeaderboardMessage(String group) {
+        StringBuilder message = new StringBuilder("⏰ Most late this month\n");
+        appendEntries(message, leaderboardService.top(LeaderboardService.BOARD_LATENESS, group,
+                LeaderboardService.DEFAULT_TOP), "%.0f min");
+
+        message.append("\n💼 Most overtime this month\n");
+        appendEntries(message, leaderboardService.top(LeaderboardService.BOARD_OVERTIME, group,
+                LeaderboardService.DEFAULT_TOP), "%.1f h");
+        return message.toString();
+    }
+
+    /**
+     * The listener reads every attendance record of the day, so it is only attached while a board is
+     * showing or live mode is on, and never while the dashboard is paused
+     */
+    private void updateLeaderboardListener() {
+        boolean wanted = leaderboardService != null && resumed && (liveMode || leaderboardDialog != null);
+        if (wanted == leaderboardListening) return;
+
+        leaderboardListening = wanted;
+        if (wanted) {
+            leaderboardService.startLiveUpdates(() -> {
+                if (leaderboardDialog != null && shownLeaderboardGroup != null) {
+                    leaderboardDialog.setMessage(buildLeaderboardMessage(shownLeaderboardGroup));
+                }
+            });
+        } else {
+            leaderboardService.stopLiveUpdates();
+        }
+    }
+
+    private void appendEntries(StringBuilder message, List<TopKLeaderboard.Entry> entries, String scoreFormat) {
+        if (entries.isEmpty()) {
+            message.append("No records yet\n");
+            return;
+        }
+
+        for (int i = 0; i < entries.size(); i++) {
+            TopKLeaderboard.Entry entry = entries.get(i);
+            message.append(i + 1).append(". ")
+                    .append(entry.label != null ? entry.label : entry.key)
+                    .append(" - ")
+                    .append(String.format(Locale.getDefault(), scoreFormat, entry.score))
+                    .append("\n");
+        }
+    }
+
+    private String formatGroup(String group) {
+        if (LeaderboardService.GROUP_ALL.equals(group)) return "All Employees";
+
+        int separator = group.indexOf(':');
+        String type = group.substring(0, separator);
+        String name = group.substring(separator + 1);
+        return ("department".equals(type) ? "Department: " : "Office: ") + name;
+    }
+
+    /**
+     * Pick an office, then show when people arrive there over the last ARRIVAL_PEAK_DAYS days
+     */
+    private void showArrivalPeaksDialog() {
+        FirestoreAttendanceRepository.shared().getLocations(new AttendanceRepository.Callback<List<Location>>() {
+            @Override
+            public void onSuccess(List<Location> offices) {
+                if (offices.isEmpty()) {
+                    Toast.makeText(AdminDashboardActivity.this, "No offices set up yet", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+
+                List<String> names = new ArrayList<>();
+                for (Location office : offices) {
+                    names.add(office.getName() != null ? office.getName() : office.getId());
+                }
+                new AlertDialog.Builder(AdminDashboardActivity.this)
+                        .setTitle("Arrival peaks - last " + ARRIVAL_PEAK_DAYS + " days")
+                        .setItems(names.toArray(new String[0]),
+                                (dialog, which) -> loadArrivalPeaks(offices.get(which).getId(), names.get(which)))
+                        .setNegativeButton("Close", null)
+                        .show();
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(AdminDashboardActivity.this, error, Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void loadArrivalPeaks(String officeId, String officeName) {
+        ArrivalHeatmapUtils.loadRange(officeId, ArrivalHeatmapUtils.daysAgo(ARRIVAL_PEAK_DAYS),
+                DateTimeUtils.getCurrentDate(), new ArrivalHeatmapUtils.HeatmapCallback() {
+                    @Override
+                    public void onHeatmapLoaded(ArrivalHeatmap heatmap) {
+                        showArrivalPeaks(heatmap, officeName);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Toast.makeText(AdminDashboardActivity.this, error, Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private void showArrivalPeaks(ArrivalHeatmap heatmap, String officeName) {
+        StringBuilder message = new StringBuilder();
+        for (int weekday = 0; weekday < ArrivalHeatmap.DAYS; weekday++) {
+            int peak = heatmap.peakMinuteOfDay(weekday);
+            if (peak < 0) continue;
+
+            int arrivals = 0;
+            for (int count : heatmap.getDay(weekday)) arrivals += count;
+            int peakCount = heatmap.getCount(weekday, peak / ArrivalHeatmap.BUCKET_MINUTES);
+            message.append(String.format(Locale.getDefault(), "%s  busiest %02d:%02d-%02d:%02d (%d of %d arrivals)\n",
+                    WEEKDAYS[weekday], peak / 60, peak % 60,
+                    (peak + ArrivalHeatmap.BUCKET_MINUTES) / 60, (peak + ArrivalHeatmap.BUCKET_MINUTES) % 60,
+                    peakCount, arrivals));
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("🚪 " + officeName)
+                .setMessage(message.length() > 0 ? message.toString() : "No arrivals recorded yet")
+                .setPositiveButton("OK", null)
+                .show();
     }
 
     private void showLogoutDialog() {
@@ -229,6 +521,9 @@ public class AdminDashboardActivity extends AppCompatActivity {
                 .setTitle("Logout")
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Yes", (dialog, which) -> {
+                    SessionSweepWorker.cancel(this);
+                    StartupRouteCache.clear(this);
+                    ProfileStore.getInstance(this).clear();
                     mAuth.signOut();
                     Intent intent = new Intent(AdminDashboardActivity.this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -244,20 +539,51 @@ public class AdminDashboardActivity extends AppCompatActivity {
         super.onResume();
         // Refresh data when returning to dashboard
         loadDashboardData();
+        if (liveMode) {
+            startLiveStats();
+        }
+        resumed = true;
+        // Today's part of the leaderboards; rebuild() only covers the days before
+        updateLeaderboardListener();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // No listeners while the dashboard isn't visible
+        stopLiveStats();
+        resumed = false;
+        updateLeaderboardListener();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ProfileStore.getInstance(this).removeObserver(profileObserver);
     }
 
     @Override
     protected void onStart() {
         super.onStart();
+        verifyAdminAccess();
+    }
+
+    /**
+     * Sign out unless the user is still an active admin; runs on start and whenever the user profile changes
+     */
+    private void verifyAdminAccess() {
+        if (isFinishing()) return;
 
-        // Verify user is still admin
-        FirebaseUtils.getCurrentUserRole(new FirebaseUtils.UserRoleCallback() {
+        FirebaseUtils.getCurrentUserRole(this, new FirebaseUtils.UserRoleCallback() {
             @Override
             public void onRoleRetrieved(String role, boolean isActive) {
+                if (isFinishing()) return;
                 if (!"admin".equals(role) || !isActive) {
                     // User is no longer admin or deactivated
                     Toast.makeText(AdminDashboardActivity.this,
                             "Access denied. Redirecting to login.", Toast.LENGTH_LONG).show();
+                    StartupRouteCache.clear(AdminDashboardActivity.this);
+                    ProfileStore.getInstance(AdminDashboardActivity.this).clear();
                     mAuth.signOut();
                     Intent intent = new Intent(AdminDashboardActivity.this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
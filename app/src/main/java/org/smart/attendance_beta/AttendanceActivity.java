@@ -7,7 +7,6 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
@@ -25,14 +24,39 @@ import androidx.core.app.ActivityCompat;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-
+import com.google.firebase.firestore.SetOptions;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.data.AttendanceRecordCodec;
+import org.smart.attendance_beta.data.FirestoreAttendanceRepository;
+import org.smart.attendance_beta.data.LocationCodec;
+import org.smart.attendance_beta.data.LocationFields;
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.notifications.ReminderScheduler;
+import org.smart.attendance_beta.sync.ClockEvent;
+import org.smart.attendance_beta.sync.ClockSync;
+import org.smart.attendance_beta.sync.HeartbeatWriter;
+import org.smart.attendance_beta.sync.JournalSyncer;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.AttendanceIds;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.CostLedger;
+import org.smart.attendance_beta.utils.DailyCounters;
 import org.smart.attendance_beta.utils.DateTimeUtils;
 import org.smart.attendance_beta.utils.DeviceSecurityUtils;
+import org.smart.attendance_beta.utils.DeviceSessionManager;
+import org.smart.attendance_beta.utils.FirestoreCost;
 import org.smart.attendance_beta.utils.LocationUtils;
+import org.smart.attendance_beta.utils.OfficeLocation;
 import org.smart.attendance_beta.utils.TimeSecurityUtils;
+import org.smart.attendance_beta.utils.TodayState;
+import org.smart.attendance_beta.utils.TodayStateLoader;
+import org.smart.attendance_beta.utils.Tracer;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,6 +65,8 @@ public class AttendanceActivity extends AppCompatActivity {
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final String TAG = "AttendanceActivity";
+    // Logged on every 10-second location tick; sampled outside debug builds
+    private static final String OFFICE_TAG = "OfficeDetection";
 
     // UI Components
     private TextView tvCurrentTime, tvLocationStatus, tvDistanceFromOffice;
@@ -61,8 +87,10 @@ public class AttendanceActivity extends AppCompatActivity {
     private String employeeDocId;
     private String pfNumber;
     private String employeeName;
+    private String department;
     private boolean isClockedIn = false;
     private String todayAttendanceDocId = null;
+    private String todayAttendanceDate = null; // The open session's date; a clock-out after midnight still closes it
     private String workStartTime = "08:00";
     private String workEndTime = "17:00";
 
@@ -76,6 +104,7 @@ public class AttendanceActivity extends AppCompatActivity {
     private boolean isDeviceValid = false;
     private String deviceId;
     private TimeSecurityUtils.TimeValidationResult lastTimeValidation;
+    private AlertDialog deviceConflictDialog;
 
     // Handlers
     private Handler locationUpdateHandler = new Handler();
@@ -83,6 +112,32 @@ public class AttendanceActivity extends AppCompatActivity {
     private Handler timeUpdateHandler = new Handler();
     private Runnable timeUpdateRunnable;
 
+    // Offline-first clock events
+    private ClockSync clockSync;
+
+    // Today's record, device verdict and employee details from one listener
+    private TodayStateLoader todayStateLoader;
+    private final JournalSyncer.SyncListener syncListener = new JournalSyncer.SyncListener() {
+        @Override
+        public void onEventSynced(ClockEvent event) {
+            if (event.employeeDocId.equals(employeeDocId)) {
+                todayStateLoader.refresh();
+            }
+        }
+
+        @Override
+        public void onEventRejected(ClockEvent event, String reason) {
+            if (!event.employeeDocId.equals(employeeDocId)) return;
+
+            String message = JournalSyncer.REJECT_DEVICE_CONFLICT.equals(reason)
+                    ? "Your offline " + (event.isClockIn() ? "clock in" : "clock out") + " was rejected: another device is active"
+                    : "Your offline " + (event.isClockIn() ? "clock in" : "clock out") + " could not be applied (" + reason + ")";
+            Toast.makeText(AttendanceActivity.this, message, Toast.LENGTH_LONG).show();
+
+            todayStateLoader.refresh();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -97,20 +152,27 @@ public class AttendanceActivity extends AppCompatActivity {
         // Initialize Firebase
         db = FirebaseFirestore.getInstance();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        DailyCounters.refreshShardCount(db);
 
         // Get employee data
         getEmployeeData();
 
+        try {
+            clockSync = ClockSync.get(this);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Clock event journal unavailable, clock events go straight to Firestore", e);
+        }
+
+        todayStateLoader = new TodayStateLoader(this, db, employeeDocId, deviceId, clockSync);
+
         // Initialize views
         initViews();
 
-        // Security validations
+        // Security validations (the device session check arrives with today's state, started in onStart)
         validateDeviceTime();
-        checkDeviceSession();
 
         // Load data
         loadAllOfficeLocations(); // ✅ ENHANCED: Load all offices instead of just one
-        loadTodayAttendance();
 
         // Start updates
         startTimeUpdates();
@@ -138,10 +200,10 @@ public class AttendanceActivity extends AppCompatActivity {
 
     // ✅ NEW METHOD: Immediate location refresh
     private void refreshLocationImmediately() {
-        Log.d(TAG, "🎯 Refreshing location immediately on activity start");
+        AppLog.d(TAG, "🎯 Refreshing location immediately on activity start");
 
         if (!LocationUtils.hasLocationPermissions(this)) {
-            Log.w(TAG, "📍 Location permissions not granted, requesting...");
+            AppLog.w(TAG, "📍 Location permissions not granted, requesting...");
             requestLocationPermissions();
             return;
         }
@@ -163,7 +225,7 @@ public class AttendanceActivity extends AppCompatActivity {
                 null
         ).addOnSuccessListener(location -> {
             if (location != null) {
-                Log.d(TAG, "📍 High-accuracy location obtained immediately");
+                AppLog.d(TAG, "📍 High-accuracy location obtained immediately");
                 OfficeDetectionResult result = detectOfficeLocation(location);
 
                 updateLocationUI(result);
@@ -183,10 +245,10 @@ public class AttendanceActivity extends AppCompatActivity {
                 }
                 Toast.makeText(this, toastMessage, Toast.LENGTH_SHORT).show();
             } else {
-                Log.w(TAG, "📍 Could not get immediate location");
+                AppLog.w(TAG, "📍 Could not get immediate location");
             }
         }).addOnFailureListener(e -> {
-            Log.e(TAG, "📍 Error getting immediate location: " + e.getMessage());
+            AppLog.e(TAG, "📍 Error getting immediate location: {}", e.getMessage());
         });
     }
 
@@ -194,10 +256,9 @@ public class AttendanceActivity extends AppCompatActivity {
      * Load all office locations from Firestore
      */
     private void loadAllOfficeLocations() {
-        Log.d(TAG, "📍 Loading all office locations...");
+        AppLog.d(TAG, "📍 Loading all office locations...");
 
-        db.collection("locations")
-                .get()
+        FirestoreCost.track("attendance.offices", db.collection(LocationFields.COLLECTION).get())
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
                         officeLocations.clear();
@@ -206,29 +267,28 @@ public class AttendanceActivity extends AppCompatActivity {
                             OfficeLocation office = createOfficeFromDocument(document);
                             if (office != null) {
                                 officeLocations.add(office);
-                                Log.d(TAG, "📍 Loaded office: " + office.name + " at " +
-                                        office.latitude + ", " + office.longitude + " (radius: " + office.radius + "m)");
+                                AppLog.d(TAG, "📍 Loaded office: {} at {}, {} (radius: {}m)", office.name, office.latitude, office.longitude, office.radius);
                             }
                         }
 
                         if (officeLocations.isEmpty()) {
-                            Log.w(TAG, "⚠️ No office locations found, using default");
+                            AppLog.w(TAG, "⚠️ No office locations found, using default");
                             addDefaultOffice();
                         }
 
-                        Log.d(TAG, "📍 Total offices loaded: " + officeLocations.size());
+                        AppLog.d(TAG, "📍 Total offices loaded: {}", officeLocations.size());
 
                         // Refresh location immediately after loading offices
                         refreshLocationImmediately();
                     } else {
-                        Log.e(TAG, "❌ Error loading office locations: " + task.getException().getMessage());
+                        AppLog.e(TAG, "❌ Error loading office locations: {}", task.getException().getMessage());
                         Toast.makeText(this, "Error loading office locations", Toast.LENGTH_SHORT).show();
                         addDefaultOffice();
                         refreshLocationImmediately();
                     }
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to load office locations: " + e.getMessage());
+                    AppLog.e(TAG, "❌ Failed to load office locations: {}", e.getMessage());
                     Toast.makeText(this, "Failed to load office locations", Toast.LENGTH_SHORT).show();
                     addDefaultOffice();
                     refreshLocationImmediately();
@@ -240,23 +300,21 @@ public class AttendanceActivity extends AppCompatActivity {
      */
     private OfficeLocation createOfficeFromDocument(DocumentSnapshot document) {
         try {
-            String docId = document.getId();
-            String name = document.getString("name");
-            Double lat = document.getDouble("latitude");
-            Double lng = document.getDouble("longitude");
-            Long radius = document.getLong("radius");
-
-            if (lat != null && lng != null) {
+            org.smart.attendance_beta.models.Location location =
+                    FirestoreAttendanceRepository.decode(document, LocationCodec.INSTANCE);
+            if (location != null) {
                 OfficeLocation office = new OfficeLocation();
-                office.id = docId;
-                office.name = name != null ? name : formatOfficeName(docId);
-                office.latitude = lat;
-                office.longitude = lng;
-                office.radius = radius != null ? radius.intValue() : 200;
+                office.id = location.getId();
+                office.name = location.getName() != null ? location.getName() : formatOfficeName(location.getId());
+                office.latitude = location.getLatitude();
+                office.longitude = location.getLongitude();
+                office.radius = location.getRadius();
+                office.startTime = location.getStartTime();
+                office.endTime = location.getEndTime();
                 return office;
             }
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error parsing office document " + document.getId() + ": " + e.getMessage());
+            AppLog.e(TAG, "❌ Error parsing office document {}: {}", document.getId(), e.getMessage());
         }
         return null;
     }
@@ -325,7 +383,7 @@ public class AttendanceActivity extends AppCompatActivity {
                 currentOffice = office;
                 isAtAnyOffice = true;
 
-                Log.d(TAG, "✅ User is at " + office.name + " (distance: " + String.format("%.0f", distance) + "m)");
+                AppLog.d(OFFICE_TAG, "✅ User is at {} (distance: {}m)", office.name, Math.round(distance));
                 return result;
             }
 
@@ -341,9 +399,7 @@ public class AttendanceActivity extends AppCompatActivity {
         isAtAnyOffice = false;
         result.currentDistance = result.closestDistance;
 
-        Log.d(TAG, "🚫 User not at any office. Closest: " +
-                (result.closestOffice != null ? result.closestOffice.name : "None") +
-                " (" + String.format("%.0f", result.closestDistance) + "m)");
+        AppLog.d(OFFICE_TAG, "🚫 User not at any office. Closest: {} ({}m)", (result.closestOffice != null ? result.closestOffice.name : "None"), Math.round(result.closestDistance));
 
         return result;
     }
@@ -385,18 +441,18 @@ public class AttendanceActivity extends AppCompatActivity {
                         // ✅ ENHANCED: Check against all office locations
                         OfficeDetectionResult result = detectOfficeLocation(location);
 
-                        Log.d(TAG, "📍 Location updated - " + result.toString());
+                        AppLog.d(OFFICE_TAG, "📍 Location updated - {}", result);
                         updateLocationUI(result);
                         updateButtonStates();
                     } else {
-                        Log.w(TAG, "📍 No location available");
+                        AppLog.w(TAG, "📍 No location available");
                         tvLocationStatus.setText("Unable to get location");
                         tvDistanceFromOffice.setText("Check GPS settings");
                         updateButtonStates();
                     }
                 })
                 .addOnFailureListener(this, e -> {
-                    Log.e(TAG, "📍 Location error: " + e.getMessage());
+                    AppLog.e(TAG, "📍 Location error: {}", e.getMessage());
                     tvLocationStatus.setText("Location error");
                     tvDistanceFromOffice.setText("Please check GPS");
                     updateButtonStates();
@@ -432,22 +488,6 @@ public class AttendanceActivity extends AppCompatActivity {
 
     // ✅ NEW: Data classes for multi-office support
 
-    /**
-     * Office location data class
-     */
-    private static class OfficeLocation {
-        public String id;
-        public String name;
-        public double latitude;
-        public double longitude;
-        public int radius;
-
-        @Override
-        public String toString() {
-            return name + " (" + latitude + ", " + longitude + ", " + radius + "m)";
-        }
-    }
-
     /**
      * Office detection result class
      */
@@ -478,65 +518,43 @@ public class AttendanceActivity extends AppCompatActivity {
 // === SECOND HALF CONTINUES FROM PART 1 ===
 
     /**
-     * Check if this device can be used for attendance (prevent multi-device abuse)
+     * Device verdict from today's record: one device per employee per day (prevents multi-device abuse)
      */
-    private void checkDeviceSession() {
-        if (employeeDocId == null) return;
-
-        String today = DateTimeUtils.getCurrentDate();
-        updateDeviceValidationUI(false, "Validating device session...");
-
-        // Check if employee has an active attendance session on another device
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", today)
-                .whereEqualTo("sessionActive", true)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // No active session - device is valid
-                            isDeviceValid = true;
-                            updateDeviceValidationUI(true, "Device authorized ✅");
-                        } else {
-                            // Active session found - check if it's on this device
-                            DocumentSnapshot activeSession = task.getResult().getDocuments().get(0);
-                            String sessionDeviceId = activeSession.getString("deviceId");
-
-                            if (deviceId.equals(sessionDeviceId)) {
-                                // Same device - valid
-                                isDeviceValid = true;
-                                todayAttendanceDocId = activeSession.getId();
-                                isClockedIn = true;
-                                updateDeviceValidationUI(true, "Device session active ✅");
-                            } else {
-                                // Different device - block access
-                                isDeviceValid = false;
-                                String activeDeviceInfo = getActiveDeviceInfo(activeSession);
-                                updateDeviceValidationUI(false, "Another device is active ❌");
-                                showDeviceConflictDialog(activeDeviceInfo, activeSession);
-                            }
-                        }
-                        updateButtonStates();
-                    } else {
-                        isDeviceValid = false;
-                        updateDeviceValidationUI(false, "Device validation failed ❌");
-                        updateButtonStates();
-                        Toast.makeText(this, "Error checking device session: " + task.getException().getMessage(),
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+    private void showDeviceVerdict(TodayState state) {
+        switch (state.deviceVerdict) {
+            case FREE:
+                isDeviceValid = true;
+                updateDeviceValidationUI(true, "Device authorized ✅");
+                break;
+            case THIS_DEVICE:
+                isDeviceValid = true;
+                updateDeviceValidationUI(true, "Device session active ✅");
+                break;
+            case OTHER_DEVICE:
+                isDeviceValid = false;
+                updateDeviceValidationUI(false, "Another device is active ❌");
+                showDeviceConflictDialog(getActiveDeviceInfo(state.activeDeviceManufacturer,
+                        state.activeDeviceModel, state.activeClockInTime, state.activeOfficeName));
+                break;
+            case UNVERIFIED:
+                if (clockSync != null) {
+                    // Offline - the syncer re-checks the device when the clock event reaches Firestore
+                    isDeviceValid = true;
+                    updateDeviceValidationUI(true, "Offline - will verify when synced ⏳");
+                } else {
+                    isDeviceValid = false;
+                    updateDeviceValidationUI(false, "Device validation failed ❌");
+                    Toast.makeText(this, "Error checking device session", Toast.LENGTH_SHORT).show();
+                }
+                break;
+        }
     }
 
     /**
      * Get display info for the active device
      */
-    private String getActiveDeviceInfo(DocumentSnapshot session) {
-        String deviceModel = session.getString("deviceModel");
-        String deviceManufacturer = session.getString("deviceManufacturer");
-        String clockInTime = session.getString("clockInTime");
-        String officeName = session.getString("officeName");
-
+    private String getActiveDeviceInfo(String deviceManufacturer, String deviceModel, String clockInTime,
+                                       String officeName) {
         String deviceInfo = "Unknown device";
         if (deviceModel != null && deviceManufacturer != null) {
             deviceInfo = deviceManufacturer + " " + deviceModel;
@@ -557,8 +575,10 @@ public class AttendanceActivity extends AppCompatActivity {
     /**
      * Show dialog when device conflict is detected
      */
-    private void showDeviceConflictDialog(String activeDeviceInfo, DocumentSnapshot activeSession) {
-        new AlertDialog.Builder(this)
+    private void showDeviceConflictDialog(String activeDeviceInfo) {
+        if (deviceConflictDialog != null && deviceConflictDialog.isShowing()) return;
+
+        deviceConflictDialog = new AlertDialog.Builder(this)
                 .setTitle("🚫 Device Already Active")
                 .setMessage("You are already clocked in from another device:\n\n" +
                         "Active Device: " + activeDeviceInfo + "\n" +
@@ -639,24 +659,8 @@ public class AttendanceActivity extends AppCompatActivity {
             employeeDocId = getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                     .getString("employee_doc_id", null);
         }
-
-        if (employeeDocId != null && (pfNumber == null || employeeName == null)) {
-            loadEmployeeDetails();
-        }
-    }
-
-    private void loadEmployeeDetails() {
-        db.collection("employees").document(employeeDocId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        DocumentSnapshot document = task.getResult();
-                        if (document.exists()) {
-                            if (pfNumber == null) pfNumber = document.getString("pfNumber");
-                            if (employeeName == null) employeeName = document.getString("name");
-                        }
-                    }
-                });
+        department = getSharedPreferences("attendance_prefs", MODE_PRIVATE)
+                .getString("employee_department", null);
     }
 
     private void initViews() {
@@ -701,58 +705,65 @@ public class AttendanceActivity extends AppCompatActivity {
         btnClockOut.setVisibility(View.GONE);
     }
 
-    private void loadTodayAttendance() {
-        if (employeeDocId == null) return;
+    /**
+     * Render everything TodayStateLoader knows about today; called on every change to the record,
+     * the journal or the profile
+     */
+    private void onTodayState(TodayState state) {
+        if (pfNumber == null) pfNumber = state.pfNumber;
+        if (employeeName == null) employeeName = state.employeeName;
+        if (department == null) department = state.department;
+
+        showDeviceVerdict(state);
+        showTodayAttendance(state);
+        updateButtonStates();
+    }
 
-        String today = DateTimeUtils.getCurrentDate();
+    private void showTodayAttendance(TodayState state) {
+        String officeName = state.displayOfficeName();
+        String where = officeName != null ? " at " + officeName : "";
+        String syncSuffix = state.pendingSync ? " (syncing ⏳)" : "";
 
-        // Load attendance for this specific device only
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", today)
-                .whereEqualTo("deviceId", deviceId) // Only this device
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        DocumentSnapshot attendance = task.getResult().getDocuments().get(0);
-                        todayAttendanceDocId = attendance.getId();
-
-                        String clockInTime = attendance.getString("clockInTime");
-                        String clockOutTime = attendance.getString("clockOutTime");
-                        String officeName = attendance.getString("officeName");
-                        Boolean sessionActive = attendance.getBoolean("sessionActive");
-
-                        if (clockInTime != null) {
-                            tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(clockInTime));
-
-                            if (sessionActive != null && sessionActive && clockOutTime == null) {
-                                isClockedIn = true;
-                                String statusText = officeName != null ?
-                                        "Clocked In at " + officeName + " ✅" : "Clocked In ✅";
-                                tvTodayStatus.setText(statusText);
-                                btnClockIn.setVisibility(View.GONE);
-                                btnClockOut.setVisibility(View.VISIBLE);
-                            } else if (clockOutTime != null) {
-                                isClockedIn = false;
-                                String statusText = officeName != null ?
-                                        "Work Complete at " + officeName + " ✅" : "Work Complete ✅";
-                                tvTodayStatus.setText(statusText);
-                                tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(clockOutTime));
-
-                                double hours = DateTimeUtils.calculateHoursWorked(clockInTime, clockOutTime);
-                                tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours));
-
-                                btnClockIn.setVisibility(View.GONE);
-                                btnClockOut.setVisibility(View.GONE);
-                            }
-                        }
-                    } else {
-                        tvTodayStatus.setText("Ready to Clock In");
-                        btnClockIn.setVisibility(View.VISIBLE);
-                        btnClockOut.setVisibility(View.GONE);
+        if (state.status != TodayState.Status.NOT_CLOCKED_IN) {
+            todayAttendanceDocId = state.attendanceId;
+            todayAttendanceDate = state.date;
+        }
+        if (state.clockInTime != null) {
+            tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(state.clockInTime));
+        }
+
+        switch (state.status) {
+            case CLOCKED_IN:
+                isClockedIn = true;
+                tvTodayStatus.setText("Clocked In" + where + (state.late ? " (Late) ⚠️" : " ✅") + syncSuffix);
+                btnClockIn.setVisibility(View.GONE);
+                btnClockOut.setVisibility(View.VISIBLE);
+                break;
+            case COMPLETE:
+                isClockedIn = false;
+                if (state.earlyClockOut) {
+                    String from = officeName != null ? " from " + officeName : "";
+                    tvTodayStatus.setText("Early Clock Out" + from + " ⚠️" + syncSuffix);
+                } else {
+                    tvTodayStatus.setText("Work Complete" + where + " ✅" + syncSuffix);
+                }
+                if (state.clockOutTime != null) {
+                    tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(state.clockOutTime));
+                    if (state.clockInTime != null) {
+                        double hours = DateTimeUtils.calculateHoursWorked(state.clockInTime, state.clockOutTime);
+                        tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours));
                     }
-                    updateButtonStates();
-                });
+                }
+                btnClockIn.setVisibility(View.GONE);
+                btnClockOut.setVisibility(View.GONE);
+                break;
+            default:
+                isClockedIn = false;
+                tvTodayStatus.setText("Ready to Clock In");
+                btnClockIn.setVisibility(View.VISIBLE);
+                btnClockOut.setVisibility(View.GONE);
+                break;
+        }
     }
 
     private void startTimeUpdates() {
@@ -784,6 +795,10 @@ public class AttendanceActivity extends AppCompatActivity {
             @Override
             public void run() {
                 updateLocation();
+                if (isClockedIn && todayAttendanceDocId != null) {
+                    // Coalesced in memory, so ticking every 10 seconds costs at most one write a minute
+                    DeviceSessionManager.updateSessionHeartbeat(todayAttendanceDocId);
+                }
                 locationUpdateHandler.postDelayed(this, 10000);  // Continue periodic updates every 10 seconds
             }
         };
@@ -805,12 +820,12 @@ public class AttendanceActivity extends AppCompatActivity {
 
         if (requestCode == LOCATION_PERMISSION_REQUEST_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                Log.d(TAG, "✅ Location permission granted, starting location updates");
+                AppLog.d(TAG, "✅ Location permission granted, starting location updates");
                 startLocationUpdates();
                 // ✅ ENHANCED: Immediate refresh after permission granted
                 refreshLocationImmediately();
             } else {
-                Log.w(TAG, "❌ Location permission denied");
+                AppLog.w(TAG, "❌ Location permission denied");
                 tvLocationStatus.setText("Location permission required");
                 tvDistanceFromOffice.setText("Enable location to use attendance");
             }
@@ -840,7 +855,7 @@ public class AttendanceActivity extends AppCompatActivity {
         });
 
         cvLocationInfo.setOnClickListener(v -> {
-            Log.d(TAG, "🔄 Manual location refresh requested");
+            AppLog.d(TAG, "🔄 Manual location refresh requested");
             refreshLocationImmediately();
             Toast.makeText(this, "📍 Location refreshed", Toast.LENGTH_SHORT).show();
         });
@@ -854,7 +869,7 @@ public class AttendanceActivity extends AppCompatActivity {
 
         if (cvDeviceValidation != null) {
             cvDeviceValidation.setOnClickListener(v -> {
-                checkDeviceSession();
+                todayStateLoader.refresh();
                 Toast.makeText(this, "Device validation refreshed", Toast.LENGTH_SHORT).show();
             });
         }
@@ -898,223 +913,441 @@ public class AttendanceActivity extends AppCompatActivity {
      * Clock in with device session management and multi-office support
      */
     private void clockIn() {
-        if (!LocationUtils.hasLocationPermissions(this)) {
+        // Tap to confirmation; each exit path ends the trace with its outcome
+        Tracer.Span trace = Tracer.app().begin("clockIn");
+        Tracer.Span permission = Tracer.app().begin("permissionCheck", trace);
+        boolean permitted = LocationUtils.hasLocationPermissions(this);
+        permission.end();
+        if (!permitted) {
             requestLocationPermissions();
+            trace.arg("outcome", "no permission").end();
             return;
         }
 
         if (!isAtAnyOffice || currentOffice == null) {
             Toast.makeText(this, "You must be at an office location to clock in", Toast.LENGTH_LONG).show();
+            trace.arg("outcome", "not at office").end();
             return;
         }
 
         setLoading(true);
 
+        Tracer.Span locating = Tracer.app().begin("getLastLocation", trace);
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(location -> {
+                    locating.end();
                     if (location != null) {
+                        Tracer.Span detect = Tracer.app().begin("detectOfficeLocation", trace);
                         OfficeDetectionResult result = detectOfficeLocation(location);
+                        detect.end();
 
                         if (result.isAtOffice && result.currentOffice != null) {
-                            performClockIn(location.getLatitude(), location.getLongitude(), result.currentOffice);
+                            performClockIn(location.getLatitude(), location.getLongitude(), result.currentOffice, trace);
                         } else {
                             setLoading(false);
                             String message = result.closestOffice != null ?
                                     "You're too far from " + result.closestOffice.name + " to clock in" :
                                     "You're not at any office location";
                             Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+                            trace.arg("outcome", "not at office").end();
                         }
                     } else {
                         setLoading(false);
                         Toast.makeText(this, "Unable to get location. Please try again.",
                                 Toast.LENGTH_SHORT).show();
+                        trace.arg("outcome", "no location").end();
                     }
                 })
                 .addOnFailureListener(e -> {
+                    locating.end();
                     setLoading(false);
                     Toast.makeText(this, "Location error: " + e.getMessage(),
                             Toast.LENGTH_SHORT).show();
+                    trace.arg("outcome", "location error").end();
                 });
     }
 
     /**
      * Perform clock in with device tracking and office information
      */
-    private void performClockIn(double latitude, double longitude, OfficeLocation office) {
+    private void performClockIn(double latitude, double longitude, OfficeLocation office, Tracer.Span trace) {
+        Tracer.Span build = Tracer.app().begin("buildRecord", trace);
         String today = DateTimeUtils.getCurrentDate();
         String currentTime = DateTimeUtils.getCurrentTime();
 
+        // Today's late alert and clock-out reminder follow this office's hours
+        ReminderScheduler.useOffice(this, office);
+
         // Check if employee is late
         boolean isLate = DateTimeUtils.isLateArrival(currentTime, workStartTime);
         int lateMinutes = isLate ? DateTimeUtils.calculateLateMinutes(currentTime, workStartTime) : 0;
 
         // Create attendance record with device and office information
-        Map<String, Object> attendanceData = new HashMap<>();
-        attendanceData.put("employeeDocId", employeeDocId);
-        attendanceData.put("pfNumber", pfNumber);
-        attendanceData.put("employeeName", employeeName);
-        attendanceData.put("date", today);
-        attendanceData.put("clockInTime", currentTime);
-        attendanceData.put("clockInTimestamp", com.google.firebase.Timestamp.now());
-        attendanceData.put("clockInLatitude", latitude);
-        attendanceData.put("clockInLongitude", longitude);
+        AttendanceRecord record = new AttendanceRecord();
+        record.setEmployeeDocId(employeeDocId);
+        record.setPfNumber(pfNumber);
+        record.setEmployeeName(employeeName);
+        record.setDepartment(department);
+        record.setDate(today);
+        record.setClockInTime(currentTime);
+        record.setClockInLatitude(latitude);
+        record.setClockInLongitude(longitude);
 
         // ✅ ENHANCED: Store office information
-        attendanceData.put("officeId", office.id);
-        attendanceData.put("officeName", office.name);
-        attendanceData.put("locationName", office.name);
+        record.setOfficeId(office.id);
+        record.setOfficeName(office.name);
+        record.setLocationName(office.name);
 
-        attendanceData.put("status", isLate ? "Late" : "Present");
-        attendanceData.put("totalHours", 0.0);
-        attendanceData.put("isLate", isLate);
-        attendanceData.put("lateMinutes", lateMinutes);
-        attendanceData.put("createdAt", com.google.firebase.Timestamp.now());
+        record.setStatus(isLate ? "Late" : "Present");
+        record.setLate(isLate);
+        record.setLateMinutes(lateMinutes);
 
         // Device session management
-        attendanceData.put("deviceId", deviceId);
-        attendanceData.put("deviceModel", DeviceSecurityUtils.getDeviceModel());
-        attendanceData.put("deviceManufacturer", DeviceSecurityUtils.getDeviceManufacturer());
-        attendanceData.put("sessionActive", true);
-        attendanceData.put("sessionStartTime", com.google.firebase.Timestamp.now());
+        record.setDeviceId(deviceId);
+        record.setDeviceModel(DeviceSecurityUtils.getDeviceModel());
+        record.setDeviceManufacturer(DeviceSecurityUtils.getDeviceManufacturer());
+        record.setSessionActive(true);
 
         // Time security validation
         if (lastTimeValidation != null) {
-            attendanceData.put("timeValidationMethod", lastTimeValidation.validationMethod);
-            attendanceData.put("timeDifferenceMs", lastTimeValidation.timeDifferenceMs);
-            attendanceData.put("autoTimeEnabled", TimeSecurityUtils.isAutomaticTimeEnabled(this));
+            record.putExtra(AttendanceFields.TIME_VALIDATION_METHOD, lastTimeValidation.validationMethod);
+            record.putExtra(AttendanceFields.TIME_DIFFERENCE_MS, lastTimeValidation.timeDifferenceMs);
+            record.putExtra(AttendanceFields.AUTO_TIME_ENABLED, TimeSecurityUtils.isAutomaticTimeEnabled(this));
         }
 
-        db.collection("attendance")
-                .add(attendanceData)
-                .addOnSuccessListener(documentReference -> {
-                    setLoading(false);
-                    todayAttendanceDocId = documentReference.getId();
-                    isClockedIn = true;
+        Map<String, Object> attendanceData = AttendanceRecordCodec.INSTANCE.encode(record);
+        build.end();
 
-                    tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(currentTime));
+        // Offline-first: confirm as soon as the event is durably journaled, the syncer writes it to Firestore
+        ClockEvent event = clockSync != null ? createClockEvent(ClockEvent.TYPE_CLOCK_IN, today,
+                latitude, longitude, attendanceData) : null;
+        if (event == null) {
+            writeClockIn(attendanceData, office, currentTime, isLate, lateMinutes, trace);
+            return;
+        }
 
-                    if (isLate) {
-                        tvTodayStatus.setText("Clocked In at " + office.name + " (Late) ⚠️");
-                        Toast.makeText(this, "Clocked in at " + office.name + "! You are " + lateMinutes + " minutes late.",
-                                Toast.LENGTH_LONG).show();
-                    } else {
-                        tvTodayStatus.setText("Clocked In at " + office.name + " ✅");
-                        Toast.makeText(this, "Successfully clocked in at " + office.name + "!", Toast.LENGTH_SHORT).show();
-                    }
+        Tracer.Span journal = Tracer.app().begin("journal", trace);
+        clockSync.record(event, new ClockSync.RecordCallback() {
+            @Override
+            public void onRecorded() {
+                journal.end();
+                setLoading(false);
+                todayAttendanceDocId = event.getAttendanceId();
+                todayAttendanceDate = event.date;
+                isClockedIn = true;
+                Tracer.Span ui = Tracer.app().begin("showConfirmation", trace);
+                showClockedIn(office.name, currentTime, isLate, lateMinutes, true);
+                ui.end();
+                trace.arg("outcome", "journaled").end();
+            }
 
-                    btnClockIn.setVisibility(View.GONE);
-                    btnClockOut.setVisibility(View.VISIBLE);
-                    updateButtonStates();
-                })
-                .addOnFailureListener(e -> {
-                    setLoading(false);
-                    Toast.makeText(this, "Failed to clock in: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                });
+            @Override
+            public void onError(String error) {
+                journal.arg("error", error).end();
+                AppLog.e(TAG, "Failed to journal clock-in, writing directly: {}", error);
+                writeClockIn(attendanceData, office, currentTime, isLate, lateMinutes, trace);
+            }
+        });
+    }
+
+    /**
+     * Clock in straight to Firestore, when the journal is unavailable or can't take the event
+     */
+    private void writeClockIn(Map<String, Object> attendanceData, OfficeLocation office, String currentTime,
+                              boolean isLate, int lateMinutes, Tracer.Span trace) {
+        com.google.firebase.Timestamp now = com.google.firebase.Timestamp.now();
+        attendanceData.put(AttendanceFields.CLOCK_IN_TIMESTAMP, now);
+        attendanceData.put(AttendanceFields.CREATED_AT, now);
+        attendanceData.put(AttendanceFields.SESSION_START_TIME, now);
+        attendanceData.put(AttendanceFields.LAST_HEARTBEAT, now); // Lets the session sweeper find it
+
+        // Device check, record creation and arrival counters commit together
+        Tracer.Span write = Tracer.app().begin("clockInTransaction", trace);
+        ClockInTransaction.run(db, attendanceData, new ClockInTransaction.ClockInCallback() {
+            @Override
+            public void onClockedIn(String attendanceId, boolean created) {
+                write.end();
+                setLoading(false);
+                todayAttendanceDocId = attendanceId;
+                todayAttendanceDate = (String) attendanceData.get(AttendanceFields.DATE);
+                isClockedIn = true;
+
+                if (!created) {
+                    // Double tap or retry - the session from the first tap is already open, today's state shows it
+                    trace.arg("outcome", "already clocked in").end();
+                    return;
+                }
+
+                Tracer.Span ui = Tracer.app().begin("showConfirmation", trace);
+                showClockedIn(office.name, currentTime, isLate, lateMinutes, false);
+                ui.end();
+                trace.arg("outcome", "clocked in").end();
+            }
+
+            @Override
+            public void onDayComplete(DocumentSnapshot record) {
+                write.end();
+                trace.arg("outcome", "day complete").end();
+                setLoading(false);
+                Toast.makeText(AttendanceActivity.this, "You have already completed today's attendance",
+                        Toast.LENGTH_LONG).show();
+                todayStateLoader.refresh();
+            }
+
+            @Override
+            public void onDeviceConflict(DocumentSnapshot activeSession) {
+                write.end();
+                trace.arg("outcome", "device conflict").end();
+                setLoading(false);
+                isDeviceValid = false;
+                updateDeviceValidationUI(false, "Another device is active ❌");
+                updateButtonStates();
+                showDeviceConflictDialog(getActiveDeviceInfo(
+                        activeSession.getString(AttendanceFields.DEVICE_MANUFACTURER),
+                        activeSession.getString(AttendanceFields.DEVICE_MODEL),
+                        activeSession.getString(AttendanceFields.CLOCK_IN_TIME),
+                        activeSession.getString(AttendanceFields.OFFICE_NAME)));
+            }
+
+            @Override
+            public void onError(String error) {
+                write.arg("error", error).end();
+                trace.arg("outcome", "error").end();
+                setLoading(false);
+                Toast.makeText(AttendanceActivity.this, error, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showClockedIn(String officeName, String clockInTime, boolean isLate, int lateMinutes, boolean pendingSync) {
+        tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(clockInTime));
+
+        String syncSuffix = pendingSync ? " (syncing ⏳)" : "";
+        if (isLate) {
+            tvTodayStatus.setText("Clocked In at " + officeName + " (Late) ⚠️" + syncSuffix);
+            Toast.makeText(this, "Clocked in at " + officeName + "! You are " + lateMinutes + " minutes late.",
+                    Toast.LENGTH_LONG).show();
+        } else {
+            tvTodayStatus.setText("Clocked In at " + officeName + " ✅" + syncSuffix);
+            Toast.makeText(this, "Successfully clocked in at " + officeName + "!", Toast.LENGTH_SHORT).show();
+        }
+
+        btnClockIn.setVisibility(View.GONE);
+        btnClockOut.setVisibility(View.VISIBLE);
+        updateButtonStates();
+    }
+
+    /**
+     * Journal event for the fields, or null if one of them can't be journaled and has to go to Firestore directly
+     */
+    private ClockEvent createClockEvent(String type, String date, double latitude, double longitude,
+                                        Map<String, Object> fields) {
+        try {
+            return ClockEvent.create(type, employeeDocId, date, deviceId, getTrustedTimeOffsetMs(),
+                    latitude, longitude, fields);
+        } catch (IllegalArgumentException e) {
+            AppLog.e(TAG, "Can't journal {}, writing directly: {}", type, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Server time minus device time from the last time validation, 0 if unknown
+     */
+    private long getTrustedTimeOffsetMs() {
+        if (lastTimeValidation == null || lastTimeValidation.serverTime <= 0) return 0;
+        return lastTimeValidation.serverTime - lastTimeValidation.deviceTime;
     }
 
     /**
      * Clock out with session termination and multi-office support
      */
     private void clockOut(String earlyClockOutReason) {
-        if (!LocationUtils.hasLocationPermissions(this) || todayAttendanceDocId == null) {
+        Tracer.Span trace = Tracer.app().begin("clockOut");
+        Tracer.Span permission = Tracer.app().begin("permissionCheck", trace);
+        boolean permitted = LocationUtils.hasLocationPermissions(this);
+        permission.end();
+        if (!permitted || todayAttendanceDocId == null) {
             Toast.makeText(this, "Cannot clock out: No active session", Toast.LENGTH_SHORT).show();
+            trace.arg("outcome", "no session").end();
             return;
         }
 
         if (!isAtAnyOffice) {
             Toast.makeText(this, "You must be at an office location to clock out", Toast.LENGTH_LONG).show();
+            trace.arg("outcome", "not at office").end();
             return;
         }
 
         setLoading(true);
 
+        Tracer.Span locating = Tracer.app().begin("getLastLocation", trace);
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(location -> {
+                    locating.end();
                     if (location != null) {
+                        Tracer.Span detect = Tracer.app().begin("detectOfficeLocation", trace);
                         OfficeDetectionResult result = detectOfficeLocation(location);
+                        detect.end();
 
                         if (result.isAtOffice && result.currentOffice != null) {
-                            performClockOut(location.getLatitude(), location.getLongitude(), earlyClockOutReason, result.currentOffice);
+                            performClockOut(location.getLatitude(), location.getLongitude(), earlyClockOutReason,
+                                    result.currentOffice, trace);
                         } else {
                             setLoading(false);
                             String message = result.closestOffice != null ?
                                     "You're too far from " + result.closestOffice.name + " to clock out" :
                                     "You're not at any office location";
                             Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+                            trace.arg("outcome", "not at office").end();
                         }
                     } else {
                         setLoading(false);
                         Toast.makeText(this, "Unable to get location. Please try again.",
                                 Toast.LENGTH_SHORT).show();
+                        trace.arg("outcome", "no location").end();
                     }
                 })
                 .addOnFailureListener(e -> {
+                    locating.end();
                     setLoading(false);
                     Toast.makeText(this, "Location error: " + e.getMessage(),
                             Toast.LENGTH_SHORT).show();
+                    trace.arg("outcome", "location error").end();
                 });
     }
 
     /**
      * Perform clock out with session termination and office information
      */
-    private void performClockOut(double latitude, double longitude, String earlyClockOutReason, OfficeLocation office) {
+    private void performClockOut(double latitude, double longitude, String earlyClockOutReason, OfficeLocation office,
+                                 Tracer.Span trace) {
+        Tracer.Span build = Tracer.app().begin("buildUpdate", trace);
         String currentTime = DateTimeUtils.getCurrentTime();
 
+        if (todayAttendanceDocId != null) {
+            HeartbeatWriter.getInstance().onClockOut(todayAttendanceDocId);
+        }
+
         // Get clock in time to calculate hours worked
         String clockInTime = tvClockInTime.getText().toString() + ":00";
         double hoursWorked = DateTimeUtils.calculateHoursWorked(clockInTime, currentTime);
 
         Map<String, Object> updates = new HashMap<>();
-        updates.put("clockOutTime", currentTime);
-        updates.put("clockOutTimestamp", com.google.firebase.Timestamp.now());
-        updates.put("clockOutLatitude", latitude);
-        updates.put("clockOutLongitude", longitude);
-        updates.put("totalHours", hoursWorked);
-        updates.put("sessionActive", false); // Terminate session
-        updates.put("sessionEndTime", com.google.firebase.Timestamp.now());
+        updates.put(AttendanceFields.CLOCK_OUT_TIME, currentTime);
+        updates.put(AttendanceFields.CLOCK_OUT_LATITUDE, latitude);
+        updates.put(AttendanceFields.CLOCK_OUT_LONGITUDE, longitude);
+        updates.put(AttendanceFields.TOTAL_HOURS, hoursWorked);
+        updates.put(AttendanceFields.SESSION_ACTIVE, false); // Terminate session
 
         // ✅ ENHANCED: Store clock-out office information
-        updates.put("clockOutOfficeId", office.id);
-        updates.put("clockOutOfficeName", office.name);
+        updates.put(AttendanceFields.CLOCK_OUT_OFFICE_ID, office.id);
+        updates.put(AttendanceFields.CLOCK_OUT_OFFICE_NAME, office.name);
 
         if (earlyClockOutReason != null && !earlyClockOutReason.isEmpty()) {
-            updates.put("earlyClockOutReason", earlyClockOutReason);
-            updates.put("isEarlyClockOut", true);
-            updates.put("earlyClockOutTime", workEndTime);
+            updates.put(AttendanceFields.EARLY_CLOCK_OUT_REASON, earlyClockOutReason);
+            updates.put(AttendanceFields.IS_EARLY_CLOCK_OUT, true);
+            updates.put(AttendanceFields.EARLY_CLOCK_OUT_TIME, workEndTime);
         }
+        build.end();
 
-        db.collection("attendance").document(todayAttendanceDocId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    setLoading(false);
-                    isClockedIn = false;
+        ClockEvent event = clockSync != null && todayAttendanceDate != null ? createClockEvent(ClockEvent.TYPE_CLOCK_OUT,
+                todayAttendanceDate, latitude, longitude, updates) : null;
+        if (event == null) {
+            writeClockOut(updates, office, currentTime, hoursWorked, earlyClockOutReason, trace);
+            return;
+        }
 
-                    tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(currentTime));
-                    tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hoursWorked));
+        Tracer.Span journal = Tracer.app().begin("journal", trace);
+        clockSync.record(event, new ClockSync.RecordCallback() {
+            @Override
+            public void onRecorded() {
+                journal.end();
+                setLoading(false);
+                isClockedIn = false;
+                Tracer.Span ui = Tracer.app().begin("showConfirmation", trace);
+                showClockedOut(office.name, currentTime, hoursWorked, earlyClockOutReason, true);
+                ui.end();
+                trace.arg("outcome", "journaled").end();
+            }
 
-                    if (earlyClockOutReason != null) {
-                        tvTodayStatus.setText("Early Clock Out from " + office.name + " ⚠️");
-                        Toast.makeText(this, "Clocked out early from " + office.name + "! Total hours: " +
-                                        DateTimeUtils.formatHoursWorked(hoursWorked) + ". Reason logged for admin review.",
-                                Toast.LENGTH_LONG).show();
-                    } else {
-                        tvTodayStatus.setText("Work Complete at " + office.name + " ✅");
-                        Toast.makeText(this, "Successfully clocked out from " + office.name + "! Total hours: " +
-                                DateTimeUtils.formatHoursWorked(hoursWorked), Toast.LENGTH_LONG).show();
+            @Override
+            public void onError(String error) {
+                journal.arg("error", error).end();
+                AppLog.e(TAG, "Failed to journal clock-out, writing directly: {}", error);
+                writeClockOut(updates, office, currentTime, hoursWorked, earlyClockOutReason, trace);
+            }
+        });
+    }
+
+    /**
+     * Clock out straight to Firestore, when the journal is unavailable or can't take the event
+     */
+    private void writeClockOut(Map<String, Object> updates, OfficeLocation office, String currentTime,
+                               double hoursWorked, String earlyClockOutReason, Tracer.Span trace) {
+        updates.put(AttendanceFields.CLOCK_OUT_TIMESTAMP, com.google.firebase.Timestamp.now());
+        updates.put(AttendanceFields.SESSION_END_TIME, com.google.firebase.Timestamp.now());
+
+        // Closing the session and counting it in the daily counters commit together
+        DocumentReference recordRef = db.collection(AttendanceFields.COLLECTION).document(todayAttendanceDocId);
+        Map<String, Object> counterUpdate = DailyCounters.buildClockOutUpdate(hoursWorked,
+                earlyClockOutReason != null && !earlyClockOutReason.isEmpty());
+        FirestoreCost.Call cost = FirestoreCost.begin("clockOut.transaction");
+        Tracer.Span write = Tracer.app().begin("clockOutTransaction", trace);
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot record = transaction.get(recordRef);
+                    if (!Boolean.TRUE.equals(record.getBoolean(AttendanceFields.SESSION_ACTIVE))) {
+                        return false; // Already closed, don't count it twice
                     }
+                    transaction.update(recordRef, updates);
 
-                    btnClockIn.setVisibility(View.GONE);
-                    btnClockOut.setVisibility(View.GONE);
+                    // Counted on the day the session opened, even when it closes after midnight
+                    String date = record.getString(AttendanceFields.DATE);
+                    transaction.set(DailyCounters.randomShardRef(db, date != null ? date : DateTimeUtils.getCurrentDate()),
+                            counterUpdate, SetOptions.merge());
+                    return true;
+                })
+                .addOnSuccessListener(closed -> {
+                    cost.end(1, 0, closed ? 2 : 0, closed ? CostLedger.estimateBytes(updates) : 0);
+                    write.end();
+                    setLoading(false);
+                    isClockedIn = false;
+                    Tracer.Span ui = Tracer.app().begin("showConfirmation", trace);
+                    showClockedOut(office.name, currentTime, hoursWorked, earlyClockOutReason, false);
+                    ui.end();
+                    trace.arg("outcome", closed ? "clocked out" : "already closed").end();
                 })
                 .addOnFailureListener(e -> {
+                    cost.end(0, 0, 0, 0);
+                    write.arg("error", e.getMessage()).end();
+                    trace.arg("outcome", "error").end();
                     setLoading(false);
                     Toast.makeText(this, "Failed to clock out: " + e.getMessage(),
                             Toast.LENGTH_LONG).show();
                 });
     }
 
+    private void showClockedOut(String officeName, String clockOutTime, double hoursWorked,
+                                String earlyClockOutReason, boolean pendingSync) {
+        tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(clockOutTime));
+        tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hoursWorked));
+
+        String syncSuffix = pendingSync ? " (syncing ⏳)" : "";
+        if (earlyClockOutReason != null) {
+            tvTodayStatus.setText("Early Clock Out from " + officeName + " ⚠️" + syncSuffix);
+            Toast.makeText(this, "Clocked out early from " + officeName + "! Total hours: " +
+                            DateTimeUtils.formatHoursWorked(hoursWorked) + ". Reason logged for admin review.",
+                    Toast.LENGTH_LONG).show();
+        } else {
+            tvTodayStatus.setText("Work Complete at " + officeName + " ✅" + syncSuffix);
+            Toast.makeText(this, "Successfully clocked out from " + officeName + "! Total hours: " +
+                    DateTimeUtils.formatHoursWorked(hoursWorked), Toast.LENGTH_LONG).show();
+        }
+
+        btnClockIn.setVisibility(View.GONE);
+        btnClockOut.setVisibility(View.GONE);
+    }
+
     private void setLoading(boolean isLoading) {
         if (isLoading) {
             progressBar.setVisibility(View.VISIBLE);
@@ -1135,7 +1368,8 @@ public class AttendanceActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
-        Log.d(TAG, "🔄 Activity started - refreshing location automatically");
+        AppLog.d(TAG, "🔄 Activity started - refreshing location automatically");
+        todayStateLoader.start(this::onTodayState);
 
         // ✅ ENHANCED: Auto-refresh location on activity start
         if (LocationUtils.hasLocationPermissions(this)) {
@@ -1146,18 +1380,39 @@ public class AttendanceActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        Log.d(TAG, "🔄 Activity resumed - refreshing validations and location");
+        AppLog.d(TAG, "🔄 Activity resumed - refreshing validations and location");
 
-        // Re-validate device session when app resumes
-        checkDeviceSession();
+        // Re-validate device session when app resumes (also moves to the new day's record after midnight)
+        todayStateLoader.refresh();
         validateDeviceTime();
 
+        if (clockSync != null) {
+            clockSync.getSyncer().addListener(syncListener);
+            clockSync.getSyncer().requestSync();
+        }
+        HeartbeatWriter.getInstance().onForeground();
+
         // ✅ ENHANCED: Auto-refresh location on activity resume
         if (LocationUtils.hasLocationPermissions(this)) {
             refreshLocationImmediately();
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (clockSync != null) {
+            clockSync.getSyncer().removeListener(syncListener);
+        }
+        HeartbeatWriter.getInstance().onBackground();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        todayStateLoader.stop();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
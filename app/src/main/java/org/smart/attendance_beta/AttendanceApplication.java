@@ -0,0 +1,60 @@
+// AttendanceApplication.java - Process-wide setup that has to run before any activity or receiver
+package org.smart.attendance_beta;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.FirestoreCost;
+import org.smart.attendance_beta.utils.TraceExport;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class AttendanceApplication extends Application {
+
+    private static final String LOG_DUMP_FILE = "applog.txt";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        configureLogging();
+        // Attribute Firestore reads and writes to the screen that made them
+        FirestoreCost.install(this);
+        // Keep a Chrome trace of the clock-in, clock-out, login and dashboard flows in files/trace.json;
+        // release builds leave tracing off
+        if (isDebuggable()) {
+            TraceExport.install(this);
+        }
+    }
+
+    private boolean isDebuggable() {
+        return (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private void configureLogging() {
+        if (!isDebuggable()) {
+            AppLog.setLevel(AppLog.INFO);
+        }
+        // Both log on every location tick or heartbeat; one in six is enough to follow them
+        AppLog.sample("OfficeDetection", 6);
+        AppLog.sample("HeartbeatWriter", 6);
+
+        // Leave the newest log records next to a crash, then let the default handler kill the process
+        File dump = new File(getFilesDir(), LOG_DUMP_FILE);
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> {
+            AppLog.e("AttendanceApplication", "💥 Uncaught exception on {}", thread.getName(), error);
+            try (FileWriter out = new FileWriter(dump, false)) {
+                for (String line : AppLog.dump()) {
+                    out.write(line);
+                    out.write('\n');
+                }
+            } catch (IOException ignored) {
+                // Nothing more can be done while the process is going down
+            }
+            if (previous != null) previous.uncaughtException(thread, error);
+        });
+    }
+}
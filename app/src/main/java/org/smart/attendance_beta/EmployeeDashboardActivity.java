@@ -6,7 +6,6 @@ import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.TextView;
@@ -25,19 +24,33 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import org.smart.attendance_beta.notifications.AttendanceNotificationManager;
+import org.smart.attendance_beta.data.FirestoreAttendanceRepository;
+import org.smart.attendance_beta.notifications.ReminderScheduler;
+import org.smart.attendance_beta.sync.ClockSync;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.AttendanceDistribution;
 import org.smart.attendance_beta.utils.DateTimeUtils;
+import org.smart.attendance_beta.utils.DeviceSecurityUtils;
+import org.smart.attendance_beta.utils.FirestoreCost;
 import org.smart.attendance_beta.utils.LocationUtils;
 import org.smart.attendance_beta.utils.OfficeLocation;
+import org.smart.attendance_beta.utils.ProfileStore;
+import org.smart.attendance_beta.utils.StartupMetrics;
+import org.smart.attendance_beta.utils.TodayState;
+import org.smart.attendance_beta.utils.TodayStateLoader;
+import org.smart.attendance_beta.utils.Tracer;
 import org.smart.attendance_beta.utils.WeeklyAttendanceUtils;
 import org.smart.attendance_beta.utils.GreetingsAndStatsUtils;  // ✅ ONLY ADDITION: Smart greetings
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 
 public class EmployeeDashboardActivity extends AppCompatActivity {
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final String TAG = "EmployeeDashboard";
+    // Logged on every 10-second location tick; sampled outside debug builds
+    private static final String OFFICE_TAG = "OfficeDetection";
 
     // ✅ DATA CLASSES DEFINED FIRST (before any usage)
 
@@ -89,6 +102,10 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
     private String employeeName;
     private String department;
 
+    // Refreshes the header when the employee document changes
+    private final ProfileStore.Observer profileObserver =
+            () -> showProfile(ProfileStore.getInstance(this).peekEmployee());
+
     // ✅ ENHANCED: Multiple office support for Employee Dashboard
     private java.util.List<OfficeLocation> officeLocations = new java.util.ArrayList<>();
     private OfficeLocation currentOffice = null;
@@ -98,14 +115,28 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
     private Handler locationUpdateHandler = new Handler();
     private Runnable locationUpdateRunnable;
 
+    // Today's attendance, shared with AttendanceActivity; created once the employee document ID is known
+    private TodayStateLoader todayStateLoader;
+    private ClockSync clockSync;
+
+    // First load of the screen, from onCreate until profile, offices, today and the week are shown
+    private Tracer.Span loadTrace = Tracer.NONE;
+    private Tracer.Span todayStateStep;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_employee_dashboard);
+        StartupMetrics.trackFirstFrame(this, "employee");
         // Initialize Firebase
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        try {
+            clockSync = ClockSync.get(this);
+        } catch (IOException e) {
+            AppLog.w(TAG, "Clock event journal unavailable, pending clock events won't be shown", e);
+        }
 
         // Get stored employee data
         employeeDocId = getSharedPreferences("attendance_prefs", MODE_PRIVATE)
@@ -123,10 +154,12 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         }
 
         // Load data
+        loadTrace = Tracer.app().begin("employeeDashboardLoad");
+        ProfileStore.getInstance(this).addObserver(profileObserver);
         loadUserData();
         loadAllOfficeLocations(); // ✅ This will handle location updates after offices load
-        loadTodayAttendance();
         loadWeeklyStats();
+        loadTrace.endAfterChildren();
 
         // Don't request permissions here - let loadAllOfficeLocations handle it
     }
@@ -198,28 +231,30 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
             // Fallback: try to find by Firebase UID (in case of Google sign-in users)
             String userEmail = currentUser.getEmail();
             if (userEmail != null) {
-                db.collection("employees")
-                        .whereEqualTo("email", userEmail)
-                        .get()
-                        .addOnCompleteListener(task -> {
-                            if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                                DocumentSnapshot employeeDoc = task.getResult().getDocuments().get(0);
-                                employeeDocId = employeeDoc.getId();
-
-                                // Store for future use
-                                getSharedPreferences("attendance_prefs", MODE_PRIVATE)
-                                        .edit()
-                                        .putString("employee_doc_id", employeeDocId)
-                                        .apply();
-
-                                loadEmployeeData(employeeDoc);
-                            } else {
-                                showError("Employee data not found. Please contact HR.");
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            showError("Error loading employee data: " + e.getMessage());
-                        });
+                ProfileStore.getInstance(this).findEmployeeByEmail(userEmail, new ProfileStore.ProfileCallback() {
+                    @Override
+                    public void onProfileLoaded(ProfileStore.Profile profile) {
+                        employeeDocId = profile.getId();
+
+                        // Store for future use
+                        getSharedPreferences("attendance_prefs", MODE_PRIVATE)
+                                .edit()
+                                .putString("employee_doc_id", employeeDocId)
+                                .apply();
+
+                        loadEmployeeData(profile);
+                    }
+
+                    @Override
+                    public void onNotFound() {
+                        showError("Employee data not found. Please contact HR.");
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        showError("Error loading employee data: " + error);
+                    }
+                });
             } else {
                 showError("User email not found. Please login again.");
                 redirectToLogin();
@@ -234,32 +269,48 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
             return;
         }
 
-        db.collection("employees").document(docId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        DocumentSnapshot document = task.getResult();
-                        if (document.exists()) {
-                            loadEmployeeData(document);
-                        } else {
-                            showError("Employee record not found.");
-                            // Clear stored employee ID if record doesn't exist
-                            getSharedPreferences("attendance_prefs", MODE_PRIVATE)
-                                    .edit()
-                                    .remove("employee_doc_id")
-                                    .apply();
-                            redirectToLogin();
-                        }
-                    } else {
-                        showError("Error loading employee data: " + task.getException().getMessage());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showError("Failed to load employee data: " + e.getMessage());
-                });
+        // Answered from memory when login or the splash already has it; kept current by ProfileStore
+        Tracer.Span step = loadStep("profile");
+        ProfileStore.getInstance(this).getEmployee(docId, new ProfileStore.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(ProfileStore.Profile profile) {
+                loadEmployeeData(profile);
+                step.end(); // After the loads it starts, so the flow doesn't end in between
+            }
+
+            @Override
+            public void onNotFound() {
+                step.end();
+                showError("Employee record not found.");
+                // Clear stored employee ID if record doesn't exist
+                getSharedPreferences("attendance_prefs", MODE_PRIVATE)
+                        .edit()
+                        .remove("employee_doc_id")
+                        .apply();
+                redirectToLogin();
+            }
+
+            @Override
+            public void onError(String error) {
+                step.end();
+                showError("Error loading employee data: " + error);
+            }
+        });
     }
 
-    private void loadEmployeeData(DocumentSnapshot employeeDoc) {
+    private void loadEmployeeData(ProfileStore.Profile employeeDoc) {
+        showProfile(employeeDoc);
+
+        // Load attendance data after getting employee info
+        startTodayState();
+        loadWeeklyStats();
+    }
+
+    /**
+     * Header fields from the profile; also called when ProfileStore reports a change
+     */
+    private void showProfile(ProfileStore.Profile employeeDoc) {
+        if (employeeDoc == null) return;
         try {
             employeeName = employeeDoc.getString("name");
             pfNumber = employeeDoc.getString("pfNumber");
@@ -270,7 +321,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                 // Use the smart greeting system that handles titles properly
                 String smartGreeting = GreetingsAndStatsUtils.generateSmartGreeting(employeeName);
                 tvWelcome.setText(smartGreeting);
-                Log.d("SmartGreeting", "Applied: " + smartGreeting + " for: " + employeeName);
+                AppLog.d("SmartGreeting", "Applied: {} for: {}", smartGreeting, employeeName);
             } else {
                 // Fallback to your original logic
                 String greeting = DateTimeUtils.getTimeBasedGreeting();
@@ -284,10 +335,6 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
             if (department != null) {
                 tvDepartment.setText(department);
             }
-
-            // Load attendance data after getting employee info
-            loadTodayAttendance();
-            loadWeeklyStats();
         } catch (Exception e) {
             showError("Error processing employee data: " + e.getMessage());
         }
@@ -312,11 +359,12 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
      * Load all office locations from Firestore
      */
     private void loadAllOfficeLocations() {
-        Log.d(TAG, "📍 Loading all office locations for dashboard...");
+        AppLog.d(TAG, "📍 Loading all office locations for dashboard...");
 
-        db.collection("locations")
-                .get()
+        Tracer.Span step = loadStep("offices");
+        FirestoreCost.track("employeeDashboard.offices", db.collection("locations").get())
                 .addOnCompleteListener(task -> {
+                    step.end();
                     if (task.isSuccessful()) {
                         officeLocations.clear();
 
@@ -324,17 +372,16 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                             OfficeLocation office = createOfficeFromDocument(document);
                             if (office != null) {
                                 officeLocations.add(office);
-                                Log.d(TAG, "📍 Loaded office: " + office.name + " at " +
-                                        office.latitude + ", " + office.longitude + " (radius: " + office.radius + "m)");
+                                AppLog.d(TAG, "📍 Loaded office: {} at {}, {} (radius: {}m)", office.name, office.latitude, office.longitude, office.radius);
                             }
                         }
 
                         if (officeLocations.isEmpty()) {
-                            Log.w(TAG, "⚠️ No office locations found, using default");
+                            AppLog.w(TAG, "⚠️ No office locations found, using default");
                             addDefaultOffice();
                         }
 
-                        Log.d(TAG, "📍 Total offices loaded: " + officeLocations.size());
+                        AppLog.d(TAG, "📍 Total offices loaded: {}", officeLocations.size());
 
                         // ✅ FIXED: Request permissions and start location updates AFTER loading offices
                         requestLocationPermissions();
@@ -343,11 +390,11 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                         // ✅ FIXED: Immediate location update after offices are loaded
                         if (LocationUtils.hasLocationPermissions(this)) {
                             updateLocation();
-                            Log.d(TAG, "🎯 Immediate location update after loading offices");
+                            AppLog.d(TAG, "🎯 Immediate location update after loading offices");
                         }
 
                     } else {
-                        Log.e(TAG, "❌ Error loading office locations: " + task.getException().getMessage());
+                        AppLog.e(TAG, "❌ Error loading office locations: {}", task.getException().getMessage());
                         Toast.makeText(this, "Error loading office locations", Toast.LENGTH_SHORT).show();
                         addDefaultOffice();
                         requestLocationPermissions();
@@ -360,7 +407,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                     }
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Failed to load office locations: " + e.getMessage());
+                    AppLog.e(TAG, "❌ Failed to load office locations: {}", e.getMessage());
                     Toast.makeText(this, "Failed to load office locations", Toast.LENGTH_SHORT).show();
                     addDefaultOffice();
                     requestLocationPermissions();
@@ -391,10 +438,12 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                 office.latitude = lat;
                 office.longitude = lng;
                 office.radius = radius != null ? radius.intValue() : 200;
+                office.startTime = document.getString("startTime");
+                office.endTime = document.getString("endTime");
                 return office;
             }
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error parsing office document " + document.getId() + ": " + e.getMessage());
+            AppLog.e(TAG, "❌ Error parsing office document {}: {}", document.getId(), e.getMessage());
         }
         return null;
     }
@@ -463,7 +512,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                 currentOffice = office;
                 isAtAnyOffice = true;
 
-                Log.d(TAG, "✅ User is at " + office.name + " (distance: " + String.format("%.0f", distance) + "m)");
+                AppLog.d(OFFICE_TAG, "✅ User is at {} (distance: {}m)", office.name, Math.round(distance));
                 return result;
             }
 
@@ -479,61 +528,66 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         isAtAnyOffice = false;
         result.currentDistance = result.closestDistance;
 
-        Log.d(TAG, "🚫 User not at any office. Closest: " +
-                (result.closestOffice != null ? result.closestOffice.name : "None") +
-                " (" + String.format("%.0f", result.closestDistance) + "m)");
+        AppLog.d(OFFICE_TAG, "🚫 User not at any office. Closest: {} ({}m)", (result.closestOffice != null ? result.closestOffice.name : "None"), Math.round(result.closestDistance));
 
         return result;
     }
 
-    private void loadTodayAttendance() {
+    private void startTodayState() {
         if (employeeDocId == null) return;
+        if (todayStateLoader == null) {
+            todayStateLoader = new TodayStateLoader(this, db, employeeDocId,
+                    DeviceSecurityUtils.getDeviceId(this), clockSync);
+        }
+        if (todayStateStep == null) todayStateStep = loadStep("todayState");
+        todayStateLoader.start(this::showTodayAttendance);
+    }
 
-        String today = DateTimeUtils.getCurrentDate();
+    /**
+     * A step of the first load, or an untraced one once that load has finished
+     */
+    private Tracer.Span loadStep(String step) {
+        return loadTrace.durationNanos() < 0 ? Tracer.app().begin(step, loadTrace) : Tracer.NONE;
+    }
 
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", today)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        DocumentSnapshot attendance = task.getResult().getDocuments().get(0);
+    /**
+     * Today's times, whichever device the day is on
+     */
+    private void showTodayAttendance(TodayState state) {
+        if (todayStateStep != null) todayStateStep.end();
+        String clockInTime = state.clockInTime != null ? state.clockInTime : state.activeClockInTime;
+        String clockOutTime = state.clockOutTime;
 
-                        String clockInTime = attendance.getString("clockInTime");
-                        String clockOutTime = attendance.getString("clockOutTime");
+        if (clockInTime != null) {
+            tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(clockInTime));
+        }
 
-                        if (clockInTime != null) {
-                            tvClockInTime.setText(DateTimeUtils.formatTimeForDisplay(clockInTime));
-                        }
+        if (clockOutTime != null) {
+            tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(clockOutTime));
 
-                        if (clockOutTime != null) {
-                            tvClockOutTime.setText(DateTimeUtils.formatTimeForDisplay(clockOutTime));
-
-                            // Calculate hours worked
-                            double hours = DateTimeUtils.calculateHoursWorked(clockInTime, clockOutTime);
-                            tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours));
-                        } else if (clockInTime != null) {
-                            // Still clocked in, calculate current hours
-                            String currentTime = DateTimeUtils.getCurrentTime();
-                            double hours = DateTimeUtils.calculateHoursWorked(clockInTime, currentTime);
-                            tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours) + " (ongoing)");
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    // Silently handle failure for attendance data
-                    // No need to show error as this is optional data
-                });
+            // Calculate hours worked
+            if (clockInTime != null) {
+                double hours = DateTimeUtils.calculateHoursWorked(clockInTime, clockOutTime);
+                tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours));
+            }
+        } else if (clockInTime != null) {
+            // Still clocked in, calculate current hours
+            String currentTime = DateTimeUtils.getCurrentTime();
+            double hours = DateTimeUtils.calculateHoursWorked(clockInTime, currentTime);
+            tvHoursWorked.setText(DateTimeUtils.formatHoursWorked(hours) + " (ongoing)");
+        }
     }
 
     private void loadWeeklyStats() {
         if (employeeDocId == null) return;
 
         // Load weekly stats with comprehensive metrics
+        Tracer.Span step = loadStep("weeklyStats");
         WeeklyAttendanceUtils.loadWeeklyStats(employeeDocId, new WeeklyAttendanceUtils.WeeklyStatsCallback() {
             @Override
             public void onStatsLoaded(WeeklyAttendanceUtils.WeeklyStats stats) {
                 updateWeeklyStatsUI(stats);
+                step.end();
 
                 // Load attendance trend for additional insights
                 WeeklyAttendanceUtils.getAttendanceTrend(employeeDocId, new WeeklyAttendanceUtils.TrendCallback() {
@@ -544,14 +598,15 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
                     @Override
                     public void onError(String error) {
-                        Log.e("WeeklyStats", "Error loading trend: " + error);
+                        AppLog.e("WeeklyStats", "Error loading trend: {}", error);
                     }
                 });
             }
 
             @Override
             public void onError(String error) {
-                Log.e("WeeklyStats", "Error loading weekly stats: " + error);
+                step.end();
+                AppLog.e("WeeklyStats", "Error loading weekly stats: {}", error);
                 // Show fallback data
                 showFallbackWeeklyStats();
             }
@@ -618,6 +673,10 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                     stats.daysLate,
                     WeeklyAttendanceUtils.formatHoursWorked(stats.totalHours)
             );
+            if (stats.distribution.getArrivalStats().getCount() > 0) {
+                details += "\nTypical arrival: " + AttendanceDistribution.formatMinuteOfDay(
+                        stats.distribution.arrivalPercentile(50));
+            }
             tvWeeklyDetails.setText(details);
         }
     }
@@ -686,7 +745,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                 startLocationUpdates();
                 // ✅ FIXED: Immediate location update after permission granted
                 updateLocation();
-                Log.d(TAG, "✅ Location permission granted, immediate update triggered");
+                AppLog.d(TAG, "✅ Location permission granted, immediate update triggered");
             } else {
                 tvLocationStatus.setText("Location permission denied");
                 tvDistanceFromOffice.setText("Enable location to track attendance");
@@ -721,7 +780,7 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                         // ✅ ENHANCED: Check against all office locations
                         OfficeDetectionResult result = detectOfficeLocation(location);
 
-                        Log.d(TAG, "📍 Dashboard location updated - " + result.toString());
+                        AppLog.d(OFFICE_TAG, "📍 Dashboard location updated - {}", result);
                         updateLocationUI(result);
                     } else {
                         tvLocationStatus.setText("Unable to get location");
@@ -813,9 +872,10 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Yes", (dialog, which) -> {
                     // Cancel all scheduled notifications before logout
-                    AttendanceNotificationManager.cancelAllReminders(this);
+                    ReminderScheduler.cancel(this);
 
                     // Clear stored data
+                    ProfileStore.getInstance(this).clear();
                     getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                             .edit()
                             .clear()
@@ -841,14 +901,16 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
             return;
         }
 
-        // Refresh data when returning to dashboard
-        loadTodayAttendance();
+        // Refresh data when returning to dashboard; today's record is live, this updates ongoing hours
+        if (todayStateLoader != null) {
+            todayStateLoader.refresh();
+        }
         loadWeeklyStats();
 
         // ✅ ENHANCED: Auto-refresh location when activity resumes
         if (LocationUtils.hasLocationPermissions(this)) {
             updateLocation();
-            Log.d("Dashboard", "📍 Location refreshed automatically on resume");
+            AppLog.d("Dashboard", "📍 Location refreshed automatically on resume");
         }
     }
 
@@ -861,11 +923,22 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
             redirectToLogin();
             return;
         }
+        startTodayState();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (todayStateLoader != null) {
+            todayStateLoader.stop();
+        }
+        FirestoreAttendanceRepository.logReadStats();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        ProfileStore.getInstance(this).removeObserver(profileObserver);
         if (locationUpdateHandler != null && locationUpdateRunnable != null) {
             locationUpdateHandler.removeCallbacks(locationUpdateRunnable);
         }
@@ -10,7 +10,6 @@ import android.os.Bundle;
 import android.os.PowerManager;
 import android.provider.Settings;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -18,23 +17,28 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.Manifest;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
-import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.data.EmployeeFields;
 import org.smart.attendance_beta.notifications.AttendanceNotificationManager;
+import org.smart.attendance_beta.notifications.ReminderScheduler;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.AttendanceIds;
 import org.smart.attendance_beta.utils.DateTimeUtils;
 import org.smart.attendance_beta.utils.DeviceSecurityUtils;
+import org.smart.attendance_beta.utils.FirestoreCost;
+import org.smart.attendance_beta.utils.LoginOrchestrator;
+import org.smart.attendance_beta.utils.ProfileStore;
+import org.smart.attendance_beta.utils.StartupRouteCache;
 
 public class LoginActivity extends AppCompatActivity {
 
@@ -49,6 +53,8 @@ public class LoginActivity extends AppCompatActivity {
     // Device session management
     private String deviceId;
 
+    private LoginOrchestrator loginOrchestrator;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -59,6 +65,7 @@ public class LoginActivity extends AppCompatActivity {
         // Initialize Firebase Auth and Firestore
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
+        loginOrchestrator = new LoginOrchestrator(db, mAuth, deviceId);
 
         // Initialize views
         initViews();
@@ -119,87 +126,48 @@ public class LoginActivity extends AppCompatActivity {
         // Show loading
         setLoading(true);
 
-        // First, find the employee by PF Number
-        db.collection("employees")
-                .whereEqualTo("pfNumber", pfNumber)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        // Employee found, get their details
-                        DocumentSnapshot employeeDoc = task.getResult().getDocuments().get(0);
-                        String email = employeeDoc.getString("email");
-                        String employeeDocId = employeeDoc.getId();
-
-                        if (email != null) {
-                            // Check device session before authenticating
-                            checkDeviceSessionBeforeLogin(employeeDocId, email, password, employeeDoc);
-                        } else {
-                            setLoading(false);
-                            Toast.makeText(LoginActivity.this,
-                                    "Employee email not found. Please contact admin.",
-                                    Toast.LENGTH_LONG).show();
-                        }
-                    } else {
-                        setLoading(false);
-                        Toast.makeText(LoginActivity.this,
-                                "PF Number not found. Please check your PF Number or register first.",
-                                Toast.LENGTH_LONG).show();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    setLoading(false);
-                    Toast.makeText(LoginActivity.this,
-                            "Error connecting to database: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                });
-    }
-
-    /**
-     * Check if employee has an active session on another device before allowing login
-     */
-    private void checkDeviceSessionBeforeLogin(String employeeDocId, String email, String password, DocumentSnapshot employeeDoc) {
-        String today = DateTimeUtils.getCurrentDate();
+        // PF lookup, session check and sign-in, overlapped where they don't depend on each other
+        loginOrchestrator.start(pfNumber, password, new LoginOrchestrator.LoginCallback() {
+            @Override
+            public void onLoggedIn(DocumentSnapshot employeeDoc, boolean sessionVerified) {
+                setLoading(false);
+                if (!sessionVerified) {
+                    // Error checking session - login was allowed, let the user know
+                    Toast.makeText(LoginActivity.this, "Warning: Could not verify device session", Toast.LENGTH_SHORT).show();
+                }
+
+                // Store employee data before redirecting; apply() updates the in-memory prefs at once
+                storeEmployeeData(employeeDoc.getId(), employeeDoc);
+
+                // Hand the document to ProfileStore so the dashboard doesn't read it again
+                ProfileStore profileStore = ProfileStore.getInstance(LoginActivity.this);
+                profileStore.clear();
+                profileStore.rememberEmployee(employeeDoc);
+                checkUserRoleAndRedirect(profileStore.peekEmployee());
+            }
 
-        // Check if employee has an active attendance session on another device
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", today)
-                .whereEqualTo("sessionActive", true)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            // No active session - can proceed with login
-                            authenticateWithFirebase(email, password, employeeDocId, employeeDoc);
-                        } else {
-                            // Active session found - check if it's on this device
-                            DocumentSnapshot activeSession = task.getResult().getDocuments().get(0);
-                            String sessionDeviceId = activeSession.getString("deviceId");
+            @Override
+            public void onDeviceConflict(DocumentSnapshot activeSession, DocumentSnapshot employeeDoc) {
+                // Different device - show device conflict dialog
+                setLoading(false);
+                showDeviceConflictDialog(activeSession, employeeDoc);
+            }
 
-                            if (deviceId.equals(sessionDeviceId)) {
-                                // Same device - can proceed with login
-                                authenticateWithFirebase(email, password, employeeDocId, employeeDoc);
-                            } else {
-                                // Different device - show device conflict dialog
-                                setLoading(false);
-                                showDeviceConflictDialog(activeSession, employeeDoc);
-                            }
-                        }
-                    } else {
-                        // Error checking session - allow login but log the error
-                        Toast.makeText(this, "Warning: Could not verify device session", Toast.LENGTH_SHORT).show();
-                        authenticateWithFirebase(email, password, employeeDocId, employeeDoc);
-                    }
-                });
+            @Override
+            public void onError(String error) {
+                setLoading(false);
+                Toast.makeText(LoginActivity.this, error, Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     /**
      * Show dialog when user tries to login while clocked in on another device
      */
     private void showDeviceConflictDialog(DocumentSnapshot activeSession, DocumentSnapshot employeeDoc) {
-        String employeeName = employeeDoc.getString("name");
+        String employeeName = employeeDoc.getString(EmployeeFields.NAME);
         String activeDeviceInfo = getActiveDeviceInfo(activeSession);
-        String clockInTime = activeSession.getString("clockInTime");
+        String clockInTime = activeSession.getString(AttendanceFields.CLOCK_IN_TIME);
 
         String message = "You are currently clocked in from another device:\n\n" +
                 "Active Device: " + activeDeviceInfo + "\n" +
@@ -246,53 +214,17 @@ public class LoginActivity extends AppCompatActivity {
      * Get display info for the active device
      */
     private String getActiveDeviceInfo(DocumentSnapshot session) {
-        String deviceModel = session.getString("deviceModel");
-        String deviceManufacturer = session.getString("deviceManufacturer");
+        String deviceModel = session.getString(AttendanceFields.DEVICE_MODEL);
+        String deviceManufacturer = session.getString(AttendanceFields.DEVICE_MANUFACTURER);
 
         if (deviceModel != null && deviceManufacturer != null) {
             return deviceManufacturer + " " + deviceModel;
         } else {
-            String deviceId = session.getString("deviceId");
+            String deviceId = session.getString(AttendanceFields.DEVICE_ID);
             return "Unknown device" + (deviceId != null ? " (" + deviceId.substring(0, 8) + "...)" : "");
         }
     }
 
-    private void authenticateWithFirebase(String email, String password, String employeeDocId, DocumentSnapshot employeeDoc) {
-        mAuth.signInWithEmailAndPassword(email, password)
-                .addOnCompleteListener(this, new OnCompleteListener<AuthResult>() {
-                    @Override
-                    public void onComplete(@NonNull Task<AuthResult> task) {
-                        setLoading(false);
-
-                        if (task.isSuccessful()) {
-                            // Sign in success
-                            FirebaseUser user = mAuth.getCurrentUser();
-                            if (user != null) {
-                                // Store employee data immediately after successful login
-                                storeEmployeeData(employeeDocId, employeeDoc);
-
-                                // Small delay to ensure data is stored
-                                new android.os.Handler().postDelayed(() -> {
-                                    checkUserRoleAndRedirect(employeeDoc);
-                                }, 500);
-                            }
-                        } else {
-                            // Sign in failed
-                            String errorMessage = "Login failed. Please check your password.";
-                            if (task.getException() != null) {
-                                String exception = task.getException().getMessage();
-                                if (exception != null && exception.contains("password")) {
-                                    errorMessage = "Incorrect password. Please try again.";
-                                } else if (exception != null && exception.contains("user-not-found")) {
-                                    errorMessage = "Account not activated. Please register first.";
-                                }
-                            }
-                            Toast.makeText(LoginActivity.this, errorMessage, Toast.LENGTH_LONG).show();
-                        }
-                    }
-                });
-    }
-
     /**
      * Store employee data immediately after login
      */
@@ -302,14 +234,20 @@ public class LoginActivity extends AppCompatActivity {
             getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                     .edit()
                     .putString("employee_doc_id", employeeDocId)
-                    .putString("employee_name", employeeDoc.getString("name"))
-                    .putString("employee_pf", employeeDoc.getString("pfNumber"))
-                    .putString("employee_email", employeeDoc.getString("email"))
-                    .putString("employee_department", employeeDoc.getString("department"))
-                    .putString("employee_role", employeeDoc.getString("role"))
+                    .putString("employee_name", employeeDoc.getString(EmployeeFields.NAME))
+                    .putString("employee_pf", employeeDoc.getString(EmployeeFields.PF_NUMBER))
+                    .putString("employee_email", employeeDoc.getString(EmployeeFields.EMAIL))
+                    .putString("employee_department", employeeDoc.getString(EmployeeFields.DEPARTMENT))
+                    .putString("employee_role", employeeDoc.getString(EmployeeFields.ROLE))
                     .putString("device_id", deviceId) // Store device ID for session tracking
                     .putLong("login_timestamp", System.currentTimeMillis())
                     .apply();
+
+            // Lets the next cold start route without waiting for Firestore
+            FirebaseUser user = mAuth.getCurrentUser();
+            if (user != null) {
+                StartupRouteCache.save(this, user.getUid(), employeeDoc.getString(EmployeeFields.ROLE), employeeDoc);
+            }
         } catch (Exception e) {
             // If storing fails, at least store the essential employee doc ID and device ID
             getSharedPreferences("attendance_prefs", MODE_PRIVATE)
@@ -340,23 +278,17 @@ public class LoginActivity extends AppCompatActivity {
      * Check device session for user who is already logged in (from previous session)
      */
     private void checkDeviceSessionForExistingUser(String employeeDocId) {
-        String today = DateTimeUtils.getCurrentDate();
-
         // Check if employee has an active attendance session on another device
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", today)
-                .whereEqualTo("sessionActive", true)
-                .get()
+        FirestoreCost.track("login.todaySession", AttendanceIds.todayRef(db, employeeDocId).get())
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
+                        if (!AttendanceIds.isActiveSession(task.getResult())) {
                             // No active session - can proceed to dashboard
                             loadEmployeeAndRedirect(employeeDocId);
                         } else {
                             // Active session found - check if it's on this device
-                            DocumentSnapshot activeSession = task.getResult().getDocuments().get(0);
-                            String sessionDeviceId = activeSession.getString("deviceId");
+                            DocumentSnapshot activeSession = task.getResult();
+                            String sessionDeviceId = activeSession.getString(AttendanceFields.DEVICE_ID);
 
                             if (deviceId.equals(sessionDeviceId)) {
                                 // Same device - can proceed to dashboard
@@ -384,7 +316,7 @@ public class LoginActivity extends AppCompatActivity {
         mAuth.signOut();
 
         String activeDeviceInfo = getActiveDeviceInfo(activeSession);
-        String clockInTime = activeSession.getString("clockInTime");
+        String clockInTime = activeSession.getString(AttendanceFields.CLOCK_IN_TIME);
 
         new AlertDialog.Builder(this)
                 .setTitle("🔒 Session Terminated")
@@ -404,30 +336,32 @@ public class LoginActivity extends AppCompatActivity {
      * Load employee data and redirect to appropriate dashboard
      */
     private void loadEmployeeAndRedirect(String employeeDocId) {
-        db.collection("employees").document(employeeDocId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        DocumentSnapshot document = task.getResult();
-                        if (document.exists()) {
-                            checkUserRoleAndRedirect(document);
-                        } else {
-                            // Employee document not found, clear data and force login
-                            clearStoredData();
-                            mAuth.signOut();
-                            Toast.makeText(this, "Employee record not found. Please login again.", Toast.LENGTH_LONG).show();
-                        }
-                    } else {
-                        // Error loading employee data
-                        Toast.makeText(this, "Error loading employee data. Please try again.", Toast.LENGTH_LONG).show();
-                    }
-                });
+        ProfileStore.getInstance(this).getEmployee(employeeDocId, new ProfileStore.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(ProfileStore.Profile profile) {
+                checkUserRoleAndRedirect(profile);
+            }
+
+            @Override
+            public void onNotFound() {
+                // Employee document not found, clear data and force login
+                clearStoredData();
+                mAuth.signOut();
+                Toast.makeText(LoginActivity.this, "Employee record not found. Please login again.", Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(String error) {
+                // Error loading employee data
+                Toast.makeText(LoginActivity.this, "Error loading employee data. Please try again.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
-    private void checkUserRoleAndRedirect(DocumentSnapshot employeeDoc) {
+    private void checkUserRoleAndRedirect(ProfileStore.Profile employeeDoc) {
         try {
-            String role = employeeDoc.getString("role");
-            Boolean isActive = employeeDoc.getBoolean("isActive");
+            String role = employeeDoc.getString(EmployeeFields.ROLE);
+            Boolean isActive = employeeDoc.getBoolean(EmployeeFields.IS_ACTIVE);
 
             if (isActive != null && !isActive) {
                 Toast.makeText(LoginActivity.this,
@@ -481,6 +415,7 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void clearStoredData() {
+        ProfileStore.getInstance(this).clear();
         getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                 .edit()
                 .clear()
@@ -521,8 +456,14 @@ public class LoginActivity extends AppCompatActivity {
         etPfNumber.setError(null);
         etPassword.setError(null);
 
-        // Stop loading if it was running
-        setLoading(false);
+        // Stop loading unless a login is still in flight
+        setLoading(loginOrchestrator.isRunning());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        loginOrchestrator.cancel();
     }
 
     /**
@@ -622,12 +563,12 @@ public class LoginActivity extends AppCompatActivity {
             // Setup notification channel
             AttendanceNotificationManager.setupNotificationChannel(this);
 
-            // Schedule daily reminders
-            AttendanceNotificationManager.scheduleDailyReminders(this);
+            // Arm the next reminder; each one arms the one after it
+            ReminderScheduler.scheduleNext(this);
 
-            Log.d("LoginActivity", "Attendance notifications scheduled successfully");
+            AppLog.d("LoginActivity", "Attendance notifications scheduled successfully");
         } catch (Exception e) {
-            Log.e("LoginActivity", "Error setting up notifications: " + e.getMessage());
+            AppLog.e("LoginActivity", "Error setting up notifications: {}", e.getMessage());
         }
     }
     // Add to LoginActivity after login
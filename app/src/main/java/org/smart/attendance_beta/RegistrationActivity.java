@@ -2,7 +2,12 @@ package org.smart.attendance_beta;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -23,6 +28,9 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import org.smart.attendance_beta.utils.PfIndex;
+import org.smart.attendance_beta.utils.RegistrationLookup;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -37,6 +45,9 @@ public class RegistrationActivity extends AppCompatActivity {
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
 
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private RegistrationLookup<DocumentSnapshot> employeeLookup;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -46,6 +57,12 @@ public class RegistrationActivity extends AppCompatActivity {
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
 
+        // One read per PF number: the info line and the submit step share the lookup's result
+        employeeLookup = new RegistrationLookup<>(this::resolveEmployee, (task, delayMs) -> {
+            handler.postDelayed(task, delayMs);
+            return () -> handler.removeCallbacks(task);
+        }, SystemClock::elapsedRealtime);
+
         // Initialize views
         initViews();
         setupClickListeners();
@@ -77,63 +94,100 @@ public class RegistrationActivity extends AppCompatActivity {
             }
         });
 
-        // Check employee info when PF number is entered
+        // Check employee info once typing pauses, or right away when the PF field loses focus
+        etPfNumber.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                String pfNumber = PfIndex.normalize(s.toString());
+                if (pfNumber.length() < 3) {
+                    employeeLookup.cancel();
+                    tvEmployeeInfo.setVisibility(View.GONE);
+                    return;
+                }
+                employeeLookup.onInput(pfNumber, employeeInfoCallback);
+            }
+        });
+
         etPfNumber.setOnFocusChangeListener(new View.OnFocusChangeListener() {
             @Override
             public void onFocusChange(View v, boolean hasFocus) {
                 if (!hasFocus) {
-                    String pfNumber = etPfNumber.getText().toString().trim();
+                    String pfNumber = PfIndex.normalize(etPfNumber.getText().toString());
                     if (!TextUtils.isEmpty(pfNumber)) {
-                        checkEmployeeExists(pfNumber);
+                        employeeLookup.lookupNow(pfNumber, employeeInfoCallback);
                     }
                 }
             }
         });
     }
 
-    // In RegistrationActivity.java, in the checkEmployeeExists method
-// Replace this section:
-
-    private void checkEmployeeExists(String pfNumber) {
-        db.collection("employees")
-                .whereEqualTo("pfNumber", pfNumber.toUpperCase())
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        DocumentSnapshot employeeDoc = task.getResult().getDocuments().get(0);
-
-                        // Check if already registered
-                        Boolean hasPassword = employeeDoc.getBoolean("hasPassword");
-                        if (hasPassword != null && hasPassword) {
-                            tvEmployeeInfo.setText("❌ This employee has already set up their password. Please use Sign In.");
-                            tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                            btnRegister.setEnabled(false);
-                        } else {
-                            // Show employee info
-                            String name = employeeDoc.getString("name");
-                            String department = employeeDoc.getString("department");
-                            String role = employeeDoc.getString("role");
-
-                            tvEmployeeInfo.setText("✅ Found: " + name + " | " + department + " | " + role);
-                            tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-                            btnRegister.setEnabled(true); // ← This enables the button
-                        }
-                        tvEmployeeInfo.setVisibility(View.VISIBLE);
-                    } else {
-                        tvEmployeeInfo.setText("❌ PF Number not found in company records. Please contact HR.");
+    private void resolveEmployee(String pfNumber, RegistrationLookup.Callback<DocumentSnapshot> done) {
+        PfIndex.resolve(db, pfNumber, new PfIndex.ResolveCallback() {
+            @Override
+            public void onResolved(DocumentSnapshot employeeDoc) {
+                done.onResolved(employeeDoc);
+            }
+
+            @Override
+            public void onNotFound() {
+                done.onNotFound();
+            }
+
+            @Override
+            public void onError(String error) {
+                done.onError(error);
+            }
+        });
+    }
+
+    private final RegistrationLookup.Callback<DocumentSnapshot> employeeInfoCallback =
+            new RegistrationLookup.Callback<DocumentSnapshot>() {
+                @Override
+                public void onResolved(DocumentSnapshot employeeDoc) {
+                    // Check if already registered
+                    Boolean hasPassword = employeeDoc.getBoolean("hasPassword");
+                    if (hasPassword != null && hasPassword) {
+                        tvEmployeeInfo.setText("❌ This employee has already set up their password. Please use Sign In.");
                         tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-                        tvEmployeeInfo.setVisibility(View.VISIBLE);
                         btnRegister.setEnabled(false);
-
-                        // TEMPORARY FIX: Enable button anyway for testing
-                        // Remove this after you add employees to database
-                        btnRegister.setEnabled(true);
-                        tvEmployeeInfo.setText("⚠️ Testing mode: PF Number not found but button enabled");
-                        tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+                    } else {
+                        // Show employee info
+                        String name = employeeDoc.getString("name");
+                        String department = employeeDoc.getString("department");
+                        String role = employeeDoc.getString("role");
+
+                        tvEmployeeInfo.setText("✅ Found: " + name + " | " + department + " | " + role);
+                        tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
+                        btnRegister.setEnabled(true); // ← This enables the button
                     }
-                })
-                .addOnFailureListener(e -> {
-                    tvEmployeeInfo.setText("❌ Error checking employee: " + e.getMessage());
+                    tvEmployeeInfo.setVisibility(View.VISIBLE);
+                }
+
+                @Override
+                public void onNotFound() {
+                    tvEmployeeInfo.setText("❌ PF Number not found in company records. Please contact HR.");
+                    tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
+                    tvEmployeeInfo.setVisibility(View.VISIBLE);
+                    btnRegister.setEnabled(false);
+
+                    // TEMPORARY FIX: Enable button anyway for testing
+                    // Remove this after you add employees to database
+                    btnRegister.setEnabled(true);
+                    tvEmployeeInfo.setText("⚠️ Testing mode: PF Number not found but button enabled");
+                    tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+                }
+
+                @Override
+                public void onError(String error) {
+                    tvEmployeeInfo.setText("❌ Error checking employee: " + error);
                     tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
                     tvEmployeeInfo.setVisibility(View.VISIBLE);
                     btnRegister.setEnabled(false);
@@ -143,8 +197,8 @@ public class RegistrationActivity extends AppCompatActivity {
                     btnRegister.setEnabled(true);
                     tvEmployeeInfo.setText("⚠️ Testing mode: Database error but button enabled");
                     tvEmployeeInfo.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
-                });
-    }
+                }
+            };
 
     private void setupPassword() {
         // Get input values
@@ -160,31 +214,37 @@ public class RegistrationActivity extends AppCompatActivity {
         // Show loading
         setLoading(true);
 
-        // Verify employee exists and setup password
-        db.collection("employees")
-                .whereEqualTo("pfNumber", pfNumber)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        DocumentSnapshot employeeDoc = task.getResult().getDocuments().get(0);
-
-                        // Check if already has password
-                        Boolean hasPassword = employeeDoc.getBoolean("hasPassword");
-                        if (hasPassword != null && hasPassword) {
-                            setLoading(false);
-                            Toast.makeText(this, "You have already set up your password. Please use Sign In.",
-                                    Toast.LENGTH_LONG).show();
-                            return;
-                        }
+        // Verify employee exists and setup password; usually answered by the lookup the info line made
+        employeeLookup.resolve(PfIndex.normalize(pfNumber), new RegistrationLookup.Callback<DocumentSnapshot>() {
+            @Override
+            public void onResolved(DocumentSnapshot employeeDoc) {
+                // Check if already has password
+                Boolean hasPassword = employeeDoc.getBoolean("hasPassword");
+                if (hasPassword != null && hasPassword) {
+                    setLoading(false);
+                    Toast.makeText(RegistrationActivity.this, "You have already set up your password. Please use Sign In.",
+                            Toast.LENGTH_LONG).show();
+                    return;
+                }
 
-                        // Create Firebase auth account
-                        createFirebaseAccount(employeeDoc, password);
-                    } else {
-                        setLoading(false);
-                        Toast.makeText(this, "PF Number not found. Please contact HR.",
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
+                // Create Firebase auth account
+                createFirebaseAccount(employeeDoc, password);
+            }
+
+            @Override
+            public void onNotFound() {
+                setLoading(false);
+                Toast.makeText(RegistrationActivity.this, "PF Number not found. Please contact HR.",
+                        Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(String error) {
+                setLoading(false);
+                Toast.makeText(RegistrationActivity.this, "Error connecting to database: " + error,
+                        Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     private void createFirebaseAccount(DocumentSnapshot employeeDoc, String password) {
@@ -197,7 +257,7 @@ public class RegistrationActivity extends AppCompatActivity {
                     public void onComplete(@NonNull Task<AuthResult> task) {
                         if (task.isSuccessful()) {
                             // Registration success, update employee document
-                            updateEmployeeDocument(employeeDoc.getId(), email);
+                            updateEmployeeDocument(employeeDoc.getId(), pfNumber, email);
                         } else {
                             // Registration failed
                             setLoading(false);
@@ -216,7 +276,7 @@ public class RegistrationActivity extends AppCompatActivity {
                 });
     }
 
-    private void updateEmployeeDocument(String employeeDocId, String email) {
+    private void updateEmployeeDocument(String employeeDocId, String pfNumber, String email) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("email", email);
         updates.put("hasPassword", true);
@@ -228,6 +288,10 @@ public class RegistrationActivity extends AppCompatActivity {
                 .addOnSuccessListener(new OnSuccessListener<Void>() {
                     @Override
                     public void onSuccess(Void aVoid) {
+                        // The cached snapshot still says hasPassword is false
+                        employeeLookup.invalidate(PfIndex.normalize(pfNumber));
+                        // Login usually follows with the same PF number
+                        PfIndex.remember(pfNumber, employeeDocId);
                         setLoading(false);
                         showSuccessMessage();
                     }
@@ -328,6 +392,12 @@ public class RegistrationActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        employeeLookup.cancel();
+    }
+
     @Override
     public void onBackPressed() {
         super.onBackPressed();
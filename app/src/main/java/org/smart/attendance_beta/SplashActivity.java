@@ -1,9 +1,9 @@
 package org.smart.attendance_beta;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
-import android.util.Log;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -14,10 +14,16 @@ import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import org.smart.attendance_beta.data.UserFields;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.FirestoreCost;
+import org.smart.attendance_beta.utils.ProfileStore;
+import org.smart.attendance_beta.utils.StartupMetrics;
+import org.smart.attendance_beta.utils.StartupRouteCache;
+
 public class SplashActivity extends AppCompatActivity {
 
     private static final int SPLASH_DELAY_NEW_USER = 2000; // 2 seconds for new users only
-    private static final int SPLASH_DELAY_LOGGED_IN = 500;  // 0.5 seconds for logged-in users
     private static final String TAG = "SplashActivity";
 
     private FirebaseAuth mAuth;
@@ -26,6 +32,7 @@ public class SplashActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupMetrics.onSplashCreated();
         setContentView(R.layout.activity_splash);
 
         // Initialize Firebase
@@ -51,16 +58,23 @@ public class SplashActivity extends AppCompatActivity {
         FirebaseUser currentUser = mAuth.getCurrentUser();
 
         if (currentUser != null) {
-            // ✅ User is already logged in - redirect immediately with minimal delay
-            Log.d(TAG, "🔄 User already logged in, redirecting immediately");
-
-            new Handler().postDelayed(() -> {
+            StartupRouteCache.Snapshot snapshot = StartupRouteCache.load(this, currentUser.getUid());
+            if (snapshot != null) {
+                // ✅ Route straight from the signed snapshot, then check it against Firestore
+                AppLog.d(TAG, "⚡ Routing {} from cached snapshot, revalidating in background", snapshot.route());
+                StartupMetrics.onRouteDecided("cache");
+                revalidate(getApplicationContext(), currentUser, snapshot);
+                redirectTo(snapshot.route());
+            } else {
+                // ✅ User is already logged in but nothing cached yet - look the role up now
+                AppLog.d(TAG, "🔄 User already logged in, no cached route, looking up role");
                 checkUserRoleAndRedirectDirectly(currentUser);
-            }, SPLASH_DELAY_LOGGED_IN); // Very short delay for smooth transition
+            }
 
         } else {
             // ✅ User not logged in - show splash for 2 seconds then go to login
-            Log.d(TAG, "👤 No user logged in, showing splash then login");
+            AppLog.d(TAG, "👤 No user logged in, showing splash then login");
+            StartupMetrics.abandon();
 
             new Handler().postDelayed(() -> {
                 redirectToLogin();
@@ -68,93 +82,166 @@ public class SplashActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Role lookup result; employeeDoc is null when the user was found in users rather than employees
+     */
+    private interface RoleCallback {
+        void onRoleFound(String role, DocumentSnapshot employeeDoc);
+        void onNotFound();
+        void onError(Exception e);
+    }
+
     /**
      * Check user role and redirect directly to appropriate dashboard
      */
     private void checkUserRoleAndRedirectDirectly(FirebaseUser user) {
-        String userEmail = user.getEmail();
-
-        if (userEmail == null) {
-            Log.e(TAG, "❌ User email is null, redirecting to login");
+        if (user.getEmail() == null) {
+            AppLog.e(TAG, "❌ User email is null, redirecting to login");
+            StartupMetrics.abandon();
             redirectToLogin();
             return;
         }
 
-        Log.d(TAG, "🔍 Checking role for user: " + userEmail);
+        AppLog.d(TAG, "🔍 Checking role for user: {}", user.getEmail());
+
+        lookUpRole(db, user, new RoleCallback() {
+            @Override
+            public void onRoleFound(String role, DocumentSnapshot employeeDoc) {
+                if (employeeDoc != null) {
+                    // ✅ Store employee data for session
+                    storeEmployeeData(SplashActivity.this, employeeDoc.getId(), employeeDoc);
+                    ProfileStore.getInstance(SplashActivity.this).rememberEmployee(employeeDoc);
+                }
+                StartupRouteCache.save(SplashActivity.this, user.getUid(), role, employeeDoc);
+
+                String route = StartupRouteCache.routeFor(role);
+                AppLog.d(TAG, "{} user detected, redirecting to {} dashboard", (StartupRouteCache.ROUTE_ADMIN.equals(route) ? "👑 Admin" : "👤 Employee"), route);
+                StartupMetrics.onRouteDecided("network");
+                redirectTo(route);
+            }
 
-        // Check if user is in employees collection
-        db.collection("employees")
-                .whereEqualTo("email", userEmail)
+            @Override
+            public void onNotFound() {
+                AppLog.w(TAG, "⚠️ User not found in any collection, redirecting to login");
+                StartupMetrics.abandon();
+                Toast.makeText(SplashActivity.this, "User profile not found. Please contact administrator.", Toast.LENGTH_LONG).show();
+                redirectToLogin();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                AppLog.e(TAG, "❌ Error checking user role: {}", e.getMessage());
+                StartupMetrics.abandon();
+                // Fallback to login on error
+                Toast.makeText(SplashActivity.this, "Error checking user role. Please login again.", Toast.LENGTH_SHORT).show();
+                redirectToLogin();
+            }
+        });
+    }
+
+    /**
+     * Find the user's role: employees by email, then users by email (admins)
+     */
+    private static void lookUpRole(FirebaseFirestore db, FirebaseUser user, RoleCallback callback) {
+        FirestoreCost.track("splash.employeeByEmail", db.collection("employees")
+                .whereEqualTo("email", user.getEmail())
                 .limit(1)
-                .get()
+                .get())
                 .addOnSuccessListener(employeeQuery -> {
                     if (!employeeQuery.isEmpty()) {
                         // User found in employees collection
                         DocumentSnapshot employeeDoc = employeeQuery.getDocuments().get(0);
-                        String role = employeeDoc.getString("role");
-                        String employeeDocId = employeeDoc.getId();
-
-                        // ✅ Store employee data for session
-                        storeEmployeeData(employeeDocId, employeeDoc);
-
-                        if ("admin".equalsIgnoreCase(role)) {
-                            Log.d(TAG, "👑 Admin user detected, redirecting to AdminDashboard");
-                            redirectToAdminDashboard();
-                        } else {
-                            Log.d(TAG, "👤 Employee user detected, redirecting to EmployeeDashboard");
-                            redirectToEmployeeDashboard();
-                        }
+                        callback.onRoleFound(employeeDoc.getString("role"), employeeDoc);
                     } else {
                         // User not found in employees collection, check if admin
-                        checkIfUserIsAdmin(user);
+                        checkIfUserIsAdmin(db, user, callback);
                     }
                 })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Error checking employee role: " + e.getMessage());
-                    // Fallback to login on error
-                    Toast.makeText(this, "Error checking user role. Please login again.", Toast.LENGTH_SHORT).show();
-                    redirectToLogin();
-                });
+                .addOnFailureListener(callback::onError);
     }
 
     /**
      * Check if user is admin in users collection (fallback)
      */
-    private void checkIfUserIsAdmin(FirebaseUser user) {
-        db.collection("users")
-                .whereEqualTo("email", user.getEmail())
+    private static void checkIfUserIsAdmin(FirebaseFirestore db, FirebaseUser user, RoleCallback callback) {
+        FirestoreCost.track("splash.userByEmail", db.collection(UserFields.COLLECTION)
+                .whereEqualTo(UserFields.EMAIL, user.getEmail())
                 .limit(1)
-                .get()
+                .get())
                 .addOnSuccessListener(userQuery -> {
                     if (!userQuery.isEmpty()) {
-                        DocumentSnapshot userDoc = userQuery.getDocuments().get(0);
-                        String role = userDoc.getString("role");
-
-                        if ("admin".equalsIgnoreCase(role)) {
-                            Log.d(TAG, "👑 Admin found in users collection, redirecting to AdminDashboard");
-                            redirectToAdminDashboard();
-                        } else {
-                            Log.d(TAG, "👤 Regular user found, redirecting to EmployeeDashboard");
-                            redirectToEmployeeDashboard();
-                        }
+                        callback.onRoleFound(userQuery.getDocuments().get(0).getString(UserFields.ROLE), null);
+                    } else {
+                        callback.onNotFound();
+                    }
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Check a cached route against Firestore after the splash has already routed from it. Runs on
+     * the application context because the splash has finished by the time the answer arrives; the
+     * route is only corrected if the role now maps to a different dashboard.
+     */
+    private static void revalidate(Context context, FirebaseUser user, StartupRouteCache.Snapshot snapshot) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        RoleCallback callback = new RoleCallback() {
+            @Override
+            public void onRoleFound(String role, DocumentSnapshot employeeDoc) {
+                if (employeeDoc != null) {
+                    storeEmployeeData(context, employeeDoc.getId(), employeeDoc);
+                    ProfileStore.getInstance(context).rememberEmployee(employeeDoc);
+                }
+                StartupRouteCache.save(context, user.getUid(), role, employeeDoc);
+
+                String route = StartupRouteCache.routeFor(role);
+                if (!route.equals(snapshot.route())) {
+                    AppLog.w(TAG, "🔀 Role changed from {} to {}, rerouting to {}", snapshot.role, role, route);
+                    startScreen(context, StartupRouteCache.ROUTE_ADMIN.equals(route)
+                            ? AdminDashboardActivity.class : EmployeeDashboardActivity.class);
+                } else {
+                    AppLog.d(TAG, "✅ Cached route confirmed");
+                }
+            }
+
+            @Override
+            public void onNotFound() {
+                AppLog.w(TAG, "⚠️ Cached user no longer has a profile, sending to login");
+                StartupRouteCache.clear(context);
+                Toast.makeText(context, "User profile not found. Please contact administrator.", Toast.LENGTH_LONG).show();
+                startScreen(context, LoginActivity.class);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                // Offline or transient; keep the cached route and try again next launch
+                AppLog.w(TAG, "Could not revalidate cached route: {}", e.getMessage());
+            }
+        };
+
+        if (snapshot.employeeDocId == null || user.getEmail() == null) {
+            lookUpRole(db, user, callback);
+            return;
+        }
+
+        // Known employee: one point read instead of the email query
+        FirestoreCost.track("splash.employee", db.collection("employees").document(snapshot.employeeDocId).get())
+                .addOnSuccessListener(employeeDoc -> {
+                    if (employeeDoc.exists() && user.getEmail().equals(employeeDoc.getString("email"))) {
+                        callback.onRoleFound(employeeDoc.getString("role"), employeeDoc);
                     } else {
-                        Log.w(TAG, "⚠️ User not found in any collection, redirecting to login");
-                        Toast.makeText(this, "User profile not found. Please contact administrator.", Toast.LENGTH_LONG).show();
-                        redirectToLogin();
+                        lookUpRole(db, user, callback); // Moved or re-keyed; do the full lookup
                     }
                 })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "❌ Error checking admin role: " + e.getMessage());
-                    redirectToLogin();
-                });
+                .addOnFailureListener(callback::onError);
     }
 
     /**
      * Store employee data for session management
      */
-    private void storeEmployeeData(String employeeDocId, DocumentSnapshot employeeDoc) {
+    private static void storeEmployeeData(Context context, String employeeDocId, DocumentSnapshot employeeDoc) {
         try {
-            getSharedPreferences("attendance_prefs", MODE_PRIVATE)
+            context.getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                     .edit()
                     .putString("employee_doc_id", employeeDocId)
                     .putString("employee_name", employeeDoc.getString("name"))
@@ -165,17 +252,31 @@ public class SplashActivity extends AppCompatActivity {
                     .putLong("login_timestamp", System.currentTimeMillis())
                     .apply();
 
-            Log.d(TAG, "💾 Employee data stored for session");
+            AppLog.d(TAG, "💾 Employee data stored for session");
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error storing employee data: " + e.getMessage());
+            AppLog.e(TAG, "❌ Error storing employee data: {}", e.getMessage());
             // Store at least the essential data
-            getSharedPreferences("attendance_prefs", MODE_PRIVATE)
+            context.getSharedPreferences("attendance_prefs", MODE_PRIVATE)
                     .edit()
                     .putString("employee_doc_id", employeeDocId)
                     .apply();
         }
     }
 
+    private void redirectTo(String route) {
+        if (StartupRouteCache.ROUTE_ADMIN.equals(route)) {
+            redirectToAdminDashboard();
+        } else {
+            redirectToEmployeeDashboard();
+        }
+    }
+
+    private static void startScreen(Context context, Class<?> screen) {
+        Intent intent = new Intent(context, screen);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        context.startActivity(intent);
+    }
+
     /**
      * Redirect to Admin Dashboard
      */
@@ -0,0 +1,87 @@
+// AttendanceFields.java - Field names of documents in the attendance collection
+package org.smart.attendance_beta.data;
+
+/**
+ * Single source of truth for attendance document keys. Writers, readers and queries should use
+ * these instead of string literals so a rename can't leave half the app reading a dead field.
+ */
+public final class AttendanceFields {
+
+    public static final String COLLECTION = "attendance";
+
+    // Identity
+    public static final String EMPLOYEE_DOC_ID = "employeeDocId";
+    public static final String PF_NUMBER = "pfNumber";
+    public static final String EMPLOYEE_NAME = "employeeName";
+    public static final String DEPARTMENT = "department";
+    public static final String DATE = "date";
+
+    // Clock in
+    public static final String CLOCK_IN_TIME = "clockInTime";
+    public static final String CLOCK_IN_TIMESTAMP = "clockInTimestamp";
+    public static final String CLOCK_IN_LATITUDE = "clockInLatitude";
+    public static final String CLOCK_IN_LONGITUDE = "clockInLongitude";
+    public static final String OFFICE_ID = "officeId";
+    public static final String OFFICE_NAME = "officeName";
+    public static final String LOCATION_NAME = "locationName";
+    public static final String STATUS = "status";
+    public static final String IS_LATE = "isLate";
+    public static final String LATE_MINUTES = "lateMinutes";
+    public static final String CREATED_AT = "createdAt";
+    public static final String CLOCK_IN_EVENT_ID = "clockInEventId"; // Journal event that created the record
+
+    // Clock out
+    public static final String CLOCK_OUT_TIME = "clockOutTime";
+    public static final String CLOCK_OUT_TIMESTAMP = "clockOutTimestamp";
+    public static final String CLOCK_OUT_LATITUDE = "clockOutLatitude";
+    public static final String CLOCK_OUT_LONGITUDE = "clockOutLongitude";
+    public static final String CLOCK_OUT_OFFICE_ID = "clockOutOfficeId";
+    public static final String CLOCK_OUT_OFFICE_NAME = "clockOutOfficeName";
+    public static final String TOTAL_HOURS = "totalHours";
+    public static final String IS_EARLY_CLOCK_OUT = "isEarlyClockOut";
+    public static final String EARLY_CLOCK_OUT_REASON = "earlyClockOutReason";
+    public static final String EARLY_CLOCK_OUT_TIME = "earlyClockOutTime";
+    public static final String CLOCK_OUT_REASON = "clockOutReason";
+    public static final String CLOCK_OUT_EVENT_ID = "clockOutEventId"; // Journal event that closed the record
+
+    // Device session
+    public static final String DEVICE_ID = "deviceId";
+    public static final String DEVICE_MODEL = "deviceModel";
+    public static final String DEVICE_MANUFACTURER = "deviceManufacturer";
+    public static final String DEVICE_BRAND = "deviceBrand";
+    public static final String DEVICE_OS_VERSION = "deviceOSVersion";
+    public static final String DEVICE_HARDWARE = "deviceHardware";
+    public static final String SESSION_ACTIVE = "sessionActive";
+    public static final String SESSION_START_TIME = "sessionStartTime";
+    public static final String SESSION_END_TIME = "sessionEndTime";
+    public static final String SESSION_DURATION_MS = "sessionDurationMs";
+    public static final String LAST_HEARTBEAT = "lastHeartbeat";
+    public static final String HEARTBEAT_COUNT = "heartbeatCount";
+    public static final String SESSION_EXPIRED = "sessionExpired";
+    public static final String SESSION_EXPIRED_TIME = "sessionExpiredTime";
+    public static final String HAS_DEVICE_CONFLICT = "hasDeviceConflict";
+    public static final String CONFLICT_DEVICE_ID = "conflictDeviceId";
+    public static final String CONFLICT_TIME = "conflictTime";
+    public static final String SECURITY_ALERT_ID = "securityAlertId";
+
+    // Admin termination
+    public static final String SESSION_TERMINATED_BY = "sessionTerminatedBy";
+    public static final String SESSION_TERMINATION_REASON = "sessionTerminationReason";
+    public static final String TERMINATED_BY_ADMIN_ID = "terminatedByAdminId";
+    public static final String FORCED_TERMINATION_TIME = "forcedTerminationTime";
+
+    // Security and time validation (audit only, never read back on the hot path)
+    public static final String SECURITY_RISK_LEVEL = "securityRiskLevel";
+    public static final String SECURITY_RISK_SCORE = "securityRiskScore";
+    public static final String SECURITY_RISK_REASONS = "securityRiskReasons";
+    public static final String DEVICE_ROOTED = "deviceRooted";
+    public static final String DEVELOPER_MODE_ENABLED = "developerModeEnabled";
+    public static final String USB_DEBUGGING_ENABLED = "usbDebuggingEnabled";
+    public static final String IS_EMULATOR = "isEmulator";
+    public static final String TIME_VALIDATION_METHOD = "timeValidationMethod";
+    public static final String TIME_DIFFERENCE_MS = "timeDifferenceMs";
+    public static final String AUTO_TIME_ENABLED = "autoTimeEnabled";
+    public static final String DEVICE_TIME_OFFSET_MS = "deviceTimeOffsetMs";
+
+    private AttendanceFields() {}
+}
@@ -0,0 +1,97 @@
+// AttendanceRecordCodec.java - Attendance document <-> AttendanceRecord
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.smart.attendance_beta.data.AttendanceFields.*;
+
+public final class AttendanceRecordCodec implements DocumentCodec<AttendanceRecord> {
+
+    public static final AttendanceRecordCodec INSTANCE = new AttendanceRecordCodec();
+
+    private AttendanceRecordCodec() {}
+
+    @Override
+    public AttendanceRecord decode(String id, Map<String, Object> data) {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setId(id);
+        record.setEmployeeDocId(Values.string(data, EMPLOYEE_DOC_ID));
+        record.setPfNumber(Values.string(data, PF_NUMBER));
+        record.setEmployeeName(Values.string(data, EMPLOYEE_NAME));
+        record.setDepartment(Values.string(data, DEPARTMENT));
+        record.setDate(Values.string(data, DATE));
+
+        record.setClockInTime(Values.string(data, CLOCK_IN_TIME));
+        record.setClockInTimestamp(Values.timestamp(data, CLOCK_IN_TIMESTAMP));
+        record.setClockInLatitude(Values.number(data, CLOCK_IN_LATITUDE, 0));
+        record.setClockInLongitude(Values.number(data, CLOCK_IN_LONGITUDE, 0));
+        record.setOfficeId(Values.string(data, OFFICE_ID));
+        record.setOfficeName(Values.string(data, OFFICE_NAME));
+        record.setLocationName(Values.string(data, LOCATION_NAME));
+        record.setStatus(Values.string(data, STATUS));
+        record.setLate(Values.bool(data, IS_LATE));
+        record.setLateMinutes(Values.integer(data, LATE_MINUTES, 0));
+        record.setCreatedAt(Values.timestamp(data, CREATED_AT));
+
+        record.setClockOutTime(Values.string(data, CLOCK_OUT_TIME));
+        record.setClockOutTimestamp(Values.timestamp(data, CLOCK_OUT_TIMESTAMP));
+        record.setClockOutLatitude(Values.number(data, CLOCK_OUT_LATITUDE));
+        record.setClockOutLongitude(Values.number(data, CLOCK_OUT_LONGITUDE));
+        record.setTotalHours(Values.number(data, TOTAL_HOURS, 0));
+        record.setEarlyClockOut(Values.bool(data, IS_EARLY_CLOCK_OUT));
+        record.setEarlyClockOutReason(Values.string(data, EARLY_CLOCK_OUT_REASON));
+
+        record.setDeviceId(Values.string(data, DEVICE_ID));
+        record.setDeviceModel(Values.string(data, DEVICE_MODEL));
+        record.setDeviceManufacturer(Values.string(data, DEVICE_MANUFACTURER));
+        record.setSessionActive(Values.bool(data, SESSION_ACTIVE));
+        record.setSessionStartTime(Values.timestamp(data, SESSION_START_TIME));
+        record.setSessionEndTime(Values.timestamp(data, SESSION_END_TIME));
+        return record;
+    }
+
+    @Override
+    public Map<String, Object> encode(AttendanceRecord record) {
+        Map<String, Object> data = new HashMap<>(64);
+        data.putAll(record.getExtras());
+
+        Values.putIfNotNull(data, EMPLOYEE_DOC_ID, record.getEmployeeDocId());
+        Values.putIfNotNull(data, PF_NUMBER, record.getPfNumber());
+        Values.putIfNotNull(data, EMPLOYEE_NAME, record.getEmployeeName());
+        Values.putIfNotNull(data, DEPARTMENT, record.getDepartment());
+        Values.putIfNotNull(data, DATE, record.getDate());
+
+        Values.putIfNotNull(data, CLOCK_IN_TIME, record.getClockInTime());
+        Values.putIfNotNull(data, CLOCK_IN_TIMESTAMP, record.getClockInTimestamp());
+        data.put(CLOCK_IN_LATITUDE, record.getClockInLatitude());
+        data.put(CLOCK_IN_LONGITUDE, record.getClockInLongitude());
+        Values.putIfNotNull(data, OFFICE_ID, record.getOfficeId());
+        Values.putIfNotNull(data, OFFICE_NAME, record.getOfficeName());
+        Values.putIfNotNull(data, LOCATION_NAME, record.getLocationName());
+        Values.putIfNotNull(data, STATUS, record.getStatus());
+        data.put(IS_LATE, record.isLate());
+        data.put(LATE_MINUTES, record.getLateMinutes());
+        Values.putIfNotNull(data, CREATED_AT, record.getCreatedAt());
+
+        Values.putIfNotNull(data, CLOCK_OUT_TIME, record.getClockOutTime());
+        Values.putIfNotNull(data, CLOCK_OUT_TIMESTAMP, record.getClockOutTimestamp());
+        Values.putIfNotNull(data, CLOCK_OUT_LATITUDE, record.getClockOutLatitude());
+        Values.putIfNotNull(data, CLOCK_OUT_LONGITUDE, record.getClockOutLongitude());
+        data.put(TOTAL_HOURS, record.getTotalHours());
+        if (record.isEarlyClockOut()) {
+            data.put(IS_EARLY_CLOCK_OUT, true);
+            Values.putIfNotNull(data, EARLY_CLOCK_OUT_REASON, record.getEarlyClockOutReason());
+        }
+
+        Values.putIfNotNull(data, DEVICE_ID, record.getDeviceId());
+        Values.putIfNotNull(data, DEVICE_MODEL, record.getDeviceModel());
+        Values.putIfNotNull(data, DEVICE_MANUFACTURER, record.getDeviceManufacturer());
+        data.put(SESSION_ACTIVE, record.isSessionActive());
+        Values.putIfNotNull(data, SESSION_START_TIME, record.getSessionStartTime());
+        Values.putIfNotNull(data, SESSION_END_TIME, record.getSessionEndTime());
+        return data;
+    }
+}
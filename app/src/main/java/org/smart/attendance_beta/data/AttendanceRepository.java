@@ -0,0 +1,65 @@
+// AttendanceRepository.java - Typed access to attendance records, employees and office locations
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage-agnostic data access. FirestoreAttendanceRepository is the app's implementation;
+ * InMemoryAttendanceRepository backs tests and simulations with the same semantics.
+ */
+public interface AttendanceRepository {
+
+    interface Callback<T> {
+        void onSuccess(T result);
+        void onError(String error);
+    }
+
+    /**
+     * An employee's record for a date (yyyy-MM-dd), or null if there is none
+     */
+    void getRecord(String employeeDocId, String date, Callback<AttendanceRecord> callback);
+
+    /**
+     * An employee's records with startDate <= date <= endDate, oldest first
+     */
+    void getRecords(String employeeDocId, String startDate, String endDate,
+                    Callback<List<AttendanceRecord>> callback);
+
+    /**
+     * Create or replace the record for its employee and date; returns the document ID
+     */
+    void saveRecord(AttendanceRecord record, Callback<String> callback);
+
+    /**
+     * Merge fields (keys from AttendanceFields) into an existing record. Fails if there is no record.
+     */
+    void updateRecord(String employeeDocId, String date, Map<String, Object> updates,
+                      Callback<Void> callback);
+
+    /**
+     * Create the record in one transaction unless the day already has one, and count the arrival
+     * in the office heatmap in the same commit. Same rules as ClockInTransaction.
+     */
+    void clockIn(AttendanceRecord record, Callback<ClockInTransaction.Outcome> callback);
+
+    /**
+     * Mark the open session as still alive
+     */
+    void recordHeartbeat(String employeeDocId, String date, Callback<Void> callback);
+
+    /**
+     * Employee profile by document ID, or null if it doesn't exist
+     */
+    void getEmployee(String employeeDocId, Callback<Employee> callback);
+
+    /**
+     * All active office locations that have coordinates
+     */
+    void getLocations(Callback<List<Location>> callback);
+}
@@ -0,0 +1,159 @@
+// CoalescingAttendanceRepository.java - AttendanceRepository decorator that shares identical concurrent reads
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.SingleFlight;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps any repository so that reads with the same arguments made at nearly the same moment (the
+ * dashboard's weekly stats and weekly trend both ask for this week's records) cost one round trip,
+ * and a result answers repeats for FRESHNESS_MS. Writes go straight through and then drop the cached
+ * reads for that employee, so nobody reads back data older than their own write.
+ *
+ * Results are shared between callers and must not be modified.
+ */
+public class CoalescingAttendanceRepository implements AttendanceRepository {
+
+    public static final long FRESHNESS_MS = 2000;
+
+    private static final String RECORD = "record/";
+    private static final String RECORDS = "records/";
+    private static final String EMPLOYEE = "employee/";
+    private static final String LOCATIONS = "locations";
+
+    private final AttendanceRepository delegate;
+    private final SingleFlight<AttendanceRecord> recordReads;
+    private final SingleFlight<List<AttendanceRecord>> historyReads;
+    private final SingleFlight<Employee> employeeReads;
+    private final SingleFlight<List<Location>> locationReads;
+
+    public CoalescingAttendanceRepository(AttendanceRepository delegate) {
+        this(delegate, FRESHNESS_MS);
+    }
+
+    public CoalescingAttendanceRepository(AttendanceRepository delegate, long freshnessMs) {
+        this.delegate = delegate;
+        this.recordReads = new SingleFlight<>(freshnessMs);
+        this.historyReads = new SingleFlight<>(freshnessMs);
+        this.employeeReads = new SingleFlight<>(freshnessMs);
+        this.locationReads = new SingleFlight<>(freshnessMs);
+    }
+
+    @Override
+    public void getRecord(String employeeDocId, String date, Callback<AttendanceRecord> callback) {
+        recordReads.execute(RECORD + employeeDocId + "/" + date,
+                done -> delegate.getRecord(employeeDocId, date, toFlight(done)), fromFlight(callback));
+    }
+
+    @Override
+    public void getRecords(String employeeDocId, String startDate, String endDate,
+                           Callback<List<AttendanceRecord>> callback) {
+        historyReads.execute(RECORDS + employeeDocId + "/" + startDate + ".." + endDate,
+                done -> delegate.getRecords(employeeDocId, startDate, endDate, toFlight(done)),
+                fromFlight(callback));
+    }
+
+    @Override
+    public void saveRecord(AttendanceRecord record, Callback<String> callback) {
+        delegate.saveRecord(record, afterWrite(record.getEmployeeDocId(), callback));
+    }
+
+    @Override
+    public void updateRecord(String employeeDocId, String date, Map<String, Object> updates,
+                             Callback<Void> callback) {
+        delegate.updateRecord(employeeDocId, date, updates, afterWrite(employeeDocId, callback));
+    }
+
+    @Override
+    public void clockIn(AttendanceRecord record, Callback<ClockInTransaction.Outcome> callback) {
+        delegate.clockIn(record, afterWrite(record.getEmployeeDocId(), callback));
+    }
+
+    @Override
+    public void recordHeartbeat(String employeeDocId, String date, Callback<Void> callback) {
+        delegate.recordHeartbeat(employeeDocId, date, afterWrite(employeeDocId, callback));
+    }
+
+    @Override
+    public void getEmployee(String employeeDocId, Callback<Employee> callback) {
+        employeeReads.execute(EMPLOYEE + employeeDocId,
+                done -> delegate.getEmployee(employeeDocId, toFlight(done)), fromFlight(callback));
+    }
+
+    @Override
+    public void getLocations(Callback<List<Location>> callback) {
+        locationReads.execute(LOCATIONS, done -> delegate.getLocations(toFlight(done)), fromFlight(callback));
+    }
+
+    /**
+     * Per-read counters keyed like "records/{employeeDocId}/{start}..{end}"
+     */
+    public Map<String, SingleFlight.Stats> getReadStats() {
+        Map<String, SingleFlight.Stats> all = new LinkedHashMap<>();
+        all.putAll(recordReads.allStats());
+        all.putAll(historyReads.allStats());
+        all.putAll(employeeReads.allStats());
+        all.putAll(locationReads.allStats());
+        return all;
+    }
+
+    /**
+     * Drop cached reads of an employee's attendance, e.g. after a write made outside this repository
+     */
+    public void invalidateAttendance(String employeeDocId) {
+        recordReads.invalidatePrefix(RECORD + employeeDocId + "/");
+        historyReads.invalidatePrefix(RECORDS + employeeDocId + "/");
+    }
+
+    private <T> Callback<T> afterWrite(String employeeDocId, Callback<T> callback) {
+        return new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                invalidateAttendance(employeeDocId);
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(String error) {
+                // The write may still have landed (e.g. a timeout), so don't trust what's cached either
+                invalidateAttendance(employeeDocId);
+                callback.onError(error);
+            }
+        };
+    }
+
+    private static <T> Callback<T> toFlight(SingleFlight.Callback<T> done) {
+        return new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                done.onSuccess(result);
+            }
+
+            @Override
+            public void onError(String error) {
+                done.onError(new Exception(error));
+            }
+        };
+    }
+
+    private static <T> SingleFlight.Callback<T> fromFlight(Callback<T> callback) {
+        return new SingleFlight.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+// DocumentCodec.java - Hand-written mapping between a model and its Firestore field map
+package org.smart.attendance_beta.data;
+
+import java.util.Map;
+
+/**
+ * Codecs read and write fields by name with plain getters and setters, so the hot path does no
+ * reflection (unlike DocumentSnapshot.toObject) and every key comes from the *Fields classes.
+ * Implementations are stateless; use the shared INSTANCE of each.
+ */
+public interface DocumentCodec<T> {
+
+    /**
+     * Build a model from a document's fields; id is the document ID
+     */
+    T decode(String id, Map<String, Object> data);
+
+    /**
+     * Fields to write for a model. Null values are left out so a set() never blanks a field.
+     */
+    Map<String, Object> encode(T value);
+}
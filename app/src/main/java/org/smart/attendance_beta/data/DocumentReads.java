@@ -0,0 +1,64 @@
+// DocumentReads.java - Shared point reads of Firestore documents for checks several code paths make at once
+package org.smart.attendance_beta.data;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import org.smart.attendance_beta.utils.FirestoreCost;
+import org.smart.attendance_beta.utils.SingleFlight;
+
+import java.util.Map;
+
+/**
+ * Drop-in for ref.get() where the same document is checked from more than one place (today's
+ * attendance record as the device session check in LoginOrchestrator and DeviceSessionManager).
+ * Concurrent gets of one path share a single read, and a result is reused for FRESHNESS_MS.
+ *
+ * Only for checks, not for read-modify-write: the window can hide a write made elsewhere in the
+ * meantime. This device's own session writes don't matter to these checks, since a session on this
+ * device never blocks it.
+ */
+public class DocumentReads {
+
+    public static final long FRESHNESS_MS = 2000;
+
+    private static final SingleFlight<DocumentSnapshot> documents = new SingleFlight<>(FRESHNESS_MS);
+
+    public static Task<DocumentSnapshot> get(DocumentReference ref) {
+        TaskCompletionSource<DocumentSnapshot> source = new TaskCompletionSource<>();
+        documents.execute(ref.getPath(),
+                done -> FirestoreCost.track("documentReads", ref.get()).addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        done.onSuccess(task.getResult());
+                    } else {
+                        Exception e = task.getException();
+                        done.onError(e != null ? e : new Exception("Read of " + ref.getPath() + " was cancelled"));
+                    }
+                }),
+                new SingleFlight.Callback<DocumentSnapshot>() {
+                    @Override
+                    public void onSuccess(DocumentSnapshot result) {
+                        source.setResult(result);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        source.setException(e);
+                    }
+                });
+        return source.getTask();
+    }
+
+    public static void invalidate(DocumentReference ref) {
+        documents.invalidate(ref.getPath());
+    }
+
+    /**
+     * Per-path counters
+     */
+    public static Map<String, SingleFlight.Stats> getReadStats() {
+        return documents.allStats();
+    }
+}
@@ -0,0 +1,57 @@
+// EmployeeCodec.java - Employee document <-> Employee
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.Employee;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.smart.attendance_beta.data.EmployeeFields.*;
+
+public final class EmployeeCodec implements DocumentCodec<Employee> {
+
+    public static final EmployeeCodec INSTANCE = new EmployeeCodec();
+
+    private EmployeeCodec() {}
+
+    @Override
+    public Employee decode(String id, Map<String, Object> data) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setPfNumber(Values.string(data, PF_NUMBER));
+        employee.setEmployeeId(Values.string(data, PF_NUMBER));
+
+        String name = Values.string(data, NAME);
+        employee.setFullName(name != null ? name : Values.string(data, LEGACY_FULL_NAME));
+
+        employee.setEmail(Values.string(data, EMAIL));
+        employee.setPhone(Values.string(data, PHONE));
+        employee.setDepartment(Values.string(data, DEPARTMENT));
+        employee.setRole(Values.string(data, ROLE));
+        employee.setUserId(Values.string(data, USER_ID));
+        employee.setActive(Values.bool(data, IS_ACTIVE));
+        employee.setHasPassword(Values.bool(data, HAS_PASSWORD));
+        employee.setLoginMethod(Values.string(data, LOGIN_METHOD));
+        employee.setProfileCompleted(Values.bool(data, PROFILE_COMPLETED));
+        employee.setCreatedAt(Values.timestamp(data, CREATED_AT));
+        return employee;
+    }
+
+    @Override
+    public Map<String, Object> encode(Employee employee) {
+        Map<String, Object> data = new HashMap<>(16);
+        Values.putIfNotNull(data, PF_NUMBER, employee.getPfNumber());
+        Values.putIfNotNull(data, NAME, employee.getFullName());
+        Values.putIfNotNull(data, EMAIL, employee.getEmail());
+        Values.putIfNotNull(data, PHONE, employee.getPhone());
+        Values.putIfNotNull(data, DEPARTMENT, employee.getDepartment());
+        Values.putIfNotNull(data, ROLE, employee.getRole());
+        Values.putIfNotNull(data, USER_ID, employee.getUserId());
+        data.put(IS_ACTIVE, employee.isActive());
+        data.put(HAS_PASSWORD, employee.hasPassword());
+        Values.putIfNotNull(data, LOGIN_METHOD, employee.getLoginMethod());
+        data.put(PROFILE_COMPLETED, employee.isProfileCompleted());
+        Values.putIfNotNull(data, CREATED_AT, employee.getCreatedAt());
+        return data;
+    }
+}
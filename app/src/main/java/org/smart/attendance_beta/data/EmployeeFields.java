@@ -0,0 +1,24 @@
+// EmployeeFields.java - Field names of documents in the employees collection
+package org.smart.attendance_beta.data;
+
+public final class EmployeeFields {
+
+    public static final String COLLECTION = "employees";
+
+    public static final String PF_NUMBER = "pfNumber";
+    public static final String NAME = "name";
+    public static final String LEGACY_FULL_NAME = "fullName"; // Older profiles, read as a fallback for NAME
+    public static final String EMAIL = "email";
+    public static final String PHONE = "phone";
+    public static final String DEPARTMENT = "department";
+    public static final String ROLE = "role";
+    public static final String USER_ID = "userId";
+    public static final String IS_ACTIVE = "isActive";
+    public static final String HAS_PASSWORD = "hasPassword";
+    public static final String LOGIN_METHOD = "loginMethod";
+    public static final String PROFILE_COMPLETED = "profileCompleted";
+    public static final String CREATED_AT = "createdAt";
+    public static final String REGISTERED_AT = "registeredAt";
+
+    private EmployeeFields() {}
+}
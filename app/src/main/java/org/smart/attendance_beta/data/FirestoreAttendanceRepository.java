@@ -0,0 +1,194 @@
+// FirestoreAttendanceRepository.java - AttendanceRepository backed by Cloud Firestore
+package org.smart.attendance_beta.data;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.utils.AttendanceIds;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.CostLedger;
+import org.smart.attendance_beta.utils.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FirestoreAttendanceRepository implements AttendanceRepository {
+
+    private static final String TAG = "AttendanceRepository";
+
+    private static CoalescingAttendanceRepository shared;
+
+    private final FirebaseFirestore db;
+
+    public FirestoreAttendanceRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public static FirestoreAttendanceRepository getInstance() {
+        return new FirestoreAttendanceRepository(FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * The repository screens should use: this one behind a CoalescingAttendanceRepository, so the
+     * same read asked for by several screens or helpers at once goes to Firestore once. Reads that
+     * reach Firestore are metered into CostLedger.app()
+     */
+    public static synchronized CoalescingAttendanceRepository shared() {
+        if (shared == null) {
+            shared = new CoalescingAttendanceRepository(
+                    new MeteredAttendanceRepository(getInstance(), CostLedger.app()));
+        }
+        return shared;
+    }
+
+    /**
+     * Log per-read counters of the shared repository and DocumentReads, then the Firestore cost per call site
+     */
+    public static void logReadStats() {
+        Map<String, SingleFlight.Stats> stats = new LinkedHashMap<>(shared().getReadStats());
+        stats.putAll(DocumentReads.getReadStats());
+        for (Map.Entry<String, SingleFlight.Stats> entry : stats.entrySet()) {
+            Log.d(TAG, "📊 " + entry.getKey() + ": " + entry.getValue());
+        }
+        for (String line : CostLedger.app().dump()) {
+            Log.d(TAG, "💸 " + line);
+        }
+    }
+
+    @Override
+    public void getRecord(String employeeDocId, String date, Callback<AttendanceRecord> callback) {
+        AttendanceIds.ref(db, employeeDocId, date)
+                .get()
+                .addOnSuccessListener(snapshot ->
+                        callback.onSuccess(decode(snapshot, AttendanceRecordCodec.INSTANCE)))
+                .addOnFailureListener(e -> callback.onError("Failed to load attendance: " + e.getMessage()));
+    }
+
+    @Override
+    public void getRecords(String employeeDocId, String startDate, String endDate,
+                           Callback<List<AttendanceRecord>> callback) {
+        db.collection(AttendanceFields.COLLECTION)
+                .whereEqualTo(AttendanceFields.EMPLOYEE_DOC_ID, employeeDocId)
+                .whereGreaterThanOrEqualTo(AttendanceFields.DATE, startDate)
+                .whereLessThanOrEqualTo(AttendanceFields.DATE, endDate)
+                .orderBy(AttendanceFields.DATE, Query.Direction.ASCENDING)
+                .get()
+                .addOnSuccessListener(snapshot ->
+                        callback.onSuccess(decodeAll(snapshot.getDocuments(), AttendanceRecordCodec.INSTANCE)))
+                .addOnFailureListener(e -> callback.onError("Failed to load attendance history: " + e.getMessage()));
+    }
+
+    @Override
+    public void saveRecord(AttendanceRecord record, Callback<String> callback) {
+        String id = AttendanceIds.forDate(record.getEmployeeDocId(), record.getDate());
+        db.collection(AttendanceFields.COLLECTION).document(id)
+                .set(AttendanceRecordCodec.INSTANCE.encode(record))
+                .addOnSuccessListener(aVoid -> {
+                    record.setId(id);
+                    callback.onSuccess(id);
+                })
+                .addOnFailureListener(e -> callback.onError("Failed to save attendance: " + e.getMessage()));
+    }
+
+    @Override
+    public void updateRecord(String employeeDocId, String date, Map<String, Object> updates,
+                             Callback<Void> callback) {
+        AttendanceIds.ref(db, employeeDocId, date)
+                .update(updates)
+                .addOnSuccessListener(aVoid -> callback.onSuccess(null))
+                .addOnFailureListener(e -> callback.onError("Failed to update attendance: " + e.getMessage()));
+    }
+
+    @Override
+    public void clockIn(AttendanceRecord record, Callback<ClockInTransaction.Outcome> callback) {
+        ClockInTransaction.run(db, AttendanceRecordCodec.INSTANCE.encode(record), new ClockInTransaction.ClockInCallback() {
+            @Override
+            public void onClockedIn(String attendanceId, boolean created) {
+                record.setId(attendanceId);
+                callback.onSuccess(created ? ClockInTransaction.Outcome.CREATED
+                        : ClockInTransaction.Outcome.ALREADY_CLOCKED_IN);
+            }
+
+            @Override
+            public void onDayComplete(DocumentSnapshot existing) {
+                callback.onSuccess(ClockInTransaction.Outcome.DAY_COMPLETE);
+            }
+
+            @Override
+            public void onDeviceConflict(DocumentSnapshot activeSession) {
+                callback.onSuccess(ClockInTransaction.Outcome.DEVICE_CONFLICT);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public void recordHeartbeat(String employeeDocId, String date, Callback<Void> callback) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(AttendanceFields.LAST_HEARTBEAT, Timestamp.now());
+        updates.put(AttendanceFields.HEARTBEAT_COUNT, FieldValue.increment(1));
+        updateRecord(employeeDocId, date, updates, callback);
+    }
+
+    @Override
+    public void getEmployee(String employeeDocId, Callback<Employee> callback) {
+        db.collection(EmployeeFields.COLLECTION).document(employeeDocId)
+                .get()
+                .addOnSuccessListener(snapshot -> callback.onSuccess(decode(snapshot, EmployeeCodec.INSTANCE)))
+                .addOnFailureListener(e -> callback.onError("Failed to load employee: " + e.getMessage()));
+    }
+
+    @Override
+    public void getLocations(Callback<List<Location>> callback) {
+        db.collection(LocationFields.COLLECTION)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<Location> locations = new ArrayList<>();
+                    for (Location location : decodeAll(snapshot.getDocuments(), LocationCodec.INSTANCE)) {
+                        if (location.isActive()) locations.add(location);
+                    }
+                    callback.onSuccess(locations);
+                })
+                .addOnFailureListener(e -> callback.onError("Failed to load office locations: " + e.getMessage()));
+    }
+
+    /**
+     * Decode a snapshot with a codec; null if the document doesn't exist
+     */
+    public static <T> T decode(DocumentSnapshot snapshot, DocumentCodec<T> codec) {
+        if (snapshot == null || !snapshot.exists()) return null;
+        Map<String, Object> data = snapshot.getData();
+        return data != null ? codec.decode(snapshot.getId(), data) : null;
+    }
+
+    /**
+     * Decode a page of documents, skipping ones the codec rejects (returns null for)
+     */
+    public static <T> List<T> decodeAll(List<DocumentSnapshot> snapshots, DocumentCodec<T> codec) {
+        List<T> result = new ArrayList<>(snapshots.size());
+        for (DocumentSnapshot snapshot : snapshots) {
+            try {
+                T value = decode(snapshot, codec);
+                if (value != null) result.add(value);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Skipping undecodable document " + snapshot.getId() + ": " + e.getMessage());
+            }
+        }
+        return result;
+    }
+}
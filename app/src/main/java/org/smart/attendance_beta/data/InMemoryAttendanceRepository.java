@@ -0,0 +1,328 @@
+// InMemoryAttendanceRepository.java - AttendanceRepository over in-process maps, for tests and simulations
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.utils.ArrivalHeatmap;
+import org.smart.attendance_beta.utils.AttendanceIds;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.DailyCounters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stores encoded field maps rather than model objects, so every read and write goes through the
+ * same codecs as Firestore and a field the codec forgets is lost here too. Callbacks run synchronously.
+ *
+ * Transactions are optimistic like the Firestore SDK's: read, then commit only if the document is
+ * unchanged, otherwise retry (up to MAX_TRANSACTION_ATTEMPTS). An optional round-trip
+ * delay is paid outside the lock on every call, and between a transaction's read and its commit,
+ * so concurrent callers race the way real clients do.
+ */
+public class InMemoryAttendanceRepository implements AttendanceRepository {
+
+    public static final int MAX_TRANSACTION_ATTEMPTS = 5;
+
+    private final long roundTripNanos;
+
+    // Every write stores a fresh map, so map identity doubles as the document version
+    private final Map<String, Map<String, Object>> attendance = new TreeMap<>();
+    private final Map<String, Map<String, Object>> employees = new HashMap<>();
+    private final Map<String, Map<String, Object>> locations = new TreeMap<>();
+    private final Map<String, Map<Integer, Long>> heatmapSlices = new HashMap<>();
+    private final Map<String, Map<String, Object>> counterShards = new HashMap<>(); // "{date}/{shard}"
+    private int counterShardCount = DailyCounters.DEFAULT_SHARDS;
+
+    private final AtomicLong transactionConflicts = new AtomicLong();
+    private final AtomicLong transactionFailures = new AtomicLong();
+
+    public InMemoryAttendanceRepository() {
+        this(0);
+    }
+
+    /**
+     * @param roundTripMicros simulated network round trip paid by every call
+     */
+    public InMemoryAttendanceRepository(long roundTripMicros) {
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    @Override
+    public void getRecord(String employeeDocId, String date, Callback<AttendanceRecord> callback) {
+        roundTrip();
+        String id = AttendanceIds.forDate(employeeDocId, date);
+        Map<String, Object> data;
+        synchronized (this) {
+            data = attendance.get(id);
+        }
+        callback.onSuccess(data != null ? AttendanceRecordCodec.INSTANCE.decode(id, data) : null);
+    }
+
+    @Override
+    public void getRecords(String employeeDocId, String startDate, String endDate,
+                           Callback<List<AttendanceRecord>> callback) {
+        roundTrip();
+        List<AttendanceRecord> records = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, Object>> entry : attendance.entrySet()) {
+                Map<String, Object> data = entry.getValue();
+                String date = Values.string(data, AttendanceFields.DATE);
+                if (employeeDocId.equals(data.get(AttendanceFields.EMPLOYEE_DOC_ID)) && date != null
+                        && date.compareTo(startDate) >= 0 && date.compareTo(endDate) <= 0) {
+                    records.add(AttendanceRecordCodec.INSTANCE.decode(entry.getKey(), data));
+                }
+            }
+        }
+        records.sort((a, b) -> a.getDate().compareTo(b.getDate()));
+        callback.onSuccess(records);
+    }
+
+    @Override
+    public void saveRecord(AttendanceRecord record, Callback<String> callback) {
+        roundTrip();
+        String id = AttendanceIds.forDate(record.getEmployeeDocId(), record.getDate());
+        Map<String, Object> data = AttendanceRecordCodec.INSTANCE.encode(record);
+        synchronized (this) {
+            attendance.put(id, data);
+        }
+        record.setId(id);
+        callback.onSuccess(id);
+    }
+
+    @Override
+    public void updateRecord(String employeeDocId, String date, Map<String, Object> updates,
+                             Callback<Void> callback) {
+        roundTrip();
+        String id = AttendanceIds.forDate(employeeDocId, date);
+        synchronized (this) {
+            Map<String, Object> existing = attendance.get(id);
+            if (existing != null) {
+                Map<String, Object> data = new HashMap<>(existing);
+                data.putAll(updates);
+                attendance.put(id, data);
+            } else {
+                id = null;
+            }
+        }
+
+        if (id == null) {
+            callback.onError("Failed to update attendance: no record for " + employeeDocId + " on " + date);
+        } else {
+            callback.onSuccess(null);
+        }
+    }
+
+    @Override
+    public void clockIn(AttendanceRecord record, Callback<ClockInTransaction.Outcome> callback) {
+        String id = AttendanceIds.forDate(record.getEmployeeDocId(), record.getDate());
+        Map<String, Object> data = AttendanceRecordCodec.INSTANCE.encode(record);
+
+        for (int attempt = 1; attempt <= MAX_TRANSACTION_ATTEMPTS; attempt++) {
+            // Read
+            roundTrip();
+            Map<String, Object> existing;
+            synchronized (this) {
+                existing = attendance.get(id);
+            }
+
+            // The same transaction body as Firestore clock-ins, with its writes held until commit
+            PendingWrites writes = new PendingWrites(id);
+            ClockInTransaction.Outcome outcome = ClockInTransaction.apply(existing, data, writes);
+            if (outcome != ClockInTransaction.Outcome.CREATED) {
+                callback.onSuccess(outcome);
+                return;
+            }
+
+            // Commit, only if nobody wrote the record since our read
+            roundTrip();
+            boolean committed = false;
+            synchronized (this) {
+                if (attendance.get(id) == existing) {
+                    writes.commit();
+                    committed = true;
+                }
+            }
+
+            if (committed) {
+                record.setId(id);
+                callback.onSuccess(ClockInTransaction.Outcome.CREATED);
+                return;
+            }
+            transactionConflicts.incrementAndGet();
+        }
+
+        transactionFailures.incrementAndGet();
+        callback.onError("Failed to clock in: transaction contention after "
+                + MAX_TRANSACTION_ATTEMPTS + " attempts");
+    }
+
+    @Override
+    public void recordHeartbeat(String employeeDocId, String date, Callback<Void> callback) {
+        roundTrip();
+        String id = AttendanceIds.forDate(employeeDocId, date);
+        boolean updated = false;
+        synchronized (this) {
+            Map<String, Object> existing = attendance.get(id);
+            if (existing != null) {
+                Map<String, Object> data = new HashMap<>(existing);
+                data.put(AttendanceFields.LAST_HEARTBEAT, System.currentTimeMillis());
+                Object count = data.get(AttendanceFields.HEARTBEAT_COUNT);
+                data.put(AttendanceFields.HEARTBEAT_COUNT, (count instanceof Number ? ((Number) count).longValue() : 0) + 1);
+                attendance.put(id, data);
+                updated = true;
+            }
+        }
+
+        if (updated) {
+            callback.onSuccess(null);
+        } else {
+            callback.onError("Failed to update heartbeat: no record for " + employeeDocId + " on " + date);
+        }
+    }
+
+    @Override
+    public void getEmployee(String employeeDocId, Callback<Employee> callback) {
+        roundTrip();
+        Map<String, Object> data;
+        synchronized (this) {
+            data = employees.get(employeeDocId);
+        }
+        callback.onSuccess(data != null ? EmployeeCodec.INSTANCE.decode(employeeDocId, data) : null);
+    }
+
+    @Override
+    public void getLocations(Callback<List<Location>> callback) {
+        roundTrip();
+        List<Location> result = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, Object>> entry : locations.entrySet()) {
+                Location location = LocationCodec.INSTANCE.decode(entry.getKey(), entry.getValue());
+                if (location != null && location.isActive()) result.add(location);
+            }
+        }
+        callback.onSuccess(result);
+    }
+
+    public synchronized void putEmployee(Employee employee) {
+        employees.put(employee.getId(), EmployeeCodec.INSTANCE.encode(employee));
+    }
+
+    public synchronized void putLocation(Location location) {
+        locations.put(location.getId(), LocationCodec.INSTANCE.encode(location));
+    }
+
+    public synchronized int getRecordCount() {
+        return attendance.size();
+    }
+
+    /**
+     * Arrivals counted in the office's heatmap slice for the week containing date
+     */
+    public synchronized long getArrivalCount(String officeId, String date) {
+        Map<Integer, Long> slots = heatmapSlices.get(ArrivalHeatmap.sliceId(officeId, ArrivalHeatmap.weekStartFor(date)));
+        long total = 0;
+        if (slots != null) {
+            for (long count : slots.values()) total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Shards new counter writes are spread over; existing shards keep counting towards the totals
+     */
+    public synchronized void setCounterShardCount(int shards) {
+        counterShardCount = Math.max(1, shards);
+    }
+
+    /**
+     * The day's counters summed over their shards, the same way DailyCounters.load does
+     */
+    public synchronized DailyCounters.Totals getDailyCounters(String date) {
+        DailyCounters.Totals totals = new DailyCounters.Totals();
+        for (Map.Entry<String, Map<String, Object>> shard : counterShards.entrySet()) {
+            if (shard.getKey().startsWith(date + "/")) totals.add(shard.getValue());
+        }
+        return totals;
+    }
+
+    /**
+     * Transaction attempts that lost a race and had to re-read
+     */
+    public long getTransactionConflicts() {
+        return transactionConflicts.get();
+    }
+
+    /**
+     * Transactions that gave up after MAX_TRANSACTION_ATTEMPTS
+     */
+    public long getTransactionFailures() {
+        return transactionFailures.get();
+    }
+
+    /**
+     * A transaction's buffered writes, applied under the lock by commit()
+     */
+    private class PendingWrites implements ClockInTransaction.Writes {
+        private final String id;
+        private final List<Runnable> writes = new ArrayList<>();
+
+        PendingWrites(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public void record(Map<String, Object> attendanceData) {
+            writes.add(() -> attendance.put(id, attendanceData));
+        }
+
+        @Override
+        public void arrival(String officeId, String date, String clockInTime) {
+            int slot = ArrivalHeatmap.slotFor(date, clockInTime);
+            if (slot >= 0) writes.add(() -> countArrival(officeId, date, slot));
+        }
+
+        @Override
+        public void clockIn(String date, boolean late) {
+            writes.add(() -> countClockIn(date, late));
+        }
+
+        void commit() {
+            for (Runnable write : writes) write.run();
+        }
+    }
+
+    private void countArrival(String officeId, String date, int slot) {
+        String sliceId = ArrivalHeatmap.sliceId(officeId, ArrivalHeatmap.weekStartFor(date));
+        Map<Integer, Long> slots = heatmapSlices.get(sliceId);
+        if (slots == null) {
+            slots = new HashMap<>();
+            heatmapSlices.put(sliceId, slots);
+        }
+        Long count = slots.get(slot);
+        slots.put(slot, count != null ? count + 1 : 1);
+    }
+
+    private void countClockIn(String date, boolean late) {
+        String shardId = date + "/" + ThreadLocalRandom.current().nextInt(counterShardCount);
+        Map<String, Object> shard = counterShards.get(shardId);
+        shard = shard != null ? new HashMap<>(shard) : new HashMap<>();
+        shard.put(DailyCounters.PRESENT, Values.integer(shard, DailyCounters.PRESENT, 0) + 1);
+        if (late) shard.put(DailyCounters.LATE, Values.integer(shard, DailyCounters.LATE, 0) + 1);
+        counterShards.put(shardId, shard);
+    }
+
+    private void roundTrip() {
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+// LocationCodec.java - Office location document <-> Location
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.smart.attendance_beta.data.LocationFields.*;
+
+public final class LocationCodec implements DocumentCodec<Location> {
+
+    public static final LocationCodec INSTANCE = new LocationCodec();
+
+    public static final int DEFAULT_RADIUS_METERS = 200;
+
+    private LocationCodec() {}
+
+    /**
+     * Returns null for documents without coordinates, which can't be used for geofencing
+     */
+    @Override
+    public Location decode(String id, Map<String, Object> data) {
+        Double latitude = Values.number(data, LATITUDE);
+        Double longitude = Values.number(data, LONGITUDE);
+        if (latitude == null || longitude == null) return null;
+
+        Location location = new Location();
+        location.setId(id);
+        location.setName(Values.string(data, NAME));
+        location.setAddress(Values.string(data, ADDRESS));
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setRadius(Values.integer(data, RADIUS, DEFAULT_RADIUS_METERS));
+        location.setStartTime(Values.string(data, START_TIME));
+        location.setEndTime(Values.string(data, END_TIME));
+        // Offices created before the flag existed are active
+        location.setActive(!Boolean.FALSE.equals(data.get(IS_ACTIVE)));
+        location.setCreatedAt(Values.timestamp(data, CREATED_AT));
+        return location;
+    }
+
+    @Override
+    public Map<String, Object> encode(Location location) {
+        Map<String, Object> data = new HashMap<>(16);
+        Values.putIfNotNull(data, NAME, location.getName());
+        Values.putIfNotNull(data, ADDRESS, location.getAddress());
+        data.put(LATITUDE, location.getLatitude());
+        data.put(LONGITUDE, location.getLongitude());
+        data.put(RADIUS, location.getRadius());
+        Values.putIfNotNull(data, START_TIME, location.getStartTime());
+        Values.putIfNotNull(data, END_TIME, location.getEndTime());
+        data.put(IS_ACTIVE, location.isActive());
+        Values.putIfNotNull(data, CREATED_AT, location.getCreatedAt());
+        return data;
+    }
+}
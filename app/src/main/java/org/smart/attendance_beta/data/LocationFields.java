@@ -0,0 +1,19 @@
+// LocationFields.java - Field names of documents in the locations (offices) collection
+package org.smart.attendance_beta.data;
+
+public final class LocationFields {
+
+    public static final String COLLECTION = "locations";
+
+    public static final String NAME = "name";
+    public static final String ADDRESS = "address";
+    public static final String LATITUDE = "latitude";
+    public static final String LONGITUDE = "longitude";
+    public static final String RADIUS = "radius";
+    public static final String START_TIME = "startTime";
+    public static final String END_TIME = "endTime";
+    public static final String IS_ACTIVE = "isActive";
+    public static final String CREATED_AT = "createdAt";
+
+    private LocationFields() {}
+}
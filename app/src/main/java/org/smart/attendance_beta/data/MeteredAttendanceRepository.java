@@ -0,0 +1,162 @@
+// MeteredAttendanceRepository.java - AttendanceRepository decorator that records each call's cost in a CostLedger
+package org.smart.attendance_beta.data;
+
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.models.Location;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.CostLedger;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Billed reads and writes per repository method, under call sites "repo.{method}". Counts follow how
+ * FirestoreAttendanceRepository maps each method onto Firestore:
+ * - a point read is 1 read whether or not the document exists
+ * - a query is 1 read per document returned, and 1 for an empty result
+ * - getLocations reads the whole collection; inactive offices are dropped afterwards and can't be
+ *   seen here, so it is counted by what comes back
+ * - clockIn reads the day's record and, when it creates one, writes it with the heatmap slice and a
+ *   counter shard
+ *
+ * Wraps InMemoryAttendanceRepository the same way in tests, where CostBudget holds flows to a read budget.
+ */
+public class MeteredAttendanceRepository implements AttendanceRepository {
+
+    private static final String SITE = "repo.";
+    private static final int CLOCK_IN_WRITES = 3;
+
+    private final AttendanceRepository delegate;
+    private final CostLedger ledger;
+
+    public MeteredAttendanceRepository(AttendanceRepository delegate, CostLedger ledger) {
+        this.delegate = delegate;
+        this.ledger = ledger;
+    }
+
+    @Override
+    public void getRecord(String employeeDocId, String date, Callback<AttendanceRecord> callback) {
+        Meter<AttendanceRecord> meter = new Meter<>("getRecord", callback);
+        delegate.getRecord(employeeDocId, date, meter.reads(record -> 1, this::recordBytes));
+    }
+
+    @Override
+    public void getRecords(String employeeDocId, String startDate, String endDate,
+                           Callback<List<AttendanceRecord>> callback) {
+        Meter<List<AttendanceRecord>> meter = new Meter<>("getRecords", callback);
+        delegate.getRecords(employeeDocId, startDate, endDate, meter.reads(
+                records -> Math.max(1, records.size()),
+                records -> {
+                    long bytes = 0;
+                    for (AttendanceRecord record : records) bytes += recordBytes(record);
+                    return bytes;
+                }));
+    }
+
+    @Override
+    public void saveRecord(AttendanceRecord record, Callback<String> callback) {
+        Meter<String> meter = new Meter<>("saveRecord", callback);
+        delegate.saveRecord(record, meter.writes(id -> 1, recordBytes(record)));
+    }
+
+    @Override
+    public void updateRecord(String employeeDocId, String date, Map<String, Object> updates,
+                             Callback<Void> callback) {
+        Meter<Void> meter = new Meter<>("updateRecord", callback);
+        delegate.updateRecord(employeeDocId, date, updates, meter.writes(v -> 1, CostLedger.estimateBytes(updates)));
+    }
+
+    @Override
+    public void clockIn(AttendanceRecord record, Callback<ClockInTransaction.Outcome> callback) {
+        Meter<ClockInTransaction.Outcome> meter = new Meter<>("clockIn", callback);
+        delegate.clockIn(record, meter.transaction(
+                outcome -> outcome == ClockInTransaction.Outcome.CREATED ? CLOCK_IN_WRITES : 0,
+                recordBytes(record)));
+    }
+
+    @Override
+    public void recordHeartbeat(String employeeDocId, String date, Callback<Void> callback) {
+        Meter<Void> meter = new Meter<>("recordHeartbeat", callback);
+        delegate.recordHeartbeat(employeeDocId, date, meter.writes(v -> 1, 0));
+    }
+
+    @Override
+    public void getEmployee(String employeeDocId, Callback<Employee> callback) {
+        Meter<Employee> meter = new Meter<>("getEmployee", callback);
+        delegate.getEmployee(employeeDocId, meter.reads(employee -> 1,
+                employee -> employee != null ? CostLedger.estimateBytes(EmployeeCodec.INSTANCE.encode(employee)) : 0));
+    }
+
+    @Override
+    public void getLocations(Callback<List<Location>> callback) {
+        Meter<List<Location>> meter = new Meter<>("getLocations", callback);
+        delegate.getLocations(meter.reads(
+                locations -> Math.max(1, locations.size()),
+                locations -> {
+                    long bytes = 0;
+                    for (Location location : locations) {
+                        bytes += CostLedger.estimateBytes(LocationCodec.INSTANCE.encode(location));
+                    }
+                    return bytes;
+                }));
+    }
+
+    private long recordBytes(AttendanceRecord record) {
+        return record != null ? CostLedger.estimateBytes(AttendanceRecordCodec.INSTANCE.encode(record)) : 0;
+    }
+
+    private interface Count<T> {
+        long of(T result);
+    }
+
+    /**
+     * One call: the screen and start time are taken when it starts, the cost when it completes
+     */
+    private class Meter<T> {
+        final String site;
+        final String screen;
+        final long startNanos;
+        final Callback<T> callback;
+
+        Meter(String method, Callback<T> callback) {
+            this.site = SITE + method;
+            this.screen = ledger.currentScreen();
+            this.startNanos = System.nanoTime();
+            this.callback = callback;
+        }
+
+        Callback<T> reads(Count<T> reads, Count<T> bytes) {
+            return complete(reads, result -> 0, bytes);
+        }
+
+        Callback<T> writes(Count<T> writes, long bytes) {
+            return complete(result -> 0, writes, result -> bytes);
+        }
+
+        Callback<T> transaction(Count<T> writes, long bytes) {
+            return complete(result -> 1, writes, result -> writes.of(result) > 0 ? bytes : 0);
+        }
+
+        private Callback<T> complete(Count<T> reads, Count<T> writes, Count<T> bytes) {
+            return new Callback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    ledger.record(screen, site, reads.of(result), 0, writes.of(result), bytes.of(result), elapsedMs());
+                    callback.onSuccess(result);
+                }
+
+                @Override
+                public void onError(String error) {
+                    // A failed call may still have been billed for what it read; count the call, not the docs
+                    ledger.record(screen, site, 0, 0, 0, 0, elapsedMs());
+                    callback.onError(error);
+                }
+            };
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+}
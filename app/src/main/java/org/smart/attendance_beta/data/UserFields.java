@@ -0,0 +1,13 @@
+// UserFields.java - Field names of documents in the users collection
+package org.smart.attendance_beta.data;
+
+public final class UserFields {
+
+    public static final String COLLECTION = "users";
+
+    public static final String EMAIL = "email";
+    public static final String ROLE = "role";
+    public static final String IS_ACTIVE = "isActive";
+
+    private UserFields() {}
+}
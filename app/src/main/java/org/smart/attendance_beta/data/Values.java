@@ -0,0 +1,47 @@
+// Values.java - Null-safe typed reads from a Firestore field map
+package org.smart.attendance_beta.data;
+
+import com.google.firebase.Timestamp;
+
+import java.util.Map;
+
+final class Values {
+
+    private Values() {}
+
+    static String string(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Firestore returns whole numbers as Long even for fields written as double (0.0 reads back as 0)
+     */
+    static Double number(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    static double number(Map<String, Object> data, String key, double fallback) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
+    }
+
+    static int integer(Map<String, Object> data, String key, int fallback) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : fallback;
+    }
+
+    static boolean bool(Map<String, Object> data, String key) {
+        return Boolean.TRUE.equals(data.get(key));
+    }
+
+    static Timestamp timestamp(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+
+    static void putIfNotNull(Map<String, Object> data, String key, Object value) {
+        if (value != null) data.put(key, value);
+    }
+}
@@ -2,7 +2,11 @@ package org.smart.attendance_beta.models;
 
 import com.google.firebase.Timestamp;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class AttendanceRecord {
+    private String id; // Document ID, not stored as a field
     private String employeeDocId;
     private String pfNumber;
     private String employeeName;
@@ -13,8 +17,8 @@ public class AttendanceRecord {
     private Timestamp clockOutTimestamp;
     private double clockInLatitude;
     private double clockInLongitude;
-    private double clockOutLatitude;
-    private double clockOutLongitude;
+    private Double clockOutLatitude;  // Null until clocked out
+    private Double clockOutLongitude;
     private String status;
     private double totalHours;
     private boolean isLate;
@@ -22,6 +26,23 @@ public class AttendanceRecord {
     private String locationName;
     private Timestamp createdAt;
 
+    private String department;
+    private String officeId;
+    private String officeName;
+    private boolean isEarlyClockOut;
+    private String earlyClockOutReason;
+
+    // Device session
+    private String deviceId;
+    private String deviceModel;
+    private String deviceManufacturer;
+    private boolean sessionActive;
+    private Timestamp sessionStartTime;
+    private Timestamp sessionEndTime;
+
+    // Audit fields (device fingerprint, security, time validation) that are written but never read back
+    private final Map<String, Object> extras = new HashMap<>();
+
     // Default constructor required for Firebase
     public AttendanceRecord() {}
 
@@ -47,6 +68,9 @@ public class AttendanceRecord {
     }
 
     // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
     public String getEmployeeDocId() { return employeeDocId; }
     public void setEmployeeDocId(String employeeDocId) { this.employeeDocId = employeeDocId; }
 
@@ -77,11 +101,11 @@ public class AttendanceRecord {
     public double getClockInLongitude() { return clockInLongitude; }
     public void setClockInLongitude(double clockInLongitude) { this.clockInLongitude = clockInLongitude; }
 
-    public double getClockOutLatitude() { return clockOutLatitude; }
-    public void setClockOutLatitude(double clockOutLatitude) { this.clockOutLatitude = clockOutLatitude; }
+    public Double getClockOutLatitude() { return clockOutLatitude; }
+    public void setClockOutLatitude(Double clockOutLatitude) { this.clockOutLatitude = clockOutLatitude; }
 
-    public double getClockOutLongitude() { return clockOutLongitude; }
-    public void setClockOutLongitude(double clockOutLongitude) { this.clockOutLongitude = clockOutLongitude; }
+    public Double getClockOutLongitude() { return clockOutLongitude; }
+    public void setClockOutLongitude(Double clockOutLongitude) { this.clockOutLongitude = clockOutLongitude; }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -100,4 +124,40 @@ public class AttendanceRecord {
 
     public Timestamp getCreatedAt() { return createdAt; }
     public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
-}
\ No newline at end of file
+
+    public String getDepartment() { return department; }
+    public void setDepartment(String department) { this.department = department; }
+
+    public String getOfficeId() { return officeId; }
+    public void setOfficeId(String officeId) { this.officeId = officeId; }
+
+    public String getOfficeName() { return officeName; }
+    public void setOfficeName(String officeName) { this.officeName = officeName; }
+
+    public boolean isEarlyClockOut() { return isEarlyClockOut; }
+    public void setEarlyClockOut(boolean earlyClockOut) { isEarlyClockOut = earlyClockOut; }
+
+    public String getEarlyClockOutReason() { return earlyClockOutReason; }
+    public void setEarlyClockOutReason(String earlyClockOutReason) { this.earlyClockOutReason = earlyClockOutReason; }
+
+    public String getDeviceId() { return deviceId; }
+    public void setDeviceId(String deviceId) { this.deviceId = deviceId; }
+
+    public String getDeviceModel() { return deviceModel; }
+    public void setDeviceModel(String deviceModel) { this.deviceModel = deviceModel; }
+
+    public String getDeviceManufacturer() { return deviceManufacturer; }
+    public void setDeviceManufacturer(String deviceManufacturer) { this.deviceManufacturer = deviceManufacturer; }
+
+    public boolean isSessionActive() { return sessionActive; }
+    public void setSessionActive(boolean sessionActive) { this.sessionActive = sessionActive; }
+
+    public Timestamp getSessionStartTime() { return sessionStartTime; }
+    public void setSessionStartTime(Timestamp sessionStartTime) { this.sessionStartTime = sessionStartTime; }
+
+    public Timestamp getSessionEndTime() { return sessionEndTime; }
+    public void setSessionEndTime(Timestamp sessionEndTime) { this.sessionEndTime = sessionEndTime; }
+
+    public Map<String, Object> getExtras() { return extras; }
+    public void putExtra(String key, Object value) { extras.put(key, value); }
+}
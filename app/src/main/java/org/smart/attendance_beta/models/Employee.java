@@ -4,6 +4,8 @@ package org.smart.attendance_beta.models;
 import com.google.firebase.Timestamp;
 
 public class Employee {
+    private String id; // Document ID, not stored as a field
+    private String pfNumber;
     private String userId;
     private String employeeId;
     private String fullName;
@@ -15,6 +17,7 @@ public class Employee {
     private Timestamp createdAt;
     private String loginMethod;
     private boolean profileCompleted;
+    private boolean hasPassword;
 
     // Attendance related fields
     private String attendanceStatus;
@@ -42,6 +45,15 @@ public class Employee {
     }
 
     // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getPfNumber() { return pfNumber; }
+    public void setPfNumber(String pfNumber) { this.pfNumber = pfNumber; }
+
+    public boolean hasPassword() { return hasPassword; }
+    public void setHasPassword(boolean hasPassword) { this.hasPassword = hasPassword; }
+
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
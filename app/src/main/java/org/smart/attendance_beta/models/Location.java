@@ -3,6 +3,7 @@ package org.smart.attendance_beta.models;
 import com.google.firebase.Timestamp;
 
 public class Location {
+    private String id; // Document ID, not stored as a field
     private String name;
     private String address;
     private double latitude;
@@ -30,6 +31,9 @@ public class Location {
     }
 
     // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
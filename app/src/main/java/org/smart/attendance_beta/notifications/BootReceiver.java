@@ -14,6 +14,15 @@ public class BootReceiver extends BroadcastReceiver {
         String action = intent.getAction();
         Log.d(TAG, "Boot receiver triggered: " + action);
 
+        if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            // The armed alarm is an absolute time; office hours are local wall-clock times
+            if (context.getSharedPreferences("attendance_prefs", Context.MODE_PRIVATE)
+                    .getString("employee_doc_id", null) != null) {
+                ReminderScheduler.scheduleNext(context);
+            }
+            return;
+        }
+
         if (Intent.ACTION_BOOT_COMPLETED.equals(action) ||
                 Intent.ACTION_MY_PACKAGE_REPLACED.equals(action) ||
                 Intent.ACTION_PACKAGE_REPLACED.equals(action)) {
@@ -28,8 +37,8 @@ public class BootReceiver extends BroadcastReceiver {
                 // Setup notification channel
                 AttendanceNotificationManager.setupNotificationChannel(context);
 
-                // Reschedule all daily reminders
-                AttendanceNotificationManager.scheduleDailyReminders(context);
+                // Alarms don't survive a reboot; arm the next reminder again
+                ReminderScheduler.scheduleNext(context);
 
                 Log.d(TAG, "Attendance notifications rescheduled successfully");
             } else {
@@ -0,0 +1,84 @@
+// ReminderDecider.java - Decides whether a reminder alarm should notify, from the persisted TodaySummary when it can
+package org.smart.attendance_beta.notifications;
+
+import org.smart.attendance_beta.utils.TodayState;
+import org.smart.attendance_beta.utils.TodaySummary;
+
+/**
+ * A summary confirmed within FRESH_MS answers without the network. One from an earlier day still
+ * answers: clocking in on this device would have replaced it, so the employee hasn't clocked in
+ * here today. A clock-in on another phone that this one never saw can still cause a spurious
+ * reminder until the summary is refreshed; that is the price of not waking the radio. Anything
+ * older (a long weekend, a wrong clock) or for another employee goes to Firestore.
+ */
+public class ReminderDecider {
+
+    // Covers yesterday evening's summary at the 8:00 reminders
+    public static final long FRESH_MS = 18L * 60 * 60 * 1000;
+
+    public enum Reminder {
+        CLOCK_IN("CLOCK_IN_REMINDER", "reminder.clockIn"),
+        LATE("LATE_ALERT", "reminder.late"),
+        CLOCK_OUT("CLOCK_OUT_REMINDER", "reminder.clockOut");
+
+        public final String action;
+        public final String costSite;
+
+        Reminder(String action, String costSite) {
+            this.action = action;
+            this.costSite = costSite;
+        }
+
+        /**
+         * The reminder an alarm intent's action stands for, or null for an unknown action
+         */
+        public static Reminder fromAction(String action) {
+            for (Reminder reminder : values()) {
+                if (reminder.action.equals(action)) return reminder;
+            }
+            return null;
+        }
+    }
+
+    public enum Decision {
+        NOTIFY,
+        SKIP,
+        CHECK_SERVER
+    }
+
+    public static Decision decide(Reminder reminder, TodaySummary summary, String employeeDocId,
+                                  String today, long nowMs) {
+        if (summary == null || !summary.employeeDocId.equals(employeeDocId)) return Decision.CHECK_SERVER;
+
+        long ageMs = nowMs - summary.confirmedAtMs;
+        if (ageMs < 0 || ageMs > FRESH_MS) return Decision.CHECK_SERVER;
+
+        // yyyy-MM-dd sorts by date
+        int order = summary.date.compareTo(today);
+        if (order > 0) return Decision.CHECK_SERVER; // The clock went back
+        TodayState.Status status = order == 0 ? summary.status : TodayState.Status.NOT_CLOCKED_IN;
+        return shouldNotify(reminder, status) ? Decision.NOTIFY : Decision.SKIP;
+    }
+
+    /**
+     * Clock-in and late reminders are for employees who haven't clocked in; clock-out for those still in
+     */
+    public static boolean shouldNotify(Reminder reminder, TodayState.Status status) {
+        switch (reminder) {
+            case CLOCK_IN:
+            case LATE:
+                return status == TodayState.Status.NOT_CLOCKED_IN;
+            case CLOCK_OUT:
+                return status == TodayState.Status.CLOCKED_IN;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * When the day couldn't be checked in time, only the clock-in reminder is shown anyway
+     */
+    public static boolean notifyWithoutAnswer(Reminder reminder) {
+        return reminder == Reminder.CLOCK_IN;
+    }
+}
@@ -0,0 +1,104 @@
+// ReminderRun.java - One reminder alarm: decide locally, or check Firestore under a hard deadline
+package org.smart.attendance_beta.notifications;
+
+import org.smart.attendance_beta.utils.TodayState;
+import org.smart.attendance_beta.utils.TodaySummary;
+
+import java.util.function.LongSupplier;
+
+/**
+ * AttendanceReminderReceiver supplies the Android side through Host; tests supply fakes. A local
+ * decision finishes inside onReceive. A server check keeps the receiver alive with goAsync and
+ * gives up after DEADLINE_MS, well inside the time the system allows a pending broadcast, so the
+ * process is never killed in the middle of it. Whichever of answer, error and deadline comes first
+ * decides; the others are ignored. Main thread only.
+ */
+public class ReminderRun {
+
+    public static final long DEADLINE_MS = 8000;
+
+    public interface ServerCallback {
+        void onStatus(TodayState.Status status);
+        void onError(String error);
+    }
+
+    public interface Host {
+        void showNotification(ReminderDecider.Reminder reminder);
+
+        void fetchToday(ReminderDecider.Reminder reminder, String employeeDocId, String date,
+                        ServerCallback callback);
+
+        /**
+         * Keep the receiver alive past onReceive; the returned Runnable releases it
+         */
+        Runnable keepAlive();
+
+        void schedule(Runnable task, long delayMs);
+    }
+
+    private final Host host;
+    private final TodaySummary.Store store;
+    private final LongSupplier clockMs;
+    private final long deadlineMs;
+
+    public ReminderRun(Host host, TodaySummary.Store store, LongSupplier clockMs) {
+        this(host, store, clockMs, DEADLINE_MS);
+    }
+
+    public ReminderRun(Host host, TodaySummary.Store store, LongSupplier clockMs, long deadlineMs) {
+        this.host = host;
+        this.store = store;
+        this.clockMs = clockMs;
+        this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * Handle the alarm; returns how it was decided (CHECK_SERVER when the answer is still to come)
+     */
+    public ReminderDecider.Decision run(ReminderDecider.Reminder reminder, String employeeDocId, String today) {
+        ReminderDecider.Decision decision = ReminderDecider.decide(reminder, store.load(), employeeDocId,
+                today, clockMs.getAsLong());
+        switch (decision) {
+            case NOTIFY:
+                host.showNotification(reminder);
+                break;
+            case CHECK_SERVER:
+                checkServer(reminder, employeeDocId, today);
+                break;
+            default:
+                break;
+        }
+        return decision;
+    }
+
+    private void checkServer(ReminderDecider.Reminder reminder, String employeeDocId, String today) {
+        Runnable release = host.keepAlive();
+        boolean[] settled = {false};
+
+        host.schedule(() -> {
+            if (settled[0]) return;
+            settled[0] = true;
+            if (ReminderDecider.notifyWithoutAnswer(reminder)) host.showNotification(reminder);
+            release.run();
+        }, deadlineMs);
+
+        host.fetchToday(reminder, employeeDocId, today, new ServerCallback() {
+            @Override
+            public void onStatus(TodayState.Status status) {
+                if (settled[0]) return;
+                settled[0] = true;
+                store.save(new TodaySummary(employeeDocId, today, status, clockMs.getAsLong()));
+                if (ReminderDecider.shouldNotify(reminder, status)) host.showNotification(reminder);
+                release.run();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (settled[0]) return;
+                settled[0] = true;
+                if (ReminderDecider.notifyWithoutAnswer(reminder)) host.showNotification(reminder);
+                release.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+// ReminderScheduler.java - Arms a single exact alarm for the next reminder on the employee's timeline
+package org.smart.attendance_beta.notifications;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.OfficeLocation;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Replaces the three daily alarms: only the earliest upcoming event is armed, and
+ * AttendanceReminderReceiver re-arms for the one after it each time it fires. The timeline uses the
+ * hours of the office the employee last clocked in at, kept in attendance_prefs, so logging out
+ * drops them along with the alarm.
+ *
+ * Every alarm shares one PendingIntent (fixed action and request code, the event in extras), so
+ * arming a new event replaces the previous one instead of adding to it.
+ */
+public class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    public static final String ACTION_REMINDER = "ATTENDANCE_REMINDER";
+    public static final String EXTRA_REMINDER = "reminder";
+    public static final String EXTRA_EVENT_AT_MS = "event_at_ms";
+
+    private static final int ALARM_ID = 1000;
+
+    private static final String PREFS = "attendance_prefs";
+    private static final String KEY_OFFICE_START = "reminder_office_start";
+    private static final String KEY_OFFICE_END = "reminder_office_end";
+
+    /**
+     * Arm the next event from now
+     */
+    public static void scheduleNext(Context context) {
+        scheduleAfter(context, System.currentTimeMillis());
+    }
+
+    /**
+     * Arm the first event strictly after afterMs; the receiver passes the event that just fired
+     */
+    public static void scheduleAfter(Context context, long afterMs) {
+        cancelLegacyAlarms(context);
+
+        ReminderTimeline.Event next = timeline(context).next(afterMs);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (next == null) {
+            alarmManager.cancel(pendingIntent(context, null));
+            AppLog.w(TAG, "No work day ahead, reminders not scheduled");
+            return;
+        }
+
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.atMs, pendingIntent(context, next));
+        AppLog.d(TAG, "⏰ Next reminder: {} at {}", next.reminder, new Date(next.atMs));
+    }
+
+    /**
+     * Follow this office's hours from now on; re-arms if they differ from the current ones
+     */
+    public static void useOffice(Context context, OfficeLocation office) {
+        if (office == null) return;
+        SharedPreferences prefs = prefs(context);
+        String start = office.startTime;
+        String end = office.endTime;
+        if (Objects.equals(start, prefs.getString(KEY_OFFICE_START, null))
+                && Objects.equals(end, prefs.getString(KEY_OFFICE_END, null))) {
+            return;
+        }
+        prefs.edit()
+                .putString(KEY_OFFICE_START, start)
+                .putString(KEY_OFFICE_END, end)
+                .apply();
+        AppLog.d(TAG, "Reminders follow {} hours: {}-{}", office.name, start, end);
+        scheduleNext(context);
+    }
+
+    public static void cancel(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(pendingIntent(context, null));
+        cancelLegacyAlarms(context);
+        AppLog.d(TAG, "All attendance reminders cancelled");
+    }
+
+    public static ReminderTimeline timeline(Context context) {
+        SharedPreferences prefs = prefs(context);
+        return new ReminderTimeline(prefs.getString(KEY_OFFICE_START, null), prefs.getString(KEY_OFFICE_END, null),
+                ReminderTimeline.WEEKDAYS, TimeZone.getDefault());
+    }
+
+    private static PendingIntent pendingIntent(Context context, ReminderTimeline.Event event) {
+        Intent intent = new Intent(context, AttendanceReminderReceiver.class);
+        intent.setAction(ACTION_REMINDER);
+        if (event != null) {
+            intent.putExtra(EXTRA_REMINDER, event.reminder.action);
+            intent.putExtra(EXTRA_EVENT_AT_MS, event.atMs);
+        }
+        return PendingIntent.getBroadcast(context, ALARM_ID, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Alarms armed by earlier versions, one per reminder with the action as the intent action
+     */
+    private static void cancelLegacyAlarms(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        int[] requestCodes = {1001, 1003, 1002};
+        ReminderDecider.Reminder[] reminders = {
+                ReminderDecider.Reminder.CLOCK_IN, ReminderDecider.Reminder.LATE, ReminderDecider.Reminder.CLOCK_OUT
+        };
+        for (int i = 0; i < requestCodes.length; i++) {
+            Intent intent = new Intent(context, AttendanceReminderReceiver.class);
+            intent.setAction(reminders[i].action);
+            PendingIntent legacy = PendingIntent.getBroadcast(context, requestCodes[i], intent,
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            if (legacy != null) {
+                alarmManager.cancel(legacy);
+                legacy.cancel();
+            }
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,146 @@
+// ReminderTimeline.java - Upcoming reminder events from an office's working hours and the work calendar
+package org.smart.attendance_beta.notifications;
+
+import org.smart.attendance_beta.notifications.ReminderDecider.Reminder;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Each work day has three events: the clock-in reminder at the office's startTime, the late alert
+ * LATE_AFTER_MINUTES later and the clock-out reminder at its endTime ("HH:mm", as stored on the
+ * office document). Offices without valid hours use DEFAULT_START and DEFAULT_END, the hours the
+ * app has always assumed. Times are wall-clock in the given zone, so a DST change moves nothing.
+ *
+ * ReminderScheduler arms one alarm for next(); when it fires the receiver asks for the event after it.
+ */
+public class ReminderTimeline {
+
+    public static final String DEFAULT_START = "08:00";
+    public static final String DEFAULT_END = "17:00";
+    public static final int LATE_AFTER_MINUTES = 15;
+
+    // Far enough to get past any run of holidays a calendar might hold
+    private static final int HORIZON_DAYS = 31;
+
+    public interface WorkCalendar {
+        boolean isWorkDay(Calendar day);
+    }
+
+    public static final WorkCalendar WEEKDAYS = day -> {
+        int dayOfWeek = day.get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek != Calendar.SATURDAY && dayOfWeek != Calendar.SUNDAY;
+    };
+
+    public static class Event {
+        public final Reminder reminder;
+        public final long atMs;
+
+        Event(Reminder reminder, long atMs) {
+            this.reminder = reminder;
+            this.atMs = atMs;
+        }
+
+        @Override
+        public String toString() {
+            return reminder + " at " + atMs;
+        }
+    }
+
+    private final int startMinute;
+    private final int endMinute;
+    private final WorkCalendar workCalendar;
+    private final TimeZone zone;
+
+    public ReminderTimeline(String startTime, String endTime, WorkCalendar workCalendar, TimeZone zone) {
+        int start = parseMinutes(startTime);
+        int end = parseMinutes(endTime);
+        if (start < 0 || end <= start) {
+            start = parseMinutes(DEFAULT_START);
+            end = parseMinutes(DEFAULT_END);
+        }
+        this.startMinute = start;
+        this.endMinute = end;
+        this.workCalendar = workCalendar;
+        this.zone = zone;
+    }
+
+    /**
+     * Minutes after midnight for "HH:mm", or -1 if it isn't a valid time
+     */
+    public static int parseMinutes(String time) {
+        if (time == null) return -1;
+        String[] parts = time.trim().split(":");
+        if (parts.length != 2) return -1;
+        try {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = Integer.parseInt(parts[1]);
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) return -1;
+            return hours * 60 + minutes;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The first event strictly after afterMs, or null if the calendar has no work day in range
+     */
+    public Event next(long afterMs) {
+        Calendar day = startOfDay(afterMs);
+        for (int i = 0; i < HORIZON_DAYS; i++) {
+            if (workCalendar.isWorkDay(day)) {
+                for (Event event : eventsOn(day)) {
+                    if (event.atMs > afterMs) return event;
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return null;
+    }
+
+    /**
+     * Every event after afterMs within the given number of calendar days, in time order
+     */
+    public List<Event> upcoming(long afterMs, int days) {
+        List<Event> events = new ArrayList<>();
+        Calendar day = startOfDay(afterMs);
+        for (int i = 0; i < days; i++) {
+            if (workCalendar.isWorkDay(day)) {
+                for (Event event : eventsOn(day)) {
+                    if (event.atMs > afterMs) events.add(event);
+                }
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return events;
+    }
+
+    private List<Event> eventsOn(Calendar day) {
+        List<Event> events = new ArrayList<>(3);
+        events.add(new Event(Reminder.CLOCK_IN, at(day, startMinute)));
+        events.add(new Event(Reminder.LATE, at(day, startMinute + LATE_AFTER_MINUTES)));
+        events.add(new Event(Reminder.CLOCK_OUT, at(day, endMinute)));
+        // A short day can end before the late alert
+        events.sort((a, b) -> Long.compare(a.atMs, b.atMs));
+        return events;
+    }
+
+    private long at(Calendar day, int minuteOfDay) {
+        Calendar time = (Calendar) day.clone();
+        time.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        time.set(Calendar.MINUTE, minuteOfDay % 60);
+        return time.getTimeInMillis();
+    }
+
+    private Calendar startOfDay(long ms) {
+        Calendar day = Calendar.getInstance(zone);
+        day.setTimeInMillis(ms);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        return day;
+    }
+}
@@ -0,0 +1,193 @@
+// ClockEvent.java - A clock-in or clock-out captured on the device, as stored in the journal
+package org.smart.attendance_beta.sync;
+
+import org.smart.attendance_beta.utils.AttendanceIds;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+public class ClockEvent {
+
+    public static final String TYPE_CLOCK_IN = "CLOCK_IN";
+    public static final String TYPE_CLOCK_OUT = "CLOCK_OUT";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_BOOLEAN = 4;
+
+    public final String eventId;
+    public final String type;
+    public final String employeeDocId;
+    public final String date;
+    public final String deviceId;
+    public final long deviceTimeMs;
+    public final long trustedOffsetMs; // Server time minus device time at the last validation
+    public final double latitude;
+    public final double longitude;
+
+    // Attendance fields to write; values are String, Long, Double, Boolean or null
+    public final Map<String, Object> payload;
+
+    /**
+     * Throws IllegalArgumentException if a payload value can't be journaled, so callers find out
+     * while building the event rather than when it is written
+     */
+    public ClockEvent(String eventId, String type, String employeeDocId, String date, String deviceId,
+                      long deviceTimeMs, long trustedOffsetMs, double latitude, double longitude,
+                      Map<String, Object> payload) {
+        this.eventId = eventId;
+        this.type = type;
+        this.employeeDocId = employeeDocId;
+        this.date = date;
+        this.deviceId = deviceId;
+        this.deviceTimeMs = deviceTimeMs;
+        this.trustedOffsetMs = trustedOffsetMs;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.payload = Collections.unmodifiableMap(new LinkedHashMap<>(payload));
+        for (Map.Entry<String, Object> entry : this.payload.entrySet()) {
+            if (!isSupported(entry.getValue())) {
+                throw new IllegalArgumentException("Unsupported payload value for " + entry.getKey() + ": "
+                        + entry.getValue().getClass().getSimpleName());
+            }
+        }
+    }
+
+    /**
+     * Whether writeValue can store the value; anything else has to go to Firestore directly
+     */
+    public static boolean isSupported(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Number;
+    }
+
+    /**
+     * New event stamped with a fresh ID and the current device time
+     */
+    public static ClockEvent create(String type, String employeeDocId, String date, String deviceId,
+                                    long trustedOffsetMs, double latitude, double longitude,
+                                    Map<String, Object> payload) {
+        return new ClockEvent(UUID.randomUUID().toString(), type, employeeDocId, date, deviceId,
+                System.currentTimeMillis(), trustedOffsetMs, latitude, longitude, payload);
+    }
+
+    /**
+     * Best estimate of when the event happened in server time
+     */
+    public long getTrustedTimeMs() {
+        return deviceTimeMs + trustedOffsetMs;
+    }
+
+    public boolean isClockIn() {
+        return TYPE_CLOCK_IN.equals(type);
+    }
+
+    public String getAttendanceId() {
+        return AttendanceIds.forDate(employeeDocId, date);
+    }
+
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(eventId);
+            out.writeUTF(type);
+            out.writeUTF(employeeDocId);
+            out.writeUTF(date);
+            out.writeUTF(deviceId);
+            out.writeLong(deviceTimeMs);
+            out.writeLong(trustedOffsetMs);
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+
+            out.writeShort(payload.size());
+            for (Map.Entry<String, Object> entry : payload.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to a byte array can't fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static ClockEvent decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported clock event version " + version);
+        }
+
+        String eventId = in.readUTF();
+        String type = in.readUTF();
+        String employeeDocId = in.readUTF();
+        String date = in.readUTF();
+        String deviceId = in.readUTF();
+        long deviceTimeMs = in.readLong();
+        long trustedOffsetMs = in.readLong();
+        double latitude = in.readDouble();
+        double longitude = in.readDouble();
+
+        int count = in.readUnsignedShort();
+        Map<String, Object> payload = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            payload.put(in.readUTF(), readValue(in));
+        }
+
+        return new ClockEvent(eventId, type, employeeDocId, date, deviceId,
+                deviceTimeMs, trustedOffsetMs, latitude, longitude, payload);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else {
+            throw new IllegalArgumentException("Unsupported payload value: " + value.getClass().getSimpleName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return in.readUTF();
+            case VALUE_LONG:
+                return in.readLong();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            default:
+                throw new IOException("Unknown payload value tag " + tag);
+        }
+    }
+}
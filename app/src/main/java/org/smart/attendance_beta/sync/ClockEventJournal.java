@@ -0,0 +1,375 @@
+// ClockEventJournal.java - Durable append-only journal of clock events with crash recovery
+package org.smart.attendance_beta.sync;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Record layout: [int length][int crc32][length bytes of ClockEvent.encode()].
+ * Everything before the ack cursor has been synced; everything after it is pending.
+ * A torn or corrupt record can only be the tail of an interrupted append, so recovery truncates there.
+ * Events Firestore will never accept are moved to the dead-letter file, in the same record layout,
+ * so they stop blocking the ones behind them but are still on the device if someone needs them.
+ */
+public class ClockEventJournal implements Closeable {
+
+    public static final String JOURNAL_FILE = "clock_events.journal";
+    public static final String ACK_FILE = "clock_events.ack";
+    public static final String DEAD_LETTER_FILE = "clock_events.dead";
+
+    private static final int MAGIC = 0x434A4E31; // "CJN1"
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    // Once everything is acknowledged and the file is bigger than this, it is reset to empty
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;
+
+    public static class Entry {
+        public final long offset;
+        public final long nextOffset;
+        public final ClockEvent event;
+
+        Entry(long offset, long nextOffset, ClockEvent event) {
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.event = event;
+        }
+    }
+
+    private final File directory;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final List<Entry> pending = new ArrayList<>();
+    private final long recoveredTruncatedBytes;
+
+    private long endOffset;
+    private long ackOffset;
+    private boolean ackDirty = false; // Journal was compacted but the reset cursor is not on disk yet
+    private boolean closed = false;
+
+    private ClockEventJournal(File directory) throws IOException {
+        this.directory = directory;
+        this.file = new RandomAccessFile(new File(directory, JOURNAL_FILE), "rw");
+        this.channel = file.getChannel();
+
+        if (channel.size() < HEADER_BYTES) {
+            writeHeader();
+        } else if (readInt(0) != MAGIC) {
+            throw new IOException("Not a clock event journal: " + new File(directory, JOURNAL_FILE));
+        }
+
+        long storedAck = readAck();
+        List<Entry> entries = new ArrayList<>();
+        long validEnd = scan(entries);
+
+        recoveredTruncatedBytes = channel.size() - validEnd;
+        if (recoveredTruncatedBytes > 0) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        endOffset = validEnd;
+
+        // An ack past the end means a compaction was interrupted after truncating the journal
+        ackOffset = storedAck >= HEADER_BYTES && storedAck <= endOffset ? storedAck : HEADER_BYTES;
+        if (ackOffset != storedAck) {
+            writeAck(ackOffset);
+        }
+
+        for (Entry entry : entries) {
+            if (entry.offset >= ackOffset) pending.add(entry);
+        }
+    }
+
+    /**
+     * Open (or create) the journal in a directory, recovering from any interrupted write
+     */
+    public static ClockEventJournal open(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        return new ClockEventJournal(directory);
+    }
+
+    /**
+     * Append one event and fsync before returning, so a confirmed clock event survives a crash
+     */
+    public synchronized Entry append(ClockEvent event) throws IOException {
+        List<Entry> entries = appendAll(Collections.singletonList(event));
+        return entries.get(0);
+    }
+
+    /**
+     * Append several events with a single fsync (group commit)
+     */
+    public synchronized List<Entry> appendAll(List<ClockEvent> events) throws IOException {
+        ensureOpen();
+        if (ackDirty) {
+            // A stale cursor could point into the new records and hide them, so never append past it
+            writeAck(ackOffset);
+            ackDirty = false;
+        }
+
+        List<byte[]> encoded = new ArrayList<>(events.size());
+        int totalBytes = 0;
+        for (ClockEvent event : events) {
+            byte[] data = event.encode();
+            if (data.length > MAX_RECORD_BYTES) {
+                throw new IOException("Clock event too large: " + data.length + " bytes");
+            }
+            encoded.add(data);
+            totalBytes += RECORD_HEADER_BYTES + data.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(totalBytes);
+        List<Entry> entries = new ArrayList<>(events.size());
+        long offset = endOffset;
+
+        for (int i = 0; i < encoded.size(); i++) {
+            byte[] data = encoded.get(i);
+            buffer.putInt(data.length);
+            buffer.putInt(crc(data, data.length));
+            buffer.put(data);
+
+            long next = offset + RECORD_HEADER_BYTES + data.length;
+            entries.add(new Entry(offset, next, events.get(i)));
+            offset = next;
+        }
+        buffer.flip();
+
+        long position = endOffset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+
+        endOffset = offset;
+        pending.addAll(entries);
+        return entries;
+    }
+
+    /**
+     * Oldest pending entries, in append order
+     */
+    public synchronized List<Entry> peek(int max) {
+        return new ArrayList<>(pending.subList(0, Math.min(max, pending.size())));
+    }
+
+    /**
+     * Mark everything up to and including the entry as synced
+     */
+    public synchronized void acknowledge(Entry entry) throws IOException {
+        ensureOpen();
+        if (entry.nextOffset <= ackOffset) return;
+
+        while (!pending.isEmpty() && pending.get(0).offset < entry.nextOffset) {
+            pending.remove(0);
+        }
+        ackOffset = entry.nextOffset;
+
+        if (pending.isEmpty() && endOffset > COMPACT_THRESHOLD_BYTES) {
+            // Truncate first: if we crash before the ack is rewritten it points past the end and is reset on open
+            ackDirty = true;
+            channel.truncate(HEADER_BYTES);
+            channel.force(true);
+            endOffset = HEADER_BYTES;
+            ackOffset = HEADER_BYTES;
+        }
+        writeAck(ackOffset);
+        ackDirty = false;
+    }
+
+    /**
+     * Move the oldest pending entry to the dead-letter file and acknowledge it, so syncing moves past it
+     */
+    public synchronized void reject(Entry entry) throws IOException {
+        ensureOpen();
+        if (pending.isEmpty() || pending.get(0).offset != entry.offset) {
+            throw new IOException("Only the oldest pending event can be rejected");
+        }
+
+        byte[] data = entry.event.encode();
+        try (FileOutputStream stream = new FileOutputStream(new File(directory, DEAD_LETTER_FILE), true);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(data.length);
+            out.writeInt(crc(data, data.length));
+            out.write(data);
+            out.flush();
+            stream.getFD().sync();
+        }
+        acknowledge(entry);
+    }
+
+    /**
+     * Events moved aside by reject(), oldest first; a torn last record is skipped
+     */
+    public synchronized List<ClockEvent> getDeadLetters() throws IOException {
+        List<ClockEvent> events = new ArrayList<>();
+        File deadLetters = new File(directory, DEAD_LETTER_FILE);
+        if (!deadLetters.exists()) return events;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(deadLetters))) {
+            while (in.available() >= RECORD_HEADER_BYTES) {
+                int length = in.readInt();
+                int expectedCrc = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES || in.available() < length) break;
+
+                byte[] data = new byte[length];
+                in.readFully(data);
+                if (crc(data, length) != expectedCrc) break;
+                events.add(ClockEvent.decode(data));
+            }
+        }
+        return events;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Pending events for one employee and day, oldest first
+     */
+    public synchronized List<ClockEvent> getPendingEvents(String employeeDocId, String date) {
+        List<ClockEvent> events = new ArrayList<>();
+        for (Entry entry : pending) {
+            if (entry.event.employeeDocId.equals(employeeDocId) && entry.event.date.equals(date)) {
+                events.add(entry.event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Bytes of a torn or corrupt tail dropped when the journal was opened
+     */
+    public long getRecoveredTruncatedBytes() {
+        return recoveredTruncatedBytes;
+    }
+
+    public synchronized long getSizeBytes() {
+        return endOffset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        channel.close();
+        file.close();
+    }
+
+    private long scan(List<Entry> entries) throws IOException {
+        long size = channel.size();
+        long offset = HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+        while (offset + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, offset);
+            header.flip();
+            int length = header.getInt();
+            int expectedCrc = header.getInt();
+
+            if (length <= 0 || length > MAX_RECORD_BYTES || offset + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, offset + RECORD_HEADER_BYTES);
+            byte[] data = body.array();
+            if (crc(data, length) != expectedCrc) {
+                break;
+            }
+
+            ClockEvent event;
+            try {
+                event = ClockEvent.decode(data);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+
+            long next = offset + RECORD_HEADER_BYTES + length;
+            entries.add(new Entry(offset, next, event));
+            offset = next;
+        }
+        return offset;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of journal");
+            position += read;
+        }
+    }
+
+    private int readInt(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(buffer, position);
+        buffer.flip();
+        return buffer.getInt();
+    }
+
+    private void writeHeader() throws IOException {
+        channel.truncate(0);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+        buffer.putInt(MAGIC);
+        buffer.flip();
+        channel.write(buffer, 0);
+        channel.force(true);
+    }
+
+    private long readAck() {
+        File ackFile = new File(directory, ACK_FILE);
+        if (!ackFile.exists()) return HEADER_BYTES;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(ackFile))) {
+            long offset = in.readLong();
+            long check = in.readLong();
+            return check == ~offset ? offset : HEADER_BYTES;
+        } catch (IOException e) {
+            // A missing or torn ack only means some events are synced twice, which the syncer tolerates
+            return HEADER_BYTES;
+        }
+    }
+
+    /**
+     * Write the ack cursor to a temp file and rename it over the old one, so it is never half written
+     */
+    private void writeAck(long offset) throws IOException {
+        File temp = new File(directory, ACK_FILE + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeLong(offset);
+            out.writeLong(~offset);
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(new File(directory, ACK_FILE))) {
+            throw new IOException("Failed to update journal ack cursor");
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Journal is closed");
+    }
+
+    private static int crc(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+}
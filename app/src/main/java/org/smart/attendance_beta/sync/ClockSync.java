@@ -0,0 +1,98 @@
+// ClockSync.java - App-wide clock event journal and its background syncer
+package org.smart.attendance_beta.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.smart.attendance_beta.utils.AppLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ClockSync {
+
+    private static final String TAG = "ClockSync";
+    private static final String JOURNAL_DIR = "clock_journal";
+
+    private static ClockSync instance;
+
+    public interface RecordCallback {
+        void onRecorded();
+        void onError(String error);
+    }
+
+    private final Context appContext;
+    private final ClockEventJournal journal;
+    private final JournalSyncer syncer;
+    // Appends get their own thread: the syncer's can be blocked for a whole transaction timeout
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ClockSync(Context appContext, ClockEventJournal journal) {
+        this.appContext = appContext;
+        this.journal = journal;
+        this.syncer = new JournalSyncer(journal, FirebaseFirestore.getInstance());
+    }
+
+    /**
+     * Open the journal on first use and start draining anything left from a previous run
+     */
+    public static synchronized ClockSync get(Context context) throws IOException {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            ClockEventJournal journal = ClockEventJournal.open(new File(appContext.getFilesDir(), JOURNAL_DIR));
+            if (journal.getRecoveredTruncatedBytes() > 0) {
+                AppLog.w(TAG, "⚠️ Dropped {} bytes of an interrupted journal write", journal.getRecoveredTruncatedBytes());
+            }
+
+            instance = new ClockSync(appContext, journal);
+            instance.syncer.requestSync();
+            if (journal.getPendingCount() > 0) {
+                ClockSyncWorker.ensureEnqueued(appContext);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Durably record a clock event off the main thread (the append fsyncs), then report on the main
+     * thread. Once onRecorded runs the event reaches Firestore eventually: from this process while it
+     * lives, otherwise from ClockSyncWorker once there is a network.
+     */
+    public void record(ClockEvent event, RecordCallback callback) {
+        writer.execute(() -> {
+            try {
+                journal.append(event);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to journal {} {}", event.type, event.getAttendanceId(), e);
+                mainHandler.post(() -> callback.onError(e.getMessage()));
+                return;
+            }
+            AppLog.d(TAG, "📝 Journaled {} {}", event.type, event.getAttendanceId());
+            ClockSyncWorker.enqueue(appContext);
+            syncer.requestSync();
+            mainHandler.post(callback::onRecorded);
+        });
+    }
+
+    /**
+     * Events for an employee and day that are journaled but not yet confirmed by Firestore
+     */
+    public List<ClockEvent> getPendingEvents(String employeeDocId, String date) {
+        return journal.getPendingEvents(employeeDocId, date);
+    }
+
+    public int getPendingCount() {
+        return journal.getPendingCount();
+    }
+
+    public JournalSyncer getSyncer() {
+        return syncer;
+    }
+}
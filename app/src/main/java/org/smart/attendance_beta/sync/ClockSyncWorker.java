@@ -0,0 +1,83 @@
+// ClockSyncWorker.java - Background job that drains the clock event journal once there is a network
+package org.smart.attendance_beta.sync;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import org.smart.attendance_beta.utils.AppLog;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JournalSyncer only runs while the process does, so every append also enqueues this job. WorkManager
+ * keeps it across process death and reboots and starts it when the network is back, which covers
+ * events journaled offline by a user who never reopens the app.
+ */
+public class ClockSyncWorker extends Worker {
+
+    private static final String TAG = "ClockSyncWorker";
+    private static final String WORK_NAME = "clock_event_sync";
+
+    // Well inside the 10 minutes WorkManager gives a worker
+    private static final long SYNC_TIMEOUT_MS = 5 * 60_000;
+
+    public ClockSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            ClockSync clockSync = ClockSync.get(getApplicationContext());
+            if (clockSync.getSyncer().syncNow(SYNC_TIMEOUT_MS)) {
+                return Result.success();
+            }
+            AppLog.w(TAG, "{} clock events still pending, retrying later", clockSync.getPendingCount());
+            return Result.retry();
+        } catch (IOException e) {
+            AppLog.e(TAG, "Clock event journal unavailable", e);
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+
+    /**
+     * After an append: replaces any queued or running sync, so an event appended during a run still
+     * gets one after it
+     */
+    public static void enqueue(Context context) {
+        enqueue(context, ExistingWorkPolicy.REPLACE);
+    }
+
+    /**
+     * When the journal is opened with events pending; keeps a sync that is already queued or running,
+     * which includes the worker that opened it
+     */
+    public static void ensureEnqueued(Context context) {
+        enqueue(context, ExistingWorkPolicy.KEEP);
+    }
+
+    private static void enqueue(Context context, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ClockSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, policy, request);
+    }
+}
@@ -0,0 +1,307 @@
+// HeartbeatWriter.java - Coalesces session heartbeats in memory and flushes them at an adaptive interval
+package org.smart.attendance_beta.sync;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.FirestoreCost;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heartbeats are counted per session and written as one update carrying the latest beat time and
+ * the number of beats since the last write. A session's first write goes out MIN_FLUSH_INTERVAL_MS
+ * after its first beat; every write, successful or not, doubles the interval up to
+ * MAX_FLUSH_INTERVAL_MS, so a failing network is retried less and less often. Background,
+ * foreground and clock-out flush immediately. A session whose document is gone or no longer
+ * writable is dropped, and its later beats are ignored until clock-out.
+ *
+ * The stored lastHeartbeat is the time of the last beat, never the time of the write, and lags it
+ * by at most MAX_FLUSH_INTERVAL_MS plus one tick. That is far inside the 24 hour cutoff used by
+ * DeviceSessionManager.cleanupExpiredSessions, so a live session is never expired because of
+ * coalescing and a dead one doesn't look fresher than it is.
+ */
+public class HeartbeatWriter {
+
+    private static final String TAG = "HeartbeatWriter";
+
+    public static final long MIN_FLUSH_INTERVAL_MS = 60_000;
+    public static final long MAX_FLUSH_INTERVAL_MS = 15 * 60_000;
+    static final long TICK_MS = 15_000;
+
+    /**
+     * Where coalesced heartbeats are written
+     */
+    public interface Sink {
+        void write(String sessionId, long lastBeatMs, int beats, WriteCallback callback);
+    }
+
+    public interface WriteCallback {
+        void onWritten();
+        void onError(String error);
+        /**
+         * The write can never succeed (document deleted, access revoked); stop writing the session
+         */
+        void onRejected(String error);
+    }
+
+    public static class Metrics {
+        public final long beats;
+        public final long writes; // Confirmed by the sink; failed and in-flight writes aren't counted
+        public final long failedWrites;
+
+        Metrics(long beats, long writes, long failedWrites) {
+            this.beats = beats;
+            this.writes = writes;
+            this.failedWrites = failedWrites;
+        }
+
+        /**
+         * Writes a per-beat update would have made that were folded into others
+         */
+        public long getWritesSaved() {
+            return beats - writes;
+        }
+
+        @Override
+        public String toString() {
+            return beats + " beats, " + writes + " writes (" + getWritesSaved() + " saved), " + failedWrites + " failed";
+        }
+    }
+
+    private static class Pending {
+        int beats;
+        long lastBeatMs;
+        long firstUnflushedMs;
+        long intervalMs = MIN_FLUSH_INTERVAL_MS;
+        boolean inFlight;
+        boolean forgetWhenFlushed;
+        boolean rejected;
+    }
+
+    private static HeartbeatWriter instance;
+
+    private final Sink sink;
+    private final Map<String, Pending> sessions = new HashMap<>();
+    private final ScheduledExecutorService executor;
+    private ScheduledFuture<?> ticker;
+
+    private long beatCount;
+    private long writeCount;
+    private long failedWriteCount;
+
+    public static synchronized HeartbeatWriter getInstance() {
+        if (instance == null) {
+            instance = new HeartbeatWriter(firestoreSink(FirebaseFirestore.getInstance()),
+                    Executors.newSingleThreadScheduledExecutor());
+        }
+        return instance;
+    }
+
+    /**
+     * @param executor runs the flush ticker; null to drive flushDue by hand (tests)
+     */
+    HeartbeatWriter(Sink sink, ScheduledExecutorService executor) {
+        this.sink = sink;
+        this.executor = executor;
+    }
+
+    /**
+     * Record a heartbeat for an attendance session; cheap, never touches the network
+     */
+    public void beat(String sessionId) {
+        beat(sessionId, System.currentTimeMillis());
+    }
+
+    synchronized void beat(String sessionId, long nowMs) {
+        Pending pending = sessions.get(sessionId);
+        if (pending == null) {
+            pending = new Pending();
+            sessions.put(sessionId, pending);
+        }
+        if (pending.rejected) return;
+        if (pending.beats == 0) {
+            pending.firstUnflushedMs = nowMs;
+        }
+        pending.beats++;
+        pending.lastBeatMs = Math.max(pending.lastBeatMs, nowMs);
+        pending.forgetWhenFlushed = false;
+        beatCount++;
+
+        startTicker();
+    }
+
+    /**
+     * App going to the background: write everything now, the process may not come back
+     */
+    public void onBackground() {
+        flushAll(false);
+    }
+
+    /**
+     * App back in the foreground: write everything and restart every session at the short interval
+     */
+    public void onForeground() {
+        flushAll(true);
+    }
+
+    /**
+     * Session ended: write its remaining beats, then stop tracking it
+     */
+    public synchronized void onClockOut(String sessionId) {
+        Pending pending = sessions.get(sessionId);
+        if (pending == null) return;
+
+        pending.forgetWhenFlushed = true;
+        if (pending.beats > 0) {
+            flush(sessionId, pending, System.currentTimeMillis());
+        } else if (!pending.inFlight) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(beatCount, writeCount, failedWriteCount);
+    }
+
+    /**
+     * Write every session whose oldest unwritten beat has waited out its interval
+     */
+    synchronized void flushDue(long nowMs) {
+        for (Map.Entry<String, Pending> entry : new ArrayList<>(sessions.entrySet())) {
+            Pending pending = entry.getValue();
+            if (pending.beats > 0 && nowMs - pending.firstUnflushedMs >= pending.intervalMs) {
+                flush(entry.getKey(), pending, nowMs);
+            }
+        }
+        stopTickerIfIdle();
+    }
+
+    private synchronized void flushAll(boolean resetIntervals) {
+        long nowMs = System.currentTimeMillis();
+        for (Map.Entry<String, Pending> entry : new ArrayList<>(sessions.entrySet())) {
+            Pending pending = entry.getValue();
+            if (resetIntervals) pending.intervalMs = MIN_FLUSH_INTERVAL_MS;
+            if (pending.beats > 0) flush(entry.getKey(), pending, nowMs);
+        }
+    }
+
+    private void flush(String sessionId, Pending pending, long nowMs) {
+        if (pending.inFlight) return; // Picked up when the current write finishes
+
+        int beats = pending.beats;
+        long lastBeatMs = pending.lastBeatMs;
+        pending.beats = 0;
+        pending.inFlight = true;
+
+        sink.write(sessionId, lastBeatMs, beats, new WriteCallback() {
+            @Override
+            public void onWritten() {
+                synchronized (HeartbeatWriter.this) {
+                    writeCount++;
+                    pending.inFlight = false;
+                    pending.intervalMs = Math.min(pending.intervalMs * 2, MAX_FLUSH_INTERVAL_MS);
+                    afterWrite(sessionId, pending, nowMs);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                synchronized (HeartbeatWriter.this) {
+                    failedWriteCount++;
+                    pending.inFlight = false;
+
+                    // Fold the failed beats back in for the next write, and back off before trying it;
+                    // flushDue retries, even after clock-out
+                    pending.firstUnflushedMs = nowMs;
+                    pending.intervalMs = Math.min(pending.intervalMs * 2, MAX_FLUSH_INTERVAL_MS);
+                    pending.beats += beats;
+                    pending.lastBeatMs = Math.max(pending.lastBeatMs, lastBeatMs);
+                }
+            }
+
+            @Override
+            public void onRejected(String error) {
+                synchronized (HeartbeatWriter.this) {
+                    failedWriteCount++;
+                    pending.inFlight = false;
+                    pending.rejected = true;
+                    pending.beats = 0;
+                    AppLog.w(TAG, "Stopped heartbeats for session {}: {}", sessionId, error);
+                    afterWrite(sessionId, pending, nowMs);
+                }
+            }
+        });
+    }
+
+    private void afterWrite(String sessionId, Pending pending, long nowMs) {
+        if (pending.forgetWhenFlushed) {
+            if (pending.beats > 0) {
+                flush(sessionId, pending, nowMs);
+            } else {
+                sessions.remove(sessionId);
+            }
+        }
+    }
+
+    private void startTicker() {
+        if (executor != null && ticker == null) {
+            ticker = executor.scheduleWithFixedDelay(() -> flushDue(System.currentTimeMillis()),
+                    TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stopTickerIfIdle() {
+        for (Pending pending : sessions.values()) {
+            if (pending.beats > 0 || pending.inFlight) return;
+        }
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    static Sink firestoreSink(FirebaseFirestore db) {
+        return (sessionId, lastBeatMs, beats, callback) -> {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(AttendanceFields.LAST_HEARTBEAT, new Timestamp(new Date(lastBeatMs)));
+            updates.put(AttendanceFields.HEARTBEAT_COUNT, FieldValue.increment(beats));
+
+            FirestoreCost.trackWrite("heartbeat.write", 1,
+                    db.collection(AttendanceFields.COLLECTION).document(sessionId).update(updates))
+                    .addOnSuccessListener(aVoid -> {
+                        AppLog.d(TAG, "💓 Heartbeat x{} written for session: {}", beats, sessionId);
+                        callback.onWritten();
+                    })
+                    .addOnFailureListener(e -> {
+                        AppLog.w(TAG, "Heartbeat write failed for session: {}", sessionId, e);
+                        if (isPermanent(e)) {
+                            callback.onRejected(e.getMessage());
+                        } else {
+                            callback.onError(e.getMessage());
+                        }
+                    });
+        };
+    }
+
+    /**
+     * The session document is gone, or this user may no longer write it; retrying can't help
+     */
+    private static boolean isPermanent(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+        FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) e).getCode();
+        return code == FirebaseFirestoreException.Code.NOT_FOUND
+                || code == FirebaseFirestoreException.Code.PERMISSION_DENIED;
+    }
+}
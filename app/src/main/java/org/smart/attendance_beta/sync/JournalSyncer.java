@@ -0,0 +1,377 @@
+// JournalSyncer.java - Drains the clock event journal to Firestore in batched, idempotent transactions
+package org.smart.attendance_beta.sync;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.CostLedger;
+import org.smart.attendance_beta.utils.DailyCounters;
+import org.smart.attendance_beta.utils.FirestoreCost;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Failures Firestore reports as transient are retried with backoff; anything else is the event's
+ * fault (PERMISSION_DENIED, INVALID_ARGUMENT, rules rejecting the payload), so it is isolated and
+ * dead-lettered instead of blocking the journal. Rejections reach listeners with the reason: one of
+ * the REJECT_ constants when the record's state refused the event, otherwise the Firestore code.
+ */
+public class JournalSyncer {
+
+    private static final String TAG = "JournalSyncer";
+
+    public static final String REJECT_DEVICE_CONFLICT = "DEVICE_CONFLICT";
+    public static final String REJECT_DAY_COMPLETE = "DAY_COMPLETE";
+    public static final String REJECT_NOT_CLOCKED_IN = "NOT_CLOCKED_IN";
+
+    private static final int MAX_BATCH = 10;
+    private static final long TRANSACTION_TIMEOUT_MS = 30_000;
+    private static final long INITIAL_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000;
+
+    public interface SyncListener {
+        void onEventSynced(ClockEvent event);
+        void onEventRejected(ClockEvent event, String reason);
+    }
+
+    private final ClockEventJournal journal;
+    private final FirebaseFirestore db;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<SyncListener> listeners = new CopyOnWriteArrayList<>();
+    private final Random jitter = new Random();
+
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private ScheduledFuture<?> retry;
+    private boolean draining = false;
+
+    public JournalSyncer(ClockEventJournal journal, FirebaseFirestore db) {
+        this.journal = journal;
+        this.db = db;
+    }
+
+    public void addListener(SyncListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SyncListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Drain the journal now (e.g. after an append or when connectivity returns), cancelling any pending backoff
+     */
+    public synchronized void requestSync() {
+        if (retry != null) {
+            // Still counted as draining while waiting out the backoff; run the retry now instead
+            if (retry.cancel(false)) {
+                retry = null;
+                backoffMs = INITIAL_BACKOFF_MS;
+                executor.execute(this::drain);
+            }
+            return;
+        }
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Drain on the sync thread and wait for it, for ClockSyncWorker. Returns false if events are still
+     * pending after a transient failure or the timeout, so the job is retried later.
+     */
+    public boolean syncNow(long timeoutMs) throws InterruptedException {
+        Future<Exception> pass = executor.submit(this::drainPass);
+        try {
+            return pass.get(timeoutMs, TimeUnit.MILLISECONDS) == null;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void drain() {
+        Exception failure = drainPass();
+        synchronized (this) {
+            if (failure == null) {
+                draining = false;
+                backoffMs = INITIAL_BACKOFF_MS;
+            } else {
+                scheduleRetry(failure);
+            }
+        }
+    }
+
+    /**
+     * Sync until the journal is empty. A batch that fails for good is halved until the failing event is
+     * alone at the head, which is then dead-lettered so the events behind it keep flowing.
+     * Returns null when drained, or the transient failure that stopped it.
+     */
+    private Exception drainPass() {
+        int batchSize = MAX_BATCH;
+        while (true) {
+            List<ClockEventJournal.Entry> batch = journal.peek(batchSize);
+            if (batch.isEmpty()) return null;
+
+            List<String> rejections;
+            FirestoreCost.Call cost = FirestoreCost.begin("journal.transaction");
+            int[] reads = new int[1];
+            int[] writes = new int[1];
+            try {
+                rejections = Tasks.await(db.runTransaction(transaction -> applyBatch(transaction, batch, reads, writes)),
+                        TRANSACTION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                cost.end(reads[0], 0, writes[0], writes[0] > 0 ? batchBytes(batch) : 0);
+            } catch (Exception e) {
+                cost.end(0, 0, 0, 0);
+                String code = permanentFailure(e);
+                if (code == null) return e;
+                if (batch.size() > 1) {
+                    batchSize = batch.size() / 2;
+                    AppLog.w(TAG, "Batch of {} failed with {}, retrying {}", batch.size(), code, batchSize);
+                    continue;
+                }
+                deadLetter(batch.get(0), code);
+                batchSize = MAX_BATCH;
+                continue;
+            }
+
+            try {
+                journal.acknowledge(batch.get(batch.size() - 1));
+            } catch (Exception e) {
+                // Events stay pending and are re-applied later, which the transaction treats as a no-op
+                AppLog.e(TAG, "Failed to acknowledge synced events", e);
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                notifyListeners(batch.get(i).event, rejections.get(i));
+            }
+            AppLog.d(TAG, "📤 Synced {} clock events, {} pending", batch.size(), journal.getPendingCount());
+        }
+    }
+
+    /**
+     * The Firestore code if retrying can't help, or null for a failure worth retrying
+     */
+    private static String permanentFailure(Exception e) {
+        Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof TimeoutException || cause instanceof InterruptedException) return null;
+        if (!(cause instanceof FirebaseFirestoreException)) return cause.getClass().getSimpleName();
+
+        FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) cause).getCode();
+        switch (code) {
+            case ABORTED:
+            case CANCELLED:
+            case DEADLINE_EXCEEDED:
+            case INTERNAL:
+            case RESOURCE_EXHAUSTED:
+            case UNAUTHENTICATED:
+            case UNAVAILABLE:
+                return null;
+            case PERMISSION_DENIED:
+                // Signed out since the event was journaled; it goes through after the next login
+                return FirebaseAuth.getInstance().getCurrentUser() != null ? code.name() : null;
+            default:
+                return code.name();
+        }
+    }
+
+    private void deadLetter(ClockEventJournal.Entry entry, String code) {
+        try {
+            journal.reject(entry);
+        } catch (IOException e) {
+            // Leave it at the head; the next pass finds it again
+            AppLog.e(TAG, "Failed to dead-letter clock event {}", entry.event.eventId, e);
+            return;
+        }
+        AppLog.e(TAG, "☠️ Clock event {} for {} rejected by Firestore ({}), moved to the dead-letter file",
+                entry.event.eventId, entry.event.getAttendanceId(), code);
+        notifyListeners(entry.event, code);
+    }
+
+    /**
+     * The writes applying a batch makes: clock-ins through ClockInTransaction.apply, plus clock-outs
+     */
+    interface Writes extends ClockInTransaction.Writes {
+        void update(String attendanceId, Map<String, Object> updates);
+        void clockOut(String date, double hours, boolean early);
+    }
+
+    private static class BatchWrites extends ClockInTransaction.TransactionWrites implements Writes {
+
+        BatchWrites(FirebaseFirestore db, Transaction transaction) {
+            super(db, transaction);
+        }
+
+        @Override
+        public void update(String attendanceId, Map<String, Object> updates) {
+            transaction.update(db.collection(AttendanceFields.COLLECTION).document(attendanceId), updates);
+            count++;
+        }
+
+        @Override
+        public void clockOut(String date, double hours, boolean early) {
+            transaction.set(DailyCounters.randomShardRef(db, date), DailyCounters.buildClockOutUpdate(hours, early),
+                    SetOptions.merge());
+            count++;
+        }
+    }
+
+    /**
+     * Apply a batch in one transaction: read every record it touches, since all reads must happen
+     * before the first write, then apply the events in order
+     */
+    private List<String> applyBatch(Transaction transaction, List<ClockEventJournal.Entry> batch,
+                                    int[] reads, int[] writes)
+            throws FirebaseFirestoreException {
+        Map<String, Map<String, Object>> records = new HashMap<>();
+        List<ClockEvent> events = new ArrayList<>(batch.size());
+        for (ClockEventJournal.Entry entry : batch) {
+            events.add(entry.event);
+            String id = entry.event.getAttendanceId();
+            if (records.containsKey(id)) continue;
+
+            DocumentSnapshot snapshot = transaction.get(db.collection(AttendanceFields.COLLECTION).document(id));
+            records.put(id, snapshot.exists() ? new HashMap<>(snapshot.getData()) : null);
+        }
+        BatchWrites batchWrites = new BatchWrites(db, transaction);
+        List<String> rejections = apply(events, records, batchWrites);
+
+        // Set, not added to, so a retried attempt starts over
+        reads[0] = records.size();
+        writes[0] = batchWrites.getCount();
+        return rejections;
+    }
+
+    private static long batchBytes(List<ClockEventJournal.Entry> batch) {
+        long bytes = 0;
+        for (ClockEventJournal.Entry entry : batch) {
+            bytes += CostLedger.estimateBytes(entry.event.payload);
+        }
+        return bytes;
+    }
+
+    /**
+     * Apply events to the records as read (null for a missing one), updating records as they go so later
+     * events in the batch see earlier ones. Every event carries its own ID into the record, so a batch that
+     * committed but was never acknowledged is recognised and skipped when it is replayed.
+     * Returns one entry per event: null if applied, otherwise the rejection reason.
+     */
+    static List<String> apply(List<ClockEvent> events, Map<String, Map<String, Object>> records, Writes writes) {
+        List<String> rejections = new ArrayList<>(events.size());
+        for (ClockEvent event : events) {
+            String id = event.getAttendanceId();
+            rejections.add(event.isClockIn()
+                    ? applyClockIn(event, records.get(id), records, writes)
+                    : applyClockOut(event, records.get(id), records, writes));
+        }
+        return rejections;
+    }
+
+    private static String applyClockIn(ClockEvent event, Map<String, Object> record,
+                                       Map<String, Map<String, Object>> records, Writes writes) {
+        if (record != null && event.eventId.equals(record.get(AttendanceFields.CLOCK_IN_EVENT_ID))) {
+            return null; // Already applied
+        }
+
+        Timestamp trustedTime = new Timestamp(new Date(event.getTrustedTimeMs()));
+        Map<String, Object> data = new HashMap<>(event.payload);
+        data.put(AttendanceFields.EMPLOYEE_DOC_ID, event.employeeDocId);
+        data.put(AttendanceFields.DATE, event.date);
+        data.put(AttendanceFields.DEVICE_ID, event.deviceId);
+        data.put(AttendanceFields.CLOCK_IN_EVENT_ID, event.eventId);
+        data.put(AttendanceFields.CLOCK_IN_TIMESTAMP, trustedTime);
+        data.put(AttendanceFields.CREATED_AT, trustedTime);
+        data.put(AttendanceFields.SESSION_START_TIME, trustedTime);
+        data.put(AttendanceFields.LAST_HEARTBEAT, trustedTime); // Lets the session sweeper find it
+        data.put(AttendanceFields.DEVICE_TIME_OFFSET_MS, event.trustedOffsetMs);
+
+        switch (ClockInTransaction.apply(record, data, writes)) {
+            case CREATED:
+                records.put(event.getAttendanceId(), data);
+                return null;
+            case DAY_COMPLETE:
+                return REJECT_DAY_COMPLETE;
+            case DEVICE_CONFLICT:
+                return REJECT_DEVICE_CONFLICT;
+            default:
+                return null; // Already clocked in from this device
+        }
+    }
+
+    private static String applyClockOut(ClockEvent event, Map<String, Object> record,
+                                        Map<String, Map<String, Object>> records, Writes writes) {
+        if (record == null) return REJECT_NOT_CLOCKED_IN;
+        if (event.eventId.equals(record.get(AttendanceFields.CLOCK_OUT_EVENT_ID))) return null;
+        if (!Boolean.TRUE.equals(record.get(AttendanceFields.SESSION_ACTIVE))) return REJECT_DAY_COMPLETE;
+
+        Timestamp trustedTime = new Timestamp(new Date(event.getTrustedTimeMs()));
+        Map<String, Object> updates = new HashMap<>(event.payload);
+        updates.put(AttendanceFields.CLOCK_OUT_EVENT_ID, event.eventId);
+        updates.put(AttendanceFields.CLOCK_OUT_TIMESTAMP, trustedTime);
+        updates.put(AttendanceFields.SESSION_END_TIME, trustedTime);
+        writes.update(event.getAttendanceId(), updates);
+
+        // Counted on the day the session opened, even when it closes after midnight
+        Object date = record.get(AttendanceFields.DATE);
+        Object hours = event.payload.get(AttendanceFields.TOTAL_HOURS);
+        writes.clockOut(date instanceof String ? (String) date : event.date,
+                hours instanceof Number ? ((Number) hours).doubleValue() : 0,
+                Boolean.TRUE.equals(event.payload.get(AttendanceFields.IS_EARLY_CLOCK_OUT)));
+
+        Map<String, Object> updated = new HashMap<>(record);
+        updated.putAll(updates);
+        records.put(event.getAttendanceId(), updated);
+        return null;
+    }
+
+    private synchronized void scheduleRetry(Exception e) {
+        long delay = backoffMs + jitter.nextInt((int) (backoffMs / 2) + 1);
+        AppLog.w(TAG, "Sync failed, retrying in {}ms: {}", delay, e.getMessage());
+
+        retry = executor.schedule(() -> {
+            synchronized (JournalSyncer.this) {
+                retry = null;
+            }
+            drain();
+        }, delay, TimeUnit.MILLISECONDS);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    private void notifyListeners(ClockEvent event, String rejection) {
+        mainHandler.post(() -> {
+            for (SyncListener listener : listeners) {
+                if (rejection == null) {
+                    listener.onEventSynced(event);
+                } else {
+                    listener.onEventRejected(event, rejection);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+// SessionSweepWorker.java - Periodic background job that runs the expired session sweep
+package org.smart.attendance_beta.sync;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import org.smart.attendance_beta.utils.AppLog;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled while an admin is signed in on this device. A sweep pages through every expired session
+ * and each page can wait up to a minute on Firestore, far past what a broadcast receiver may take,
+ * so it runs as a job: WorkManager gives it up to 10 minutes, only starts it with a network, and
+ * keeps the schedule across reboots. A sweep that is stopped anyway resumes from its checkpoint.
+ */
+public class SessionSweepWorker extends Worker {
+
+    private static final String TAG = "SessionSweepWorker";
+    private static final String WORK_NAME = "session_sweep";
+
+    // The alarm that ran sweeps before this job, from SessionSweepReceiver
+    private static final String LEGACY_RECEIVER = "org.smart.attendance_beta.sync.SessionSweepReceiver";
+    private static final String LEGACY_ACTION = "SESSION_SWEEP";
+    private static final int LEGACY_ALARM_ID = 2001;
+
+    public SessionSweepWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            SessionSweeper.create(getApplicationContext()).run();
+            return Result.success();
+        } catch (Exception e) {
+            AppLog.e(TAG, "Session sweep failed, will resume on the next run", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Sweep hourly; an existing schedule is kept so opening the dashboard doesn't push it back
+     */
+    public static void schedule(Context context) {
+        cancelLegacyAlarm(context);
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SessionSweepWorker.class, 1, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .setInitialDelay(15, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+        AppLog.d(TAG, "Session sweep scheduled hourly");
+    }
+
+    public static void cancel(Context context) {
+        cancelLegacyAlarm(context);
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        AppLog.d(TAG, "Session sweep cancelled");
+    }
+
+    private static void cancelLegacyAlarm(Context context) {
+        Intent intent = new Intent(LEGACY_ACTION).setClassName(context, LEGACY_RECEIVER);
+        PendingIntent legacy = PendingIntent.getBroadcast(context, LEGACY_ALARM_ID, intent,
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+        if (legacy != null) {
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            alarmManager.cancel(legacy);
+            legacy.cancel();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+// SessionSweeper.java - Pages through expired device sessions and closes them in bounded parallel batches
+package org.smart.attendance_beta.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.utils.AppLog;
+import org.smart.attendance_beta.utils.DeviceSessionManager;
+import org.smart.attendance_beta.utils.FirestoreCost;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closes sessions that are still active but haven't sent a heartbeat within
+ * DeviceSessionManager.SESSION_TIMEOUT_MS.
+ *
+ * Sessions are read in pages ordered by (lastHeartbeat, document ID) and resumed with a query
+ * cursor, so pages never overlap even though earlier pages are still being committed. Each page is
+ * one WriteBatch with one update per session (PAGE_SIZE stays within the 500 write limit), and up
+ * to MAX_CONCURRENT_COMMITS batches are in flight. The cursor of the last page whose commit and
+ * all earlier commits succeeded is checkpointed, together with the cutoff, so an interrupted sweep
+ * resumes where it stopped with the same cutoff. Closing a session twice is harmless.
+ *
+ * run() blocks; call it off the main thread.
+ */
+public class SessionSweeper {
+
+    private static final String TAG = "SessionSweeper";
+
+    public static final int PAGE_SIZE = 400;
+    public static final int MAX_CONCURRENT_COMMITS = 4;
+    private static final long QUERY_TIMEOUT_MS = 60_000;
+
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Where sweep progress survives process death
+     */
+    public interface Checkpoint {
+        /** Cutoff of the interrupted sweep in ms, or 0 if there is none */
+        long getCutoffMs();
+        /** Cursor after the last fully committed page, or null to start from the beginning */
+        Timestamp getCursorHeartbeat();
+        String getCursorDocumentId();
+        void save(long cutoffMs, Timestamp cursorHeartbeat, String cursorDocumentId);
+        void clear();
+    }
+
+    public static class Result {
+        public int pages;
+        public int expired;
+        public boolean resumed;
+        public long cutoffMs;
+
+        @Override
+        public String toString() {
+            return "expired " + expired + " sessions in " + pages + " pages"
+                    + (resumed ? " (resumed)" : "") + ", cutoff " + new Date(cutoffMs);
+        }
+    }
+
+    private static class PageCommit {
+        final Task<Void> commit;
+        final int size;
+        final Timestamp cursorHeartbeat;
+        final String cursorDocumentId;
+
+        PageCommit(Task<Void> commit, int size, Timestamp cursorHeartbeat, String cursorDocumentId) {
+            this.commit = commit;
+            this.size = size;
+            this.cursorHeartbeat = cursorHeartbeat;
+            this.cursorDocumentId = cursorDocumentId;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final Checkpoint checkpoint;
+
+    public SessionSweeper(FirebaseFirestore db, Checkpoint checkpoint) {
+        this.db = db;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sweep with progress kept in the app's preferences
+     */
+    public static SessionSweeper create(Context context) {
+        return new SessionSweeper(FirebaseFirestore.getInstance(), new PrefsCheckpoint(context));
+    }
+
+    /**
+     * Run one sweep to completion. Returns null if another sweep is already running in this process.
+     */
+    public Result run() throws Exception {
+        if (!running.compareAndSet(false, true)) {
+            AppLog.d(TAG, "Sweep already running, skipping");
+            return null;
+        }
+        try {
+            return sweep(System.currentTimeMillis());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Result sweep(long nowMs) throws Exception {
+        Result result = new Result();
+        Timestamp cursorHeartbeat = null;
+        String cursorDocumentId = null;
+
+        if (checkpoint.getCutoffMs() > 0) {
+            result.resumed = true;
+            result.cutoffMs = checkpoint.getCutoffMs();
+            cursorHeartbeat = checkpoint.getCursorHeartbeat();
+            cursorDocumentId = checkpoint.getCursorDocumentId();
+        } else {
+            result.cutoffMs = nowMs - DeviceSessionManager.SESSION_TIMEOUT_MS;
+            checkpoint.save(result.cutoffMs, null, null);
+        }
+        AppLog.d(TAG, "🧹 Sweeping sessions idle since {}{}", new Date(result.cutoffMs), result.resumed ? " (resuming)" : "");
+
+        Query expired = db.collection(AttendanceFields.COLLECTION)
+                .whereEqualTo(AttendanceFields.SESSION_ACTIVE, true)
+                .whereLessThan(AttendanceFields.LAST_HEARTBEAT, new Timestamp(new Date(result.cutoffMs)))
+                .orderBy(AttendanceFields.LAST_HEARTBEAT)
+                .orderBy(FieldPath.documentId())
+                .limit(PAGE_SIZE);
+
+        Semaphore commitSlots = new Semaphore(MAX_CONCURRENT_COMMITS);
+        ArrayDeque<PageCommit> inFlight = new ArrayDeque<>();
+
+        try {
+            while (true) {
+                Query page = cursorHeartbeat != null
+                        ? expired.startAfter(cursorHeartbeat, cursorDocumentId)
+                        : expired;
+                List<DocumentSnapshot> sessions = Tasks.await(FirestoreCost.track("sessionSweep.page", page.get()), QUERY_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                        .getDocuments();
+                if (sessions.isEmpty()) break;
+
+                DocumentSnapshot last = sessions.get(sessions.size() - 1);
+                cursorHeartbeat = last.getTimestamp(AttendanceFields.LAST_HEARTBEAT);
+                cursorDocumentId = last.getId();
+
+                commitSlots.acquire();
+                Task<Void> commit = FirestoreCost.trackWrite("sessionSweep.commit", sessions.size(),
+                        buildBatch(sessions).commit());
+                commit.addOnCompleteListener(Runnable::run, task -> commitSlots.release());
+                inFlight.add(new PageCommit(commit, sessions.size(), cursorHeartbeat, cursorDocumentId));
+                result.pages++;
+
+                advanceCheckpoint(inFlight, result, false);
+                if (sessions.size() < PAGE_SIZE) break;
+            }
+            advanceCheckpoint(inFlight, result, true);
+        } catch (Exception e) {
+            // Everything before the checkpoint is committed; the next run picks up from there
+            AppLog.e(TAG, "Sweep interrupted after {} sessions", result.expired, e);
+            throw e;
+        }
+
+        checkpoint.clear();
+        AppLog.d(TAG, "🧹 Sweep finished: {}", result);
+        return result;
+    }
+
+    private WriteBatch buildBatch(List<DocumentSnapshot> sessions) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(AttendanceFields.SESSION_ACTIVE, false);
+        updates.put(AttendanceFields.SESSION_EXPIRED, true);
+        updates.put(AttendanceFields.SESSION_EXPIRED_TIME, FieldValue.serverTimestamp());
+
+        WriteBatch batch = db.batch();
+        for (DocumentSnapshot session : sessions) {
+            batch.update(session.getReference(), updates);
+        }
+        return batch;
+    }
+
+    /**
+     * Checkpoint past every leading commit that has finished; with wait, finish them all first
+     */
+    private void advanceCheckpoint(ArrayDeque<PageCommit> inFlight, Result result, boolean wait) throws Exception {
+        while (!inFlight.isEmpty()) {
+            PageCommit head = inFlight.peek();
+            if (wait) {
+                Tasks.await(head.commit, QUERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } else if (!head.commit.isComplete()) {
+                return;
+            } else if (!head.commit.isSuccessful()) {
+                throw head.commit.getException();
+            }
+
+            inFlight.poll();
+            result.expired += head.size;
+            checkpoint.save(result.cutoffMs, head.cursorHeartbeat, head.cursorDocumentId);
+        }
+    }
+
+    /**
+     * Checkpoint in the shared app preferences
+     */
+    static class PrefsCheckpoint implements Checkpoint {
+        private static final String KEY_CUTOFF = "session_sweep_cutoff_ms";
+        private static final String KEY_CURSOR_SECONDS = "session_sweep_cursor_seconds";
+        private static final String KEY_CURSOR_NANOS = "session_sweep_cursor_nanos";
+        private static final String KEY_CURSOR_ID = "session_sweep_cursor_id";
+
+        private final SharedPreferences prefs;
+
+        PrefsCheckpoint(Context context) {
+            prefs = context.getSharedPreferences("attendance_prefs", Context.MODE_PRIVATE);
+        }
+
+        @Override
+        public long getCutoffMs() {
+            return prefs.getLong(KEY_CUTOFF, 0);
+        }
+
+        @Override
+        public Timestamp getCursorHeartbeat() {
+            return prefs.contains(KEY_CURSOR_ID)
+                    ? new Timestamp(prefs.getLong(KEY_CURSOR_SECONDS, 0), prefs.getInt(KEY_CURSOR_NANOS, 0))
+                    : null;
+        }
+
+        @Override
+        public String getCursorDocumentId() {
+            return prefs.getString(KEY_CURSOR_ID, null);
+        }
+
+        @Override
+        public void save(long cutoffMs, Timestamp cursorHeartbeat, String cursorDocumentId) {
+            SharedPreferences.Editor editor = prefs.edit().putLong(KEY_CUTOFF, cutoffMs);
+            if (cursorHeartbeat != null && cursorDocumentId != null) {
+                editor.putLong(KEY_CURSOR_SECONDS, cursorHeartbeat.getSeconds())
+                        .putInt(KEY_CURSOR_NANOS, cursorHeartbeat.getNanoseconds())
+                        .putString(KEY_CURSOR_ID, cursorDocumentId);
+            } else {
+                editor.remove(KEY_CURSOR_SECONDS).remove(KEY_CURSOR_NANOS).remove(KEY_CURSOR_ID);
+            }
+            editor.commit(); // Synchronous so a kill right after doesn't lose it
+        }
+
+        @Override
+        public void clear() {
+            prefs.edit()
+                    .remove(KEY_CUTOFF)
+                    .remove(KEY_CURSOR_SECONDS)
+                    .remove(KEY_CURSOR_NANOS)
+                    .remove(KEY_CURSOR_ID)
+                    .apply();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+// AdminStatsService.java - Admin dashboard statistics from server-side aggregation queries
+package org.smart.attendance_beta.utils;
+
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.data.UserFields;
+
+/**
+ * Attendance figures are the day's DailyCounters shards summed, one read per shard however many
+ * employees clocked in; reading them also lets DailyCounters tune the shard count from the peak
+ * write rate the shards recorded. Headcount, and the figures for days with no shards, are counts
+ * or averages computed by Firestore, one read per query (plus one per 1000 matching index entries)
+ * instead of one per document. The average hours query filters on totalHours > 0 and needs a
+ * composite index on attendance (date, totalHours); the others only use single-field indexes.
+ */
+public class AdminStatsService {
+
+    private static final String TAG = "AdminStatsService";
+
+    public static class DashboardStats {
+        public final long totalEmployees;
+        public final long presentToday;
+        public final long lateToday;
+        public final long earlyOutToday;
+        public final long completedToday;
+        public final double averageHours;
+
+        public DashboardStats(long totalEmployees, long presentToday, long lateToday,
+                              long earlyOutToday, long completedToday, double averageHours) {
+            this.totalEmployees = totalEmployees;
+            this.presentToday = presentToday;
+            this.lateToday = lateToday;
+            this.earlyOutToday = earlyOutToday;
+            this.completedToday = completedToday;
+            this.averageHours = averageHours;
+        }
+    }
+
+    public interface StatsCallback {
+        void onStatsLoaded(DashboardStats stats);
+        void onError(String error);
+    }
+
+    private final FirebaseFirestore db;
+
+    public AdminStatsService() {
+        this(FirebaseFirestore.getInstance());
+    }
+
+    public AdminStatsService(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Load headcount and the attendance figures for a date (yyyy-MM-dd). The figures come from the
+     * day's counter shards; days without any (before counters existed) fall back to aggregation.
+     */
+    public void load(String date, StatsCallback callback) {
+        Task<AggregateQuerySnapshot> employees = FirestoreCost.track("adminStats.employees", db.collection(UserFields.COLLECTION)
+                .whereEqualTo(UserFields.IS_ACTIVE, true)
+                .count()
+                .get(AggregateSource.SERVER));
+
+        DailyCounters.load(db, date, new DailyCounters.CountersCallback() {
+            @Override
+            public void onCountersLoaded(DailyCounters.Totals totals) {
+                if (totals.shards == 0) {
+                    loadAggregates(date, employees, callback);
+                    return;
+                }
+
+                DailyCounters.tuneShardCount(db, totals);
+                employees.addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        Exception e = task.getException();
+                        AppLog.e(TAG, "Failed to load dashboard headcount", e);
+                        callback.onError(e != null ? e.getMessage() : "unknown error");
+                        return;
+                    }
+
+                    DashboardStats stats = new DashboardStats(task.getResult().getCount(), totals.present,
+                            totals.late, totals.earlyOut, totals.completed, totals.averageHours());
+                    AppLog.d(TAG, "📊 Stats for {} from {} shards: {}/{} present, {} late", date, totals.shards,
+                            stats.presentToday, stats.totalEmployees, stats.lateToday);
+                    callback.onStatsLoaded(stats);
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                AppLog.w(TAG, "{}, counting attendance instead", error);
+                loadAggregates(date, employees, callback);
+            }
+        });
+    }
+
+    private void loadAggregates(String date, Task<AggregateQuerySnapshot> employees, StatsCallback callback) {
+        Query today = db.collection(AttendanceFields.COLLECTION)
+                .whereEqualTo(AttendanceFields.DATE, date);
+
+        Task<AggregateQuerySnapshot> present = FirestoreCost.track("adminStats.present",
+                today.count().get(AggregateSource.SERVER));
+        Task<AggregateQuerySnapshot> late = FirestoreCost.track("adminStats.late", today
+                .whereEqualTo(AttendanceFields.IS_LATE, true)
+                .count()
+                .get(AggregateSource.SERVER));
+        Task<AggregateQuerySnapshot> earlyOut = FirestoreCost.track("adminStats.earlyOut", today
+                .whereEqualTo(AttendanceFields.IS_EARLY_CLOCK_OUT, true)
+                .count()
+                .get(AggregateSource.SERVER));
+
+        // Open sessions carry totalHours 0; only finished days count towards the average
+        AggregateField.AverageAggregateField averageHours = AggregateField.average(AttendanceFields.TOTAL_HOURS);
+        Task<AggregateQuerySnapshot> completed = FirestoreCost.track("adminStats.completed", today
+                .whereGreaterThan(AttendanceFields.TOTAL_HOURS, 0)
+                .aggregate(AggregateField.count(), averageHours)
+                .get(AggregateSource.SERVER));
+
+        Tasks.whenAll(employees, present, late, earlyOut, completed).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                Exception e = task.getException();
+                AppLog.e(TAG, "Failed to load dashboard stats", e);
+                callback.onError(e != null ? e.getMessage() : "unknown error");
+                return;
+            }
+
+            Double average = completed.getResult().get(averageHours);
+            DashboardStats stats = new DashboardStats(
+                    employees.getResult().getCount(),
+                    present.getResult().getCount(),
+                    late.getResult().getCount(),
+                    earlyOut.getResult().getCount(),
+                    completed.getResult().getCount(),
+                    average != null ? average : 0.0);
+            AppLog.d(TAG, "📊 Stats for {}: {}/{} present, {} late", date, stats.presentToday, stats.totalEmployees, stats.lateToday);
+            callback.onStatsLoaded(stats);
+        });
+    }
+}
@@ -0,0 +1,377 @@
+// AppLog.java - Logging facade with level guards, lazy {} messages, per-tag sampling and a dumpable ring buffer
+package org.smart.attendance_beta.utils;
+
+import android.util.Log;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Use in place of android.util.Log: AppLog.d(TAG, "📍 Loaded office {} ({}m)", office.name, radius).
+ * A call below the enabled level returns after one volatile read, before any message is built;
+ * {} placeholders are filled in only for records that are kept. A Throwable passed after the
+ * last placeholder's argument is logged with its stack trace, as with Log.w(tag, msg, e).
+ *
+ * Levels are android.util.Log's. setLevel() sets the default (DEBUG until the Application lowers
+ * it to INFO in release builds), setLevel(tag, level) overrides one tag, and sample(tag, n) keeps
+ * only every nth debug or verbose record of a tag that logs on a timer. Warnings and errors are
+ * never sampled.
+ *
+ * Kept records are written to logcat and to an in-memory ring buffer of the newest RING_BYTES of
+ * records, stored in binary (time, level, tag index, UTF-8 message). dump() decodes it into lines,
+ * for a crash handler or a bug report.
+ */
+public class AppLog {
+
+    public static final int VERBOSE = Log.VERBOSE;
+    public static final int DEBUG = Log.DEBUG;
+    public static final int INFO = Log.INFO;
+    public static final int WARN = Log.WARN;
+    public static final int ERROR = Log.ERROR;
+
+    public static final int RING_BYTES = 64 * 1024;
+    private static final int MAX_MESSAGE_BYTES = 1024;
+
+    /**
+     * Where kept records go besides the ring buffer; logcat by default
+     */
+    public interface Sink {
+        void write(int level, String tag, String message, Throwable error);
+    }
+
+    private static final Sink LOGCAT = (level, tag, message, error) ->
+            Log.println(level, tag, error != null ? message + '\n' + Log.getStackTraceString(error) : message);
+
+    private static class TagConfig {
+        final int level; // -1 when the tag follows the default level
+        final int sampleEvery;
+        final AtomicLong seen = new AtomicLong();
+
+        TagConfig(int level, int sampleEvery) {
+            this.level = level;
+            this.sampleEvery = sampleEvery;
+        }
+    }
+
+    private static final Map<String, TagConfig> tags = new ConcurrentHashMap<>();
+    private static final RingBuffer ring = new RingBuffer(RING_BYTES);
+
+    private static volatile int defaultLevel = DEBUG;
+    private static volatile int lowestLevel = DEBUG; // Lowest level any tag keeps; the fast-path guard
+    private static volatile Sink sink = LOGCAT;
+
+    public static synchronized void setLevel(int level) {
+        defaultLevel = level;
+        updateLowestLevel();
+    }
+
+    /**
+     * Override the level for one tag; pass -1 to go back to the default
+     */
+    public static synchronized void setLevel(String tag, int level) {
+        TagConfig old = tags.get(tag);
+        tags.put(tag, new TagConfig(level, old != null ? old.sampleEvery : 1));
+        updateLowestLevel();
+    }
+
+    /**
+     * Keep one in every n debug and verbose records of a tag
+     */
+    public static synchronized void sample(String tag, int every) {
+        TagConfig old = tags.get(tag);
+        tags.put(tag, new TagConfig(old != null ? old.level : -1, Math.max(1, every)));
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : LOGCAT;
+    }
+
+    /**
+     * Forget levels, sampling and buffered records; for tests
+     */
+    public static synchronized void reset() {
+        tags.clear();
+        ring.clear();
+        sink = LOGCAT;
+        defaultLevel = DEBUG;
+        lowestLevel = DEBUG;
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        if (level < lowestLevel) return false;
+        TagConfig config = tags.get(tag);
+        return level >= (config != null && config.level >= 0 ? config.level : defaultLevel);
+    }
+
+    public static void v(String tag, String message) {
+        if (VERBOSE >= lowestLevel) log(VERBOSE, tag, message, null);
+    }
+
+    public static void v(String tag, String template, Object a) {
+        if (VERBOSE >= lowestLevel) log(VERBOSE, tag, template, new Object[]{a});
+    }
+
+    public static void v(String tag, String template, Object a, Object b) {
+        if (VERBOSE >= lowestLevel) log(VERBOSE, tag, template, new Object[]{a, b});
+    }
+
+    public static void v(String tag, String template, Object... args) {
+        if (VERBOSE >= lowestLevel) log(VERBOSE, tag, template, args);
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG >= lowestLevel) log(DEBUG, tag, message, null);
+    }
+
+    public static void d(String tag, String template, Object a) {
+        if (DEBUG >= lowestLevel) log(DEBUG, tag, template, new Object[]{a});
+    }
+
+    public static void d(String tag, String template, Object a, Object b) {
+        if (DEBUG >= lowestLevel) log(DEBUG, tag, template, new Object[]{a, b});
+    }
+
+    public static void d(String tag, String template, Object a, Object b, Object c) {
+        if (DEBUG >= lowestLevel) log(DEBUG, tag, template, new Object[]{a, b, c});
+    }
+
+    public static void d(String tag, String template, Object... args) {
+        if (DEBUG >= lowestLevel) log(DEBUG, tag, template, args);
+    }
+
+    public static void i(String tag, String message) {
+        if (INFO >= lowestLevel) log(INFO, tag, message, null);
+    }
+
+    public static void i(String tag, String template, Object a) {
+        if (INFO >= lowestLevel) log(INFO, tag, template, new Object[]{a});
+    }
+
+    public static void i(String tag, String template, Object a, Object b) {
+        if (INFO >= lowestLevel) log(INFO, tag, template, new Object[]{a, b});
+    }
+
+    public static void i(String tag, String template, Object... args) {
+        if (INFO >= lowestLevel) log(INFO, tag, template, args);
+    }
+
+    public static void w(String tag, String message) {
+        if (WARN >= lowestLevel) log(WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String template, Object a) {
+        if (WARN >= lowestLevel) log(WARN, tag, template, new Object[]{a});
+    }
+
+    public static void w(String tag, String template, Object a, Object b) {
+        if (WARN >= lowestLevel) log(WARN, tag, template, new Object[]{a, b});
+    }
+
+    public static void w(String tag, String template, Object... args) {
+        if (WARN >= lowestLevel) log(WARN, tag, template, args);
+    }
+
+    public static void e(String tag, String message) {
+        if (ERROR >= lowestLevel) log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String template, Object a) {
+        if (ERROR >= lowestLevel) log(ERROR, tag, template, new Object[]{a});
+    }
+
+    public static void e(String tag, String template, Object a, Object b) {
+        if (ERROR >= lowestLevel) log(ERROR, tag, template, new Object[]{a, b});
+    }
+
+    public static void e(String tag, String template, Object... args) {
+        if (ERROR >= lowestLevel) log(ERROR, tag, template, args);
+    }
+
+    /**
+     * Buffered records, oldest first, as "MM-dd HH:mm:ss.SSS D/Tag: message" lines
+     */
+    public static List<String> dump() {
+        return ring.dump();
+    }
+
+    /**
+     * Kept records that have been overwritten in the ring buffer
+     */
+    public static long droppedRecords() {
+        return ring.dropped();
+    }
+
+    /**
+     * Fills {} placeholders in order; placeholders without an argument are left as they are
+     */
+    public static String format(String template, Object[] args) {
+        if (args == null || args.length == 0 || template == null) return template;
+        StringBuilder message = new StringBuilder(template.length() + 16 * args.length);
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < args.length && (at = template.indexOf("{}", from)) >= 0) {
+            message.append(template, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        return message.append(template, from, template.length()).toString();
+    }
+
+    private static void log(int level, String tag, String template, Object[] args) {
+        TagConfig config = tags.get(tag);
+        int threshold = config != null && config.level >= 0 ? config.level : defaultLevel;
+        if (level < threshold) return;
+        if (config != null && config.sampleEvery > 1 && level < WARN
+                && config.seen.getAndIncrement() % config.sampleEvery != 0) {
+            return;
+        }
+
+        Throwable error = null;
+        if (args != null && args.length > 0 && args[args.length - 1] instanceof Throwable
+                && placeholders(template) < args.length) {
+            error = (Throwable) args[args.length - 1];
+        }
+        String message = String.valueOf(format(template, args));
+
+        ring.write(System.currentTimeMillis(), level, tag, error != null ? message + " | " + error : message);
+        sink.write(level, tag, message, error);
+    }
+
+    private static int placeholders(String template) {
+        int count = 0;
+        for (int at = template.indexOf("{}"); at >= 0; at = template.indexOf("{}", at + 2)) count++;
+        return count;
+    }
+
+    private static void updateLowestLevel() {
+        int lowest = defaultLevel;
+        for (TagConfig config : tags.values()) {
+            if (config.level >= 0) lowest = Math.min(lowest, config.level);
+        }
+        lowestLevel = lowest;
+    }
+
+    /**
+     * Records packed back to back in a circular byte array:
+     * [time: 8][level: 1][tag index: 2][length: 2][message: length bytes of UTF-8]
+     * The oldest records are dropped whole to make room for a new one.
+     */
+    static class RingBuffer {
+        private static final int HEADER_BYTES = 13;
+
+        private final byte[] bytes;
+        private final List<String> tagNames = new ArrayList<>();
+        private final Map<String, Integer> tagIndex = new HashMap<>();
+        private int head; // Start of the oldest record
+        private int used;
+        private long records;
+        private long dropped;
+
+        RingBuffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        synchronized void write(long timeMs, int level, String tag, String message) {
+            byte[] text = message.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(text.length, Math.min(MAX_MESSAGE_BYTES, bytes.length - HEADER_BYTES));
+            int size = HEADER_BYTES + length;
+            while (bytes.length - used < size) {
+                int oldest = HEADER_BYTES + (int) readNumber(head + 11, 2);
+                head = (head + oldest) % bytes.length;
+                used -= oldest;
+                records--;
+                dropped++;
+            }
+
+            int at = (head + used) % bytes.length;
+            writeNumber(at, timeMs, 8);
+            bytes[(at + 8) % bytes.length] = (byte) level;
+            writeNumber(at + 9, indexOf(tag), 2);
+            writeNumber(at + 11, length, 2);
+            for (int i = 0; i < length; i++) {
+                bytes[(at + HEADER_BYTES + i) % bytes.length] = text[i];
+            }
+            used += size;
+            records++;
+        }
+
+        synchronized List<String> dump() {
+            SimpleDateFormat time = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+            List<String> lines = new ArrayList<>();
+            int at = head;
+            for (long r = 0; r < records; r++) {
+                long timeMs = readNumber(at, 8);
+                int level = bytes[(at + 8) % bytes.length];
+                String tag = tagNames.get((int) readNumber(at + 9, 2));
+                int length = (int) readNumber(at + 11, 2);
+                byte[] text = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    text[i] = bytes[(at + HEADER_BYTES + i) % bytes.length];
+                }
+                lines.add(time.format(new Date(timeMs)) + " " + levelLetter(level) + "/" + tag + ": "
+                        + new String(text, StandardCharsets.UTF_8));
+                at = (at + HEADER_BYTES + length) % bytes.length;
+            }
+            return lines;
+        }
+
+        synchronized long dropped() {
+            return dropped;
+        }
+
+        synchronized void clear() {
+            head = 0;
+            used = 0;
+            records = 0;
+            dropped = 0;
+        }
+
+        private int indexOf(String tag) {
+            Integer index = tagIndex.get(tag);
+            if (index == null) {
+                index = tagNames.size() & 0xFFFF;
+                tagNames.add(tag);
+                tagIndex.put(tag, index);
+            }
+            return index;
+        }
+
+        private void writeNumber(int at, long value, int width) {
+            for (int i = width - 1; i >= 0; i--) {
+                bytes[(at + i) % bytes.length] = (byte) value;
+                value >>>= 8;
+            }
+        }
+
+        private long readNumber(int at, int width) {
+            long value = 0;
+            for (int i = 0; i < width; i++) {
+                value = (value << 8) | (bytes[(at + i) % bytes.length] & 0xFF);
+            }
+            return value;
+        }
+
+        private static char levelLetter(int level) {
+            switch (level) {
+                case VERBOSE:
+                    return 'V';
+                case DEBUG:
+                    return 'D';
+                case INFO:
+                    return 'I';
+                case WARN:
+                    return 'W';
+                default:
+                    return 'E';
+            }
+        }
+    }
+}
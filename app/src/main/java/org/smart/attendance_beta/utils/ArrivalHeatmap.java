@@ -0,0 +1,183 @@
+// ArrivalHeatmap.java - Weekday x 5-minute arrival counters for one office
+package org.smart.attendance_beta.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class ArrivalHeatmap {
+
+    public static final int DAYS = 7; // Monday = 0 ... Sunday = 6
+    public static final int BUCKET_MINUTES = AttendanceDistribution.ARRIVAL_BUCKET_MINUTES;
+    public static final int BUCKETS_PER_DAY = AttendanceDistribution.ARRIVAL_BUCKETS;
+    public static final int SLOT_COUNT = DAYS * BUCKETS_PER_DAY;
+
+    private final String officeId;
+    private final int[] counts = new int[SLOT_COUNT];
+    private long total = 0;
+
+    public ArrivalHeatmap(String officeId) {
+        this.officeId = officeId;
+    }
+
+    public String getOfficeId() {
+        return officeId;
+    }
+
+    /**
+     * Count one arrival for a weekday (Monday = 0) and minute of day
+     */
+    public void record(int weekday, int minuteOfDay) {
+        if (weekday < 0 || weekday >= DAYS || minuteOfDay < 0) return;
+
+        counts[slotIndex(weekday, minuteOfDay / BUCKET_MINUTES)]++;
+        total++;
+    }
+
+    /**
+     * Add the given weekdays (inclusive, Monday = 0) of a weekly slice into this heatmap
+     */
+    public void addDays(ArrivalHeatmap slice, int fromWeekday, int toWeekday) {
+        for (int day = Math.max(0, fromWeekday); day <= Math.min(DAYS - 1, toWeekday); day++) {
+            int start = day * BUCKETS_PER_DAY;
+            for (int i = start; i < start + BUCKETS_PER_DAY; i++) {
+                counts[i] += slice.counts[i];
+                total += slice.counts[i];
+            }
+        }
+    }
+
+    public int getCount(int weekday, int bucket) {
+        return counts[slotIndex(weekday, bucket)];
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Counts for one weekday, one entry per 5-minute bucket
+     */
+    public int[] getDay(int weekday) {
+        int[] day = new int[BUCKETS_PER_DAY];
+        System.arraycopy(counts, weekday * BUCKETS_PER_DAY, day, 0, BUCKETS_PER_DAY);
+        return day;
+    }
+
+    /**
+     * Busiest bucket of a weekday as minutes since midnight, or -1 if nobody arrived
+     */
+    public int peakMinuteOfDay(int weekday) {
+        int best = -1;
+        int bestCount = 0;
+        for (int bucket = 0; bucket < BUCKETS_PER_DAY; bucket++) {
+            int count = counts[slotIndex(weekday, bucket)];
+            if (count > bestCount) {
+                bestCount = count;
+                best = bucket;
+            }
+        }
+        return best < 0 ? -1 : best * BUCKET_MINUTES;
+    }
+
+    public static int slotIndex(int weekday, int bucket) {
+        return weekday * BUCKETS_PER_DAY + bucket;
+    }
+
+    /**
+     * Load slot counts from a sparse map of slot index to count (the live Firestore form)
+     */
+    public void loadSlots(Map<String, Object> slots) {
+        if (slots == null) return;
+
+        for (Map.Entry<String, Object> entry : slots.entrySet()) {
+            try {
+                int index = Integer.parseInt(entry.getKey());
+                if (index < 0 || index >= SLOT_COUNT || !(entry.getValue() instanceof Number)) continue;
+
+                int count = ((Number) entry.getValue()).intValue();
+                counts[index] += count;
+                total += count;
+            } catch (NumberFormatException e) {
+                // Ignore unknown keys
+            }
+        }
+    }
+
+    /**
+     * Load slot counts from the compact array form
+     */
+    public void loadCounts(List<?> list) {
+        if (list == null) return;
+
+        for (int i = 0; i < list.size() && i < SLOT_COUNT; i++) {
+            Object value = list.get(i);
+            if (value instanceof Number) {
+                int count = ((Number) value).intValue();
+                counts[i] += count;
+                total += count;
+            }
+        }
+    }
+
+    // === Week helpers ===
+
+    /**
+     * Monday of the week containing the date (yyyy-MM-dd)
+     */
+    public static String weekStartFor(String date) {
+        Calendar cal = parseDate(date);
+        if (cal == null) return date;
+
+        cal.add(Calendar.DAY_OF_MONTH, -weekdayIndex(cal));
+        return newDateFormat().format(cal.getTime());
+    }
+
+    /**
+     * Weekday of the date with Monday = 0, or -1 if the date can't be parsed
+     */
+    public static int weekdayIndex(String date) {
+        Calendar cal = parseDate(date);
+        return cal != null ? weekdayIndex(cal) : -1;
+    }
+
+    private static int weekdayIndex(Calendar cal) {
+        int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek == Calendar.SUNDAY ? 6 : dayOfWeek - Calendar.MONDAY;
+    }
+
+    /**
+     * Slot a clock-in at clockInTime (HH:mm[:ss]) on date falls in, or -1 if either can't be parsed
+     */
+    public static int slotFor(String date, String clockInTime) {
+        int weekday = weekdayIndex(date);
+        int minuteOfDay = AttendanceDistribution.parseMinuteOfDay(clockInTime);
+        if (weekday < 0 || minuteOfDay < 0) return -1;
+
+        return slotIndex(weekday, minuteOfDay / BUCKET_MINUTES);
+    }
+
+    /**
+     * Document ID of an office's weekly slice
+     */
+    public static String sliceId(String officeId, String weekStart) {
+        return officeId + "_" + weekStart;
+    }
+
+    static Calendar parseDate(String date) {
+        try {
+            Calendar cal = Calendar.getInstance();
+            cal.setTime(newDateFormat().parse(date));
+            return cal;
+        } catch (ParseException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    static SimpleDateFormat newDateFormat() {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    }
+}
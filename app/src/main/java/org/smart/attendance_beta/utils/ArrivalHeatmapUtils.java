@@ -0,0 +1,116 @@
+// ArrivalHeatmapUtils.java - Incremental arrival heatmap persistence and range queries
+package org.smart.attendance_beta.utils;
+
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ArrivalHeatmapUtils {
+
+    public static final String COLLECTION = "arrival_heatmaps";
+    public static final String SHARDS = "heatmap_shards"; // Distinct from the daily counters' "shards" for collection-group reads
+
+    public interface HeatmapCallback {
+        void onHeatmapLoaded(ArrivalHeatmap heatmap);
+        void onError(String error);
+    }
+
+    /**
+     * Build the merge-update that counts one clock-in in the office's weekly slice; applied inside the
+     * clock-in transaction. Slots are incremented atomically so concurrent arrivals never contend on a read.
+     * A slice is spread over DailyCounters.getShardCount() shard documents like the daily counters, since
+     * an office's 08:00 arrivals would otherwise all queue on one document; readers sum the shards.
+     */
+    public static Map<String, Object> buildClockInUpdate(String officeId, String date, String clockInTime) {
+        int slot = ArrivalHeatmap.slotFor(date, clockInTime);
+        if (slot < 0) return null;
+
+        Map<String, Object> slots = new HashMap<>();
+        slots.put(String.valueOf(slot), FieldValue.increment(1));
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("officeId", officeId);
+        update.put("weekStart", ArrivalHeatmap.weekStartFor(date));
+        update.put("bucketMinutes", ArrivalHeatmap.BUCKET_MINUTES);
+        update.put("slots", slots);
+        return update;
+    }
+
+    /**
+     * A random shard of the office's weekly slice for the next clock-in
+     */
+    public static DocumentReference randomShardRef(FirebaseFirestore db, String officeId, String date) {
+        return db.collection(COLLECTION)
+                .document(ArrivalHeatmap.sliceId(officeId, ArrivalHeatmap.weekStartFor(date)))
+                .collection(SHARDS)
+                .document(String.valueOf(ThreadLocalRandom.current().nextInt(DailyCounters.getShardCount())));
+    }
+
+    /**
+     * Load an office's arrivals for a date range (inclusive, yyyy-MM-dd) by summing weekly slice shards.
+     * Read-only: live shards hold sparse slots, and compact_heatmaps.py folds closed weeks into one
+     * counts array offline; decodeSlice reads either form.
+     */
+    public static void loadRange(String officeId, String startDate, String endDate, HeatmapCallback callback) {
+        String firstWeek = ArrivalHeatmap.weekStartFor(startDate);
+        String lastWeek = ArrivalHeatmap.weekStartFor(endDate);
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        // Collection-group query; its composite index is in firestore.indexes.json
+        FirestoreCost.track("heatmap.range", db.collectionGroup(SHARDS)
+                .whereEqualTo("officeId", officeId)
+                .whereGreaterThanOrEqualTo("weekStart", firstWeek)
+                .whereLessThanOrEqualTo("weekStart", lastWeek)
+                .get())
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        callback.onError("Failed to load arrival heatmap: " + task.getException().getMessage());
+                        return;
+                    }
+
+                    ArrivalHeatmap result = new ArrivalHeatmap(officeId);
+
+                    for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        String weekStart = doc.getString("weekStart");
+                        if (weekStart == null) continue;
+
+                        ArrivalHeatmap slice = decodeSlice(officeId, doc);
+
+                        // Only the edge weeks are partial; every other shard is added whole
+                        int fromDay = weekStart.equals(firstWeek) ? ArrivalHeatmap.weekdayIndex(startDate) : 0;
+                        int toDay = weekStart.equals(lastWeek) ? ArrivalHeatmap.weekdayIndex(endDate) : ArrivalHeatmap.DAYS - 1;
+                        result.addDays(slice, fromDay, toDay);
+                    }
+
+                    callback.onHeatmapLoaded(result);
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    static ArrivalHeatmap decodeSlice(String officeId, DocumentSnapshot doc) {
+        ArrivalHeatmap slice = new ArrivalHeatmap(officeId);
+        Object counts = doc.get("counts");
+        Object slots = doc.get("slots");
+
+        if (counts instanceof List) slice.loadCounts((List<?>) counts);
+        if (slots instanceof Map) slice.loadSlots((Map<String, Object>) slots);
+        return slice;
+    }
+
+    /**
+     * Start date (yyyy-MM-dd) of the range covering the last given number of days, including today
+     */
+    public static String daysAgo(int days) {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -(days - 1));
+        return ArrivalHeatmap.newDateFormat().format(cal.getTime());
+    }
+}
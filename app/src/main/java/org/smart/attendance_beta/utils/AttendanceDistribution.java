@@ -0,0 +1,90 @@
+// AttendanceDistribution.java - Arrival-time and hours-worked distribution
+package org.smart.attendance_beta.utils;
+
+public class AttendanceDistribution {
+
+    // Arrival histogram: minute of day in 5-minute buckets (288 buckets per day)
+    public static final int ARRIVAL_BUCKET_MINUTES = 5;
+    public static final int ARRIVAL_BUCKETS = 24 * 60 / ARRIVAL_BUCKET_MINUTES;
+
+    // Hours histogram: quarter-hour buckets from 0 to 16 hours
+    public static final double HOURS_BUCKET_WIDTH = 0.25;
+    public static final int HOURS_BUCKETS = 64;
+
+    private final RunningStats arrivalStats;
+    private final RunningStats hoursStats;
+    private final FixedBucketHistogram arrivalHistogram;
+    private final FixedBucketHistogram hoursHistogram;
+
+    public AttendanceDistribution() {
+        arrivalStats = new RunningStats();
+        hoursStats = new RunningStats();
+        arrivalHistogram = new FixedBucketHistogram(0, ARRIVAL_BUCKET_MINUTES, ARRIVAL_BUCKETS);
+        hoursHistogram = new FixedBucketHistogram(0, HOURS_BUCKET_WIDTH, HOURS_BUCKETS);
+    }
+
+    /**
+     * Record a clock-in time in HH:mm or HH:mm:ss format
+     */
+    public void recordClockIn(String clockInTime) {
+        int minuteOfDay = parseMinuteOfDay(clockInTime);
+        if (minuteOfDay < 0) return;
+
+        arrivalStats.add(minuteOfDay);
+        arrivalHistogram.add(minuteOfDay);
+    }
+
+    /**
+     * Record the total hours of a completed day
+     */
+    public void recordHoursWorked(double hours) {
+        if (hours <= 0) return;
+
+        hoursStats.add(hours);
+        hoursHistogram.add(hours);
+    }
+
+    public RunningStats getArrivalStats() {
+        return arrivalStats;
+    }
+
+    public RunningStats getHoursStats() {
+        return hoursStats;
+    }
+
+    /**
+     * Arrival time percentile as minutes since midnight
+     */
+    public double arrivalPercentile(double percent) {
+        return arrivalHistogram.percentile(percent);
+    }
+
+    public double hoursPercentile(double percent) {
+        return hoursHistogram.percentile(percent);
+    }
+
+    /**
+     * Format minutes since midnight as HH:mm for display
+     */
+    public static String formatMinuteOfDay(double minuteOfDay) {
+        int minutes = (int) Math.round(minuteOfDay);
+        return String.format("%02d:%02d", (minutes / 60) % 24, minutes % 60);
+    }
+
+    /**
+     * Parse HH:mm[:ss] into minutes since midnight without allocating a date formatter
+     */
+    public static int parseMinuteOfDay(String time) {
+        if (time == null || time.length() < 5 || time.charAt(2) != ':') return -1;
+
+        int hours = digit(time.charAt(0)) * 10 + digit(time.charAt(1));
+        int minutes = digit(time.charAt(3)) * 10 + digit(time.charAt(4));
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) return -1;
+
+        return hours * 60 + minutes;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -100;
+    }
+}
@@ -0,0 +1,40 @@
+// AttendanceIds.java - Deterministic attendance document IDs ({employeeDocId}_{yyyyMMdd})
+package org.smart.attendance_beta.utils;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+
+public class AttendanceIds {
+
+    /**
+     * Attendance document ID for an employee on a date (yyyy-MM-dd)
+     */
+    public static String forDate(String employeeDocId, String date) {
+        return employeeDocId + "_" + date.replace("-", "");
+    }
+
+    public static String forToday(String employeeDocId) {
+        return forDate(employeeDocId, DateTimeUtils.getCurrentDate());
+    }
+
+    /**
+     * Reference to an employee's attendance record for a date, so lookups are a single point read
+     */
+    public static DocumentReference ref(FirebaseFirestore db, String employeeDocId, String date) {
+        return db.collection(AttendanceFields.COLLECTION).document(forDate(employeeDocId, date));
+    }
+
+    public static DocumentReference todayRef(FirebaseFirestore db, String employeeDocId) {
+        return ref(db, employeeDocId, DateTimeUtils.getCurrentDate());
+    }
+
+    /**
+     * True if the record exists and still has an active device session
+     */
+    public static boolean isActiveSession(DocumentSnapshot record) {
+        return record != null && record.exists() && Boolean.TRUE.equals(record.getBoolean(AttendanceFields.SESSION_ACTIVE));
+    }
+}
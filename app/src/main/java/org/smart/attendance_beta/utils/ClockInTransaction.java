@@ -0,0 +1,184 @@
+// ClockInTransaction.java - Atomic check-and-create clock-in on the per-day attendance document
+package org.smart.attendance_beta.utils;
+
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.models.AttendanceRecord;
+
+import java.util.Map;
+
+public class ClockInTransaction {
+
+    private static final String TAG = "ClockInTransaction";
+
+    public enum Outcome {
+        CREATED,            // New record written
+        ALREADY_CLOCKED_IN, // Same device already has today's open session (double tap, retry)
+        DAY_COMPLETE,       // Today's session was already closed
+        DEVICE_CONFLICT     // Another device holds today's open session
+    }
+
+    public interface ClockInCallback {
+        void onClockedIn(String attendanceId, boolean created);
+        void onDayComplete(DocumentSnapshot record);
+        void onDeviceConflict(DocumentSnapshot activeSession);
+        void onError(String error);
+    }
+
+    private static class Result {
+        final Outcome outcome;
+        final DocumentSnapshot existing;
+
+        Result(Outcome outcome, DocumentSnapshot existing) {
+            this.outcome = outcome;
+            this.existing = existing;
+        }
+    }
+
+    /**
+     * What a clock-in from this device should do given today's existing record (null if none)
+     */
+    public static Outcome classify(Map<String, Object> existing, String deviceId) {
+        if (existing == null) return Outcome.CREATED;
+        if (!Boolean.TRUE.equals(existing.get(AttendanceFields.SESSION_ACTIVE))) return Outcome.DAY_COMPLETE;
+
+        return deviceId.equals(existing.get(AttendanceFields.DEVICE_ID))
+                ? Outcome.ALREADY_CLOCKED_IN
+                : Outcome.DEVICE_CONFLICT;
+    }
+
+    public static Outcome classify(AttendanceRecord existing, String deviceId) {
+        if (existing == null) return Outcome.CREATED;
+        if (!existing.isSessionActive()) return Outcome.DAY_COMPLETE;
+
+        return deviceId.equals(existing.getDeviceId())
+                ? Outcome.ALREADY_CLOCKED_IN
+                : Outcome.DEVICE_CONFLICT;
+    }
+
+    /**
+     * The writes a clock-in that creates today's record makes. run() and JournalSyncer send them to a
+     * Firestore transaction; InMemoryAttendanceRepository buffers them and commits them to its maps.
+     */
+    public interface Writes {
+        void record(Map<String, Object> attendanceData);
+        void arrival(String officeId, String date, String clockInTime);
+        void clockIn(String date, boolean late);
+    }
+
+    /**
+     * Writes sent to a Firestore transaction, counted for FirestoreCost. The record goes to the
+     * deterministic document for its employee and date.
+     */
+    public static class TransactionWrites implements Writes {
+        protected final FirebaseFirestore db;
+        protected final Transaction transaction;
+        protected int count;
+
+        public TransactionWrites(FirebaseFirestore db, Transaction transaction) {
+            this.db = db;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void record(Map<String, Object> attendanceData) {
+            transaction.set(AttendanceIds.ref(db, (String) attendanceData.get(AttendanceFields.EMPLOYEE_DOC_ID),
+                    (String) attendanceData.get(AttendanceFields.DATE)), attendanceData);
+            count++;
+        }
+
+        @Override
+        public void arrival(String officeId, String date, String clockInTime) {
+            Map<String, Object> update = ArrivalHeatmapUtils.buildClockInUpdate(officeId, date, clockInTime);
+            if (update == null) return;
+            transaction.set(ArrivalHeatmapUtils.randomShardRef(db, officeId, date), update, SetOptions.merge());
+            count++;
+        }
+
+        @Override
+        public void clockIn(String date, boolean late) {
+            transaction.set(DailyCounters.randomShardRef(db, date), DailyCounters.buildClockInUpdate(late),
+                    SetOptions.merge());
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * The body of a clock-in transaction: classify against today's record as read (null if none)
+     * and, only if that creates it, make the record, heatmap and counter writes
+     */
+    public static Outcome apply(Map<String, Object> existing, Map<String, Object> attendanceData, Writes writes) {
+        Outcome outcome = classify(existing, (String) attendanceData.get(AttendanceFields.DEVICE_ID));
+        if (outcome != Outcome.CREATED) return outcome;
+
+        String date = (String) attendanceData.get(AttendanceFields.DATE);
+        String officeId = (String) attendanceData.get(AttendanceFields.OFFICE_ID);
+        writes.record(attendanceData);
+        if (officeId != null) {
+            writes.arrival(officeId, date, (String) attendanceData.get(AttendanceFields.CLOCK_IN_TIME));
+        }
+        writes.clockIn(date, Boolean.TRUE.equals(attendanceData.get(AttendanceFields.IS_LATE)));
+        return Outcome.CREATED;
+    }
+
+    /**
+     * Check the device, create today's record and bump the arrival and daily counters in one commit.
+     * attendanceData must contain employeeDocId, date and deviceId; officeId and clockInTime feed the heatmap.
+     */
+    public static void run(FirebaseFirestore db, Map<String, Object> attendanceData, ClockInCallback callback) {
+        String employeeDocId = (String) attendanceData.get(AttendanceFields.EMPLOYEE_DOC_ID);
+        String date = (String) attendanceData.get(AttendanceFields.DATE);
+        String deviceId = (String) attendanceData.get(AttendanceFields.DEVICE_ID);
+
+        if (employeeDocId == null || date == null || deviceId == null) {
+            callback.onError("Missing employee, date or device for clock-in");
+            return;
+        }
+
+        DocumentReference attendanceRef = AttendanceIds.ref(db, employeeDocId, date);
+
+        FirestoreCost.Call cost = FirestoreCost.begin("clockIn.transaction");
+        int[] writes = new int[1];
+        db.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(attendanceRef);
+
+            TransactionWrites transactionWrites = new TransactionWrites(db, transaction);
+            Outcome outcome = apply(existing.exists() ? existing.getData() : null, attendanceData, transactionWrites);
+            writes[0] = transactionWrites.getCount(); // A retried attempt starts over
+            return new Result(outcome, outcome != Outcome.CREATED ? existing : null);
+        }).addOnSuccessListener(result -> {
+            AppLog.d(TAG, "⏱️ Clock-in {}: {}", attendanceRef.getId(), result.outcome);
+            boolean created = result.outcome == Outcome.CREATED;
+            cost.end(1, 0, created ? writes[0] : 0, created ? CostLedger.estimateBytes(attendanceData) : 0);
+
+            switch (result.outcome) {
+                case CREATED:
+                    callback.onClockedIn(attendanceRef.getId(), true);
+                    break;
+                case ALREADY_CLOCKED_IN:
+                    callback.onClockedIn(attendanceRef.getId(), false);
+                    break;
+                case DAY_COMPLETE:
+                    callback.onDayComplete(result.existing);
+                    break;
+                case DEVICE_CONFLICT:
+                    callback.onDeviceConflict(result.existing);
+                    break;
+            }
+        }).addOnFailureListener(e -> {
+            AppLog.e(TAG, "Clock-in transaction failed", e);
+            cost.end(0, 0, 0, 0);
+            callback.onError("Failed to clock in: " + e.getMessage());
+        });
+    }
+}
@@ -0,0 +1,76 @@
+// CostBudget.java - Read/write limits checked against a CostLedger, so read regressions fail tests
+package org.smart.attendance_beta.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * new CostBudget().maxReads("repo.getRecords", 7).maxTotalReads(10).check(ledger) in a test that
+ * drives a flow against a metered repository; check() throws AssertionError listing every limit
+ * that was exceeded. Cache reads are free and never count against a budget.
+ */
+public class CostBudget {
+
+    private final Map<String, Long> maxReads = new LinkedHashMap<>();
+    private final Map<String, Long> maxWrites = new LinkedHashMap<>();
+    private long maxTotalReads = -1;
+    private long maxTotalWrites = -1;
+
+    public CostBudget maxReads(String callSite, long reads) {
+        maxReads.put(callSite, reads);
+        return this;
+    }
+
+    public CostBudget maxWrites(String callSite, long writes) {
+        maxWrites.put(callSite, writes);
+        return this;
+    }
+
+    public CostBudget maxTotalReads(long reads) {
+        maxTotalReads = reads;
+        return this;
+    }
+
+    public CostBudget maxTotalWrites(long writes) {
+        maxTotalWrites = writes;
+        return this;
+    }
+
+    /**
+     * One message per exceeded limit; empty when the ledger is within budget
+     */
+    public List<String> violations(CostLedger ledger) {
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Long> limit : maxReads.entrySet()) {
+            long reads = ledger.forSite(limit.getKey()).reads;
+            if (reads > limit.getValue()) {
+                violations.add(limit.getKey() + ": " + reads + " reads, budget " + limit.getValue());
+            }
+        }
+        for (Map.Entry<String, Long> limit : maxWrites.entrySet()) {
+            long writes = ledger.forSite(limit.getKey()).writes;
+            if (writes > limit.getValue()) {
+                violations.add(limit.getKey() + ": " + writes + " writes, budget " + limit.getValue());
+            }
+        }
+
+        CostLedger.Cost total = ledger.total();
+        if (maxTotalReads >= 0 && total.reads > maxTotalReads) {
+            violations.add("total: " + total.reads + " reads, budget " + maxTotalReads);
+        }
+        if (maxTotalWrites >= 0 && total.writes > maxTotalWrites) {
+            violations.add("total: " + total.writes + " writes, budget " + maxTotalWrites);
+        }
+        return violations;
+    }
+
+    public void check(CostLedger ledger) {
+        List<String> violations = violations(ledger);
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Firestore cost over budget:\n  " + String.join("\n  ", violations)
+                    + "\n" + String.join("\n", ledger.dump()));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+// CostLedger.java - Firestore reads, writes, bytes and latency per call site and per screen session
+package org.smart.attendance_beta.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Firestore bills per document read and written, so every instrumented call records what it cost
+ * here under a call site name ("reminder.clockIn", "repo.getRecords"). Costs are also added to the
+ * session of the screen that made the call, from the screen's start to its stop, so a screen that
+ * reads more than it should stands out. Calls with no screen (receivers) count under BACKGROUND.
+ *
+ * Reads served from the local cache are counted apart, since they're free. Sizes are estimates from
+ * Firestore's storage size rules. FirestoreCost feeds app(); tests build their own ledger and check
+ * it with CostBudget. Thread-safe.
+ */
+public class CostLedger {
+
+    public static final String BACKGROUND = "background";
+
+    private static final CostLedger app = new CostLedger();
+
+    public static class Cost {
+        public long calls;
+        public long reads;
+        public long cacheReads;
+        public long writes;
+        public long bytes;
+        public long totalLatencyMs;
+        public long maxLatencyMs;
+
+        void add(long reads, long cacheReads, long writes, long bytes, long latencyMs) {
+            calls++;
+            this.reads += reads;
+            this.cacheReads += cacheReads;
+            this.writes += writes;
+            this.bytes += bytes;
+            totalLatencyMs += latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+        }
+
+        void add(Cost other) {
+            calls += other.calls;
+            reads += other.reads;
+            cacheReads += other.cacheReads;
+            writes += other.writes;
+            bytes += other.bytes;
+            totalLatencyMs += other.totalLatencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, other.maxLatencyMs);
+        }
+
+        Cost copy() {
+            Cost copy = new Cost();
+            copy.add(this);
+            return copy;
+        }
+
+        public long averageLatencyMs() {
+            return calls == 0 ? 0 : totalLatencyMs / calls;
+        }
+
+        @Override
+        public String toString() {
+            return "calls=" + calls + " reads=" + reads + " cacheReads=" + cacheReads + " writes=" + writes
+                    + " bytes=" + bytes + " avgMs=" + averageLatencyMs() + " maxMs=" + maxLatencyMs;
+        }
+    }
+
+    /**
+     * What one screen cost between its start and stop
+     */
+    public static class ScreenSession {
+        public final String screen;
+        public final Cost total = new Cost();
+        public final Map<String, Cost> bySite = new TreeMap<>();
+
+        ScreenSession(String screen) {
+            this.screen = screen;
+        }
+
+        /**
+         * One line for the dump: the totals, then each call site's reads/writes
+         */
+        public String summary() {
+            StringBuilder line = new StringBuilder("screen=").append(screen)
+                    .append(" reads=").append(total.reads)
+                    .append(" cacheReads=").append(total.cacheReads)
+                    .append(" writes=").append(total.writes)
+                    .append(" bytes=").append(total.bytes)
+                    .append(" calls=").append(total.calls);
+            for (Map.Entry<String, Cost> site : bySite.entrySet()) {
+                line.append(' ').append(site.getKey()).append('=')
+                        .append(site.getValue().reads).append('r').append(site.getValue().writes).append('w');
+            }
+            return line.toString();
+        }
+    }
+
+    private final Map<String, Cost> bySite = new TreeMap<>();
+    private final Map<String, ScreenSession> openSessions = new HashMap<>();
+    private String currentScreen;
+
+    public static CostLedger app() {
+        return app;
+    }
+
+    /**
+     * A screen became visible; calls made from now on count towards its session
+     */
+    public synchronized void beginScreen(String screen) {
+        if (!openSessions.containsKey(screen)) {
+            openSessions.put(screen, new ScreenSession(screen));
+        }
+        currentScreen = screen;
+    }
+
+    /**
+     * The screen stopped; returns its session, or null if it had none
+     */
+    public synchronized ScreenSession endScreen(String screen) {
+        if (screen.equals(currentScreen)) currentScreen = null;
+        return openSessions.remove(screen);
+    }
+
+    /**
+     * Screen new calls are attributed to; capture it when a call starts, not when it completes
+     */
+    public synchronized String currentScreen() {
+        return currentScreen != null ? currentScreen : BACKGROUND;
+    }
+
+    public synchronized void record(String screen, String callSite, long reads, long cacheReads, long writes,
+                                    long bytes, long latencyMs) {
+        site(bySite, callSite).add(reads, cacheReads, writes, bytes, latencyMs);
+
+        ScreenSession session = screen != null ? openSessions.get(screen) : null;
+        if (session != null) {
+            session.total.add(reads, cacheReads, writes, bytes, latencyMs);
+            site(session.bySite, callSite).add(reads, cacheReads, writes, bytes, latencyMs);
+        }
+    }
+
+    public synchronized Cost forSite(String callSite) {
+        Cost cost = bySite.get(callSite);
+        return cost != null ? cost.copy() : new Cost();
+    }
+
+    public synchronized Cost total() {
+        Cost total = new Cost();
+        for (Cost cost : bySite.values()) total.add(cost);
+        return total;
+    }
+
+    /**
+     * Copy of every call site's cost, by name
+     */
+    public synchronized Map<String, Cost> bySite() {
+        Map<String, Cost> copy = new TreeMap<>();
+        for (Map.Entry<String, Cost> entry : bySite.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+
+    public synchronized void reset() {
+        bySite.clear();
+        openSessions.clear();
+        currentScreen = null;
+    }
+
+    /**
+     * Plain-text table, one "site=... calls=... reads=..." line per call site, then the total;
+     * stable ordering so two dumps can be diffed
+     */
+    public synchronized List<String> dump() {
+        List<String> lines = new ArrayList<>();
+        Cost total = new Cost();
+        for (Map.Entry<String, Cost> entry : bySite.entrySet()) {
+            lines.add("site=" + entry.getKey() + " " + entry.getValue());
+            total.add(entry.getValue());
+        }
+        lines.add("total " + total);
+        return lines;
+    }
+
+    /**
+     * Approximate stored size of a document's fields, per Firestore's storage size rules
+     * (32 bytes of document overhead plus each field name and value)
+     */
+    public static long estimateBytes(Map<String, Object> data) {
+        return data == null ? 0 : 32 + mapBytes(data);
+    }
+
+    private static long mapBytes(Map<?, ?> map) {
+        long bytes = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            bytes += stringBytes(String.valueOf(entry.getKey())) + valueBytes(entry.getValue());
+        }
+        return bytes;
+    }
+
+    private static long valueBytes(Object value) {
+        if (value == null || value instanceof Boolean) return 1;
+        if (value instanceof String) return stringBytes((String) value);
+        if (value instanceof Number) return 8;
+        if (value instanceof byte[]) return ((byte[]) value).length;
+        if (value instanceof Map) return mapBytes((Map<?, ?>) value);
+        if (value instanceof List) {
+            long bytes = 0;
+            for (Object item : (List<?>) value) bytes += valueBytes(item);
+            return bytes;
+        }
+        return 16; // Timestamp, GeoPoint, reference: close enough for accounting
+    }
+
+    private static long stringBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length + 1;
+    }
+
+    private static Cost site(Map<String, Cost> sites, String callSite) {
+        Cost cost = sites.get(callSite);
+        if (cost == null) {
+            cost = new Cost();
+            sites.put(callSite, cost);
+        }
+        return cost;
+    }
+}
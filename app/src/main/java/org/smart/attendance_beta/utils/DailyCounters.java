@@ -0,0 +1,220 @@
+// DailyCounters.java - Sharded per-day present/late/completed counters updated inside clock-in and clock-out
+package org.smart.attendance_beta.utils;
+
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Counters live in daily_counters/{date}/shards/{n}. Each clock-in or clock-out increments one
+ * randomly chosen shard in the same transaction that writes the attendance record, so the 08:00
+ * surge spreads over getShardCount() documents instead of queuing on one. Readers sum every shard
+ * document that exists, so the shard count can change at any time, even mid-day.
+ *
+ * Every shard write also counts itself in writes.{window}, the WINDOW_MS-long stretch of the device's
+ * local day it happened in, so the day's peak write rate can be read back from the shards by
+ * whoever sums them, long after the surge. tuneShardCount() feeds that to ShardCountTuner and raises
+ * daily_counters/config, which every client reads, when the current count couldn't absorb it.
+ */
+public class DailyCounters {
+
+    private static final String TAG = "DailyCounters";
+
+    public static final String COLLECTION = "daily_counters";
+    public static final String SHARDS = "shards";
+    public static final String CONFIG_DOC = "config";
+
+    public static final String PRESENT = "present";
+    public static final String LATE = "late";
+    public static final String COMPLETED = "completed";
+    public static final String EARLY_OUT = "earlyOut";
+    public static final String HOURS = "hours";
+    public static final String WRITES = "writes";
+    public static final String SHARD_COUNT = "shardCount";
+    public static final String PEAK_WRITES_PER_SECOND = "peakWritesPerSecond";
+
+    public static final int DEFAULT_SHARDS = 10;
+
+    private static volatile int shardCount = DEFAULT_SHARDS;
+
+    public interface CountersCallback {
+        void onCountersLoaded(Totals totals);
+        void onError(String error);
+    }
+
+    /**
+     * Sum of a day's shards
+     */
+    public static class Totals {
+        public long present;
+        public long late;
+        public long completed;
+        public long earlyOut;
+        public double hours;
+        public int shards;
+        public final Map<String, Long> writesByWindow = new HashMap<>();
+
+        /**
+         * Add one shard document's fields
+         */
+        public void add(Map<String, Object> shard) {
+            if (shard == null) return;
+            present += asLong(shard.get(PRESENT));
+            late += asLong(shard.get(LATE));
+            completed += asLong(shard.get(COMPLETED));
+            earlyOut += asLong(shard.get(EARLY_OUT));
+            Object value = shard.get(HOURS);
+            hours += value instanceof Number ? ((Number) value).doubleValue() : 0;
+            Object writes = shard.get(WRITES);
+            if (writes instanceof Map) {
+                for (Map.Entry<?, ?> window : ((Map<?, ?>) writes).entrySet()) {
+                    writesByWindow.merge(String.valueOf(window.getKey()), asLong(window.getValue()), Long::sum);
+                }
+            }
+            shards++;
+        }
+
+        public double averageHours() {
+            return completed > 0 ? hours / completed : 0.0;
+        }
+
+        private static long asLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+    }
+
+    public static int getShardCount() {
+        return shardCount;
+    }
+
+    public static void setShardCount(int count) {
+        shardCount = Math.max(1, count);
+    }
+
+    public static DocumentReference shardRef(FirebaseFirestore db, String date, int shard) {
+        return db.collection(COLLECTION).document(date).collection(SHARDS).document(String.valueOf(shard));
+    }
+
+    /**
+     * A random shard for the next write
+     */
+    public static DocumentReference randomShardRef(FirebaseFirestore db, String date) {
+        return shardRef(db, date, ThreadLocalRandom.current().nextInt(shardCount));
+    }
+
+    /**
+     * Merge-update counting one clock-in; set with SetOptions.merge() in the clock-in transaction
+     */
+    public static Map<String, Object> buildClockInUpdate(boolean late) {
+        Map<String, Object> update = newUpdate();
+        update.put(PRESENT, FieldValue.increment(1));
+        if (late) update.put(LATE, FieldValue.increment(1));
+        return update;
+    }
+
+    /**
+     * Merge-update counting one clock-out; set with SetOptions.merge() in the clock-out transaction
+     */
+    public static Map<String, Object> buildClockOutUpdate(double hours, boolean earlyOut) {
+        Map<String, Object> update = newUpdate();
+        update.put(COMPLETED, FieldValue.increment(1));
+        update.put(HOURS, FieldValue.increment(hours));
+        if (earlyOut) update.put(EARLY_OUT, FieldValue.increment(1));
+        return update;
+    }
+
+    /**
+     * An update that counts its own write in the current rate window
+     */
+    private static Map<String, Object> newUpdate() {
+        Map<String, Object> writes = new HashMap<>();
+        writes.put(windowKey(System.currentTimeMillis()), FieldValue.increment(1));
+
+        Map<String, Object> update = new HashMap<>();
+        update.put(WRITES, writes);
+        return update;
+    }
+
+    /**
+     * Index of the WINDOW_MS-long stretch of the local day that nowMs falls in
+     */
+    public static String windowKey(long nowMs) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(nowMs);
+        long msOfDay = ((cal.get(Calendar.HOUR_OF_DAY) * 60L + cal.get(Calendar.MINUTE)) * 60
+                + cal.get(Calendar.SECOND)) * 1000 + cal.get(Calendar.MILLISECOND);
+        return String.valueOf(msOfDay / ShardCountTuner.WINDOW_MS);
+    }
+
+    /**
+     * Read and sum a day's shards (one read per shard)
+     */
+    public static void load(FirebaseFirestore db, String date, CountersCallback callback) {
+        FirestoreCost.track("dailyCounters.load", db.collection(COLLECTION).document(date).collection(SHARDS).get())
+                .addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        callback.onError("Failed to load daily counters: " + task.getException().getMessage());
+                        return;
+                    }
+
+                    Totals totals = new Totals();
+                    for (DocumentSnapshot shard : task.getResult().getDocuments()) {
+                        totals.add(shard.getData());
+                    }
+                    callback.onCountersLoaded(totals);
+                });
+    }
+
+    /**
+     * Pick up the tuned shard count; served from cache when offline
+     */
+    public static void refreshShardCount(FirebaseFirestore db) {
+        FirestoreCost.track("dailyCounters.config", db.collection(COLLECTION).document(CONFIG_DOC).get())
+                .addOnSuccessListener(config -> {
+                    Long count = config.getLong(SHARD_COUNT);
+                    if (count != null && count > 0) {
+                        setShardCount(count.intValue());
+                    }
+                })
+                .addOnFailureListener(e -> AppLog.w(TAG, "Using {} counter shards, config unavailable", shardCount, e));
+    }
+
+    /**
+     * Raise the shard count if a day's busiest window, as recorded in its shards, outgrew it.
+     * Device clocks differ by a few seconds, which smears the peak a little across windows.
+     */
+    public static void tuneShardCount(FirebaseFirestore db, Totals totals) {
+        ShardCountTuner tuner = new ShardCountTuner();
+        tuner.observeWindows(totals.writesByWindow);
+        int recommended = tuner.recommendedShards();
+        if (recommended > getShardCount()) {
+            saveShardCount(db, recommended, tuner.getPeakWritesPerSecond());
+        }
+    }
+
+    /**
+     * Publish a new shard count for every client
+     */
+    public static void saveShardCount(FirebaseFirestore db, int count, double peakWritesPerSecond) {
+        setShardCount(count);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(SHARD_COUNT, count);
+        config.put(PEAK_WRITES_PER_SECOND, peakWritesPerSecond);
+        config.put("updatedAt", Timestamp.now());
+
+        FirestoreCost.trackWrite("dailyCounters.configWrite", 1,
+                db.collection(COLLECTION).document(CONFIG_DOC).set(config, SetOptions.merge()))
+                .addOnSuccessListener(aVoid -> AppLog.d(TAG, "🔢 Counter shards set to {} for a peak of {} writes/s", count, peakWritesPerSecond))
+                .addOnFailureListener(e -> AppLog.w(TAG, "Failed to save counter shard count", e));
+    }
+}
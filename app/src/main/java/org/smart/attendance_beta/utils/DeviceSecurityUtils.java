@@ -5,7 +5,6 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.os.Build;
 import android.provider.Settings;
-import android.util.Log;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -38,7 +37,7 @@ public class DeviceSecurityUtils {
                 .putString(PREF_DEVICE_ID, deviceId)
                 .apply();
 
-        Log.d(TAG, "Generated new device ID: " + deviceId.substring(0, 8) + "...");
+        AppLog.d(TAG, "Generated new device ID: {}...", deviceId.substring(0, 8));
         return deviceId;
     }
 
@@ -87,7 +86,7 @@ public class DeviceSecurityUtils {
             deviceInfo.append(Build.BOARD);
 
         } catch (Exception e) {
-            Log.e(TAG, "Error generating device ID", e);
+            AppLog.e(TAG, "Error generating device ID", e);
             // Fallback to random UUID if all else fails
             return UUID.randomUUID().toString();
         }
@@ -114,7 +113,7 @@ public class DeviceSecurityUtils {
             }
             return hexString.toString();
         } catch (NoSuchAlgorithmException e) {
-            Log.e(TAG, "SHA-256 not available", e);
+            AppLog.e(TAG, "SHA-256 not available", e);
             return UUID.randomUUID().toString();
         }
     }
@@ -225,7 +224,7 @@ public class DeviceSecurityUtils {
             }
 
         } catch (Exception e) {
-            Log.w(TAG, "Error checking root status", e);
+            AppLog.w(TAG, "Error checking root status", e);
         }
 
         return false;
@@ -2,20 +2,28 @@
 package org.smart.attendance_beta.utils;
 
 import android.content.Context;
-import android.util.Log;
 
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.firestore.SetOptions;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.data.AttendanceRecordCodec;
+import org.smart.attendance_beta.data.DocumentReads;
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.sync.HeartbeatWriter;
+import org.smart.attendance_beta.sync.SessionSweeper;
 
 import java.util.HashMap;
 import java.util.Map;
 
 public class DeviceSessionManager {
     private static final String TAG = "DeviceSessionManager";
-    private static final long SESSION_TIMEOUT_MS = 24 * 60 * 60 * 1000; // 24 hours
+    public static final long SESSION_TIMEOUT_MS = 24 * 60 * 60 * 1000; // 24 hours
 
     public interface SessionValidationCallback {
         void onSessionValid(String sessionId);
@@ -45,23 +53,19 @@ public class DeviceSessionManager {
         String currentDeviceId = DeviceSecurityUtils.getDeviceId(context);
         FirebaseFirestore db = FirebaseFirestore.getInstance();
 
-        Log.d(TAG, "Validating session for employee: " + employeeDocId + ", device: " + currentDeviceId.substring(0, 8));
+        AppLog.d(TAG, "Validating session for employee: {}, device: {}", employeeDocId, currentDeviceId.substring(0, 8));
 
         // Check for active sessions on any device for this employee and date
-        db.collection("attendance")
-                .whereEqualTo("employeeDocId", employeeDocId)
-                .whereEqualTo("date", date)
-                .whereEqualTo("sessionActive", true)
-                .get()
+        DocumentReads.get(AttendanceIds.ref(db, employeeDocId, date))
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
+                        if (!AttendanceIds.isActiveSession(task.getResult())) {
                             // No active session found - device is clear to proceed
                             callback.onSessionValid(null);
                         } else {
                             // Active session found - check if it's on the same device
-                            DocumentSnapshot activeSession = task.getResult().getDocuments().get(0);
-                            String sessionDeviceId = activeSession.getString("deviceId");
+                            DocumentSnapshot activeSession = task.getResult();
+                            String sessionDeviceId = activeSession.getString(AttendanceFields.DEVICE_ID);
                             String sessionId = activeSession.getId();
 
                             if (currentDeviceId.equals(sessionDeviceId)) {
@@ -91,38 +95,9 @@ public class DeviceSessionManager {
                                                double latitude,
                                                double longitude,
                                                SessionCreationCallback callback) {
-        String deviceId = DeviceSecurityUtils.getDeviceId(context);
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        // First check if there's already an active session
-        validateDeviceSession(context, employeeDocId, date, new SessionValidationCallback() {
-            @Override
-            public void onSessionValid(String existingSessionId) {
-                if (existingSessionId != null) {
-                    // Session already exists for this device
-                    callback.onSessionCreated(existingSessionId);
-                } else {
-                    // Create new session
-                    createNewSession(context, employeeDocId, pfNumber, employeeName,
-                            date, latitude, longitude, callback);
-                }
-            }
-
-            @Override
-            public void onDeviceConflict(DeviceConflict conflict) {
-                callback.onDeviceConflict(conflict);
-            }
-
-            @Override
-            public void onSessionInvalid(String reason) {
-                callback.onError("Session invalid: " + reason);
-            }
-
-            @Override
-            public void onError(String error) {
-                callback.onError(error);
-            }
-        });
+        // The device check and the create happen in one transaction, so no separate validation round trip
+        createNewSession(context, employeeDocId, pfNumber, employeeName,
+                date, latitude, longitude, callback);
     }
 
     /**
@@ -148,79 +123,81 @@ public class DeviceSessionManager {
         boolean isLate = DateTimeUtils.isLateArrival(currentTime, "08:00");
         int lateMinutes = isLate ? DateTimeUtils.calculateLateMinutes(currentTime, "08:00") : 0;
 
-        Map<String, Object> sessionData = new HashMap<>();
+        AttendanceRecord record = new AttendanceRecord();
 
         // Basic attendance data
-        sessionData.put("employeeDocId", employeeDocId);
-        sessionData.put("pfNumber", pfNumber);
-        sessionData.put("employeeName", employeeName);
-        sessionData.put("date", date);
-        sessionData.put("clockInTime", currentTime);
-        sessionData.put("clockInTimestamp", now);
-        sessionData.put("clockInLatitude", latitude);
-        sessionData.put("clockInLongitude", longitude);
-        sessionData.put("locationName", "Company Office");
-        sessionData.put("status", isLate ? "Late" : "Present");
-        sessionData.put("totalHours", 0.0);
-        sessionData.put("isLate", isLate);
-        sessionData.put("lateMinutes", lateMinutes);
-        sessionData.put("createdAt", now);
+        record.setEmployeeDocId(employeeDocId);
+        record.setPfNumber(pfNumber);
+        record.setEmployeeName(employeeName);
+        record.setDate(date);
+        record.setClockInTime(currentTime);
+        record.setClockInTimestamp(now);
+        record.setClockInLatitude(latitude);
+        record.setClockInLongitude(longitude);
+        record.setLocationName("Company Office");
+        record.setStatus(isLate ? "Late" : "Present");
+        record.setLate(isLate);
+        record.setLateMinutes(lateMinutes);
+        record.setCreatedAt(now);
 
         // Device session management
-        sessionData.put("deviceId", deviceId);
-        sessionData.put("deviceModel", fingerprint.model);
-        sessionData.put("deviceManufacturer", fingerprint.manufacturer);
-        sessionData.put("deviceBrand", fingerprint.brand);
-        sessionData.put("deviceOSVersion", fingerprint.osVersion);
-        sessionData.put("deviceHardware", fingerprint.hardware);
-        sessionData.put("sessionActive", true);
-        sessionData.put("sessionStartTime", now);
-        sessionData.put("lastHeartbeat", now);
-        sessionData.put("heartbeatCount", 0);
-        sessionData.put("hasDeviceConflict", false);
+        record.setDeviceId(deviceId);
+        record.setDeviceModel(fingerprint.model);
+        record.setDeviceManufacturer(fingerprint.manufacturer);
+        record.setSessionActive(true);
+        record.setSessionStartTime(now);
+        record.putExtra(AttendanceFields.DEVICE_BRAND, fingerprint.brand);
+        record.putExtra(AttendanceFields.DEVICE_OS_VERSION, fingerprint.osVersion);
+        record.putExtra(AttendanceFields.DEVICE_HARDWARE, fingerprint.hardware);
+        record.putExtra(AttendanceFields.LAST_HEARTBEAT, now);
+        record.putExtra(AttendanceFields.HEARTBEAT_COUNT, 0);
+        record.putExtra(AttendanceFields.HAS_DEVICE_CONFLICT, false);
 
         // Security data
         DeviceSecurityUtils.SecurityRiskAssessment risk =
                 DeviceSecurityUtils.getSecurityRisk(context);
-        sessionData.put("securityRiskLevel", risk.riskLevel);
-        sessionData.put("securityRiskScore", risk.riskScore);
-        sessionData.put("securityRiskReasons", risk.riskReasons);
-        sessionData.put("deviceRooted", DeviceSecurityUtils.isDeviceRooted());
-        sessionData.put("developerModeEnabled", DeviceSecurityUtils.isDeveloperModeEnabled(context));
-        sessionData.put("usbDebuggingEnabled", DeviceSecurityUtils.isUSBDebuggingEnabled(context));
-        sessionData.put("isEmulator", DeviceSecurityUtils.isEmulator());
-
-        db.collection("attendance")
-                .add(sessionData)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Session created successfully: " + documentReference.getId());
-                    callback.onSessionCreated(documentReference.getId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to create session", e);
-                    callback.onError("Failed to create session: " + e.getMessage());
-                });
+        record.putExtra(AttendanceFields.SECURITY_RISK_LEVEL, risk.riskLevel);
+        record.putExtra(AttendanceFields.SECURITY_RISK_SCORE, risk.riskScore);
+        record.putExtra(AttendanceFields.SECURITY_RISK_REASONS, risk.riskReasons);
+        record.putExtra(AttendanceFields.DEVICE_ROOTED, DeviceSecurityUtils.isDeviceRooted());
+        record.putExtra(AttendanceFields.DEVELOPER_MODE_ENABLED, DeviceSecurityUtils.isDeveloperModeEnabled(context));
+        record.putExtra(AttendanceFields.USB_DEBUGGING_ENABLED, DeviceSecurityUtils.isUSBDebuggingEnabled(context));
+        record.putExtra(AttendanceFields.IS_EMULATOR, DeviceSecurityUtils.isEmulator());
+
+        Map<String, Object> sessionData = AttendanceRecordCodec.INSTANCE.encode(record);
+
+        ClockInTransaction.run(db, sessionData, new ClockInTransaction.ClockInCallback() {
+            @Override
+            public void onClockedIn(String sessionId, boolean created) {
+                AppLog.d(TAG, "{}{}", created ? "Session created successfully: " : "Session already active: ", sessionId);
+                callback.onSessionCreated(sessionId);
+            }
+
+            @Override
+            public void onDayComplete(DocumentSnapshot record) {
+                callback.onError("Attendance for " + date + " is already complete");
+            }
+
+            @Override
+            public void onDeviceConflict(DocumentSnapshot activeSession) {
+                callback.onDeviceConflict(createDeviceConflict(activeSession, deviceId, context));
+            }
+
+            @Override
+            public void onError(String error) {
+                AppLog.e(TAG, "Failed to create session: {}", error);
+                callback.onError(error);
+            }
+        });
     }
 
     /**
-     * Update session heartbeat to show device is still active
+     * Record that the device is still active. Beats are coalesced and written by HeartbeatWriter.
      */
     public static void updateSessionHeartbeat(String sessionId) {
         if (sessionId == null) return;
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("lastHeartbeat", Timestamp.now());
-        updates.put("heartbeatCount", com.google.firebase.firestore.FieldValue.increment(1));
-
-        db.collection("attendance").document(sessionId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Heartbeat updated for session: " + sessionId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Failed to update heartbeat for session: " + sessionId, e);
-                });
+        HeartbeatWriter.getInstance().beat(sessionId);
     }
 
     /**
@@ -240,53 +217,61 @@ public class DeviceSessionManager {
         String currentTime = DateTimeUtils.getCurrentTime();
         Timestamp now = Timestamp.now();
 
-        // First get session data to calculate hours worked
-        db.collection("attendance").document(sessionId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && task.getResult().exists()) {
-                        DocumentSnapshot session = task.getResult();
-                        String clockInTime = session.getString("clockInTime");
-
-                        double hoursWorked = 0;
-                        if (clockInTime != null) {
-                            hoursWorked = DateTimeUtils.calculateHoursWorked(clockInTime, currentTime);
-                        }
+        // Hours come from the stored clock-in; the close and the daily counters commit together
+        DocumentReference sessionRef = db.collection(AttendanceFields.COLLECTION).document(sessionId);
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot session = transaction.get(sessionRef);
+                    if (!session.exists()) {
+                        throw new FirebaseFirestoreException("Session not found",
+                                FirebaseFirestoreException.Code.NOT_FOUND);
+                    }
+                    if (!Boolean.TRUE.equals(session.getBoolean(AttendanceFields.SESSION_ACTIVE))) {
+                        return null; // Already terminated
+                    }
 
-                        Map<String, Object> updates = new HashMap<>();
-                        updates.put("clockOutTime", currentTime);
-                        updates.put("clockOutTimestamp", now);
-                        updates.put("clockOutLatitude", clockOutLatitude);
-                        updates.put("clockOutLongitude", clockOutLongitude);
-                        updates.put("totalHours", hoursWorked);
-                        updates.put("sessionActive", false);
-                        updates.put("sessionEndTime", now);
-
-                        if (clockOutReason != null && !clockOutReason.isEmpty()) {
-                            updates.put("clockOutReason", clockOutReason);
-                            updates.put("isEarlyClockOut", true);
-                        }
+                    String clockInTime = session.getString(AttendanceFields.CLOCK_IN_TIME);
+                    double hoursWorked = 0;
+                    if (clockInTime != null) {
+                        hoursWorked = DateTimeUtils.calculateHoursWorked(clockInTime, currentTime);
+                    }
+                    boolean earlyOut = clockOutReason != null && !clockOutReason.isEmpty();
+
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put(AttendanceFields.CLOCK_OUT_TIME, currentTime);
+                    updates.put(AttendanceFields.CLOCK_OUT_TIMESTAMP, now);
+                    updates.put(AttendanceFields.CLOCK_OUT_LATITUDE, clockOutLatitude);
+                    updates.put(AttendanceFields.CLOCK_OUT_LONGITUDE, clockOutLongitude);
+                    updates.put(AttendanceFields.TOTAL_HOURS, hoursWorked);
+                    updates.put(AttendanceFields.SESSION_ACTIVE, false);
+                    updates.put(AttendanceFields.SESSION_END_TIME, now);
+
+                    if (earlyOut) {
+                        updates.put(AttendanceFields.CLOCK_OUT_REASON, clockOutReason);
+                        updates.put(AttendanceFields.IS_EARLY_CLOCK_OUT, true);
+                    }
 
-                        // Calculate session duration
-                        Timestamp sessionStart = session.getTimestamp("sessionStartTime");
-                        if (sessionStart != null) {
-                            long sessionDuration = now.toDate().getTime() - sessionStart.toDate().getTime();
-                            updates.put("sessionDurationMs", sessionDuration);
-                        }
+                    // Calculate session duration
+                    Timestamp sessionStart = session.getTimestamp(AttendanceFields.SESSION_START_TIME);
+                    if (sessionStart != null) {
+                        long sessionDuration = now.toDate().getTime() - sessionStart.toDate().getTime();
+                        updates.put(AttendanceFields.SESSION_DURATION_MS, sessionDuration);
+                    }
 
-                        db.collection("attendance").document(sessionId)
-                                .update(updates)
-                                .addOnSuccessListener(aVoid -> {
-                                    Log.d(TAG, "Session terminated successfully: " + sessionId);
-                                    callback.onSessionTerminated();
-                                })
-                                .addOnFailureListener(e -> {
-                                    Log.e(TAG, "Failed to terminate session", e);
-                                    callback.onError("Failed to terminate session: " + e.getMessage());
-                                });
-                    } else {
-                        callback.onError("Session not found");
+                    transaction.update(sessionRef, updates);
+                    String date = session.getString(AttendanceFields.DATE);
+                    if (date != null) {
+                        transaction.set(DailyCounters.randomShardRef(db, date),
+                                DailyCounters.buildClockOutUpdate(hoursWorked, earlyOut), SetOptions.merge());
                     }
+                    return null;
+                })
+                .addOnSuccessListener(aVoid -> {
+                    AppLog.d(TAG, "Session terminated successfully: {}", sessionId);
+                    callback.onSessionTerminated();
+                })
+                .addOnFailureListener(e -> {
+                    AppLog.e(TAG, "Failed to terminate session", e);
+                    callback.onError("Failed to terminate session: " + e.getMessage());
                 });
     }
 
@@ -301,20 +286,20 @@ public class DeviceSessionManager {
         Timestamp now = Timestamp.now();
 
         Map<String, Object> updates = new HashMap<>();
-        updates.put("sessionActive", false);
-        updates.put("sessionTerminatedBy", "ADMIN");
-        updates.put("sessionTerminationReason", reason);
-        updates.put("terminatedByAdminId", adminId);
-        updates.put("forcedTerminationTime", now);
+        updates.put(AttendanceFields.SESSION_ACTIVE, false);
+        updates.put(AttendanceFields.SESSION_TERMINATED_BY, "ADMIN");
+        updates.put(AttendanceFields.SESSION_TERMINATION_REASON, reason);
+        updates.put(AttendanceFields.TERMINATED_BY_ADMIN_ID, adminId);
+        updates.put(AttendanceFields.FORCED_TERMINATION_TIME, now);
 
-        db.collection("attendance").document(sessionId)
+        db.collection(AttendanceFields.COLLECTION).document(sessionId)
                 .update(updates)
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Session force-terminated by admin: " + sessionId);
+                    AppLog.d(TAG, "Session force-terminated by admin: {}", sessionId);
                     callback.onSessionTerminated();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to force-terminate session", e);
+                    AppLog.e(TAG, "Failed to force-terminate session", e);
                     callback.onError("Failed to terminate session: " + e.getMessage());
                 });
     }
@@ -344,58 +329,36 @@ public class DeviceSessionManager {
         db.collection("security_alerts")
                 .add(conflictReport)
                 .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Device conflict reported: " + documentReference.getId());
+                    AppLog.d(TAG, "Device conflict reported: {}", documentReference.getId());
 
                     // Update original session with conflict info
                     Map<String, Object> sessionUpdate = new HashMap<>();
-                    sessionUpdate.put("hasDeviceConflict", true);
-                    sessionUpdate.put("conflictDeviceId", conflict.attemptingDeviceId);
-                    sessionUpdate.put("conflictTime", Timestamp.now());
-                    sessionUpdate.put("securityAlertId", documentReference.getId());
+                    sessionUpdate.put(AttendanceFields.HAS_DEVICE_CONFLICT, true);
+                    sessionUpdate.put(AttendanceFields.CONFLICT_DEVICE_ID, conflict.attemptingDeviceId);
+                    sessionUpdate.put(AttendanceFields.CONFLICT_TIME, Timestamp.now());
+                    sessionUpdate.put(AttendanceFields.SECURITY_ALERT_ID, documentReference.getId());
 
-                    db.collection("attendance").document(conflict.originalSessionId)
+                    db.collection(AttendanceFields.COLLECTION).document(conflict.originalSessionId)
                             .update(sessionUpdate);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to report device conflict", e);
+                    AppLog.e(TAG, "Failed to report device conflict", e);
                 });
     }
 
     /**
-     * Clean up expired sessions (run periodically)
+     * Clean up expired sessions now, in the background. SessionSweepWorker runs the same sweep
+     * periodically; see SessionSweeper for paging and resume.
      */
-    public static void cleanupExpiredSessions() {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        Timestamp cutoffTime = new Timestamp(System.currentTimeMillis() - SESSION_TIMEOUT_MS, 0);
-
-        db.collection("attendance")
-                .whereEqualTo("sessionActive", true)
-                .whereLessThan("lastHeartbeat", cutoffTime)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        WriteBatch batch = db.batch();
-                        int expiredCount = 0;
-
-                        for (DocumentSnapshot doc : task.getResult().getDocuments()) {
-                            batch.update(doc.getReference(), "sessionActive", false);
-                            batch.update(doc.getReference(), "sessionExpired", true);
-                            batch.update(doc.getReference(), "sessionExpiredTime", Timestamp.now());
-                            expiredCount++;
-                        }
-
-                        if (expiredCount > 0) {
-                            int finalExpiredCount = expiredCount;
-                            batch.commit()
-                                    .addOnSuccessListener(aVoid -> {
-                                        Log.d(TAG, "Cleaned up " + finalExpiredCount + " expired sessions");
-                                    })
-                                    .addOnFailureListener(e -> {
-                                        Log.e(TAG, "Failed to cleanup expired sessions", e);
-                                    });
-                        }
-                    }
-                });
+    public static void cleanupExpiredSessions(Context context) {
+        SessionSweeper sweeper = SessionSweeper.create(context.getApplicationContext());
+        new Thread(() -> {
+            try {
+                sweeper.run();
+            } catch (Exception e) {
+                AppLog.e(TAG, "Failed to cleanup expired sessions", e);
+            }
+        }, "session-sweep").start();
     }
 
     /**
@@ -408,16 +371,16 @@ public class DeviceSessionManager {
                 DeviceSecurityUtils.getDeviceFingerprint(context);
 
         return new DeviceConflict(
-                activeSession.getString("employeeDocId"),
-                activeSession.getString("employeeName"),
-                activeSession.getString("pfNumber"),
-                activeSession.getString("deviceId"),
-                activeSession.getString("deviceManufacturer") + " " + activeSession.getString("deviceModel"),
+                activeSession.getString(AttendanceFields.EMPLOYEE_DOC_ID),
+                activeSession.getString(AttendanceFields.EMPLOYEE_NAME),
+                activeSession.getString(AttendanceFields.PF_NUMBER),
+                activeSession.getString(AttendanceFields.DEVICE_ID),
+                activeSession.getString(AttendanceFields.DEVICE_MANUFACTURER) + " " + activeSession.getString(AttendanceFields.DEVICE_MODEL),
                 attemptingDeviceId,
                 attemptingDevice.manufacturer + " " + attemptingDevice.model,
                 activeSession.getId(),
-                activeSession.getString("date"),
-                activeSession.getTimestamp("sessionStartTime")
+                activeSession.getString(AttendanceFields.DATE),
+                activeSession.getTimestamp(AttendanceFields.SESSION_START_TIME)
         );
     }
 
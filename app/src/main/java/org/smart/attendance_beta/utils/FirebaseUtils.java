@@ -1,16 +1,9 @@
 package org.smart.attendance_beta.utils;
 
 import android.content.Context;
-import android.util.Log;
 
-import androidx.annotation.NonNull;
-
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 public class FirebaseUtils {
     private static final String TAG = "FirebaseUtils";
@@ -21,78 +14,63 @@ public class FirebaseUtils {
     }
 
     public interface UserDataCallback {
-        void onUserDataRetrieved(DocumentSnapshot userDocument);
+        void onUserDataRetrieved(ProfileStore.Profile userDocument);
         void onError(String error);
     }
 
     /**
-     * Get current user's role from Firestore
+     * Get current user's role; served by ProfileStore, so repeat checks don't re-read users/{uid}
      */
-    public static void getCurrentUserRole(UserRoleCallback callback) {
-        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
-        if (currentUser == null) {
-            callback.onError("No authenticated user");
-            return;
-        }
+    public static void getCurrentUserRole(Context context, UserRoleCallback callback) {
+        getCurrentUserData(context, new UserDataCallback() {
+            @Override
+            public void onUserDataRetrieved(ProfileStore.Profile userDocument) {
+                String role = userDocument.getString("role");
+                Boolean isActive = userDocument.getBoolean("isActive");
+                callback.onRoleRetrieved(role != null ? role : "employee",
+                        isActive != null ? isActive : true);
+            }
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("users").document(currentUser.getUid())
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-                                String role = document.getString("role");
-                                Boolean isActive = document.getBoolean("isActive");
-                                callback.onRoleRetrieved(role != null ? role : "employee",
-                                        isActive != null ? isActive : true);
-                            } else {
-                                callback.onError("User document not found");
-                            }
-                        } else {
-                            callback.onError(task.getException().getMessage());
-                        }
-                    }
-                });
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
 
     /**
-     * Get current user's complete data from Firestore
+     * Get current user's complete data (users/{uid}) from ProfileStore
      */
-    public static void getCurrentUserData(UserDataCallback callback) {
+    public static void getCurrentUserData(Context context, UserDataCallback callback) {
         FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
         if (currentUser == null) {
             callback.onError("No authenticated user");
             return;
         }
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("users").document(currentUser.getUid())
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-                                callback.onUserDataRetrieved(document);
-                            } else {
-                                callback.onError("User document not found");
-                            }
-                        } else {
-                            callback.onError(task.getException().getMessage());
-                        }
-                    }
-                });
+        ProfileStore.getInstance(context).getUser(currentUser.getUid(), new ProfileStore.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(ProfileStore.Profile profile) {
+                callback.onUserDataRetrieved(profile);
+            }
+
+            @Override
+            public void onNotFound() {
+                callback.onError("User document not found");
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
     }
 
     /**
      * Check if current user is admin
      */
-    public static void isCurrentUserAdmin(UserRoleCallback callback) {
-        getCurrentUserRole(new UserRoleCallback() {
+    public static void isCurrentUserAdmin(Context context, UserRoleCallback callback) {
+        getCurrentUserRole(context, new UserRoleCallback() {
             @Override
             public void onRoleRetrieved(String role, boolean isActive) {
                 callback.onRoleRetrieved(role, isActive && "admin".equals(role));
@@ -124,6 +102,6 @@ public class FirebaseUtils {
      */
     public static void signOut() {
         FirebaseAuth.getInstance().signOut();
-        Log.d(TAG, "User signed out");
+        AppLog.d(TAG, "User signed out");
     }
 }
\ No newline at end of file
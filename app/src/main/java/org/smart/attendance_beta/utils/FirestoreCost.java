@@ -0,0 +1,234 @@
+// FirestoreCost.java - Records Firestore calls into CostLedger.app() and dumps per-screen costs to local files
+package org.smart.attendance_beta.utils;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Wrap a Firestore call with track("site", ref.get()) (or trackWrite for writes) and its billed
+ * reads are inferred from the result: 1 per document, 1 for an empty query, 1 per 1000 entries
+ * counted by an aggregate. Snapshot listeners call recordSnapshot from their callback; only changed
+ * documents of a server snapshot are billed, cache snapshots count as cache reads.
+ *
+ * install() attributes calls to the started activity. Each screen's session is logged when it stops
+ * and appended to files/firestore_cost.log (trimmed to the newest lines); the per-site totals are
+ * rewritten to files/firestore_cost.txt whenever the app goes to the background. Pull them with
+ * adb run-as to compare builds.
+ */
+public class FirestoreCost {
+
+    private static final String TAG = "FirestoreCost";
+
+    private static final String SESSION_LOG = "firestore_cost.log";
+    private static final String DUMP_FILE = "firestore_cost.txt";
+    private static final long MAX_LOG_BYTES = 64 * 1024;
+    private static final int DOCS_PER_AGGREGATE_READ = 1000;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private static int startedActivities;
+
+    /**
+     * An instrumented call in progress; end() records it under the screen it started on
+     */
+    public static class Call {
+        private final String site;
+        private final String screen;
+        private final long startNanos = System.nanoTime();
+
+        private Call(String site) {
+            this.site = site;
+            this.screen = CostLedger.app().currentScreen();
+        }
+
+        public void end(long reads, long cacheReads, long writes, long bytes) {
+            long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+            CostLedger.app().record(screen, site, reads, cacheReads, writes, bytes, latencyMs);
+        }
+    }
+
+    /**
+     * Called once from the Application
+     */
+    public static void install(Application application) {
+        Context appContext = application.getApplicationContext();
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                synchronized (FirestoreCost.class) {
+                    startedActivities++;
+                }
+                CostLedger.app().beginScreen(activity.getClass().getSimpleName());
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                CostLedger.ScreenSession session = CostLedger.app().endScreen(activity.getClass().getSimpleName());
+                if (session != null && session.total.calls > 0) {
+                    String line = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(new Date())
+                            + " " + session.summary();
+                    AppLog.i(TAG, "💸 {}", line);
+                    writer.execute(() -> append(new File(appContext.getFilesDir(), SESSION_LOG), line));
+                }
+
+                boolean background;
+                synchronized (FirestoreCost.class) {
+                    startedActivities = Math.max(0, startedActivities - 1);
+                    background = startedActivities == 0;
+                }
+                if (background) {
+                    List<String> dump = CostLedger.app().dump();
+                    writer.execute(() -> overwrite(new File(appContext.getFilesDir(), DUMP_FILE), dump));
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    public static Call begin(String site) {
+        return new Call(site);
+    }
+
+    /**
+     * Records a read when the task completes; the task is returned so listeners can be chained
+     */
+    public static <T> Task<T> track(String site, Task<T> task) {
+        Call call = begin(site);
+        task.addOnCompleteListener(done -> {
+            if (!done.isSuccessful()) {
+                call.end(0, 0, 0, 0);
+                return;
+            }
+            Object result = done.getResult();
+            if (result instanceof DocumentSnapshot) {
+                DocumentSnapshot snapshot = (DocumentSnapshot) result;
+                boolean cached = snapshot.getMetadata().isFromCache();
+                call.end(cached ? 0 : 1, cached ? 1 : 0, 0, CostLedger.estimateBytes(snapshot.getData()));
+            } else if (result instanceof QuerySnapshot) {
+                QuerySnapshot snapshot = (QuerySnapshot) result;
+                int docs = Math.max(1, snapshot.size());
+                boolean cached = snapshot.getMetadata().isFromCache();
+                call.end(cached ? 0 : docs, cached ? docs : 0, 0, queryBytes(snapshot));
+            } else if (result instanceof AggregateQuerySnapshot) {
+                long count = ((AggregateQuerySnapshot) result).getCount();
+                call.end(Math.max(1, (count + DOCS_PER_AGGREGATE_READ - 1) / DOCS_PER_AGGREGATE_READ), 0, 0, 0);
+            } else {
+                call.end(0, 0, 0, 0);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Records a write (or batch or transaction of writes) when the task succeeds
+     */
+    public static <T> Task<T> trackWrite(String site, int writes, Task<T> task) {
+        Call call = begin(site);
+        task.addOnCompleteListener(done -> call.end(0, 0, done.isSuccessful() ? writes : 0, 0));
+        return task;
+    }
+
+    /**
+     * For snapshot listeners: call with each snapshot delivered
+     */
+    public static void recordSnapshot(String site, DocumentSnapshot snapshot) {
+        if (snapshot == null) return;
+        boolean cached = snapshot.getMetadata().isFromCache();
+        CostLedger.app().record(CostLedger.app().currentScreen(), site, cached ? 0 : 1, cached ? 1 : 0, 0,
+                CostLedger.estimateBytes(snapshot.getData()), 0);
+    }
+
+    public static void recordSnapshot(String site, QuerySnapshot snapshot) {
+        if (snapshot == null) return;
+        // The first snapshot lists every document as added; later ones only what changed
+        int changed = Math.max(1, snapshot.getDocumentChanges().size());
+        boolean cached = snapshot.getMetadata().isFromCache();
+        CostLedger.app().record(CostLedger.app().currentScreen(), site, cached ? 0 : changed, cached ? changed : 0,
+                0, queryBytes(snapshot), 0);
+    }
+
+    private static long queryBytes(QuerySnapshot snapshot) {
+        long bytes = 0;
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            bytes += CostLedger.estimateBytes(document.getData());
+        }
+        return bytes;
+    }
+
+    private static void overwrite(File file, List<String> lines) {
+        try (FileWriter out = new FileWriter(file, false)) {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            AppLog.w(TAG, "Failed to write Firestore cost dump", e);
+        }
+    }
+
+    private static void append(File file, String line) {
+        try {
+            if (file.length() > MAX_LOG_BYTES) {
+                keepNewestHalf(file);
+            }
+            try (FileWriter out = new FileWriter(file, true)) {
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            AppLog.w(TAG, "Failed to write Firestore cost log", e);
+        }
+    }
+
+    private static void keepNewestHalf(File file) throws IOException {
+        byte[] tail;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long start = in.length() / 2;
+            in.seek(start);
+            in.readLine(); // Skip the partial line
+            tail = new byte[(int) (in.length() - in.getFilePointer())];
+            in.readFully(tail);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            out.write(tail);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+// FixedBucketHistogram.java - Constant-memory histogram with percentile estimates
+package org.smart.attendance_beta.utils;
+
+public class FixedBucketHistogram {
+
+    private final double lowerBound;
+    private final double bucketWidth;
+    private final long[] buckets;
+    private long total = 0;
+
+    public FixedBucketHistogram(double lowerBound, double bucketWidth, int bucketCount) {
+        this.lowerBound = lowerBound;
+        this.bucketWidth = bucketWidth;
+        this.buckets = new long[bucketCount];
+    }
+
+    /**
+     * Record a value; values outside the range are clamped to the edge buckets
+     */
+    public void add(double value) {
+        buckets[bucketIndex(value)]++;
+        total++;
+    }
+
+    /**
+     * Add another histogram with the same layout into this one
+     */
+    public void merge(FixedBucketHistogram other) {
+        if (other == null) return;
+        if (other.buckets.length != buckets.length
+                || other.lowerBound != lowerBound
+                || other.bucketWidth != bucketWidth) {
+            throw new IllegalArgumentException("Histogram layouts do not match");
+        }
+
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] += other.buckets[i];
+        }
+        total += other.total;
+    }
+
+    public int bucketIndex(double value) {
+        int index = (int) Math.floor((value - lowerBound) / bucketWidth);
+        if (index < 0) return 0;
+        if (index >= buckets.length) return buckets.length - 1;
+        return index;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getBucket(int index) {
+        return buckets[index];
+    }
+
+    public int getBucketCount() {
+        return buckets.length;
+    }
+
+    /**
+     * Estimate the value at the given percentile (0-100), interpolating inside the bucket
+     */
+    public double percentile(double percent) {
+        if (total == 0) return 0;
+
+        double rank = Math.max(0, Math.min(100, percent)) / 100.0 * total;
+        long cumulative = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            long count = buckets[i];
+            if (count == 0) continue;
+
+            if (cumulative + count >= rank) {
+                double fraction = (rank - cumulative) / count;
+                return lowerBound + (i + fraction) * bucketWidth;
+            }
+            cumulative += count;
+        }
+
+        return lowerBound + buckets.length * bucketWidth;
+    }
+}
@@ -0,0 +1,389 @@
+// LeaderboardService.java - Monthly lateness and overtime leaderboards per department and office
+package org.smart.attendance_beta.utils;
+
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Totals are exact, one per employee and group. Days before today no longer change, so their
+ * totals are kept in a monthly rollup document with the day they run up to: a rebuild reads the
+ * rollup, then only the records from that day until yesterday, and writes the rollup forward, so
+ * each past record is read about once per month instead of on every dashboard load. Today's
+ * records still change; they come from startLiveUpdates, are kept apart and are added on read.
+ * A past record edited after its day was rolled up (an offline clock-out synced days later) only
+ * shows up once the month is rebuilt from scratch, e.g. by deleting its rollup.
+ */
+public class LeaderboardService {
+
+    private static final String TAG = "LeaderboardService";
+
+    public static final String BOARD_LATENESS = "lateness";
+    public static final String BOARD_OVERTIME = "overtime";
+    public static final String GROUP_ALL = "all";
+    public static final String GROUP_DEPARTMENT = "department";
+    public static final String GROUP_OFFICE = "office";
+
+    public static final double STANDARD_DAY_HOURS = 8.0;
+    public static final int DEFAULT_TOP = 10;
+
+    // leaderboard_rollups/{yyyy-MM}: totals of the month's records dated before settledBefore
+    public static final String ROLLUP_COLLECTION = "leaderboard_rollups";
+    private static final String ROLLUP_SETTLED_BEFORE = "settledBefore";
+    private static final String ROLLUP_LABELS = "labels";
+    private static final String ROLLUP_UPDATED_AT = "updatedAt";
+
+    private static final int PAGE_SIZE = 500;
+
+    public interface LeaderboardCallback {
+        void onLeaderboardReady(LeaderboardService service);
+        void onError(String error);
+    }
+
+    private final FirebaseFirestore db;
+
+    // Records dated before today, from the rollup and the pages read after it
+    private final Map<String, TopKLeaderboard> latenessBoards = new HashMap<>();
+    private final Map<String, TopKLeaderboard> overtimeBoards = new HashMap<>();
+
+    // Today's records, from the live listener
+    private final Map<String, TopKLeaderboard> todayLatenessBoards = new HashMap<>();
+    private final Map<String, TopKLeaderboard> todayOvertimeBoards = new HashMap<>();
+
+    // Today's records already counted, so live updates stay idempotent across snapshots
+    private final Set<String> countedClockIns = new HashSet<>();
+    private final Set<String> countedClockOuts = new HashSet<>();
+
+    private String month;
+    private String today;
+    private ListenerRegistration liveRegistration;
+
+    public LeaderboardService() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    /**
+     * Load this month's totals before today: the rollup, then the records it doesn't cover yet
+     */
+    public void rebuild(LeaderboardCallback callback) {
+        startDay(DateTimeUtils.getCurrentDate());
+        latenessBoards.clear();
+        overtimeBoards.clear();
+
+        String rollupMonth = month;
+        String rollupToday = today;
+        FirestoreCost.track("leaderboard.rollup", rollupRef(rollupMonth).get()).addOnCompleteListener(task -> {
+            String settledBefore = null;
+            if (task.isSuccessful()) {
+                settledBefore = readRollup(task.getResult().getData(), rollupMonth, rollupToday);
+            } else {
+                AppLog.w(TAG, "Leaderboard rollup unavailable, reading the whole month", task.getException());
+            }
+
+            if (rollupToday.equals(settledBefore)) {
+                AppLog.d(TAG, "🏆 Leaderboards loaded from today's rollup");
+                callback.onLeaderboardReady(this);
+                return;
+            }
+
+            Query query = db.collection(AttendanceFields.COLLECTION)
+                    .whereGreaterThanOrEqualTo(AttendanceFields.DATE,
+                            settledBefore != null ? settledBefore : rollupMonth + "-01")
+                    .whereLessThan(AttendanceFields.DATE, rollupToday)
+                    .orderBy(AttendanceFields.DATE)
+                    .limit(PAGE_SIZE);
+            loadPage(query, null, 0, settledBefore, callback);
+        });
+    }
+
+    private void loadPage(Query query, DocumentSnapshot after, int processed, String settledBefore,
+                          LeaderboardCallback callback) {
+        Query page = after != null ? query.startAfter(after) : query;
+
+        FirestoreCost.track("leaderboard.page", page.get()).addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                callback.onError("Failed to build leaderboards: " + task.getException().getMessage());
+                return;
+            }
+
+            List<DocumentSnapshot> documents = task.getResult().getDocuments();
+            for (DocumentSnapshot doc : documents) {
+                apply(doc.getId(), doc.getData());
+            }
+
+            int total = processed + documents.size();
+            if (documents.size() == PAGE_SIZE) {
+                loadPage(query, documents.get(documents.size() - 1), total, settledBefore, callback);
+                return;
+            }
+
+            AppLog.d(TAG, "🏆 Leaderboards loaded, {} records read past the rollup", total);
+            if (!today.equals(settledBefore) && !today.endsWith("-01")) {
+                writeRollup();
+            }
+            callback.onLeaderboardReady(this);
+        });
+    }
+
+    /**
+     * Load a rollup into the boards; returns the day it runs up to, or null if it can't be used
+     */
+    @SuppressWarnings("unchecked")
+    private String readRollup(Map<String, Object> rollup, String rollupMonth, String rollupToday) {
+        if (rollup == null) return null;
+        Object settledBefore = rollup.get(ROLLUP_SETTLED_BEFORE);
+        if (!(settledBefore instanceof String) || !((String) settledBefore).startsWith(rollupMonth)
+                || ((String) settledBefore).compareTo(rollupToday) > 0) {
+            return null;
+        }
+
+        Map<String, Object> labels = rollup.get(ROLLUP_LABELS) instanceof Map
+                ? (Map<String, Object>) rollup.get(ROLLUP_LABELS) : new HashMap<>();
+        readBoards(rollup.get(BOARD_LATENESS), labels, latenessBoards);
+        readBoards(rollup.get(BOARD_OVERTIME), labels, overtimeBoards);
+        return (String) settledBefore;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readBoards(Object stored, Map<String, Object> labels, Map<String, TopKLeaderboard> boards) {
+        if (!(stored instanceof Map)) return;
+
+        for (Map.Entry<String, Object> group : ((Map<String, Object>) stored).entrySet()) {
+            if (!(group.getValue() instanceof Map)) continue;
+            TopKLeaderboard board = boardFor(boards, group.getKey());
+            for (Map.Entry<String, Object> total : ((Map<String, Object>) group.getValue()).entrySet()) {
+                Object label = labels.get(total.getKey());
+                board.add(total.getKey(), label instanceof String ? (String) label : null, asDouble(total.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Save the totals before today; concurrent admins write the same totals, so last write wins
+     */
+    private void writeRollup() {
+        Map<String, Object> labels = new HashMap<>();
+        Map<String, Object> rollup = new HashMap<>();
+        rollup.put(ROLLUP_SETTLED_BEFORE, today);
+        rollup.put(BOARD_LATENESS, encodeBoards(latenessBoards, labels));
+        rollup.put(BOARD_OVERTIME, encodeBoards(overtimeBoards, labels));
+        rollup.put(ROLLUP_LABELS, labels);
+        rollup.put(ROLLUP_UPDATED_AT, FieldValue.serverTimestamp());
+
+        FirestoreCost.trackWrite("leaderboard.rollupWrite", 1, rollupRef(month).set(rollup))
+                .addOnFailureListener(e -> AppLog.w(TAG, "Failed to save leaderboard rollup", e));
+    }
+
+    private static Map<String, Object> encodeBoards(Map<String, TopKLeaderboard> boards, Map<String, Object> labels) {
+        Map<String, Object> encoded = new HashMap<>();
+        for (Map.Entry<String, TopKLeaderboard> group : boards.entrySet()) {
+            Map<String, Object> totals = new HashMap<>();
+            for (TopKLeaderboard.Entry entry : group.getValue().entries()) {
+                totals.put(entry.key, entry.score);
+                if (entry.label != null) labels.put(entry.key, entry.label);
+            }
+            encoded.put(group.getKey(), totals);
+        }
+        return encoded;
+    }
+
+    private DocumentReference rollupRef(String rollupMonth) {
+        return db.collection(ROLLUP_COLLECTION).document(rollupMonth);
+    }
+
+    /**
+     * Point the service at a day; a new day drops the previous one's live totals
+     */
+    private void startDay(String date) {
+        if (date.equals(today)) return;
+        today = date;
+        month = date.substring(0, 7);
+        todayLatenessBoards.clear();
+        todayOvertimeBoards.clear();
+        countedClockIns.clear();
+        countedClockOuts.clear();
+    }
+
+    /**
+     * Keep the boards current by listening to today's clock-ins and clock-outs
+     */
+    public void startLiveUpdates(Runnable onChanged) {
+        stopLiveUpdates();
+        startDay(DateTimeUtils.getCurrentDate());
+
+        liveRegistration = db.collection(AttendanceFields.COLLECTION)
+                .whereEqualTo(AttendanceFields.DATE, today)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null || snapshots == null) {
+                        AppLog.w(TAG, "Leaderboard listener failed", e);
+                        return;
+                    }
+                    FirestoreCost.recordSnapshot("leaderboard.live", snapshots);
+
+                    boolean changed = false;
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        if (change.getType() == DocumentChange.Type.REMOVED) continue;
+
+                        DocumentSnapshot doc = change.getDocument();
+                        changed |= apply(doc.getId(), doc.getData());
+                    }
+
+                    if (changed && onChanged != null) onChanged.run();
+                });
+    }
+
+    public void stopLiveUpdates() {
+        if (liveRegistration != null) {
+            liveRegistration.remove();
+            liveRegistration = null;
+        }
+    }
+
+    /**
+     * Count an attendance record's lateness and, once clocked out, its overtime.
+     * Returns true if any board changed.
+     */
+    public boolean apply(String docId, Map<String, Object> record) {
+        if (record == null || month == null) return false;
+
+        String date = (String) record.get(AttendanceFields.DATE);
+        if (date == null || !date.startsWith(month)) return false;
+
+        // Only today's records can still change; older ones are seen exactly once by rebuild()
+        if (!date.equals(today)) {
+            boolean changed = onClockIn(latenessBoards, record);
+            if (record.get(AttendanceFields.CLOCK_OUT_TIME) != null) {
+                changed |= onClockOut(overtimeBoards, record);
+            }
+            return changed;
+        }
+
+        boolean changed = false;
+        if (countedClockIns.add(docId)) {
+            changed |= onClockIn(todayLatenessBoards, record);
+        }
+        if (record.get(AttendanceFields.CLOCK_OUT_TIME) != null && countedClockOuts.add(docId)) {
+            changed |= onClockOut(todayOvertimeBoards, record);
+        }
+        return changed;
+    }
+
+    /**
+     * Feed the lateMinutes written at clock-in
+     */
+    private static boolean onClockIn(Map<String, TopKLeaderboard> boards, Map<String, Object> record) {
+        double lateMinutes = asDouble(record.get(AttendanceFields.LATE_MINUTES));
+        if (lateMinutes <= 0) return false;
+
+        addToGroups(boards, record, lateMinutes);
+        return true;
+    }
+
+    /**
+     * Feed the totalHours written at clock-out; anything beyond a standard day counts as overtime
+     */
+    private static boolean onClockOut(Map<String, TopKLeaderboard> boards, Map<String, Object> record) {
+        double overtime = asDouble(record.get(AttendanceFields.TOTAL_HOURS)) - STANDARD_DAY_HOURS;
+        if (overtime <= 0) return false;
+
+        addToGroups(boards, record, overtime);
+        return true;
+    }
+
+    private static void addToGroups(Map<String, TopKLeaderboard> boards, Map<String, Object> record, double amount) {
+        String key = (String) record.get(AttendanceFields.EMPLOYEE_DOC_ID);
+        if (key == null) return;
+
+        String label = (String) record.get(AttendanceFields.EMPLOYEE_NAME);
+        if (label == null) label = (String) record.get(AttendanceFields.PF_NUMBER);
+
+        for (String group : groupsFor(record)) {
+            boardFor(boards, group).add(key, label, amount);
+        }
+    }
+
+    private static TopKLeaderboard boardFor(Map<String, TopKLeaderboard> boards, String group) {
+        TopKLeaderboard board = boards.get(group);
+        if (board == null) {
+            board = new TopKLeaderboard();
+            boards.put(group, board);
+        }
+        return board;
+    }
+
+    /**
+     * Group keys a record belongs to: everyone, its department and its office
+     */
+    public static List<String> groupsFor(Map<String, Object> record) {
+        List<String> groups = new ArrayList<>(3);
+        groups.add(GROUP_ALL);
+
+        Object department = record.get(AttendanceFields.DEPARTMENT);
+        if (department instanceof String && !((String) department).isEmpty()) {
+            groups.add(GROUP_DEPARTMENT + ":" + department);
+        }
+
+        Object officeName = record.get(AttendanceFields.OFFICE_NAME);
+        Object officeId = record.get(AttendanceFields.OFFICE_ID);
+        if (officeName instanceof String) {
+            groups.add(GROUP_OFFICE + ":" + officeName);
+        } else if (officeId instanceof String) {
+            groups.add(GROUP_OFFICE + ":" + officeId);
+        }
+        return groups;
+    }
+
+    /**
+     * Exact top k of the month so far, today included
+     */
+    public List<TopKLeaderboard.Entry> top(String board, String group, int k) {
+        TopKLeaderboard settled = boardsFor(board).get(group);
+        TopKLeaderboard live = todayBoardsFor(board).get(group);
+        if (settled == null) settled = new TopKLeaderboard();
+        return settled.top(k, live);
+    }
+
+    /**
+     * Group keys with data on a board, "all" first
+     */
+    public List<String> getGroups(String board) {
+        Set<String> keys = new HashSet<>(boardsFor(board).keySet());
+        keys.addAll(todayBoardsFor(board).keySet());
+        keys.remove(GROUP_ALL);
+        List<String> groups = new ArrayList<>(keys);
+        Collections.sort(groups);
+        groups.add(0, GROUP_ALL);
+        return groups;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    private Map<String, TopKLeaderboard> boardsFor(String board) {
+        return BOARD_OVERTIME.equals(board) ? overtimeBoards : latenessBoards;
+    }
+
+    private Map<String, TopKLeaderboard> todayBoardsFor(String board) {
+        return BOARD_OVERTIME.equals(board) ? todayOvertimeBoards : todayLatenessBoards;
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -0,0 +1,150 @@
+// LiveAttendanceStats.java - Today's attendance counters kept current from snapshot listener deltas
+package org.smart.attendance_beta.utils;
+
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers what each of today's records contributed to the counters, so an added, modified or
+ * removed record is applied by taking its old contribution out and putting the new one in: O(1)
+ * per change, nothing is recomputed. The listener's first snapshot reads today's records once;
+ * after that every change costs one read. LeaderboardService listens to the same query, and the
+ * SDK serves both listeners from one watch target.
+ */
+public class LiveAttendanceStats {
+
+    private static final String TAG = "LiveAttendanceStats";
+
+    private static class Contribution {
+        final boolean late;
+        final boolean earlyOut;
+        final double hours; // 0 until clocked out
+
+        Contribution(boolean late, boolean earlyOut, double hours) {
+            this.late = late;
+            this.earlyOut = earlyOut;
+            this.hours = hours;
+        }
+    }
+
+    private final Map<String, Contribution> records = new HashMap<>();
+    private long late;
+    private long earlyOut;
+    private long completed;
+    private double hoursSum;
+
+    private ListenerRegistration registration;
+
+    /**
+     * Listen to a day's attendance; onChanged runs on the main thread after each snapshot that moved a counter
+     */
+    public void start(FirebaseFirestore db, String date, Runnable onChanged) {
+        stop();
+        registration = db.collection(AttendanceFields.COLLECTION)
+                .whereEqualTo(AttendanceFields.DATE, date)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null || snapshots == null) {
+                        AppLog.w(TAG, "Live stats listener failed", e);
+                        return;
+                    }
+                    FirestoreCost.recordSnapshot("liveStats.today", snapshots);
+
+                    boolean changed = false;
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        String id = change.getDocument().getId();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            changed |= remove(id);
+                        } else {
+                            changed |= put(id, change.getDocument().getData());
+                        }
+                    }
+
+                    if (changed) onChanged.run();
+                });
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    public boolean isLive() {
+        return registration != null;
+    }
+
+    /**
+     * Apply an added or modified record. Returns true if any counter changed.
+     */
+    public synchronized boolean put(String id, Map<String, Object> record) {
+        Object hours = record.get(AttendanceFields.TOTAL_HOURS);
+        Contribution next = new Contribution(
+                Boolean.TRUE.equals(record.get(AttendanceFields.IS_LATE)),
+                Boolean.TRUE.equals(record.get(AttendanceFields.IS_EARLY_CLOCK_OUT)),
+                hours instanceof Number ? ((Number) hours).doubleValue() : 0);
+
+        Contribution previous = records.put(id, next);
+        if (previous != null && previous.late == next.late && previous.earlyOut == next.earlyOut
+                && previous.hours == next.hours) {
+            return false; // A heartbeat or other field we don't count
+        }
+
+        if (previous != null) subtract(previous);
+        add(next);
+        return true;
+    }
+
+    /**
+     * Apply a removed record. Returns true if it had been counted.
+     */
+    public synchronized boolean remove(String id) {
+        Contribution previous = records.remove(id);
+        if (previous == null) return false;
+
+        subtract(previous);
+        return true;
+    }
+
+    public synchronized void clear() {
+        records.clear();
+        late = 0;
+        earlyOut = 0;
+        completed = 0;
+        hoursSum = 0;
+    }
+
+    /**
+     * Current figures; headcount isn't derived from attendance so the caller supplies it
+     */
+    public synchronized AdminStatsService.DashboardStats snapshot(long totalEmployees) {
+        return new AdminStatsService.DashboardStats(totalEmployees, records.size(), late, earlyOut,
+                completed, completed > 0 ? hoursSum / completed : 0.0);
+    }
+
+    private void add(Contribution contribution) {
+        if (contribution.late) late++;
+        if (contribution.earlyOut) earlyOut++;
+        if (contribution.hours > 0) {
+            completed++;
+            hoursSum += contribution.hours;
+        }
+    }
+
+    private void subtract(Contribution contribution) {
+        if (contribution.late) late--;
+        if (contribution.earlyOut) earlyOut--;
+        if (contribution.hours > 0) {
+            completed--;
+            // Reset at zero so rounding from earlier adds and subtracts can't accumulate
+            hoursSum = completed > 0 ? hoursSum - contribution.hours : 0;
+        }
+    }
+}
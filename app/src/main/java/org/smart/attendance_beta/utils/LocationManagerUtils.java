@@ -7,7 +7,6 @@ import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Bundle;
-import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 
@@ -48,7 +47,7 @@ public class LocationManagerUtils {
         locationListener = new LocationListener() {
             @Override
             public void onLocationChanged(Location location) {
-                Log.d(TAG, "Location updated: " + location.getLatitude() + ", " + location.getLongitude());
+                AppLog.d(TAG, "Location updated: {}, {}", location.getLatitude(), location.getLongitude());
 
                 // Check if location is within work area
                 boolean isWithinWorkArea = isLocationWithinWorkArea(location);
@@ -61,17 +60,17 @@ public class LocationManagerUtils {
 
             @Override
             public void onStatusChanged(String provider, int status, Bundle extras) {
-                Log.d(TAG, "Location provider status changed: " + provider + " status: " + status);
+                AppLog.d(TAG, "Location provider status changed: {} status: {}", provider, status);
             }
 
             @Override
             public void onProviderEnabled(String provider) {
-                Log.d(TAG, "Location provider enabled: " + provider);
+                AppLog.d(TAG, "Location provider enabled: {}", provider);
             }
 
             @Override
             public void onProviderDisabled(String provider) {
-                Log.w(TAG, "Location provider disabled: " + provider);
+                AppLog.w(TAG, "Location provider disabled: {}", provider);
                 if (callback != null) {
                     callback.onLocationError("GPS is disabled. Please enable location services.");
                 }
@@ -107,7 +106,7 @@ public class LocationManagerUtils {
                         MIN_DISTANCE_CHANGE,
                         locationListener
                 );
-                Log.d(TAG, "GPS location updates started");
+                AppLog.d(TAG, "GPS location updates started");
             }
 
             // Also use network provider as backup
@@ -118,7 +117,7 @@ public class LocationManagerUtils {
                         MIN_DISTANCE_CHANGE,
                         locationListener
                 );
-                Log.d(TAG, "Network location updates started");
+                AppLog.d(TAG, "Network location updates started");
             }
 
             isLocationUpdatesActive = true;
@@ -127,7 +126,7 @@ public class LocationManagerUtils {
             getLastKnownLocation();
 
         } catch (SecurityException e) {
-            Log.e(TAG, "Location permission denied", e);
+            AppLog.e(TAG, "Location permission denied", e);
             if (callback != null) {
                 callback.onLocationError("Location permission denied");
             }
@@ -143,9 +142,9 @@ public class LocationManagerUtils {
             try {
                 locationManager.removeUpdates(locationListener);
                 isLocationUpdatesActive = false;
-                Log.d(TAG, "Location updates stopped");
+                AppLog.d(TAG, "Location updates stopped");
             } catch (SecurityException e) {
-                Log.e(TAG, "Error stopping location updates", e);
+                AppLog.e(TAG, "Error stopping location updates", e);
             }
         }
     }
@@ -181,20 +180,20 @@ public class LocationManagerUtils {
             }
 
             if (lastLocation != null) {
-                Log.d(TAG, "Last known location: " + lastLocation.getLatitude() + ", " + lastLocation.getLongitude());
+                AppLog.d(TAG, "Last known location: {}, {}", lastLocation.getLatitude(), lastLocation.getLongitude());
                 boolean isWithinWorkArea = isLocationWithinWorkArea(lastLocation);
                 if (callback != null) {
                     callback.onLocationUpdated(lastLocation, isWithinWorkArea);
                 }
             } else {
-                Log.d(TAG, "No last known location available");
+                AppLog.d(TAG, "No last known location available");
                 if (callback != null) {
                     callback.onLocationError("No location data available. Please wait for GPS fix.");
                 }
             }
 
         } catch (SecurityException e) {
-            Log.e(TAG, "Permission denied for last known location", e);
+            AppLog.e(TAG, "Permission denied for last known location", e);
             if (callback != null) {
                 callback.onLocationError("Location permission denied");
             }
@@ -215,7 +214,7 @@ public class LocationManagerUtils {
         // Calculate distance
         float distance = location.distanceTo(workLocation);
 
-        Log.d(TAG, "Distance to work: " + distance + " meters (allowed: " + WORK_RADIUS_METERS + ")");
+        AppLog.d(TAG, "Distance to work: {} meters (allowed: {})", distance, WORK_RADIUS_METERS);
 
         return distance <= WORK_RADIUS_METERS;
     }
@@ -234,7 +233,7 @@ public class LocationManagerUtils {
     public static void updateWorkLocation(double latitude, double longitude, float radiusMeters) {
         // You can implement this to make work location configurable
         // For now, you'll need to update the constants above
-        Log.d(TAG, "Work location updated to: " + latitude + ", " + longitude + " (radius: " + radiusMeters + "m)");
+        AppLog.d(TAG, "Work location updated to: {}, {} (radius: {}m)", latitude, longitude, radiusMeters);
     }
 
     /**
@@ -0,0 +1,280 @@
+// LoginOrchestrator.java - PF number login with the independent round trips run concurrently
+package org.smart.attendance_beta.utils;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.smart.attendance_beta.data.DocumentReads;
+
+/**
+ * The login used to run PF lookup, session check and sign-in one after another. Here:
+ * - the session check starts as soon as the employee document ID is known: immediately when
+ *   PfIndex remembers it from an earlier lookup, otherwise once the PF number resolves
+ * - sign-in starts as soon as the email is known, alongside the session check
+ * - the employee document from the lookup is handed to the caller, so nothing is read again
+ *   before the redirect, and the dashboard's own reads find it and today's record in the cache
+ *
+ * The first failure (unknown PF number, wrong password, device conflict) wins and later results are
+ * ignored; a sign-in that succeeds after the flow has failed or been cancelled is signed out again.
+ * Per-stage and total timings are logged when the flow ends. Main thread only.
+ */
+public class LoginOrchestrator {
+
+    private static final String TAG = "LoginOrchestrator";
+
+    private static final String STAGE_RESOLVE = "resolve";
+    private static final String STAGE_SESSION = "session";
+    private static final String STAGE_AUTH = "auth";
+
+    public interface LoginCallback {
+        /**
+         * Signed in; sessionVerified is false when the device session couldn't be checked
+         */
+        void onLoggedIn(DocumentSnapshot employeeDoc, boolean sessionVerified);
+        void onDeviceConflict(DocumentSnapshot activeSession, DocumentSnapshot employeeDoc);
+        void onError(String error);
+    }
+
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private final String deviceId;
+    private final StageTimer timer = new StageTimer();
+
+    // The same stages as a trace, so overlapping round trips show up side by side
+    private Tracer.Span trace;
+    private Tracer.Span sessionSpan;
+
+    private LoginCallback callback;
+    private int generation; // Bumped per start() so results from an abandoned flow are recognised
+    private boolean finished = true;
+    private boolean loggedIn;
+
+    private DocumentSnapshot employeeDoc;
+
+    private String sessionEmployeeDocId;
+    private Task<DocumentSnapshot> sessionTask;
+    private boolean sessionDone;
+    private boolean sessionVerified;
+    private DocumentSnapshot conflictingSession;
+
+    private boolean authStarted;
+    private boolean authDone;
+    private boolean authOk;
+    private String authError;
+
+    public LoginOrchestrator(FirebaseFirestore db, FirebaseAuth auth, String deviceId) {
+        this.db = db;
+        this.auth = auth;
+        this.deviceId = deviceId;
+    }
+
+    /**
+     * Start a login; a login still in flight is cancelled first
+     */
+    public void start(String pfNumber, String password, LoginCallback callback) {
+        cancel();
+        reset(callback);
+        int flow = ++generation;
+        timer.start(SystemClock.elapsedRealtime());
+        trace = Tracer.app().begin("login");
+
+        String cachedEmployeeDocId = PfIndex.peek(pfNumber);
+        if (cachedEmployeeDocId != null) {
+            startSessionCheck(cachedEmployeeDocId);
+        }
+
+        timer.begin(STAGE_RESOLVE, SystemClock.elapsedRealtime());
+        Tracer.Span resolve = Tracer.app().begin(STAGE_RESOLVE, trace);
+        PfIndex.resolve(db, pfNumber, new PfIndex.ResolveCallback() {
+            @Override
+            public void onResolved(DocumentSnapshot employee) {
+                if (flow != generation) return;
+                timer.end(STAGE_RESOLVE, SystemClock.elapsedRealtime());
+                resolve.end();
+                if (finished) return;
+
+                String email = employee.getString("email");
+                if (email == null) {
+                    fail("Employee email not found. Please contact admin.");
+                    return;
+                }
+
+                employeeDoc = employee;
+                if (!employee.getId().equals(sessionEmployeeDocId)) {
+                    startSessionCheck(employee.getId()); // No cached ID, or it was stale
+                }
+                startAuth(email, password);
+                maybeFinish();
+            }
+
+            @Override
+            public void onNotFound() {
+                if (flow != generation) return;
+                timer.end(STAGE_RESOLVE, SystemClock.elapsedRealtime());
+                resolve.end();
+                fail("PF Number not found. Please check your PF Number or register first.");
+            }
+
+            @Override
+            public void onError(String error) {
+                if (flow != generation) return;
+                timer.end(STAGE_RESOLVE, SystemClock.elapsedRealtime());
+                resolve.end();
+                fail("Error connecting to database: " + error);
+            }
+        });
+    }
+
+    /**
+     * Drop the flow in progress (e.g. the activity is going away); no callback follows
+     */
+    public void cancel() {
+        if (finished) return;
+        AppLog.d(TAG, "Login cancelled after {}", timer.summary());
+        trace.arg("outcome", "cancelled").end();
+        finish();
+    }
+
+    public boolean isRunning() {
+        return !finished;
+    }
+
+    private void reset(LoginCallback callback) {
+        this.callback = callback;
+        finished = false;
+        loggedIn = false;
+        employeeDoc = null;
+        sessionEmployeeDocId = null;
+        sessionTask = null;
+        sessionDone = false;
+        sessionVerified = false;
+        conflictingSession = null;
+        sessionSpan = null;
+        authStarted = false;
+        authDone = false;
+        authOk = false;
+        authError = null;
+    }
+
+    private void startSessionCheck(String employeeDocId) {
+        sessionEmployeeDocId = employeeDocId;
+        sessionDone = false;
+        sessionVerified = false;
+        conflictingSession = null;
+        timer.begin(STAGE_SESSION, SystemClock.elapsedRealtime());
+        if (sessionSpan != null) sessionSpan.arg("superseded", true).end();
+        Tracer.Span sessionStage = Tracer.app().begin(STAGE_SESSION, trace);
+        sessionSpan = sessionStage;
+
+        Task<DocumentSnapshot> task = DocumentReads.get(AttendanceIds.todayRef(db, employeeDocId));
+        sessionTask = task;
+        task.addOnCompleteListener(result -> {
+            if (task != sessionTask || finished) return; // Superseded by a check for the resolved ID
+            timer.end(STAGE_SESSION, SystemClock.elapsedRealtime());
+            sessionStage.arg("verified", result.isSuccessful()).end();
+            sessionDone = true;
+
+            if (result.isSuccessful()) {
+                sessionVerified = true;
+                DocumentSnapshot session = result.getResult();
+                if (AttendanceIds.isActiveSession(session) && !deviceId.equals(session.getString("deviceId"))) {
+                    conflictingSession = session;
+                }
+            } else {
+                // Same as before: an unverifiable session doesn't block login
+                AppLog.w(TAG, "Could not verify device session", result.getException());
+            }
+            maybeFinish();
+        });
+    }
+
+    private void startAuth(String email, String password) {
+        if (authStarted) return;
+        authStarted = true;
+        int flow = generation;
+        timer.begin(STAGE_AUTH, SystemClock.elapsedRealtime());
+        Tracer.Span authStage = Tracer.app().begin(STAGE_AUTH, trace);
+
+        auth.signInWithEmailAndPassword(email, password).addOnCompleteListener(task -> {
+            boolean ok = task.isSuccessful() && auth.getCurrentUser() != null;
+            if (flow != generation || finished) {
+                // The flow failed or was cancelled while this was in flight; don't stay signed in
+                // unless a newer flow has since logged in or is still signing in itself
+                if (ok && finished && !loggedIn) auth.signOut();
+                return;
+            }
+
+            timer.end(STAGE_AUTH, SystemClock.elapsedRealtime());
+            authStage.arg("ok", ok).end();
+            authDone = true;
+            authOk = ok;
+            if (!authOk) authError = authErrorMessage(task.getException());
+            maybeFinish();
+        });
+    }
+
+    /**
+     * Settle the flow once enough results are in: auth failure first, then conflict, then success
+     */
+    private void maybeFinish() {
+        if (finished) return;
+
+        if (authDone && !authOk) {
+            fail(authError);
+            return;
+        }
+        if (employeeDoc == null || !sessionDone) return;
+
+        if (conflictingSession != null) {
+            DocumentSnapshot session = conflictingSession;
+            DocumentSnapshot employee = employeeDoc;
+            LoginCallback cb = callback;
+            if (authDone && authOk) auth.signOut();
+            AppLog.d(TAG, "⏱️ Login stopped by device conflict: {}", timer.summary());
+            trace.arg("outcome", "device conflict").end();
+            finish();
+            cb.onDeviceConflict(session, employee);
+            return;
+        }
+        if (!authDone) return;
+
+        DocumentSnapshot employee = employeeDoc;
+        boolean verified = sessionVerified;
+        LoginCallback cb = callback;
+        loggedIn = true;
+        AppLog.d(TAG, "⏱️ Login complete: {}", timer.summary());
+        trace.arg("outcome", "logged in").end();
+        finish();
+        cb.onLoggedIn(employee, verified);
+    }
+
+    private void fail(String error) {
+        if (finished) return;
+        LoginCallback cb = callback;
+        if (authDone && authOk) auth.signOut();
+        AppLog.d(TAG, "⏱️ Login failed: {}", timer.summary());
+        trace.arg("outcome", "failed").end();
+        finish();
+        cb.onError(error);
+    }
+
+    private void finish() {
+        finished = true;
+        sessionTask = null;
+        callback = null;
+    }
+
+    private static String authErrorMessage(Exception e) {
+        String exception = e != null ? e.getMessage() : null;
+        if (exception != null && exception.contains("password")) {
+            return "Incorrect password. Please try again.";
+        } else if (exception != null && exception.contains("user-not-found")) {
+            return "Account not activated. Please register first.";
+        }
+        return "Login failed. Please check your password.";
+    }
+}
@@ -9,6 +9,8 @@ public class OfficeLocation {
     public double latitude;
     public double longitude;
     public int radius;
+    public String startTime; // "HH:mm", null when the office has no hours set
+    public String endTime;
 
     public OfficeLocation() {
         // Default constructor
@@ -0,0 +1,143 @@
+// PfIndex.java - Resolves a PF number to its employee through pf_index/{PFNUMBER} point reads
+package org.smart.attendance_beta.utils;
+
+import android.util.LruCache;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.smart.attendance_beta.data.EmployeeFields;
+
+import java.util.Locale;
+
+/**
+ * pf_index/{PFNUMBER} holds the employee document ID for a PF number, written alongside the
+ * employee by epmloyees_entry.py (build_pf_index.py builds it for existing employees). The app
+ * only reads it: a signed-out client must not be able to point a PF number at another employee. A resolution costs
+ * one point read on the index and one on the employee; recent resolutions are kept in an LRU so
+ * the same PF number later in a flow (login re-reading a PF number that was just registered) costs
+ * only the employee read.
+ *
+ * The employee's own pfNumber is always checked, so a stale index entry or cache hit is dropped
+ * and resolved again. PF numbers missing from the index fall back to the old pfNumber query until
+ * build_pf_index.py is run again.
+ */
+public class PfIndex {
+
+    private static final String TAG = "PfIndex";
+
+    public static final String COLLECTION = "pf_index";
+    public static final String EMPLOYEE_DOC_ID = "employeeDocId";
+
+    private static final int CACHE_SIZE = 32;
+
+    // PF number -> employee document ID
+    private static final LruCache<String, String> recent = new LruCache<>(CACHE_SIZE);
+
+    public interface ResolveCallback {
+        void onResolved(DocumentSnapshot employeeDoc);
+        void onNotFound();
+        void onError(String error);
+    }
+
+    /**
+     * Index key for a PF number as typed: trimmed and upper case, like the stored pfNumber
+     */
+    public static String normalize(String pfNumber) {
+        return pfNumber == null ? "" : pfNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public static DocumentReference ref(FirebaseFirestore db, String pfNumber) {
+        return db.collection(COLLECTION).document(normalize(pfNumber));
+    }
+
+    public static void remember(String pfNumber, String employeeDocId) {
+        recent.put(normalize(pfNumber), employeeDocId);
+    }
+
+    /**
+     * Employee document ID from a recent resolution, or null; unverified until resolve() confirms it
+     */
+    public static String peek(String pfNumber) {
+        return recent.get(normalize(pfNumber));
+    }
+
+    public static void forget(String pfNumber) {
+        recent.remove(normalize(pfNumber));
+    }
+
+    /**
+     * Find the employee for a PF number: cached ID, then the index, then the legacy query
+     */
+    public static void resolve(FirebaseFirestore db, String pfNumber, ResolveCallback callback) {
+        String key = normalize(pfNumber);
+        if (key.isEmpty()) {
+            callback.onNotFound();
+            return;
+        }
+
+        String cachedId = recent.get(key);
+        if (cachedId != null) {
+            readEmployee(db, key, cachedId, callback, () -> {
+                forget(key);
+                resolveFromIndex(db, key, callback);
+            });
+        } else {
+            resolveFromIndex(db, key, callback);
+        }
+    }
+
+    private static void resolveFromIndex(FirebaseFirestore db, String key, ResolveCallback callback) {
+        FirestoreCost.track("pfIndex.entry", ref(db, key).get())
+                .addOnSuccessListener(entry -> {
+                    String employeeDocId = entry.getString(EMPLOYEE_DOC_ID);
+                    if (employeeDocId == null) {
+                        resolveByQuery(db, key, callback);
+                        return;
+                    }
+                    readEmployee(db, key, employeeDocId, callback, () -> {
+                        AppLog.w(TAG, "Index entry for {} is stale, falling back to query", key);
+                        resolveByQuery(db, key, callback);
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    // Index unreadable (offline with an empty cache, or rules not deployed yet)
+                    AppLog.w(TAG, "Index lookup failed for {}, falling back to query", key, e);
+                    resolveByQuery(db, key, callback);
+                });
+    }
+
+    private static void readEmployee(FirebaseFirestore db, String key, String employeeDocId,
+                                     ResolveCallback callback, Runnable onMismatch) {
+        FirestoreCost.track("pfIndex.employee", db.collection(EmployeeFields.COLLECTION).document(employeeDocId).get())
+                .addOnSuccessListener(employeeDoc -> {
+                    if (!employeeDoc.exists() || !key.equals(employeeDoc.getString(EmployeeFields.PF_NUMBER))) {
+                        onMismatch.run();
+                        return;
+                    }
+                    remember(key, employeeDocId);
+                    callback.onResolved(employeeDoc);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    private static void resolveByQuery(FirebaseFirestore db, String key, ResolveCallback callback) {
+        FirestoreCost.track("pfIndex.query", db.collection(EmployeeFields.COLLECTION)
+                .whereEqualTo(EmployeeFields.PF_NUMBER, key)
+                .limit(1)
+                .get())
+                .addOnSuccessListener(result -> {
+                    if (result.isEmpty()) {
+                        callback.onNotFound();
+                        return;
+                    }
+
+                    DocumentSnapshot employeeDoc = result.getDocuments().get(0);
+                    remember(key, employeeDoc.getId());
+                    AppLog.d(TAG, "PF {} is not indexed yet", key);
+                    callback.onResolved(employeeDoc);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+}
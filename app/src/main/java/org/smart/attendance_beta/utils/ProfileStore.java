@@ -0,0 +1,347 @@
+// ProfileStore.java - The signed-in user's employee and users documents, shared by every screen
+package org.smart.attendance_beta.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.smart.attendance_beta.data.EmployeeCodec;
+import org.smart.attendance_beta.data.EmployeeFields;
+import org.smart.attendance_beta.data.UserFields;
+import org.smart.attendance_beta.models.Employee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Screens ask the store instead of reading employees/{id} or users/{uid} themselves. Each document
+ * gets one snapshot listener for the life of the process, started the first time it is asked for,
+ * which keeps the in-memory copy current and tells observers when a field changes. The last copy is
+ * also kept in attendance_prefs, so a cold start has the profile before the first read returns.
+ *
+ * Only string, boolean and number fields are persisted; timestamps are dropped on disk (no screen
+ * reads them from here). Main thread only; call clear() on logout.
+ */
+public class ProfileStore {
+
+    private static final String TAG = "ProfileStore";
+
+    private static final String PREFS = "attendance_prefs";
+    private static final String KEY_UID = "profile_uid";
+    private static final String KEY_EMPLOYEE = "profile_employee";
+    private static final String KEY_USER = "profile_user";
+    private static final String JSON_ID = "_id";
+
+    private static ProfileStore instance;
+
+    /**
+     * Read-only copy of a profile document, with the same getters screens used on DocumentSnapshot
+     */
+    public static class Profile {
+        private final String id;
+        private final Map<String, Object> data;
+
+        Profile(String id, Map<String, Object> data) {
+            this.id = id;
+            this.data = Collections.unmodifiableMap(new HashMap<>(data));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getString(String field) {
+            Object value = data.get(field);
+            return value instanceof String ? (String) value : null;
+        }
+
+        public Boolean getBoolean(String field) {
+            Object value = data.get(field);
+            return value instanceof Boolean ? (Boolean) value : null;
+        }
+
+        public Employee toEmployee() {
+            return EmployeeCodec.INSTANCE.decode(id, data);
+        }
+    }
+
+    public interface Observer {
+        void onProfileChanged();
+    }
+
+    public interface ProfileCallback {
+        void onProfileLoaded(Profile profile);
+        void onNotFound();
+        void onError(String error);
+    }
+
+    /**
+     * One document kept current by a snapshot listener
+     */
+    private class Entry {
+        final String prefsKey;
+        String docId;
+        Profile profile;
+        ListenerRegistration registration;
+        final List<ProfileCallback> waiting = new ArrayList<>();
+
+        Entry(String prefsKey) {
+            this.prefsKey = prefsKey;
+        }
+
+        void get(DocumentReference ref, ProfileCallback callback) {
+            if (!ref.getId().equals(docId)) {
+                stop();
+                docId = ref.getId();
+                profile = null;
+            }
+            if (profile != null) {
+                callback.onProfileLoaded(profile);
+            } else {
+                waiting.add(callback);
+            }
+            if (registration == null) {
+                registration = ref.addSnapshotListener((snapshot, e) -> onSnapshot(snapshot, e));
+            }
+        }
+
+        void onSnapshot(DocumentSnapshot snapshot, Exception e) {
+            if (e != null || snapshot == null) {
+                AppLog.w(TAG, "Profile listener failed for {}", docId, e);
+                stop(); // Dead after an error; the next get() listens again
+                String error = e != null ? e.getMessage() : "unknown error";
+                for (ProfileCallback callback : drainWaiting()) callback.onError(error);
+                return;
+            }
+            FirestoreCost.recordSnapshot("profileStore." + prefsKey, snapshot);
+
+            if (!snapshot.exists()) {
+                // The cache may not have it yet; only the server can say it's really gone
+                if (snapshot.getMetadata().isFromCache()) return;
+                boolean had = profile != null;
+                profile = null;
+                persist(prefsKey, null);
+                for (ProfileCallback callback : drainWaiting()) callback.onNotFound();
+                if (had) notifyObservers();
+                return;
+            }
+
+            Map<String, Object> data = snapshot.getData();
+            Profile next = new Profile(snapshot.getId(), data != null ? data : new HashMap<>());
+            boolean changed = profile == null || !profile.data.equals(next.data);
+            profile = next;
+            if (changed) persist(prefsKey, next);
+            for (ProfileCallback callback : drainWaiting()) callback.onProfileLoaded(next);
+            if (changed) notifyObservers();
+        }
+
+        void remember(Profile next) {
+            if (!next.getId().equals(docId)) {
+                stop();
+                docId = next.getId();
+            }
+            profile = next;
+            persist(prefsKey, next);
+        }
+
+        List<ProfileCallback> drainWaiting() {
+            List<ProfileCallback> callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+            return callbacks;
+        }
+
+        void stop() {
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+            }
+        }
+
+        void reset() {
+            stop();
+            docId = null;
+            profile = null;
+            waiting.clear();
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final FirebaseFirestore db;
+    private final Entry employee = new Entry(KEY_EMPLOYEE);
+    private final Entry user = new Entry(KEY_USER);
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public static synchronized ProfileStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ProfileStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        db = FirebaseFirestore.getInstance();
+
+        // Start from the persisted copy if it belongs to whoever is signed in now
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser != null && currentUser.getUid().equals(prefs.getString(KEY_UID, null))) {
+            restore(employee);
+            restore(user);
+        }
+    }
+
+    /**
+     * The employee document; answered from memory when it's already held
+     */
+    public void getEmployee(String employeeDocId, ProfileCallback callback) {
+        if (employeeDocId == null || employeeDocId.isEmpty()) {
+            callback.onNotFound();
+            return;
+        }
+        employee.get(db.collection(EmployeeFields.COLLECTION).document(employeeDocId), callback);
+    }
+
+    /**
+     * The employee document with this email, for sign-ins that don't know their employee ID yet.
+     * Costs one query; once found, the document is held and listened to like getEmployee.
+     */
+    public void findEmployeeByEmail(String email, ProfileCallback callback) {
+        Profile held = employee.profile;
+        if (held != null && email.equals(held.getString(EmployeeFields.EMAIL))) {
+            getEmployee(held.getId(), callback);
+            return;
+        }
+
+        FirestoreCost.track("profileStore.employeeByEmail", db.collection(EmployeeFields.COLLECTION)
+                .whereEqualTo(EmployeeFields.EMAIL, email)
+                .limit(1)
+                .get())
+                .addOnSuccessListener(query -> {
+                    if (query.isEmpty()) {
+                        callback.onNotFound();
+                        return;
+                    }
+                    DocumentSnapshot employeeDoc = query.getDocuments().get(0);
+                    rememberEmployee(employeeDoc);
+                    getEmployee(employeeDoc.getId(), callback);
+                })
+                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+    }
+
+    /**
+     * The users/{uid} document (admins); answered from memory when it's already held
+     */
+    public void getUser(String uid, ProfileCallback callback) {
+        if (uid == null) {
+            callback.onNotFound();
+            return;
+        }
+        user.get(db.collection(UserFields.COLLECTION).document(uid), callback);
+    }
+
+    /**
+     * Held employee profile, or null; doesn't start a read
+     */
+    public Profile peekEmployee() {
+        return employee.profile;
+    }
+
+    public Profile peekUser() {
+        return user.profile;
+    }
+
+    /**
+     * Seed the store with an employee document a screen has just read some other way (e.g. a lookup by PF or email)
+     */
+    public void rememberEmployee(DocumentSnapshot employeeDoc) {
+        if (employeeDoc == null || !employeeDoc.exists() || employeeDoc.getData() == null) return;
+        employee.remember(new Profile(employeeDoc.getId(), employeeDoc.getData()));
+    }
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Forget everything on logout: listeners, memory and the persisted copy
+     */
+    public void clear() {
+        employee.reset();
+        user.reset();
+        prefs.edit()
+                .remove(KEY_UID)
+                .remove(KEY_EMPLOYEE)
+                .remove(KEY_USER)
+                .apply();
+    }
+
+    private void notifyObservers() {
+        for (Observer observer : observers) {
+            observer.onProfileChanged();
+        }
+    }
+
+    private void persist(String key, Profile profile) {
+        SharedPreferences.Editor editor = prefs.edit();
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser != null) editor.putString(KEY_UID, currentUser.getUid());
+
+        if (profile == null) {
+            editor.remove(key);
+        } else {
+            try {
+                JSONObject json = new JSONObject();
+                json.put(JSON_ID, profile.id);
+                for (Map.Entry<String, Object> field : profile.data.entrySet()) {
+                    Object value = field.getValue();
+                    if (value instanceof String || value instanceof Boolean || value instanceof Number) {
+                        json.put(field.getKey(), value);
+                    }
+                }
+                editor.putString(key, json.toString());
+            } catch (JSONException e) {
+                AppLog.w(TAG, "Could not persist profile", e);
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    private void restore(Entry entry) {
+        String stored = prefs.getString(entry.prefsKey, null);
+        if (stored == null) return;
+
+        try {
+            JSONObject json = new JSONObject(stored);
+            Map<String, Object> data = new HashMap<>();
+            for (Iterator<String> keys = json.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                if (JSON_ID.equals(key)) continue;
+                Object value = json.get(key);
+                // JSON gives back Integer where Firestore has Long
+                data.put(key, value instanceof Integer ? Long.valueOf((Integer) value) : value);
+            }
+            entry.docId = json.getString(JSON_ID);
+            entry.profile = new Profile(entry.docId, data);
+        } catch (JSONException e) {
+            AppLog.w(TAG, "Ignoring unreadable stored profile", e);
+        }
+    }
+}
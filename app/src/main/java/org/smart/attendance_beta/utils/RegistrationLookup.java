@@ -0,0 +1,218 @@
+// RegistrationLookup.java - Debounced, cached PF number lookups for the registration screen
+package org.smart.attendance_beta.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * The PF field asks for a lookup on every edit and on focus loss; only the last key typed before a
+ * pause of debounceMs is read, and a new key mutes whatever earlier lookup is still running, so a
+ * slow answer for an old PF number never overwrites the current one. A read can't be aborted once
+ * sent, so a muted lookup still completes and fills the cache.
+ *
+ * Results are kept per key: employees found for FOUND_TTL_MS, and unknown PF numbers for the
+ * shorter NOT_FOUND_TTL_MS since HR may be adding them right now. Errors aren't kept. resolve()
+ * answers the submit step from the cache or the lookup in flight, so the snapshot the screen showed
+ * is the one registration uses and the whole flow costs one read.
+ *
+ * Main thread only, like the views it serves; the Scheduler is a Handler in the activity.
+ */
+public class RegistrationLookup<V> {
+
+    public static final long DEBOUNCE_MS = 400;
+    public static final long FOUND_TTL_MS = 5 * 60 * 1000;
+    public static final long NOT_FOUND_TTL_MS = 30 * 1000;
+
+    public interface Callback<V> {
+        void onResolved(V value);
+        void onNotFound();
+        void onError(String error);
+    }
+
+    /**
+     * Reads the key from the source and reports back through done exactly once
+     */
+    public interface Loader<V> {
+        void load(String key, Callback<V> done);
+    }
+
+    /**
+     * Runs task after delayMs; the returned Runnable cancels it if it hasn't run yet
+     */
+    public interface Scheduler {
+        Runnable schedule(Runnable task, long delayMs);
+    }
+
+    private static class Entry<V> {
+        final V value; // null for a key that wasn't found
+        final long expiresAtMs;
+
+        Entry(V value, long expiresAtMs) {
+            this.value = value;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private final Loader<V> loader;
+    private final Scheduler scheduler;
+    private final LongSupplier clockMs;
+    private final long debounceMs;
+    private final long foundTtlMs;
+    private final long notFoundTtlMs;
+
+    private final Map<String, Entry<V>> cache = new HashMap<>();
+    private final Map<String, List<Callback<V>>> inFlight = new HashMap<>();
+    private Runnable cancelPending;
+    private long generation;
+    private long loads;
+
+    public RegistrationLookup(Loader<V> loader, Scheduler scheduler, LongSupplier clockMs) {
+        this(loader, scheduler, clockMs, DEBOUNCE_MS, FOUND_TTL_MS, NOT_FOUND_TTL_MS);
+    }
+
+    public RegistrationLookup(Loader<V> loader, Scheduler scheduler, LongSupplier clockMs,
+                              long debounceMs, long foundTtlMs, long notFoundTtlMs) {
+        this.loader = loader;
+        this.scheduler = scheduler;
+        this.clockMs = clockMs;
+        this.debounceMs = debounceMs;
+        this.foundTtlMs = foundTtlMs;
+        this.notFoundTtlMs = notFoundTtlMs;
+    }
+
+    /**
+     * The field changed: look key up once typing pauses, unless it's cached
+     */
+    public void onInput(String key, Callback<V> callback) {
+        lookup(key, debounceMs, callback);
+    }
+
+    /**
+     * The field lost focus: look key up now, or join the lookup already running for it
+     */
+    public void lookupNow(String key, Callback<V> callback) {
+        lookup(key, 0, callback);
+    }
+
+    /**
+     * For the submit step: always reports, from the cache, the lookup in flight, or a new read
+     */
+    public void resolve(String key, Callback<V> callback) {
+        if (!deliverCached(key, callback)) load(key, callback);
+    }
+
+    /**
+     * Drop the pending lookup and mute the ones in flight
+     */
+    public void cancel() {
+        if (cancelPending != null) {
+            cancelPending.run();
+            cancelPending = null;
+        }
+        generation++;
+    }
+
+    /**
+     * Forget key's result; call after a write that changes what it found
+     */
+    public void invalidate(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Reads sent to the loader so far
+     */
+    public long loads() {
+        return loads;
+    }
+
+    private void lookup(String key, long delayMs, Callback<V> callback) {
+        cancel();
+        if (key == null || key.isEmpty()) return;
+        if (deliverCached(key, callback)) return;
+
+        Callback<V> latest = onlyIfCurrent(generation, callback);
+        if (delayMs <= 0) {
+            load(key, latest);
+            return;
+        }
+        cancelPending = scheduler.schedule(() -> {
+            cancelPending = null;
+            // Submit may have read it while we waited
+            if (!deliverCached(key, latest)) load(key, latest);
+        }, delayMs);
+    }
+
+    private boolean deliverCached(String key, Callback<V> callback) {
+        Entry<V> entry = cache.get(key);
+        if (entry == null) return false;
+        if (clockMs.getAsLong() >= entry.expiresAtMs) {
+            cache.remove(key);
+            return false;
+        }
+        if (entry.value != null) {
+            callback.onResolved(entry.value);
+        } else {
+            callback.onNotFound();
+        }
+        return true;
+    }
+
+    private void load(String key, Callback<V> callback) {
+        List<Callback<V>> waiting = inFlight.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        inFlight.put(key, waiting);
+        loads++;
+
+        loader.load(key, new Callback<V>() {
+            @Override
+            public void onResolved(V value) {
+                cache.put(key, new Entry<>(value, clockMs.getAsLong() + foundTtlMs));
+                for (Callback<V> waiter : finish(key)) waiter.onResolved(value);
+            }
+
+            @Override
+            public void onNotFound() {
+                cache.put(key, new Entry<>(null, clockMs.getAsLong() + notFoundTtlMs));
+                for (Callback<V> waiter : finish(key)) waiter.onNotFound();
+            }
+
+            @Override
+            public void onError(String error) {
+                for (Callback<V> waiter : finish(key)) waiter.onError(error);
+            }
+        });
+    }
+
+    private List<Callback<V>> finish(String key) {
+        List<Callback<V>> waiting = inFlight.remove(key);
+        return waiting != null ? waiting : new ArrayList<>();
+    }
+
+    private Callback<V> onlyIfCurrent(long lookupGeneration, Callback<V> callback) {
+        return new Callback<V>() {
+            @Override
+            public void onResolved(V value) {
+                if (lookupGeneration == generation) callback.onResolved(value);
+            }
+
+            @Override
+            public void onNotFound() {
+                if (lookupGeneration == generation) callback.onNotFound();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (lookupGeneration == generation) callback.onError(error);
+            }
+        };
+    }
+}
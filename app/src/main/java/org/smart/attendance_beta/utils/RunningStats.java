@@ -0,0 +1,86 @@
+// RunningStats.java - Single-pass mean/variance accumulator (Welford) that can be merged
+package org.smart.attendance_beta.utils;
+
+public class RunningStats {
+
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0; // Sum of squared differences from the mean
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Add a single observation in O(1) time and memory
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1) {
+            min = value;
+            max = value;
+        } else {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+    }
+
+    /**
+     * Merge another accumulator into this one (Chan et al. parallel update)
+     */
+    public void merge(RunningStats other) {
+        if (other == null || other.count == 0) return;
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+
+        long combined = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / combined;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / combined);
+        count = combined;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count > 0 ? mean : 0;
+    }
+
+    /**
+     * Population variance (divides by n), matching the weekly consistency metric
+     */
+    public double getVariance() {
+        return count > 0 ? m2 / count : 0;
+    }
+
+    /**
+     * Sample variance (divides by n - 1)
+     */
+    public double getSampleVariance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public double getMax() {
+        return count > 0 ? max : 0;
+    }
+}
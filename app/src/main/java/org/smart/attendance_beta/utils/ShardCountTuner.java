@@ -0,0 +1,66 @@
+// ShardCountTuner.java - Recommends a counter shard count from the observed write rate
+package org.smart.attendance_beta.utils;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Fed either a running total of counter writes over time or the per-window write counts the
+ * counter shards keep, it tracks the peak rate over any WINDOW_MS-long stretch and sizes the
+ * shards so that peak, with HEADROOM to spare, stays within WRITES_PER_SHARD_PER_SECOND on each
+ * shard (Firestore sustains about one write per second per document). Averaging over a window
+ * keeps one lucky second from doubling the shard count.
+ */
+public class ShardCountTuner {
+
+    public static final double WRITES_PER_SHARD_PER_SECOND = 1.0;
+    public static final double HEADROOM = 2.0;
+    public static final int MIN_SHARDS = 1;
+    public static final int MAX_SHARDS = 100; // A read sums every shard, so keep that bounded
+    public static final long WINDOW_MS = 10_000;
+
+    private final ArrayDeque<long[]> samples = new ArrayDeque<>(); // {timeMs, totalWrites}
+    private double peakWritesPerSecond;
+
+    /**
+     * Record the total number of counter writes seen so far at nowMs
+     */
+    public synchronized void observe(long nowMs, long totalWrites) {
+        samples.addLast(new long[]{nowMs, totalWrites});
+
+        // Keep the newest sample that is at least a full window old as the rate baseline
+        long[] oldest = samples.pollFirst();
+        while (!samples.isEmpty() && nowMs - samples.peekFirst()[0] >= WINDOW_MS) {
+            oldest = samples.pollFirst();
+        }
+        samples.addFirst(oldest);
+
+        long elapsedMs = nowMs - oldest[0];
+        if (elapsedMs >= WINDOW_MS) {
+            double rate = (totalWrites - oldest[1]) * 1000.0 / elapsedMs;
+            peakWritesPerSecond = Math.max(peakWritesPerSecond, rate);
+        }
+    }
+
+    /**
+     * Record per-window write counts, as summed over a day's shards in DailyCounters.Totals
+     */
+    public synchronized void observeWindows(Map<String, Long> writesByWindow) {
+        for (long writes : writesByWindow.values()) {
+            peakWritesPerSecond = Math.max(peakWritesPerSecond, writes * 1000.0 / WINDOW_MS);
+        }
+    }
+
+    public synchronized double getPeakWritesPerSecond() {
+        return peakWritesPerSecond;
+    }
+
+    public int recommendedShards() {
+        return shardsFor(getPeakWritesPerSecond());
+    }
+
+    public static int shardsFor(double writesPerSecond) {
+        int shards = (int) Math.ceil(writesPerSecond * HEADROOM / WRITES_PER_SHARD_PER_SECOND);
+        return Math.max(MIN_SHARDS, Math.min(MAX_SHARDS, shards));
+    }
+}
@@ -0,0 +1,243 @@
+// SingleFlight.java - Coalesces concurrent identical reads into one in-flight load per key
+package org.smart.attendance_beta.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Callers that ask for the same key while a load is in flight wait for that load instead of
+ * starting another, and a successful result keeps answering the key for freshnessMs afterwards.
+ * Failures are passed to everyone waiting but not kept, so the next call tries again.
+ *
+ * Keys must describe the read completely (collection, filters, range), since everything asking for
+ * the same key gets the same result object; callers must treat it as read-only. invalidate() drops a
+ * key after a write so the next read goes back to the source. Thread-safe; callbacks run outside the
+ * lock, on whatever thread the load completes on (or the caller's, for a fresh result).
+ */
+public class SingleFlight<V> {
+
+    private static final int MAX_KEYS = 128; // Bounds the fresh results and stats kept per instance
+
+    public interface Callback<V> {
+        void onSuccess(V result);
+        void onError(Exception e);
+    }
+
+    /**
+     * Starts the real read and reports back through done exactly once
+     */
+    public interface Loader<V> {
+        void load(Callback<V> done);
+    }
+
+    /**
+     * Per-key counters: requests = loads + joined + freshHits
+     */
+    public static class Stats {
+        public long requests;
+        public long loads;
+        public long joined;     // Waited on a load already in flight
+        public long freshHits;  // Answered from a result inside the freshness window
+        public long failures;
+
+        Stats copy() {
+            Stats copy = new Stats();
+            copy.requests = requests;
+            copy.loads = loads;
+            copy.joined = joined;
+            copy.freshHits = freshHits;
+            copy.failures = failures;
+            return copy;
+        }
+
+        /**
+         * Share of requests that didn't cost a read
+         */
+        public double savedRatio() {
+            return requests == 0 ? 0 : (double) (joined + freshHits) / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests + " loads=" + loads + " joined=" + joined
+                    + " fresh=" + freshHits + " failures=" + failures;
+        }
+    }
+
+    private static class Fresh<V> {
+        final V value;
+        final long expiresAtMs;
+
+        Fresh(V value, long expiresAtMs) {
+            this.value = value;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private static class Flight<V> {
+        final List<Callback<V>> waiting = new ArrayList<>();
+        boolean done;
+        boolean invalidated; // A write happened while loading, so the result isn't kept as fresh
+    }
+
+    private final long freshnessMs;
+    private final LongSupplier clockMs;
+
+    private final Map<String, Flight<V>> inFlight = new HashMap<>();
+    private final Map<String, Fresh<V>> fresh = lru();
+    private final Map<String, Stats> stats = lru();
+
+    public SingleFlight(long freshnessMs) {
+        this(freshnessMs, System::currentTimeMillis);
+    }
+
+    public SingleFlight(long freshnessMs, LongSupplier clockMs) {
+        this.freshnessMs = freshnessMs;
+        this.clockMs = clockMs;
+    }
+
+    /**
+     * Answer from a fresh result, join the load in flight for the key, or start one with loader
+     */
+    public void execute(String key, Loader<V> loader, Callback<V> callback) {
+        Flight<V> flight;
+        V cachedValue = null;
+        synchronized (this) {
+            Stats keyStats = statsFor(key);
+            keyStats.requests++;
+
+            Fresh<V> cached = fresh.get(key);
+            if (cached != null && clockMs.getAsLong() < cached.expiresAtMs) {
+                keyStats.freshHits++;
+                cachedValue = cached.value;
+                flight = null;
+            } else {
+                if (cached != null) fresh.remove(key);
+
+                Flight<V> running = inFlight.get(key);
+                if (running != null) {
+                    keyStats.joined++;
+                    running.waiting.add(callback);
+                    return;
+                }
+
+                keyStats.loads++;
+                flight = new Flight<>();
+                flight.waiting.add(callback);
+                inFlight.put(key, flight);
+            }
+        }
+
+        if (flight == null) {
+            callback.onSuccess(cachedValue);
+            return;
+        }
+
+        Flight<V> started = flight;
+        try {
+            loader.load(new Callback<V>() {
+                @Override
+                public void onSuccess(V result) {
+                    complete(key, started, result, null);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    complete(key, started, null, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // A loader that throws before reporting would otherwise leave the key stuck in flight
+            synchronized (this) {
+                if (started.done) throw e;
+            }
+            complete(key, started, null, e);
+        }
+    }
+
+    /**
+     * Forget the key's fresh result and detach its load in flight; call after writing what it reads
+     */
+    public synchronized void invalidate(String key) {
+        fresh.remove(key);
+        Flight<V> flight = inFlight.remove(key);
+        if (flight != null) flight.invalidated = true;
+    }
+
+    /**
+     * invalidate() every key starting with prefix
+     */
+    public synchronized void invalidatePrefix(String prefix) {
+        fresh.keySet().removeIf(key -> key.startsWith(prefix));
+        inFlight.entrySet().removeIf(entry -> {
+            if (!entry.getKey().startsWith(prefix)) return false;
+            entry.getValue().invalidated = true;
+            return true;
+        });
+    }
+
+    /**
+     * Counters for one key (zeros if it was never requested or has been evicted)
+     */
+    public synchronized Stats stats(String key) {
+        Stats keyStats = stats.get(key);
+        return keyStats != null ? keyStats.copy() : new Stats();
+    }
+
+    /**
+     * Counters for every tracked key, least recently requested first
+     */
+    public synchronized Map<String, Stats> allStats() {
+        Map<String, Stats> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().copy());
+        }
+        return copy;
+    }
+
+    private void complete(String key, Flight<V> flight, V result, Exception error) {
+        List<Callback<V>> waiting;
+        synchronized (this) {
+            if (flight.done) return; // Loader reported twice
+            flight.done = true;
+            if (inFlight.get(key) == flight) inFlight.remove(key);
+
+            if (error != null) {
+                statsFor(key).failures++;
+            } else if (!flight.invalidated && freshnessMs > 0) {
+                fresh.put(key, new Fresh<>(result, clockMs.getAsLong() + freshnessMs));
+            }
+            waiting = new ArrayList<>(flight.waiting);
+        }
+
+        for (Callback<V> callback : waiting) {
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onSuccess(result);
+            }
+        }
+    }
+
+    private Stats statsFor(String key) {
+        Stats keyStats = stats.get(key);
+        if (keyStats == null) {
+            keyStats = new Stats();
+            stats.put(key, keyStats);
+        }
+        return keyStats;
+    }
+
+    private static <T> Map<String, T> lru() {
+        return new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > MAX_KEYS;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+// StageTimer.java - Wall-clock durations of named, possibly overlapping, stages of one flow
+package org.smart.attendance_beta.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times are passed in (SystemClock.elapsedRealtime() on the device) so the timer has no Android
+ * dependency. Stages may overlap; total() is measured from start() to the latest end, so the saving
+ * from running stages concurrently shows up as total being less than the sum of the stages.
+ */
+public class StageTimer {
+
+    private final Map<String, long[]> stages = new LinkedHashMap<>(); // {beginMs, endMs or -1}
+    private long startMs = -1;
+    private long lastEndMs = -1;
+
+    public synchronized void start(long nowMs) {
+        stages.clear();
+        startMs = nowMs;
+        lastEndMs = nowMs;
+    }
+
+    public synchronized void begin(String stage, long nowMs) {
+        stages.put(stage, new long[]{nowMs, -1});
+    }
+
+    /**
+     * End a stage; ignored if it was never begun or has already ended
+     */
+    public synchronized void end(String stage, long nowMs) {
+        long[] times = stages.get(stage);
+        if (times == null || times[1] >= 0) return;
+        times[1] = nowMs;
+        lastEndMs = Math.max(lastEndMs, nowMs);
+    }
+
+    /**
+     * Duration of a finished stage in ms, or -1 if it hasn't finished
+     */
+    public synchronized long duration(String stage) {
+        long[] times = stages.get(stage);
+        return times == null || times[1] < 0 ? -1 : times[1] - times[0];
+    }
+
+    public synchronized long total() {
+        return startMs < 0 ? 0 : lastEndMs - startMs;
+    }
+
+    /**
+     * "resolve=120ms session=85ms auth=310ms total=430ms", unfinished stages shown as "-"
+     */
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, long[]> stage : stages.entrySet()) {
+            long[] times = stage.getValue();
+            summary.append(stage.getKey()).append('=')
+                    .append(times[1] < 0 ? "-" : (times[1] - times[0]) + "ms").append(' ');
+        }
+        return summary.append("total=").append(total()).append("ms").toString();
+    }
+}
@@ -0,0 +1,151 @@
+// StartupMetrics.java - Cold-start timing from process start to the first dashboard frame
+package org.smart.attendance_beta.utils;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stages of a launcher cold start, all on the uptime clock the process start time uses:
+ * - launch: process start to SplashActivity.onCreate
+ * - route: splash to the dashboard decision (from the cached snapshot or a Firestore lookup)
+ * - dashboard: decision to the dashboard's first drawn frame
+ *
+ * Each cold start is logged and appended to files/startup_metrics.log (trimmed to the newest
+ * lines), so regressions can be tracked across builds from a bug report or adb pull. Warm starts
+ * and processes that were already running (started earlier by an alarm or boot receiver) aren't
+ * recorded, since their numbers would include idle time.
+ */
+public class StartupMetrics {
+
+    private static final String TAG = "StartupMetrics";
+
+    private static final String LOG_FILE = "startup_metrics.log";
+    private static final long MAX_LOG_BYTES = 64 * 1024;
+    private static final long MAX_COLD_START_MS = 30_000; // Longer means the process predates the launch
+
+    private static final String STAGE_LAUNCH = "launch";
+    private static final String STAGE_ROUTE = "route";
+    private static final String STAGE_DASHBOARD = "dashboard";
+
+    private static final StageTimer timer = new StageTimer();
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private static boolean measuring;
+    private static boolean splashSeen;
+    private static String routeSource;
+
+    /**
+     * Called from SplashActivity.onCreate; starts measuring on the first splash of a fresh process
+     */
+    public static synchronized void onSplashCreated() {
+        if (splashSeen) return;
+        splashSeen = true;
+
+        long processStartMs = Process.getStartUptimeMillis();
+        long nowMs = SystemClock.uptimeMillis();
+        if (nowMs - processStartMs > MAX_COLD_START_MS) return;
+
+        measuring = true;
+        timer.start(processStartMs);
+        timer.begin(STAGE_LAUNCH, processStartMs);
+        timer.end(STAGE_LAUNCH, nowMs);
+        timer.begin(STAGE_ROUTE, nowMs);
+    }
+
+    /**
+     * The splash picked a dashboard; source is "cache" or "network"
+     */
+    public static synchronized void onRouteDecided(String source) {
+        if (!measuring || routeSource != null) return;
+        routeSource = source;
+        long nowMs = SystemClock.uptimeMillis();
+        timer.end(STAGE_ROUTE, nowMs);
+        timer.begin(STAGE_DASHBOARD, nowMs);
+    }
+
+    /**
+     * The splash went to login instead; nothing to report for this launch
+     */
+    public static synchronized void abandon() {
+        measuring = false;
+    }
+
+    /**
+     * Called from a dashboard's onCreate; records when its first frame is drawn
+     */
+    public static void trackFirstFrame(Activity activity, String screen) {
+        synchronized (StartupMetrics.class) {
+            if (!measuring || routeSource == null) return;
+        }
+
+        View decorView = activity.getWindow().getDecorView();
+        Context appContext = activity.getApplicationContext();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) return;
+                drawn = true;
+                long nowMs = SystemClock.uptimeMillis();
+                // Listeners can't be removed from inside onDraw
+                decorView.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+                record(appContext, screen, nowMs);
+            }
+        });
+    }
+
+    private static synchronized void record(Context context, String screen, long nowMs) {
+        if (!measuring) return;
+        measuring = false;
+        timer.end(STAGE_DASHBOARD, nowMs);
+
+        String line = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(new Date())
+                + " screen=" + screen + " source=" + routeSource + " " + timer.summary();
+        AppLog.i(TAG, "🚀 Cold start: {}", line);
+        writer.execute(() -> append(new File(context.getFilesDir(), LOG_FILE), line));
+    }
+
+    private static void append(File file, String line) {
+        try {
+            if (file.length() > MAX_LOG_BYTES) {
+                keepNewestHalf(file);
+            }
+            try (FileWriter out = new FileWriter(file, true)) {
+                out.write(line);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            AppLog.w(TAG, "Failed to write startup metrics", e);
+        }
+    }
+
+    private static void keepNewestHalf(File file) throws IOException {
+        byte[] tail;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long start = in.length() / 2;
+            in.seek(start);
+            in.readLine(); // Skip the partial line
+            tail = new byte[(int) (in.length() - in.getFilePointer())];
+            in.readFully(tail);
+        }
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            out.write(tail);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+// StartupRouteCache.java - Signed local snapshot of the signed-in user's role and profile for cold-start routing
+package org.smart.attendance_beta.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * SplashActivity routes straight from this snapshot and revalidates it against Firestore afterwards.
+ * The snapshot is HMAC-SHA256 signed with a key that never leaves the Android Keystore, so an edited
+ * prefs file (say, role flipped to admin) fails verification and the app falls back to the network
+ * lookup. It is bound to the Firebase uid and expires after MAX_AGE_MS so a long-unused device
+ * doesn't route on very old data.
+ *
+ * Lives in attendance_prefs, so the employee logout that clears those prefs clears it too.
+ */
+public class StartupRouteCache {
+
+    private static final String TAG = "StartupRouteCache";
+
+    public static final String ROUTE_ADMIN = "admin";
+    public static final String ROUTE_EMPLOYEE = "employee";
+
+    private static final String PREFS = "attendance_prefs";
+    private static final String KEY_UID = "startup_uid";
+    private static final String KEY_ROLE = "startup_role";
+    private static final String KEY_EMPLOYEE_DOC_ID = "startup_employee_doc_id";
+    private static final String KEY_NAME = "startup_name";
+    private static final String KEY_PF_NUMBER = "startup_pf_number";
+    private static final String KEY_EMAIL = "startup_email";
+    private static final String KEY_DEPARTMENT = "startup_department";
+    private static final String KEY_SAVED_AT = "startup_saved_at";
+    private static final String KEY_SIGNATURE = "startup_signature";
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "startup_route_hmac";
+    private static final String HMAC = "HmacSHA256";
+
+    private static final long MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000;
+
+    public static class Snapshot {
+        public final String uid;
+        public final String role;
+        public final String employeeDocId; // null for admins who only exist in users
+        public final String name;
+        public final String pfNumber;
+        public final String email;
+        public final String department;
+        public final long savedAtMs;
+
+        Snapshot(String uid, String role, String employeeDocId, String name, String pfNumber,
+                 String email, String department, long savedAtMs) {
+            this.uid = uid;
+            this.role = role;
+            this.employeeDocId = employeeDocId;
+            this.name = name;
+            this.pfNumber = pfNumber;
+            this.email = email;
+            this.department = department;
+            this.savedAtMs = savedAtMs;
+        }
+
+        public String route() {
+            return routeFor(role);
+        }
+
+        String payload() {
+            // Unit separator between fields so no value can shift into its neighbour
+            return String.join("\u001F", String.valueOf(uid), String.valueOf(role), String.valueOf(employeeDocId),
+                    String.valueOf(name), String.valueOf(pfNumber), String.valueOf(email),
+                    String.valueOf(department), String.valueOf(savedAtMs));
+        }
+    }
+
+    /**
+     * Dashboard for a role; same rule SplashActivity has always used
+     */
+    public static String routeFor(String role) {
+        return "admin".equalsIgnoreCase(role) ? ROUTE_ADMIN : ROUTE_EMPLOYEE;
+    }
+
+    /**
+     * The snapshot for this uid if present, unexpired and correctly signed; otherwise null
+     */
+    public static Snapshot load(Context context, String uid) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String signature = prefs.getString(KEY_SIGNATURE, null);
+        if (signature == null || uid == null || !uid.equals(prefs.getString(KEY_UID, null))) {
+            return null;
+        }
+
+        Snapshot snapshot = new Snapshot(uid,
+                prefs.getString(KEY_ROLE, null),
+                prefs.getString(KEY_EMPLOYEE_DOC_ID, null),
+                prefs.getString(KEY_NAME, null),
+                prefs.getString(KEY_PF_NUMBER, null),
+                prefs.getString(KEY_EMAIL, null),
+                prefs.getString(KEY_DEPARTMENT, null),
+                prefs.getLong(KEY_SAVED_AT, 0));
+
+        if (snapshot.role == null || System.currentTimeMillis() - snapshot.savedAtMs > MAX_AGE_MS) {
+            return null;
+        }
+
+        byte[] expected = sign(snapshot.payload());
+        if (expected == null || !MessageDigest.isEqual(expected, decode(signature))) {
+            AppLog.w(TAG, "⚠️ Startup snapshot failed verification, ignoring it");
+            return null;
+        }
+        return snapshot;
+    }
+
+    private static byte[] decode(String signature) {
+        try {
+            return Base64.decode(signature, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Save after a successful lookup; employeeDoc is null for admins found in users
+     */
+    public static void save(Context context, String uid, String role, DocumentSnapshot employeeDoc) {
+        Snapshot snapshot = new Snapshot(uid, role,
+                employeeDoc != null ? employeeDoc.getId() : null,
+                employeeDoc != null ? employeeDoc.getString("name") : null,
+                employeeDoc != null ? employeeDoc.getString("pfNumber") : null,
+                employeeDoc != null ? employeeDoc.getString("email") : null,
+                employeeDoc != null ? employeeDoc.getString("department") : null,
+                System.currentTimeMillis());
+
+        byte[] signature = sign(snapshot.payload());
+        if (signature == null) {
+            clear(context); // Can't sign, so don't leave an older snapshot around either
+            return;
+        }
+
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .edit()
+                .putString(KEY_UID, snapshot.uid)
+                .putString(KEY_ROLE, snapshot.role)
+                .putString(KEY_EMPLOYEE_DOC_ID, snapshot.employeeDocId)
+                .putString(KEY_NAME, snapshot.name)
+                .putString(KEY_PF_NUMBER, snapshot.pfNumber)
+                .putString(KEY_EMAIL, snapshot.email)
+                .putString(KEY_DEPARTMENT, snapshot.department)
+                .putLong(KEY_SAVED_AT, snapshot.savedAtMs)
+                .putString(KEY_SIGNATURE, Base64.encodeToString(signature, Base64.NO_WRAP))
+                .apply();
+    }
+
+    public static void clear(Context context) {
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .edit()
+                .remove(KEY_UID)
+                .remove(KEY_ROLE)
+                .remove(KEY_EMPLOYEE_DOC_ID)
+                .remove(KEY_NAME)
+                .remove(KEY_PF_NUMBER)
+                .remove(KEY_EMAIL)
+                .remove(KEY_DEPARTMENT)
+                .remove(KEY_SAVED_AT)
+                .remove(KEY_SIGNATURE)
+                .apply();
+    }
+
+    private static byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(getOrCreateKey());
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            AppLog.e(TAG, "❌ Could not sign startup snapshot", e);
+            return null;
+        }
+    }
+
+    private static synchronized SecretKey getOrCreateKey() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        if (keyStore.containsAlias(KEY_ALIAS)) {
+            return (SecretKey) keyStore.getKey(KEY_ALIAS, null);
+        }
+
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_SIGN).build());
+        return generator.generateKey();
+    }
+}
@@ -6,7 +6,6 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Build;
 import android.provider.Settings;
-import android.util.Log;
 
 import com.google.firebase.Timestamp;
 
@@ -81,7 +80,7 @@ public class TimeSecurityUtils {
                 int autoTimeZone = Settings.Global.getInt(context.getContentResolver(),
                         Settings.Global.AUTO_TIME_ZONE, 0);
 
-                Log.d(TAG, "Auto time: " + autoTime + ", Auto timezone: " + autoTimeZone);
+                AppLog.d(TAG, "Auto time: {}, Auto timezone: {}", autoTime, autoTimeZone);
                 return autoTime == 1 && autoTimeZone == 1;
             } else {
                 int autoTime = Settings.System.getInt(context.getContentResolver(),
@@ -89,7 +88,7 @@ public class TimeSecurityUtils {
                 return autoTime == 1;
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error checking automatic time settings", e);
+            AppLog.e(TAG, "Error checking automatic time settings", e);
             return false; // Assume false if we can't check
         }
     }
@@ -139,7 +138,7 @@ public class TimeSecurityUtils {
             Timestamp serverTimestamp = Timestamp.now();
             return serverTimestamp.toDate().getTime();
         } catch (Exception e) {
-            Log.e(TAG, "Error getting Firebase server time", e);
+            AppLog.e(TAG, "Error getting Firebase server time", e);
             return null;
         }
     }
@@ -164,7 +163,7 @@ public class TimeSecurityUtils {
                 return System.currentTimeMillis(); // Placeholder
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error getting WorldTimeAPI time", e);
+            AppLog.e(TAG, "Error getting WorldTimeAPI time", e);
         }
         return null;
     }
@@ -187,7 +186,7 @@ public class TimeSecurityUtils {
                 return serverDate.getTime();
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error getting HTTP header time", e);
+            AppLog.e(TAG, "Error getting HTTP header time", e);
         }
         return null;
     }
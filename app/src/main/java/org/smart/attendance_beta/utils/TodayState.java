@@ -0,0 +1,186 @@
+// TodayState.java - Immutable view of an employee's day: today's record, device verdict, pending events and profile
+package org.smart.attendance_beta.utils;
+
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.sync.ClockEvent;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Built by TodayStateLoader and rendered by AttendanceActivity and EmployeeDashboardActivity. The
+ * deterministic record attendance/{employeeDocId}_{yyyyMMdd} is both today's record and the device
+ * session, so one read answers "what happened today" and "may this device clock in".
+ *
+ * derive() has no Firebase dependency so the rules can be tested on their own.
+ */
+public final class TodayState {
+
+    public enum Status {
+        NOT_CLOCKED_IN,
+        CLOCKED_IN,
+        COMPLETE
+    }
+
+    public enum DeviceVerdict {
+        FREE,           // No open session today
+        THIS_DEVICE,    // Open session started on this device
+        OTHER_DEVICE,   // Open session on another device; clocking is blocked
+        UNVERIFIED      // Record couldn't be read (offline with nothing cached)
+    }
+
+    public final String employeeDocId;
+    public final String date;
+    public final String attendanceId;
+    public final Status status;
+    public final DeviceVerdict deviceVerdict;
+
+    // Today's record as this device should show it; pending journal events are applied on top
+    public final String clockInTime;
+    public final String clockOutTime;
+    public final String officeName;
+    public final String clockOutOfficeName;
+    public final boolean late;
+    public final int lateMinutes;
+    public final boolean earlyClockOut;
+    public final boolean pendingSync;
+
+    // The other device, when deviceVerdict is OTHER_DEVICE
+    public final String activeDeviceModel;
+    public final String activeDeviceManufacturer;
+    public final String activeClockInTime;
+    public final String activeOfficeName;
+
+    // Employee details, null until the profile is loaded
+    public final String pfNumber;
+    public final String employeeName;
+    public final String department;
+
+    private TodayState(String employeeDocId, String date, Status status, DeviceVerdict deviceVerdict,
+                       String clockInTime, String clockOutTime, String officeName, String clockOutOfficeName,
+                       boolean late, int lateMinutes, boolean earlyClockOut, boolean pendingSync,
+                       Map<String, Object> activeSession, Employee employee) {
+        this.employeeDocId = employeeDocId;
+        this.date = date;
+        this.attendanceId = AttendanceIds.forDate(employeeDocId, date);
+        this.status = status;
+        this.deviceVerdict = deviceVerdict;
+        this.clockInTime = clockInTime;
+        this.clockOutTime = clockOutTime;
+        this.officeName = officeName;
+        this.clockOutOfficeName = clockOutOfficeName;
+        this.late = late;
+        this.lateMinutes = lateMinutes;
+        this.earlyClockOut = earlyClockOut;
+        this.pendingSync = pendingSync;
+        this.activeDeviceModel = activeSession != null ? string(activeSession, AttendanceFields.DEVICE_MODEL) : null;
+        this.activeDeviceManufacturer = activeSession != null ? string(activeSession, AttendanceFields.DEVICE_MANUFACTURER) : null;
+        this.activeClockInTime = activeSession != null ? string(activeSession, AttendanceFields.CLOCK_IN_TIME) : null;
+        this.activeOfficeName = activeSession != null ? string(activeSession, AttendanceFields.OFFICE_NAME) : null;
+        this.pfNumber = employee != null ? employee.getPfNumber() : null;
+        this.employeeName = employee != null ? employee.getFullName() : null;
+        this.department = employee != null ? employee.getDepartment() : null;
+    }
+
+    /**
+     * Work out the day from its parts.
+     *
+     * @param record  today's record fields, or null if it doesn't exist (or recordKnown is false)
+     * @param recordKnown false when the record couldn't be read, so the device verdict is UNVERIFIED
+     * @param pending journaled events for this employee and date that haven't reached Firestore, oldest first
+     * @param employee the employee profile, or null if not loaded yet
+     */
+    public static TodayState derive(String employeeDocId, String date, String deviceId,
+                                    Map<String, Object> record, boolean recordKnown,
+                                    List<ClockEvent> pending, Employee employee) {
+        Status status = Status.NOT_CLOCKED_IN;
+        DeviceVerdict verdict = recordKnown ? DeviceVerdict.FREE : DeviceVerdict.UNVERIFIED;
+        Map<String, Object> activeSession = null;
+        String clockInTime = null;
+        String clockOutTime = null;
+        String officeName = null;
+        String clockOutOfficeName = null;
+        boolean late = false;
+        int lateMinutes = 0;
+        boolean earlyClockOut = false;
+
+        if (recordKnown && record != null) {
+            boolean sessionActive = Boolean.TRUE.equals(record.get(AttendanceFields.SESSION_ACTIVE));
+            boolean isThisDevice = deviceId != null && deviceId.equals(record.get(AttendanceFields.DEVICE_ID));
+
+            if (sessionActive) {
+                verdict = isThisDevice ? DeviceVerdict.THIS_DEVICE : DeviceVerdict.OTHER_DEVICE;
+                if (!isThisDevice) activeSession = record;
+            }
+
+            // An open session is only resumed on the device that started it; a closed day counts everywhere
+            String recordClockIn = string(record, AttendanceFields.CLOCK_IN_TIME);
+            if (recordClockIn != null && (isThisDevice || !sessionActive)) {
+                clockInTime = recordClockIn;
+                clockOutTime = string(record, AttendanceFields.CLOCK_OUT_TIME);
+                officeName = string(record, AttendanceFields.OFFICE_NAME);
+                clockOutOfficeName = string(record, AttendanceFields.CLOCK_OUT_OFFICE_NAME);
+                late = Boolean.TRUE.equals(record.get(AttendanceFields.IS_LATE));
+                lateMinutes = integer(record, AttendanceFields.LATE_MINUTES);
+                earlyClockOut = Boolean.TRUE.equals(record.get(AttendanceFields.IS_EARLY_CLOCK_OUT));
+                // Same rule as ClockInTransaction: a closed session (clocked out or swept) ends the day
+                status = sessionActive && clockOutTime == null ? Status.CLOCKED_IN : Status.COMPLETE;
+            }
+        }
+
+        boolean pendingSync = false;
+        if (pending != null && !pending.isEmpty()) {
+            ClockEvent latest = pending.get(pending.size() - 1);
+            Map<String, Object> payload = latest.payload;
+            pendingSync = true;
+            if (latest.isClockIn()) {
+                status = Status.CLOCKED_IN;
+                clockInTime = string(payload, AttendanceFields.CLOCK_IN_TIME);
+                clockOutTime = null;
+                officeName = string(payload, AttendanceFields.OFFICE_NAME);
+                late = Boolean.TRUE.equals(payload.get(AttendanceFields.IS_LATE));
+                lateMinutes = integer(payload, AttendanceFields.LATE_MINUTES);
+            } else {
+                status = Status.COMPLETE;
+                clockOutTime = string(payload, AttendanceFields.CLOCK_OUT_TIME);
+                clockOutOfficeName = string(payload, AttendanceFields.CLOCK_OUT_OFFICE_NAME);
+                earlyClockOut = Boolean.TRUE.equals(payload.get(AttendanceFields.IS_EARLY_CLOCK_OUT));
+                if (clockInTime == null) {
+                    // Clock-in and clock-out both still in the journal
+                    for (ClockEvent event : pending) {
+                        if (event.isClockIn()) {
+                            clockInTime = string(event.payload, AttendanceFields.CLOCK_IN_TIME);
+                            officeName = string(event.payload, AttendanceFields.OFFICE_NAME);
+                        }
+                    }
+                }
+            }
+        }
+
+        return new TodayState(employeeDocId, date, status, verdict, clockInTime, clockOutTime, officeName,
+                clockOutOfficeName, late, lateMinutes, earlyClockOut, pendingSync, activeSession, employee);
+    }
+
+    public boolean isClockedIn() {
+        return status == Status.CLOCKED_IN;
+    }
+
+    /**
+     * Office for the status line: where they clocked out once the day is complete, else where they clocked in
+     */
+    public String displayOfficeName() {
+        if (status == Status.COMPLETE && clockOutOfficeName != null) return clockOutOfficeName;
+        return officeName;
+    }
+
+    private static String string(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static int integer(Map<String, Object> data, String key) {
+        Object value = data.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+}
@@ -0,0 +1,186 @@
+// TodayStateLoader.java - Keeps a TodayState current from one listener on today's attendance record
+package org.smart.attendance_beta.utils;
+
+import android.content.Context;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.smart.attendance_beta.models.Employee;
+import org.smart.attendance_beta.sync.ClockEvent;
+import org.smart.attendance_beta.sync.ClockSync;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The attendance screen used to read today's record twice (once as the device session check, once
+ * for the day's times) plus the employee document. Here a single snapshot listener on
+ * attendance/{employeeDocId}_{yyyyMMdd} feeds both, the employee details come from ProfileStore
+ * (usually already in memory), and journaled clock events are laid on top. Writes from this device
+ * or another one show up without a reload.
+ *
+ * start() in onStart, stop() in onStop; refresh() after the journal changes or when the screen
+ * resumes (it also moves the listener to the new record after midnight). Main thread only.
+ */
+public class TodayStateLoader {
+
+    private static final String TAG = "TodayStateLoader";
+
+    public interface Listener {
+        void onTodayState(TodayState state);
+    }
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final String employeeDocId;
+    private final String deviceId;
+    private final ClockSync clockSync; // null when the journal is unavailable
+    private final TodaySummaryStore summaryStore;
+
+    private Listener listener;
+    private ListenerRegistration registration;
+    private String date;
+    private boolean recordLoaded;
+    private boolean recordKnown;
+    private Map<String, Object> record;
+    private Employee employee;
+    private TodayState current;
+
+    private final ProfileStore.Observer profileObserver = this::onProfileChanged;
+
+    public TodayStateLoader(Context context, FirebaseFirestore db, String employeeDocId, String deviceId,
+                            ClockSync clockSync) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.employeeDocId = employeeDocId;
+        this.deviceId = deviceId;
+        this.clockSync = clockSync;
+        this.summaryStore = new TodaySummaryStore(context);
+    }
+
+    /**
+     * Start listening; the current state (if any) is delivered straight away. Calling it again while
+     * started only swaps the listener
+     */
+    public void start(Listener listener) {
+        boolean started = this.listener != null;
+        this.listener = listener;
+        if (started) {
+            if (current != null) listener.onTodayState(current);
+            return;
+        }
+        if (employeeDocId == null) return;
+
+        ProfileStore profiles = ProfileStore.getInstance(context);
+        profiles.addObserver(profileObserver);
+        profiles.getEmployee(employeeDocId, new ProfileStore.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(ProfileStore.Profile profile) {
+                employee = profile.toEmployee();
+                publish();
+            }
+
+            @Override
+            public void onNotFound() {
+                AppLog.w(TAG, "Employee {} not found", employeeDocId);
+            }
+
+            @Override
+            public void onError(String error) {
+                AppLog.w(TAG, "Failed to load employee details: {}", error);
+            }
+        });
+
+        listen();
+        if (current != null) listener.onTodayState(current);
+    }
+
+    public void stop() {
+        listener = null;
+        ProfileStore.getInstance(context).removeObserver(profileObserver);
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    /**
+     * Re-derive the state: picks up journal changes and a new day
+     */
+    public void refresh() {
+        if (listener == null || employeeDocId == null) return;
+        if (!DateTimeUtils.getCurrentDate().equals(date)) {
+            listen();
+        } else {
+            publish();
+        }
+    }
+
+    /**
+     * Last state delivered, or null before the first one
+     */
+    public TodayState current() {
+        return current;
+    }
+
+    private void listen() {
+        String today = DateTimeUtils.getCurrentDate();
+        if (registration != null) {
+            if (today.equals(date)) return;
+            registration.remove();
+        }
+
+        if (!today.equals(date)) {
+            // Yesterday's record says nothing about today
+            date = today;
+            recordLoaded = false;
+            record = null;
+            current = null;
+        }
+        registration = AttendanceIds.ref(db, employeeDocId, today)
+                .addSnapshotListener((snapshot, e) -> onRecord(today, snapshot, e));
+    }
+
+    private void onRecord(String forDate, DocumentSnapshot snapshot, Exception e) {
+        if (!forDate.equals(date)) return;
+
+        recordLoaded = true;
+        FirestoreCost.recordSnapshot("todayState.record", snapshot);
+        if (e != null || snapshot == null) {
+            AppLog.w(TAG, "Today's record listener failed for {}", employeeDocId, e);
+            recordKnown = false;
+            record = null;
+        } else if (!snapshot.exists() && snapshot.getMetadata().isFromCache()) {
+            // Nothing cached and no server answer yet, e.g. offline
+            recordKnown = false;
+            record = null;
+        } else {
+            recordKnown = true;
+            record = snapshot.exists() ? snapshot.getData() : null;
+        }
+        publish();
+    }
+
+    private void onProfileChanged() {
+        ProfileStore.Profile profile = ProfileStore.getInstance(context).peekEmployee();
+        if (profile == null || !profile.getId().equals(employeeDocId)) return;
+        employee = profile.toEmployee();
+        publish();
+    }
+
+    private void publish() {
+        if (listener == null || !recordLoaded) return;
+
+        List<ClockEvent> pending = clockSync != null
+                ? clockSync.getPendingEvents(employeeDocId, date)
+                : Collections.emptyList();
+        current = TodayState.derive(employeeDocId, date, deviceId, record, recordKnown, pending, employee);
+        // Lets reminder alarms decide from this instead of reading the record again
+        TodaySummary summary = TodaySummary.from(current, System.currentTimeMillis());
+        if (summary != null) summaryStore.save(summary);
+        listener.onTodayState(current);
+    }
+}
@@ -0,0 +1,46 @@
+// TodaySummary.java - The part of today's state reminders need, persisted so an alarm can decide without a read
+package org.smart.attendance_beta.utils;
+
+/**
+ * Written by TodayStateLoader whenever it knows the day (the record listener answered, or a clock
+ * event is journaled), so clock-in and clock-out on this device keep it current. confirmedAtMs is
+ * when that happened; ReminderDecider only trusts a summary confirmed recently.
+ *
+ * An open session on another device counts as CLOCKED_IN here: the employee has clocked in, even if
+ * not on this phone.
+ */
+public final class TodaySummary {
+
+    public interface Store {
+        TodaySummary load();
+        void save(TodaySummary summary);
+    }
+
+    public final String employeeDocId;
+    public final String date;
+    public final TodayState.Status status;
+    public final long confirmedAtMs;
+
+    public TodaySummary(String employeeDocId, String date, TodayState.Status status, long confirmedAtMs) {
+        this.employeeDocId = employeeDocId;
+        this.date = date;
+        this.status = status;
+        this.confirmedAtMs = confirmedAtMs;
+    }
+
+    /**
+     * Summary of a derived state, or null when the record couldn't be read and nothing is journaled
+     */
+    public static TodaySummary from(TodayState state, long nowMs) {
+        if (state.deviceVerdict == TodayState.DeviceVerdict.UNVERIFIED && !state.pendingSync) return null;
+        TodayState.Status status = state.deviceVerdict == TodayState.DeviceVerdict.OTHER_DEVICE
+                ? TodayState.Status.CLOCKED_IN
+                : state.status;
+        return new TodaySummary(state.employeeDocId, state.date, status, nowMs);
+    }
+
+    @Override
+    public String toString() {
+        return employeeDocId + " " + date + " " + status + " @" + confirmedAtMs;
+    }
+}
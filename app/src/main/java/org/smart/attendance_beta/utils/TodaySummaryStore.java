@@ -0,0 +1,47 @@
+// TodaySummaryStore.java - Keeps the latest TodaySummary in attendance_prefs
+package org.smart.attendance_beta.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Lives in attendance_prefs, so logging out clears it and the next reminder goes back to Firestore.
+ */
+public class TodaySummaryStore implements TodaySummary.Store {
+
+    private static final String PREFS = "attendance_prefs";
+    private static final String KEY_EMPLOYEE_DOC_ID = "today_employee_doc_id";
+    private static final String KEY_DATE = "today_date";
+    private static final String KEY_STATUS = "today_status";
+    private static final String KEY_CONFIRMED_AT = "today_confirmed_at";
+
+    private final SharedPreferences prefs;
+
+    public TodaySummaryStore(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public TodaySummary load() {
+        String employeeDocId = prefs.getString(KEY_EMPLOYEE_DOC_ID, null);
+        String date = prefs.getString(KEY_DATE, null);
+        String status = prefs.getString(KEY_STATUS, null);
+        if (employeeDocId == null || date == null || status == null) return null;
+        try {
+            return new TodaySummary(employeeDocId, date, TodayState.Status.valueOf(status),
+                    prefs.getLong(KEY_CONFIRMED_AT, 0));
+        } catch (IllegalArgumentException e) {
+            return null; // Written by a build with other statuses
+        }
+    }
+
+    @Override
+    public void save(TodaySummary summary) {
+        prefs.edit()
+                .putString(KEY_EMPLOYEE_DOC_ID, summary.employeeDocId)
+                .putString(KEY_DATE, summary.date)
+                .putString(KEY_STATUS, summary.status.name())
+                .putLong(KEY_CONFIRMED_AT, summary.confirmedAtMs)
+                .apply();
+    }
+}
@@ -0,0 +1,107 @@
+// TopKLeaderboard.java - Exact per-key totals with a bounded-heap top-K read
+package org.smart.attendance_beta.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * One entry per key, so every score is the key's exact total. A month of attendance has one key
+ * per employee, which fits easily in memory; only the read is bounded, selecting the top k with a
+ * k-sized min-heap in O(n log k).
+ */
+public class TopKLeaderboard {
+
+    public static class Entry {
+        public final String key;
+        public String label;
+        public double score;
+
+        Entry(String key, String label, double score) {
+            this.key = key;
+            this.label = label;
+            this.score = score;
+        }
+    }
+
+    private final Map<String, Entry> totals = new HashMap<>();
+
+    /**
+     * Add a positive amount to a key's total
+     */
+    public void add(String key, String label, double amount) {
+        if (key == null || amount <= 0) return;
+
+        Entry entry = totals.get(key);
+        if (entry == null) {
+            totals.put(key, new Entry(key, label, amount));
+            return;
+        }
+        entry.score += amount;
+        if (label != null) entry.label = label;
+    }
+
+    /**
+     * A key's exact total, 0 if nothing was added for it
+     */
+    public double get(String key) {
+        Entry entry = totals.get(key);
+        return entry != null ? entry.score : 0;
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(totals.values());
+    }
+
+    public void clear() {
+        totals.clear();
+    }
+
+    public int size() {
+        return totals.size();
+    }
+
+    /**
+     * Highest k totals, best first
+     */
+    public List<Entry> top(int k) {
+        return top(k, null);
+    }
+
+    /**
+     * Highest k totals of this board and extra added per key, best first; neither board changes
+     */
+    public List<Entry> top(int k, TopKLeaderboard extra) {
+        if (k <= 0) return new ArrayList<>();
+
+        PriorityQueue<Entry> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a.score, b.score));
+        for (Entry entry : totals.values()) {
+            Entry extraEntry = extra != null ? extra.totals.get(entry.key) : null;
+            offer(best, k, extraEntry == null ? entry
+                    : new Entry(entry.key, extraEntry.label != null ? extraEntry.label : entry.label,
+                    entry.score + extraEntry.score));
+        }
+        if (extra != null) {
+            for (Entry entry : extra.totals.values()) {
+                if (!totals.containsKey(entry.key)) offer(best, k, entry);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(best);
+        Collections.sort(entries, (a, b) -> Double.compare(b.score, a.score));
+        return entries;
+    }
+
+    private static void offer(PriorityQueue<Entry> best, int k, Entry entry) {
+        if (best.size() < k) {
+            best.add(entry);
+        } else if (entry.score > best.peek().score) {
+            best.poll();
+            best.add(entry);
+        }
+    }
+}
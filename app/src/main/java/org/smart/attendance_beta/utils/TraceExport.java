@@ -0,0 +1,48 @@
+// TraceExport.java - Keeps files/trace.json current with Tracer.app()'s buffered spans
+package org.smart.attendance_beta.utils;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The trace is rewritten off the main thread each time a flow ends, through a temporary file so a
+ * pull never sees half of it. On a test device:
+ *   adb exec-out run-as org.smart.attendance_beta cat files/trace.json > trace.json
+ * then open it in chrome://tracing or ui.perfetto.dev.
+ */
+public class TraceExport {
+
+    private static final String TAG = "TraceExport";
+
+    private static final String TRACE_FILE = "trace.json";
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    /**
+     * Called once from the Application, in debuggable builds only; turns Tracer.app() on
+     */
+    public static void install(Context context) {
+        File dir = context.getApplicationContext().getFilesDir();
+        Tracer.app().setEnabled(true);
+        Tracer.app().setOnFlowEnded(() -> writer.execute(() -> write(dir)));
+    }
+
+    private static void write(File dir) {
+        File tmp = new File(dir, TRACE_FILE + ".tmp");
+        try (Writer out = new FileWriter(tmp, false)) {
+            Tracer.app().writeChromeTrace(out);
+        } catch (IOException e) {
+            AppLog.w(TAG, "Failed to write trace", e);
+            return;
+        }
+        if (!tmp.renameTo(new File(dir, TRACE_FILE))) {
+            AppLog.w(TAG, "Failed to replace {}", TRACE_FILE);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+// Tracer.java - Nested timing spans for user-facing flows, kept in a ring buffer and exported as a Chrome trace
+package org.smart.attendance_beta.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A flow (clock-in, login, a dashboard load) is one root span from begin(name) with child spans for
+ * its steps, begun with begin(step, parent). Spans can end on any thread or callback; times come
+ * from the monotonic System.nanoTime clock, so wall-clock changes don't distort them.
+ *
+ * Ended spans go into a fixed ring buffer: claiming a slot is a single atomic increment, so
+ * recording never blocks the main thread, and the oldest spans are overwritten once it's full.
+ * writeChromeTrace() exports what's buffered in the Chrome trace-event format (nestable async
+ * events, one track per flow) for chrome://tracing or ui.perfetto.dev; TraceExport keeps a copy
+ * on the device. The app() tracer records nothing until it is enabled.
+ */
+public class Tracer {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Tracer app = new Tracer(DEFAULT_CAPACITY, System::nanoTime);
+
+    private final LongSupplier clockNanos;
+    private final long epochNanos;
+    private final AtomicReferenceArray<Span> slots;
+    private final int mask;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private volatile boolean enabled = true;
+    private volatile Runnable onFlowEnded;
+
+    public static class Span {
+        private final Tracer tracer;
+        private final Span parent;
+        private final long traceId;
+        private final int depth;
+        public final String name;
+        public final String category;
+        public final long threadId;
+        public final long startNanos;
+        private volatile long endNanos = -1;
+        private final Map<String, Object> args = new LinkedHashMap<>();
+        private final AtomicInteger openChildren = new AtomicInteger();
+        private volatile boolean endWithChildren;
+
+        Span(Tracer tracer, Span parent, long traceId, String name, String category, long startNanos) {
+            this.tracer = tracer;
+            this.parent = parent;
+            this.traceId = traceId;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+            this.name = name;
+            this.category = category;
+            this.threadId = Thread.currentThread().getId();
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Attach a value shown with the span; returns this for chaining
+         */
+        public Span arg(String key, Object value) {
+            if (tracer == null) return this;
+            synchronized (args) {
+                args.put(key, value);
+            }
+            return this;
+        }
+
+        public Map<String, Object> args() {
+            synchronized (args) {
+                return new LinkedHashMap<>(args);
+            }
+        }
+
+        public boolean isRoot() {
+            return parent == null;
+        }
+
+        public long durationNanos() {
+            long end = endNanos;
+            return end < 0 ? -1 : end - startNanos;
+        }
+
+        /**
+         * End the span; later calls are ignored, so every exit path of a flow can call it
+         */
+        public void end() {
+            if (tracer == null) return;
+            synchronized (this) {
+                if (endNanos >= 0) return;
+                endNanos = tracer.clockNanos.getAsLong();
+            }
+            tracer.record(this);
+            if (parent != null && parent.openChildren.decrementAndGet() == 0 && parent.endWithChildren) {
+                parent.end();
+            }
+        }
+
+        /**
+         * End once the children begun so far (and any begun before they finish) have ended;
+         * for a flow whose steps complete independently, like a dashboard's parallel loads
+         */
+        public void endAfterChildren() {
+            endWithChildren = true;
+            if (openChildren.get() == 0) end();
+        }
+    }
+
+    /**
+     * Records nothing, and neither do spans begun under it; returned while tracing is disabled
+     */
+    public static final Span NONE = new Span(null, null, 0, "", "", 0);
+
+    public Tracer(int capacity, LongSupplier clockNanos) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // Next power of two
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.clockNanos = clockNanos;
+        this.epochNanos = clockNanos.getAsLong();
+    }
+
+    static {
+        app.setEnabled(false); // Until TraceExport.install turns it on in debuggable builds
+    }
+
+    public static Tracer app() {
+        return app;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Called after each root span ends, on the thread that ended it
+     */
+    public void setOnFlowEnded(Runnable onFlowEnded) {
+        this.onFlowEnded = onFlowEnded;
+    }
+
+    /**
+     * Start a flow; its steps are begun with begin(step, span)
+     */
+    public Span begin(String name) {
+        return begin(name, null);
+    }
+
+    /**
+     * Start a step of parent's flow, or a flow of its own when parent is null
+     */
+    public Span begin(String name, Span parent) {
+        if (!enabled || parent == NONE) return NONE;
+        long now = clockNanos.getAsLong();
+        if (parent == null) {
+            return new Span(this, null, nextId.getAndIncrement(), name, name, now);
+        }
+        parent.openChildren.incrementAndGet();
+        return new Span(this, parent, parent.traceId, name, parent.category, now);
+    }
+
+    private void record(Span span) {
+        long slot = written.getAndIncrement();
+        slots.set((int) (slot & mask), span);
+        Runnable listener = onFlowEnded;
+        if (span.isRoot() && listener != null) listener.run();
+    }
+
+    /**
+     * Ended spans still in the buffer, oldest start first and parents before children started with them
+     */
+    public List<Span> snapshot() {
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Span span = slots.get(i);
+            if (span != null) spans.add(span);
+        }
+        spans.sort((a, b) -> a.startNanos != b.startNanos
+                ? Long.compare(a.startNanos, b.startNanos)
+                : Integer.compare(a.depth, b.depth));
+        return spans;
+    }
+
+    /**
+     * Spans overwritten before they could be exported
+     */
+    public long dropped() {
+        return Math.max(0, written.get() - slots.length());
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) slots.set(i, null);
+        written.set(0);
+    }
+
+    /**
+     * {"traceEvents":[...]} with a "b"/"e" pair per span; a span's flow is its category and id
+     */
+    public void writeChromeTrace(Appendable out) throws IOException {
+        out.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        out.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"attendance\"}}");
+        for (Span span : snapshot()) {
+            event(out, span, "b", span.startNanos, span.args());
+            event(out, span, "e", span.endNanos, null);
+        }
+        out.append("]}");
+    }
+
+    public String toChromeTrace() {
+        StringBuilder json = new StringBuilder();
+        try {
+            writeChromeTrace(json);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder doesn't throw
+        }
+        return json.toString();
+    }
+
+    private void event(Appendable out, Span span, String phase, long nanos, Map<String, Object> args)
+            throws IOException {
+        out.append(",{\"name\":");
+        string(out, span.name);
+        out.append(",\"cat\":");
+        string(out, span.category);
+        out.append(",\"ph\":\"").append(phase)
+                .append("\",\"id\":\"0x").append(Long.toHexString(span.traceId))
+                .append("\",\"ts\":").append(String.valueOf((nanos - epochNanos) / 1000))
+                .append(",\"pid\":1,\"tid\":").append(String.valueOf(span.threadId));
+        if (args != null && !args.isEmpty()) {
+            out.append(",\"args\":{");
+            boolean first = true;
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                if (!first) out.append(',');
+                first = false;
+                string(out, arg.getKey());
+                out.append(':');
+                Object value = arg.getValue();
+                if (value instanceof Number || value instanceof Boolean) {
+                    out.append(String.valueOf(value));
+                } else {
+                    string(out, String.valueOf(value));
+                }
+            }
+            out.append('}');
+        }
+        out.append('}');
+    }
+
+    private static void string(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,51 @@
+// UiThrottle.java - Coalesces bursts of UI refresh requests into at most one run per interval
+package org.smart.attendance_beta.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * request() may be called as often as data arrives. The first request after a quiet period runs
+ * the action right away; requests within the next interval are folded into a single trailing run,
+ * so the screen shows the latest state without redrawing more than 1000 / intervalMs times a second.
+ * Main thread only.
+ */
+public class UiThrottle {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long intervalMs;
+    private final Runnable action;
+    private final Runnable trailingRun = this::runNow;
+
+    private long lastRunMs = -1;
+    private boolean scheduled;
+
+    public UiThrottle(long intervalMs, Runnable action) {
+        this.intervalMs = intervalMs;
+        this.action = action;
+    }
+
+    public void request() {
+        if (scheduled) return;
+
+        long waitMs = lastRunMs < 0 ? 0 : lastRunMs + intervalMs - SystemClock.uptimeMillis();
+        if (waitMs <= 0) {
+            runNow();
+        } else {
+            scheduled = true;
+            handler.postDelayed(trailingRun, waitMs);
+        }
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(trailingRun);
+        scheduled = false;
+    }
+
+    private void runNow() {
+        scheduled = false;
+        lastRunMs = SystemClock.uptimeMillis();
+        action.run();
+    }
+}
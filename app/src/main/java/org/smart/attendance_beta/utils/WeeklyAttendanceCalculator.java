@@ -4,6 +4,10 @@ package org.smart.attendance_beta.utils;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
+import org.smart.attendance_beta.data.AttendanceRecordCodec;
+import org.smart.attendance_beta.data.FirestoreAttendanceRepository;
+import org.smart.attendance_beta.models.AttendanceRecord;
+
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -52,26 +56,18 @@ public class WeeklyAttendanceCalculator {
      */
     private AttendanceDay processAttendanceRecord(DocumentSnapshot doc) {
         try {
-            AttendanceDay day = new AttendanceDay();
-            day.date = doc.getString("date");
-            day.clockInTime = doc.getString("clockInTime");
-            day.clockOutTime = doc.getString("clockOutTime");
-
-            Double totalHours = doc.getDouble("totalHours");
-            day.hoursWorked = totalHours != null ? totalHours : 0.0;
-
-            Boolean isLate = doc.getBoolean("isLate");
-            day.isLate = isLate != null ? isLate : false;
-
-            Boolean isEarlyClockOut = doc.getBoolean("isEarlyClockOut");
-            day.isEarlyDeparture = isEarlyClockOut != null ? isEarlyClockOut : false;
+            AttendanceRecord record = FirestoreAttendanceRepository.decode(doc, AttendanceRecordCodec.INSTANCE);
+            if (record == null) return null;
 
-            Integer lateMinutes = doc.getLong("lateMinutes") != null ?
-                    doc.getLong("lateMinutes").intValue() : 0;
-            day.lateMinutes = lateMinutes;
-
-            String status = doc.getString("status");
-            day.status = status != null ? status : "Unknown";
+            AttendanceDay day = new AttendanceDay();
+            day.date = record.getDate();
+            day.clockInTime = record.getClockInTime();
+            day.clockOutTime = record.getClockOutTime();
+            day.hoursWorked = record.getTotalHours();
+            day.isLate = record.isLate();
+            day.isEarlyDeparture = record.isEarlyClockOut();
+            day.lateMinutes = record.getLateMinutes();
+            day.status = record.getStatus() != null ? record.getStatus() : "Unknown";
 
             // Determine if this is a valid work day
             day.isWorkDay = day.hoursWorked > 0 || day.clockInTime != null;
@@ -103,8 +99,8 @@ public class WeeklyAttendanceCalculator {
                     stats.earlyDepartures++;
                 }
 
-                // Track daily hours for analysis
-                stats.dailyHours.add(day.hoursWorked);
+                // Track daily hours and arrival times for analysis
+                stats.hoursStats.add(day.hoursWorked);
             }
         }
 
@@ -180,16 +176,9 @@ public class WeeklyAttendanceCalculator {
             stats.punctualityRate = (onTimeArrivals / (double) stats.daysWorked) * 100;
         }
 
-        // Calculate consistency (standard deviation of daily hours)
-        if (stats.dailyHours.size() > 1) {
-            double mean = stats.averageHoursPerDay;
-            double sumSquaredDiffs = 0;
-
-            for (double hours : stats.dailyHours) {
-                sumSquaredDiffs += Math.pow(hours - mean, 2);
-            }
-
-            stats.hoursConsistency = Math.sqrt(sumSquaredDiffs / stats.dailyHours.size());
+        // Calculate consistency (standard deviation of daily hours, accumulated in a single pass)
+        if (stats.hoursStats.getCount() > 1) {
+            stats.hoursConsistency = stats.hoursStats.getStandardDeviation();
         }
 
         // Determine overall grade
@@ -397,7 +386,7 @@ public class WeeklyAttendanceCalculator {
         public String weeklyGrade = "N/A";
 
         // Internal tracking
-        public List<Double> dailyHours = new ArrayList<>();
+        public RunningStats hoursStats = new RunningStats();
 
         /**
          * Get formatted summary for display
@@ -1,10 +1,9 @@
 package org.smart.attendance_beta.utils;
 
-import android.util.Log;
 
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
+import org.smart.attendance_beta.data.AttendanceRepository;
+import org.smart.attendance_beta.data.FirestoreAttendanceRepository;
+import org.smart.attendance_beta.models.AttendanceRecord;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -28,28 +27,27 @@ public class WeeklyAttendanceUtils {
      * Load weekly statistics for an employee
      */
     public static void loadWeeklyStats(String employeeDocId, WeeklyStatsCallback callback) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        loadWeeklyStats(FirestoreAttendanceRepository.shared(), employeeDocId, callback);
+    }
 
+    public static void loadWeeklyStats(AttendanceRepository repository, String employeeDocId,
+                                       WeeklyStatsCallback callback) {
         // Get current week date range
         String[] weekDates = getCurrentWeekDates();
-        String startDate = weekDates[0];
-        String endDate = weekDates[6];
-
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employeeDocId)
-                .whereGreaterThanOrEqualTo("date", startDate)
-                .whereLessThanOrEqualTo("date", endDate)
-                .orderBy("date", Query.Direction.ASCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        WeeklyStats stats = calculateWeeklyStats(task.getResult().getDocuments(), weekDates);
-                        callback.onStatsLoaded(stats);
-                    } else {
-                        callback.onError("Failed to load weekly stats: " + task.getException().getMessage());
+
+        repository.getRecords(employeeDocId, weekDates[0], weekDates[6],
+                new AttendanceRepository.Callback<List<AttendanceRecord>>() {
+                    @Override
+                    public void onSuccess(List<AttendanceRecord> records) {
+                        callback.onStatsLoaded(calculateWeeklyStats(records, weekDates));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        AppLog.e(TAG, error);
+                        callback.onError(error);
                     }
-                })
-                .addOnFailureListener(e -> callback.onError("Error loading weekly stats: " + e.getMessage()));
+                });
     }
 
     /**
@@ -111,7 +109,7 @@ public class WeeklyAttendanceUtils {
     /**
      * Calculate comprehensive weekly statistics
      */
-    private static WeeklyStats calculateWeeklyStats(List<DocumentSnapshot> attendanceDocs, String[] weekDates) {
+    private static WeeklyStats calculateWeeklyStats(List<AttendanceRecord> records, String[] weekDates) {
         WeeklyStats stats = new WeeklyStats();
 
         // Initialize
@@ -123,11 +121,10 @@ public class WeeklyAttendanceUtils {
         stats.earlyDepartures = 0;
 
         // Create map for quick lookup
-        Map<String, DocumentSnapshot> attendanceMap = new HashMap<>();
-        for (DocumentSnapshot doc : attendanceDocs) {
-            String date = doc.getString("date");
-            if (date != null) {
-                attendanceMap.put(date, doc);
+        Map<String, AttendanceRecord> attendanceMap = new HashMap<>();
+        for (AttendanceRecord record : records) {
+            if (record.getDate() != null) {
+                attendanceMap.put(record.getDate(), record);
             }
         }
 
@@ -140,8 +137,7 @@ public class WeeklyAttendanceUtils {
             DayStats dayStats = new DayStats(date, dayName);
 
             if (attendanceMap.containsKey(date)) {
-                DocumentSnapshot doc = attendanceMap.get(date);
-                processAttendanceRecord(doc, dayStats, stats);
+                processAttendanceRecord(attendanceMap.get(date), dayStats, stats);
             }
 
             stats.dailyStats.add(dayStats);
@@ -170,14 +166,13 @@ public class WeeklyAttendanceUtils {
         return stats;
     }
 
-    private static void processAttendanceRecord(DocumentSnapshot doc, DayStats dayStats, WeeklyStats stats) {
-        String clockInTime = doc.getString("clockInTime");
-        String clockOutTime = doc.getString("clockOutTime");
-        Double hoursWorked = doc.getDouble("hoursWorked");
+    private static void processAttendanceRecord(AttendanceRecord record, DayStats dayStats, WeeklyStats stats) {
+        String clockInTime = record.getClockInTime();
+        String clockOutTime = record.getClockOutTime();
 
         dayStats.clockInTime = clockInTime;
         dayStats.clockOutTime = clockOutTime;
-        dayStats.hoursWorked = hoursWorked != null ? hoursWorked : 0.0;
+        dayStats.hoursWorked = record.getTotalHours();
         dayStats.isPresent = clockInTime != null;
 
         // Only count work days (Monday-Friday) for main stats
@@ -185,6 +180,8 @@ public class WeeklyAttendanceUtils {
             if (dayStats.isPresent) {
                 stats.daysPresent++;
                 stats.totalHours += dayStats.hoursWorked;
+                stats.distribution.recordClockIn(clockInTime);
+                stats.distribution.recordHoursWorked(dayStats.hoursWorked);
 
                 // Check for late arrival (after 9:00 AM)
                 if (isLateArrival(clockInTime)) {
@@ -281,6 +278,7 @@ public class WeeklyAttendanceUtils {
         public int earlyDepartures;
         public int daysLate;  // ✅ ADDED: Alias for lateDays to match your existing code
         public String weekRange;
+        public AttendanceDistribution distribution = new AttendanceDistribution(); // Work days present
 
         // Constructor to ensure daysLate matches lateDays
         public WeeklyStats() {
@@ -0,0 +1,102 @@
+package org.smart.attendance_beta.data;
+
+import org.junit.Test;
+import org.smart.attendance_beta.models.AttendanceRecord;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AttendanceRecordCodecTest {
+
+    @Test
+    public void encode_usesStoredFieldNamesAndSkipsNulls() {
+        AttendanceRecord record = clockIn("emp1", "2025-03-03");
+        Map<String, Object> data = AttendanceRecordCodec.INSTANCE.encode(record);
+
+        assertEquals("emp1", data.get(AttendanceFields.EMPLOYEE_DOC_ID));
+        assertEquals(Boolean.TRUE, data.get("isLate"));
+        assertEquals(0.0, (Double) data.get("totalHours"), 0);
+        assertEquals("ntp", data.get(AttendanceFields.TIME_VALIDATION_METHOD));
+        assertFalse(data.containsKey(AttendanceFields.CLOCK_OUT_TIME));
+        assertFalse(data.containsKey(AttendanceFields.CLOCK_OUT_LATITUDE));
+        assertFalse(data.containsKey(AttendanceFields.DEPARTMENT));
+    }
+
+    @Test
+    public void decode_acceptsFirestoreNumberTypes() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(AttendanceFields.EMPLOYEE_DOC_ID, "emp1");
+        data.put(AttendanceFields.DATE, "2025-03-03");
+        data.put(AttendanceFields.TOTAL_HOURS, 8L);        // 8.0 comes back as a Long
+        data.put(AttendanceFields.LATE_MINUTES, 12L);
+        data.put(AttendanceFields.CLOCK_IN_LATITUDE, -1L);
+        data.put(AttendanceFields.IS_LATE, "yes");           // Wrong type is ignored, not thrown
+
+        AttendanceRecord record = AttendanceRecordCodec.INSTANCE.decode("emp1_20250303", data);
+
+        assertEquals("emp1_20250303", record.getId());
+        assertEquals(8.0, record.getTotalHours(), 0);
+        assertEquals(12, record.getLateMinutes());
+        assertEquals(-1.0, record.getClockInLatitude(), 0);
+        assertFalse(record.isLate());
+        assertNull(record.getClockOutLatitude());
+    }
+
+    @Test
+    public void inMemoryRepository_rangeQueryMatchesFirestoreSemantics() {
+        InMemoryAttendanceRepository repository = new InMemoryAttendanceRepository();
+        repository.saveRecord(clockIn("emp1", "2025-03-05"), ignore());
+        repository.saveRecord(clockIn("emp1", "2025-03-03"), ignore());
+        repository.saveRecord(clockIn("emp2", "2025-03-04"), ignore());
+        repository.saveRecord(clockIn("emp1", "2025-03-10"), ignore());
+
+        Map<String, Object> clockOut = new HashMap<>();
+        clockOut.put(AttendanceFields.TOTAL_HOURS, 7.5);
+        repository.updateRecord("emp1", "2025-03-03", clockOut, ignore());
+
+        List<AttendanceRecord>[] result = new List[1];
+        repository.getRecords("emp1", "2025-03-03", "2025-03-09", new AttendanceRepository.Callback<List<AttendanceRecord>>() {
+            @Override
+            public void onSuccess(List<AttendanceRecord> records) {
+                result[0] = records;
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+
+        assertEquals(2, result[0].size());
+        assertEquals("2025-03-03", result[0].get(0).getDate());
+        assertEquals(7.5, result[0].get(0).getTotalHours(), 0);
+        assertEquals("emp1_20250305", result[0].get(1).getId());
+    }
+
+    private static AttendanceRecord clockIn(String employeeDocId, String date) {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setEmployeeDocId(employeeDocId);
+        record.setDate(date);
+        record.setClockInTime("08:05:00");
+        record.setLate(true);
+        record.setLateMinutes(5);
+        record.setSessionActive(true);
+        record.putExtra(AttendanceFields.TIME_VALIDATION_METHOD, "ntp");
+        return record;
+    }
+
+    private static <T> AttendanceRepository.Callback<T> ignore() {
+        return new AttendanceRepository.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {}
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        };
+    }
+}
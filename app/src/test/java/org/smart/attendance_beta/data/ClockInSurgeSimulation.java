@@ -0,0 +1,390 @@
+package org.smart.attendance_beta.data;
+
+import org.junit.Test;
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.utils.ClockInTransaction;
+import org.smart.attendance_beta.utils.DailyCounters;
+import org.smart.attendance_beta.utils.ShardCountTuner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays the 08:00 clock-in surge against InMemoryAttendanceRepository: every employee validates
+ * their session, clocks in and sends heartbeats, with a share of double taps and second devices.
+ * Reports throughput, per-step p50/p99 and transaction contention, checks the sharded daily
+ * counters against the records, and replays the arrivals through ShardCountTuner to show how hot
+ * the busiest counter shard gets with the default and the tuned shard count.
+ *
+ * The test runs a small surge and checks the invariants; it is left out of the default test run,
+ * use ./gradlew testDebugUnitTest -Pbenchmarks. For bigger runs use main, e.g.
+ *   employees=5000 offices=8 devices=128 rtt=2000 heartbeats=3 doubleTap=0.05 secondDevice=0.01
+ */
+public class ClockInSurgeSimulation {
+
+    static class Config {
+        int employees = 2000;
+        int offices = 5;
+        int devices = 64;              // Concurrent clients in flight
+        int heartbeats = 3;
+        long roundTripMicros = 1500;
+        double doubleTapRate = 0.05;   // Second tap on the same device while the first is in flight
+        double secondDeviceRate = 0.01;
+        int arrivalMeanMinute = 7 * 60 + 58;
+        double arrivalSdMinutes = 7;
+        String date = "2025-03-03";
+        long seed = 42;
+
+        static Config parse(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                String[] kv = arg.split("=", 2);
+                if (kv.length != 2) throw new IllegalArgumentException("Expected key=value: " + arg);
+                switch (kv[0]) {
+                    case "employees": config.employees = Integer.parseInt(kv[1]); break;
+                    case "offices": config.offices = Integer.parseInt(kv[1]); break;
+                    case "devices": config.devices = Integer.parseInt(kv[1]); break;
+                    case "heartbeats": config.heartbeats = Integer.parseInt(kv[1]); break;
+                    case "rtt": config.roundTripMicros = Long.parseLong(kv[1]); break;
+                    case "doubleTap": config.doubleTapRate = Double.parseDouble(kv[1]); break;
+                    case "secondDevice": config.secondDeviceRate = Double.parseDouble(kv[1]); break;
+                    case "seed": config.seed = Long.parseLong(kv[1]); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + kv[0]);
+                }
+            }
+            return config;
+        }
+    }
+
+    /**
+     * One client's attempt: a device trying to clock an employee in at a simulated second of the day
+     */
+    private static class Attempt {
+        final int employee;
+        final String deviceId;
+        final int arrivalSecond;
+
+        Attempt(int employee, String deviceId, int arrivalSecond) {
+            this.employee = employee;
+            this.deviceId = deviceId;
+            this.arrivalSecond = arrivalSecond;
+        }
+    }
+
+    /**
+     * Latency samples in nanoseconds
+     */
+    static class Latencies {
+        private long[] samples = new long[1024];
+        private int count;
+
+        synchronized void add(long nanos) {
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = nanos;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized double percentileMs(double p) {
+            if (count == 0) return 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+        }
+    }
+
+    static class Report {
+        final Config config;
+        final Latencies validate = new Latencies();
+        final Latencies clockIn = new Latencies();
+        final Latencies heartbeat = new Latencies();
+        final Map<ClockInTransaction.Outcome, AtomicLong> outcomes = new EnumMap<>(ClockInTransaction.Outcome.class);
+        final AtomicLong blockedByValidation = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final Map<String, AtomicInteger> heatmapWritesPerSecond = new ConcurrentHashMap<>();
+        final Map<Integer, AtomicInteger> arrivalsPerSecond = new ConcurrentHashMap<>();
+        final AtomicLong lateCreated = new AtomicLong();
+
+        long wallNanos;
+        long conflicts;
+        long failedTransactions;
+        int records;
+        int employeesCreated;
+        long heatmapArrivals;
+        DailyCounters.Totals counters;
+        double peakArrivalsPerSecond;
+        int tunedShards;
+        int hottestShardDefault;
+        int hottestShardTuned;
+
+        Report(Config config) {
+            this.config = config;
+            for (ClockInTransaction.Outcome outcome : ClockInTransaction.Outcome.values()) {
+                outcomes.put(outcome, new AtomicLong());
+            }
+        }
+
+        long operations() {
+            return validate.count() + clockIn.count() + heartbeat.count();
+        }
+
+        int peakHeatmapWritesPerSecond() {
+            int peak = 0;
+            for (AtomicInteger writes : heatmapWritesPerSecond.values()) peak = Math.max(peak, writes.get());
+            return peak;
+        }
+
+        void print() {
+            double seconds = wallNanos / 1e9;
+            System.out.printf(Locale.US, "Surge: %d employees, %d offices, %d devices, rtt %d us, %d heartbeats%n",
+                    config.employees, config.offices, config.devices, config.roundTripMicros, config.heartbeats);
+            System.out.printf(Locale.US, "  %d ops in %.2f s = %.0f ops/s%n", operations(), seconds, operations() / seconds);
+            printLatencies("validate", validate);
+            printLatencies("clock-in", clockIn);
+            printLatencies("heartbeat", heartbeat);
+            System.out.println("  outcomes " + outcomes + ", blocked by validation " + blockedByValidation + ", errors " + errors);
+            System.out.printf(Locale.US, "  contention: %d retried transaction attempts, %d gave up%n", conflicts, failedTransactions);
+            System.out.printf(Locale.US, "  hottest heatmap slice: %d writes in one simulated second (Firestore sustains ~1/s per document)%n",
+                    peakHeatmapWritesPerSecond());
+            System.out.printf(Locale.US, "  %d records for %d employees clocked in, %d heatmap arrivals%n",
+                    records, employeesCreated, heatmapArrivals);
+            System.out.printf(Locale.US, "  daily counters: %d present, %d late over %d shards%n",
+                    counters.present, counters.late, counters.shards);
+            System.out.printf(Locale.US, "  peak %.1f arrivals/s over %d s -> tuner picks %d shards; hottest shard %d writes/s with %d shards, %d with %d%n",
+                    peakArrivalsPerSecond, ShardCountTuner.WINDOW_MS / 1000, tunedShards,
+                    hottestShardDefault, DailyCounters.DEFAULT_SHARDS, hottestShardTuned, tunedShards);
+        }
+
+        private static void printLatencies(String label, Latencies latencies) {
+            System.out.printf(Locale.US, "  %-9s n=%6d  p50 %7.2f ms  p99 %7.2f ms%n",
+                    label, latencies.count(), latencies.percentileMs(50), latencies.percentileMs(99));
+        }
+    }
+
+    @Test
+    public void surge_keepsOneRecordPerEmployeeUnderContention() throws InterruptedException {
+        Config config = new Config();
+        config.employees = 400;
+        config.devices = 32;
+        config.roundTripMicros = 300;
+        config.heartbeats = 2;
+        config.doubleTapRate = 0.2;
+        config.secondDeviceRate = 0.05;
+
+        Report report = run(config);
+        report.print();
+
+        assertEquals(0, report.errors.get());
+        assertEquals(config.employees, report.records);
+        assertEquals(config.employees, report.employeesCreated);
+        assertEquals(report.outcomes.get(ClockInTransaction.Outcome.CREATED).get(), report.records);
+        assertEquals(report.records, report.heatmapArrivals);
+        assertEquals(report.records, report.counters.present);
+        assertEquals(report.lateCreated.get(), report.counters.late);
+        assertEquals(ShardCountTuner.shardsFor(report.peakArrivalsPerSecond), report.tunedShards);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        run(Config.parse(args)).print();
+    }
+
+    static Report run(Config config) throws InterruptedException {
+        InMemoryAttendanceRepository repository = new InMemoryAttendanceRepository(config.roundTripMicros);
+        Report report = new Report(config);
+        Set<Integer> clockedIn = ConcurrentHashMap.newKeySet();
+
+        List<Attempt> attempts = buildAttempts(config);
+        ExecutorService devices = Executors.newFixedThreadPool(config.devices);
+        long start = System.nanoTime();
+        for (Attempt attempt : attempts) {
+            devices.execute(() -> runAttempt(repository, config, attempt, report, clockedIn));
+        }
+        devices.shutdown();
+        if (!devices.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Surge did not finish");
+        }
+        report.wallNanos = System.nanoTime() - start;
+
+        report.conflicts = repository.getTransactionConflicts();
+        report.failedTransactions = repository.getTransactionFailures();
+        report.records = repository.getRecordCount();
+        report.employeesCreated = clockedIn.size();
+        for (int office = 0; office < config.offices; office++) {
+            report.heatmapArrivals += repository.getArrivalCount(officeId(office), config.date);
+        }
+        report.counters = repository.getDailyCounters(config.date);
+        tuneShards(config, report);
+        return report;
+    }
+
+    /**
+     * Feed the arrival curve to the tuner as a running total (a sliding version of the fixed write
+     * windows DailyCounters keeps in its shards), then spread each
+     * simulated second's counter writes over the shards to find the busiest shard-second
+     */
+    private static void tuneShards(Config config, Report report) {
+        List<Integer> seconds = new ArrayList<>(report.arrivalsPerSecond.keySet());
+        seconds.sort(null);
+
+        ShardCountTuner tuner = new ShardCountTuner();
+        long total = 0;
+        for (int second : seconds) {
+            total += report.arrivalsPerSecond.get(second).get();
+            tuner.observe(second * 1000L, total);
+        }
+        report.peakArrivalsPerSecond = tuner.getPeakWritesPerSecond();
+        report.tunedShards = tuner.recommendedShards();
+
+        Random random = new Random(config.seed);
+        report.hottestShardDefault = hottestShardSecond(report, seconds, DailyCounters.DEFAULT_SHARDS, random);
+        report.hottestShardTuned = hottestShardSecond(report, seconds, report.tunedShards, random);
+    }
+
+    private static int hottestShardSecond(Report report, List<Integer> seconds, int shards, Random random) {
+        int hottest = 0;
+        for (int second : seconds) {
+            int[] writes = new int[shards];
+            for (int i = report.arrivalsPerSecond.get(second).get(); i > 0; i--) {
+                hottest = Math.max(hottest, ++writes[random.nextInt(shards)]);
+            }
+        }
+        return hottest;
+    }
+
+    private static List<Attempt> buildAttempts(Config config) {
+        Random random = new Random(config.seed);
+        List<Attempt> attempts = new ArrayList<>();
+
+        for (int employee = 0; employee < config.employees; employee++) {
+            int arrival = (int) Math.round((config.arrivalMeanMinute + random.nextGaussian() * config.arrivalSdMinutes) * 60);
+            String phone = "device-" + employee;
+            attempts.add(new Attempt(employee, phone, arrival));
+
+            if (random.nextDouble() < config.doubleTapRate) {
+                attempts.add(new Attempt(employee, phone, arrival));
+            }
+            if (random.nextDouble() < config.secondDeviceRate) {
+                attempts.add(new Attempt(employee, "borrowed-" + employee, arrival + random.nextInt(5)));
+            }
+        }
+
+        // Replay in arrival order; double taps land next to each other and race
+        attempts.sort((a, b) -> Integer.compare(a.arrivalSecond, b.arrivalSecond));
+        return attempts;
+    }
+
+    private static void runAttempt(InMemoryAttendanceRepository repository, Config config, Attempt attempt,
+                                   Report report, Set<Integer> clockedIn) {
+        String employeeDocId = "emp" + attempt.employee;
+
+        // 1. Session validation (DeviceSessionManager.validateDeviceSession)
+        long t0 = System.nanoTime();
+        AttendanceRecord existing = await(callback -> repository.getRecord(employeeDocId, config.date, callback), report);
+        report.validate.add(System.nanoTime() - t0);
+
+        ClockInTransaction.Outcome validation = ClockInTransaction.classify(existing, attempt.deviceId);
+        if (validation == ClockInTransaction.Outcome.DEVICE_CONFLICT || validation == ClockInTransaction.Outcome.DAY_COMPLETE) {
+            report.blockedByValidation.incrementAndGet();
+            return;
+        }
+
+        // 2. Clock-in transaction, unless validation already saw this device's session
+        if (validation == ClockInTransaction.Outcome.CREATED) {
+            int office = attempt.employee % config.offices;
+            AttendanceRecord record = newRecord(employeeDocId, config.date, attempt, office);
+
+            long t1 = System.nanoTime();
+            ClockInTransaction.Outcome outcome = await(callback -> repository.clockIn(record, callback), report);
+            report.clockIn.add(System.nanoTime() - t1);
+            if (outcome == null) return;
+
+            report.outcomes.get(outcome).incrementAndGet();
+            if (outcome == ClockInTransaction.Outcome.CREATED) {
+                clockedIn.add(attempt.employee);
+                if (record.isLate()) report.lateCreated.incrementAndGet();
+                report.arrivalsPerSecond
+                        .computeIfAbsent(attempt.arrivalSecond, key -> new AtomicInteger())
+                        .incrementAndGet();
+                report.heatmapWritesPerSecond
+                        .computeIfAbsent(officeId(office) + "@" + attempt.arrivalSecond, key -> new AtomicInteger())
+                        .incrementAndGet();
+            } else if (outcome != ClockInTransaction.Outcome.ALREADY_CLOCKED_IN) {
+                return;
+            }
+        }
+
+        // 3. Heartbeats from the open session
+        for (int i = 0; i < config.heartbeats; i++) {
+            long t2 = System.nanoTime();
+            ClockInSurgeSimulation.<Void>await(callback -> repository.recordHeartbeat(employeeDocId, config.date, callback), report);
+            report.heartbeat.add(System.nanoTime() - t2);
+        }
+    }
+
+    private static AttendanceRecord newRecord(String employeeDocId, String date, Attempt attempt, int office) {
+        int second = Math.floorMod(attempt.arrivalSecond, 24 * 3600);
+        String clockInTime = String.format(Locale.US, "%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60);
+        boolean isLate = second > 8 * 3600;
+
+        AttendanceRecord record = new AttendanceRecord();
+        record.setEmployeeDocId(employeeDocId);
+        record.setPfNumber("PF" + attempt.employee);
+        record.setEmployeeName("Employee " + attempt.employee);
+        record.setDate(date);
+        record.setClockInTime(clockInTime);
+        record.setOfficeId(officeId(office));
+        record.setOfficeName("Office " + office);
+        record.setStatus(isLate ? "Late" : "Present");
+        record.setLate(isLate);
+        record.setLateMinutes(isLate ? (second - 8 * 3600) / 60 : 0);
+        record.setDeviceId(attempt.deviceId);
+        record.setSessionActive(true);
+        return record;
+    }
+
+    private static String officeId(int office) {
+        return "office" + office;
+    }
+
+    private interface Call<T> {
+        void invoke(AttendanceRepository.Callback<T> callback);
+    }
+
+    /**
+     * The in-memory repository calls back synchronously; unwrap the result or count the error
+     */
+    private static <T> T await(Call<T> call, Report report) {
+        Object[] result = new Object[1];
+        call.invoke(new AttendanceRepository.Callback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result[0] = value;
+            }
+
+            @Override
+            public void onError(String error) {
+                report.errors.incrementAndGet();
+            }
+        });
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+}
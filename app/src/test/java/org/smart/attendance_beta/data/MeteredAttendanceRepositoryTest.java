@@ -0,0 +1,98 @@
+package org.smart.attendance_beta.data;
+
+import org.junit.Test;
+import org.smart.attendance_beta.models.AttendanceRecord;
+import org.smart.attendance_beta.utils.CostBudget;
+import org.smart.attendance_beta.utils.CostLedger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MeteredAttendanceRepositoryTest {
+
+    private static final String EMPLOYEE = "emp1";
+
+    private final InMemoryAttendanceRepository store = new InMemoryAttendanceRepository();
+    private final CostLedger ledger = new CostLedger();
+
+    private static class Result<T> implements AttendanceRepository.Callback<T> {
+        T value;
+        String error;
+
+        @Override
+        public void onSuccess(T result) {
+            value = result;
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+        }
+    }
+
+    private void seedWeek() {
+        for (int day = 19; day <= 23; day++) {
+            AttendanceRecord record = new AttendanceRecord();
+            record.setEmployeeDocId(EMPLOYEE);
+            record.setDate("2026-10-" + day);
+            record.setClockInTime("08:05:00");
+            store.saveRecord(record, new Result<>());
+        }
+    }
+
+    @Test
+    public void reads_areBilledPerDocumentReturned() {
+        seedWeek();
+        MeteredAttendanceRepository repo = new MeteredAttendanceRepository(store, ledger);
+
+        Result<List<AttendanceRecord>> week = new Result<>();
+        repo.getRecords(EMPLOYEE, "2026-10-19", "2026-10-25", week);
+        repo.getRecords(EMPLOYEE, "2026-11-01", "2026-11-07", new Result<>());
+        repo.getRecord(EMPLOYEE, "2026-10-30", new Result<>());
+
+        assertEquals(5, week.value.size());
+        CostLedger.Cost records = ledger.forSite("repo.getRecords");
+        assertEquals(2, records.calls);
+        assertEquals(6, records.reads); // An empty query is still billed one read
+        assertTrue(records.bytes > 0);
+        assertEquals(1, ledger.forSite("repo.getRecord").reads);
+    }
+
+    @Test
+    public void writes_areBilledPerCall() {
+        MeteredAttendanceRepository repo = new MeteredAttendanceRepository(store, ledger);
+        AttendanceRecord record = new AttendanceRecord();
+        record.setEmployeeDocId(EMPLOYEE);
+        record.setDate("2026-10-19");
+        repo.saveRecord(record, new Result<>());
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(AttendanceFields.CLOCK_OUT_TIME, "17:00:00");
+        repo.updateRecord(EMPLOYEE, "2026-10-19", updates, new Result<>());
+
+        assertEquals(1, ledger.forSite("repo.saveRecord").writes);
+        assertEquals(1, ledger.forSite("repo.updateRecord").writes);
+        assertEquals(0, ledger.total().reads);
+    }
+
+    @Test
+    public void screenLoadingTheWeekRepeatedly_staysWithinOneQueryOfReads() {
+        seedWeek();
+        AttendanceRepository repo = new CoalescingAttendanceRepository(new MeteredAttendanceRepository(store, ledger));
+
+        // The dashboard, the weekly card and the stats helper all ask for the same week
+        List<Result<List<AttendanceRecord>>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Result<List<AttendanceRecord>> result = new Result<>();
+            repo.getRecords(EMPLOYEE, "2026-10-19", "2026-10-25", result);
+            results.add(result);
+        }
+
+        for (Result<List<AttendanceRecord>> result : results) assertEquals(5, result.value.size());
+        new CostBudget().maxReads("repo.getRecords", 5).maxTotalReads(5).check(ledger);
+    }
+}
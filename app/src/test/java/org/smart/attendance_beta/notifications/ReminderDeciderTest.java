@@ -0,0 +1,74 @@
+package org.smart.attendance_beta.notifications;
+
+import org.junit.Test;
+import org.smart.attendance_beta.notifications.ReminderDecider.Decision;
+import org.smart.attendance_beta.notifications.ReminderDecider.Reminder;
+import org.smart.attendance_beta.utils.TodayState.Status;
+import org.smart.attendance_beta.utils.TodaySummary;
+
+import static org.junit.Assert.*;
+
+public class ReminderDeciderTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+    private static final long NOW = 1_000 * HOUR_MS;
+
+    private static TodaySummary summary(String date, Status status, long ageMs) {
+        return new TodaySummary("emp1", date, status, NOW - ageMs);
+    }
+
+    private static Decision decide(Reminder reminder, TodaySummary summary) {
+        return ReminderDecider.decide(reminder, summary, "emp1", "2026-10-19", NOW);
+    }
+
+    @Test
+    public void todaysSummary_decidesEveryReminder() {
+        TodaySummary notIn = summary("2026-10-19", Status.NOT_CLOCKED_IN, HOUR_MS);
+        TodaySummary in = summary("2026-10-19", Status.CLOCKED_IN, HOUR_MS);
+        TodaySummary done = summary("2026-10-19", Status.COMPLETE, HOUR_MS);
+
+        assertEquals(Decision.NOTIFY, decide(Reminder.CLOCK_IN, notIn));
+        assertEquals(Decision.NOTIFY, decide(Reminder.LATE, notIn));
+        assertEquals(Decision.SKIP, decide(Reminder.CLOCK_OUT, notIn));
+
+        assertEquals(Decision.SKIP, decide(Reminder.CLOCK_IN, in));
+        assertEquals(Decision.SKIP, decide(Reminder.LATE, in));
+        assertEquals(Decision.NOTIFY, decide(Reminder.CLOCK_OUT, in));
+
+        assertEquals(Decision.SKIP, decide(Reminder.LATE, done));
+        assertEquals(Decision.SKIP, decide(Reminder.CLOCK_OUT, done));
+    }
+
+    @Test
+    public void yesterdaysSummary_meansNotClockedInToday() {
+        TodaySummary lastNight = summary("2026-10-18", Status.COMPLETE, 14 * HOUR_MS);
+
+        assertEquals(Decision.NOTIFY, decide(Reminder.CLOCK_IN, lastNight));
+        assertEquals(Decision.SKIP, decide(Reminder.CLOCK_OUT, lastNight));
+    }
+
+    @Test
+    public void oldMissingOrForeignSummary_checksTheServer() {
+        assertEquals(Decision.CHECK_SERVER, decide(Reminder.CLOCK_IN, null));
+        assertEquals(Decision.CHECK_SERVER,
+                decide(Reminder.CLOCK_IN, summary("2026-10-16", Status.COMPLETE, 63 * HOUR_MS)));
+        assertEquals(Decision.CHECK_SERVER, decide(Reminder.CLOCK_IN,
+                new TodaySummary("emp2", "2026-10-19", Status.CLOCKED_IN, NOW)));
+    }
+
+    @Test
+    public void clockChanges_checkTheServer() {
+        assertEquals(Decision.CHECK_SERVER,
+                decide(Reminder.LATE, summary("2026-10-19", Status.NOT_CLOCKED_IN, -HOUR_MS)));
+        assertEquals(Decision.CHECK_SERVER,
+                decide(Reminder.LATE, summary("2026-10-20", Status.NOT_CLOCKED_IN, HOUR_MS)));
+    }
+
+    @Test
+    public void actions_mapToReminders() {
+        assertEquals(Reminder.CLOCK_IN, Reminder.fromAction("CLOCK_IN_REMINDER"));
+        assertEquals(Reminder.LATE, Reminder.fromAction("LATE_ALERT"));
+        assertEquals(Reminder.CLOCK_OUT, Reminder.fromAction("CLOCK_OUT_REMINDER"));
+        assertNull(Reminder.fromAction("SOMETHING_ELSE"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.smart.attendance_beta.notifications;
+
+import org.junit.Test;
+import org.smart.attendance_beta.notifications.ReminderDecider.Decision;
+import org.smart.attendance_beta.notifications.ReminderDecider.Reminder;
+import org.smart.attendance_beta.utils.TodayState.Status;
+import org.smart.attendance_beta.utils.TodaySummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the receiver's logic through fake notifications, reads, goAsync and timers
+ */
+public class ReminderRunTest {
+
+    private long nowMs = 100_000_000;
+
+    private static class FakeHost implements ReminderRun.Host {
+        final List<Reminder> shown = new ArrayList<>();
+        final List<ReminderRun.ServerCallback> reads = new ArrayList<>();
+        final List<Runnable> timers = new ArrayList<>();
+        int keptAlive;
+        int released;
+
+        @Override
+        public void showNotification(Reminder reminder) {
+            shown.add(reminder);
+        }
+
+        @Override
+        public void fetchToday(Reminder reminder, String employeeDocId, String date,
+                               ReminderRun.ServerCallback callback) {
+            reads.add(callback);
+        }
+
+        @Override
+        public Runnable keepAlive() {
+            keptAlive++;
+            return () -> released++;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            timers.add(task);
+        }
+    }
+
+    private static class MemoryStore implements TodaySummary.Store {
+        TodaySummary summary;
+
+        @Override
+        public TodaySummary load() {
+            return summary;
+        }
+
+        @Override
+        public void save(TodaySummary summary) {
+            this.summary = summary;
+        }
+    }
+
+    private final FakeHost host = new FakeHost();
+    private final MemoryStore store = new MemoryStore();
+    private final ReminderRun run = new ReminderRun(host, store, () -> nowMs);
+
+    @Test
+    public void freshSummary_decidesWithoutNetworkOrGoAsync() {
+        store.summary = new TodaySummary("emp1", "2026-10-19", Status.CLOCKED_IN, nowMs - 60_000);
+
+        assertEquals(Decision.NOTIFY, run.run(Reminder.CLOCK_OUT, "emp1", "2026-10-19"));
+        assertEquals(Decision.SKIP, run.run(Reminder.LATE, "emp1", "2026-10-19"));
+
+        assertEquals(Collections.singletonList(Reminder.CLOCK_OUT), host.shown);
+        assertTrue(host.reads.isEmpty());
+        assertEquals(0, host.keptAlive);
+    }
+
+    @Test
+    public void missingSummary_readsUnderGoAsyncAndSavesTheAnswer() {
+        assertEquals(Decision.CHECK_SERVER, run.run(Reminder.LATE, "emp1", "2026-10-19"));
+        assertEquals(1, host.keptAlive);
+        assertEquals(0, host.released);
+
+        host.reads.get(0).onStatus(Status.NOT_CLOCKED_IN);
+
+        assertEquals(Collections.singletonList(Reminder.LATE), host.shown);
+        assertEquals(1, host.released);
+        assertEquals(Status.NOT_CLOCKED_IN, store.summary.status);
+        assertEquals(nowMs, store.summary.confirmedAtMs);
+
+        // The next alarm decides from what was saved
+        run.run(Reminder.CLOCK_OUT, "emp1", "2026-10-19");
+        assertEquals(1, host.reads.size());
+    }
+
+    @Test
+    public void deadline_releasesTheReceiverAndIgnoresALateAnswer() {
+        run.run(Reminder.CLOCK_IN, "emp1", "2026-10-19");
+
+        host.timers.get(0).run();
+        host.reads.get(0).onStatus(Status.CLOCKED_IN);
+
+        // Clock-in is shown when the day can't be checked in time, like on a read error
+        assertEquals(Collections.singletonList(Reminder.CLOCK_IN), host.shown);
+        assertEquals(1, host.released);
+        assertNull(store.summary);
+    }
+
+    @Test
+    public void answerBeforeDeadline_winsAndTheTimerDoesNothing() {
+        run.run(Reminder.CLOCK_IN, "emp1", "2026-10-19");
+
+        host.reads.get(0).onStatus(Status.CLOCKED_IN);
+        host.timers.get(0).run();
+
+        assertTrue(host.shown.isEmpty());
+        assertEquals(1, host.released);
+    }
+
+    @Test
+    public void readError_onlyClockInStillNotifies() {
+        run.run(Reminder.CLOCK_IN, "emp1", "2026-10-19");
+        run.run(Reminder.CLOCK_OUT, "emp1", "2026-10-19");
+
+        host.reads.get(0).onError("offline");
+        host.reads.get(1).onError("offline");
+
+        assertEquals(Arrays.asList(Reminder.CLOCK_IN), host.shown);
+        assertEquals(2, host.released);
+    }
+}
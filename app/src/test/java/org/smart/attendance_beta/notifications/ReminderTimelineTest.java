@@ -0,0 +1,92 @@
+package org.smart.attendance_beta.notifications;
+
+import org.junit.Test;
+import org.smart.attendance_beta.notifications.ReminderDecider.Reminder;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class ReminderTimelineTest {
+
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Africa/Nairobi");
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        Calendar time = Calendar.getInstance(ZONE);
+        time.clear();
+        time.set(year, month - 1, day, hour, minute);
+        return time.getTimeInMillis();
+    }
+
+    private static ReminderTimeline timeline(String start, String end) {
+        return new ReminderTimeline(start, end, ReminderTimeline.WEEKDAYS, ZONE);
+    }
+
+    @Test
+    public void workDay_hasClockInLateAndClockOutAtOfficeHours() {
+        // Monday 2026-10-19, before anything
+        List<ReminderTimeline.Event> events = timeline("07:30", "16:00").upcoming(at(2026, 10, 19, 6, 0), 1);
+
+        assertEquals(3, events.size());
+        assertEquals(Reminder.CLOCK_IN, events.get(0).reminder);
+        assertEquals(at(2026, 10, 19, 7, 30), events.get(0).atMs);
+        assertEquals(Reminder.LATE, events.get(1).reminder);
+        assertEquals(at(2026, 10, 19, 7, 45), events.get(1).atMs);
+        assertEquals(Reminder.CLOCK_OUT, events.get(2).reminder);
+        assertEquals(at(2026, 10, 19, 16, 0), events.get(2).atMs);
+    }
+
+    @Test
+    public void next_isStrictlyAfterTheEventThatFired() {
+        ReminderTimeline timeline = timeline("08:00", "17:00");
+
+        ReminderTimeline.Event late = timeline.next(at(2026, 10, 19, 8, 0));
+        assertEquals(Reminder.LATE, late.reminder);
+
+        ReminderTimeline.Event clockOut = timeline.next(late.atMs);
+        assertEquals(Reminder.CLOCK_OUT, clockOut.reminder);
+
+        ReminderTimeline.Event tomorrow = timeline.next(clockOut.atMs);
+        assertEquals(Reminder.CLOCK_IN, tomorrow.reminder);
+        assertEquals(at(2026, 10, 20, 8, 0), tomorrow.atMs);
+    }
+
+    @Test
+    public void weekend_isSkipped() {
+        // Friday 2026-10-23 after clock-out
+        ReminderTimeline.Event next = timeline("08:00", "17:00").next(at(2026, 10, 23, 17, 0));
+
+        assertEquals(Reminder.CLOCK_IN, next.reminder);
+        assertEquals(at(2026, 10, 26, 8, 0), next.atMs);
+    }
+
+    @Test
+    public void missingOrInvalidHours_useTheDefaultDay() {
+        long monday = at(2026, 10, 19, 0, 0);
+        for (ReminderTimeline timeline : Arrays.asList(
+                timeline(null, null), timeline("8am", "17:00"), timeline("18:00", "09:00"))) {
+            ReminderTimeline.Event first = timeline.next(monday);
+            assertEquals(at(2026, 10, 19, 8, 0), first.atMs);
+        }
+    }
+
+    @Test
+    public void holidays_fromTheWorkCalendarAreSkipped() {
+        ReminderTimeline.WorkCalendar closedMonday = day -> ReminderTimeline.WEEKDAYS.isWorkDay(day)
+                && !(day.get(Calendar.MONTH) == Calendar.OCTOBER && day.get(Calendar.DAY_OF_MONTH) == 19);
+        ReminderTimeline timeline = new ReminderTimeline("08:00", "17:00", closedMonday, ZONE);
+
+        assertEquals(at(2026, 10, 20, 8, 0), timeline.next(at(2026, 10, 19, 0, 0)).atMs);
+    }
+
+    @Test
+    public void parseMinutes_acceptsOnlyHoursAndMinutes() {
+        assertEquals(8 * 60 + 5, ReminderTimeline.parseMinutes("08:05"));
+        assertEquals(-1, ReminderTimeline.parseMinutes("24:00"));
+        assertEquals(-1, ReminderTimeline.parseMinutes("8"));
+        assertEquals(-1, ReminderTimeline.parseMinutes(null));
+    }
+}
@@ -0,0 +1,95 @@
+package org.smart.attendance_beta.sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Throughput of journal appends: one fsync per event (what a clock tap does) versus group commit.
+ * Numbers depend on the host disk; the assertions only check that nothing was lost.
+ * Left out of the default test run: ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class ClockEventJournalBenchmark {
+
+    private static final int EVENTS = 1000;
+    private static final int GROUP_SIZE = 50;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("clock-journal-bench").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void appendWithFsyncPerEvent() throws IOException {
+        List<ClockEvent> events = buildEvents();
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            long start = System.nanoTime();
+            for (ClockEvent event : events) {
+                journal.append(event);
+            }
+            report("fsync per event", start, journal.getSizeBytes());
+            assertEquals(EVENTS, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void appendWithGroupCommit() throws IOException {
+        List<ClockEvent> events = buildEvents();
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < events.size(); i += GROUP_SIZE) {
+                journal.appendAll(events.subList(i, Math.min(events.size(), i + GROUP_SIZE)));
+            }
+            report("group commit x" + GROUP_SIZE, start, journal.getSizeBytes());
+            assertEquals(EVENTS, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void recoveryScan() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.appendAll(buildEvents());
+        }
+
+        long start = System.nanoTime();
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            report("open + recovery scan", start, journal.getSizeBytes());
+            assertEquals(EVENTS, journal.getPendingCount());
+        }
+    }
+
+    private static List<ClockEvent> buildEvents() {
+        List<ClockEvent> events = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(ClockEventJournalTest.clockIn("emp" + i, "2025-03-03"));
+        }
+        return events;
+    }
+
+    private static void report(String label, long startNanos, long bytes) {
+        double elapsedMs = (System.nanoTime() - startNanos) / 1_000_000.0;
+        System.out.printf("%-22s %6d events in %8.1f ms  (%8.0f events/s, %6.1f us/event, %d KB)%n",
+                label, EVENTS, elapsedMs, EVENTS / (elapsedMs / 1000.0), elapsedMs * 1000.0 / EVENTS, bytes / 1024);
+    }
+}
@@ -0,0 +1,301 @@
+package org.smart.attendance_beta.sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crash-recovery tests for the clock event journal.
+ * Crashes are simulated by editing the files the way an interrupted write would leave them.
+ */
+public class ClockEventJournalTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("clock-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void event_roundTripsThroughEncoding() throws IOException {
+        ClockEvent event = clockIn("emp1", "2025-03-03");
+        ClockEvent decoded = ClockEvent.decode(event.encode());
+
+        assertEquals(event.eventId, decoded.eventId);
+        assertEquals(event.getAttendanceId(), decoded.getAttendanceId());
+        assertEquals(event.trustedOffsetMs, decoded.trustedOffsetMs);
+        assertEquals(event.latitude, decoded.latitude, 0);
+        assertEquals("07:58:12", decoded.payload.get("clockInTime"));
+        assertEquals(3L, decoded.payload.get("lateMinutes"));
+        assertEquals(Boolean.TRUE, decoded.payload.get("isLate"));
+        assertEquals(-1.2921, (Double) decoded.payload.get("clockInLatitude"), 0);
+        assertTrue(decoded.payload.containsKey("department"));
+        assertNull(decoded.payload.get("department"));
+    }
+
+    @Test
+    public void pendingEvents_surviveReopen() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+            journal.append(clockIn("emp2", "2025-03-03"));
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(2, journal.getPendingCount());
+            assertEquals(0, journal.getRecoveredTruncatedBytes());
+            assertEquals(1, journal.getPendingEvents("emp2", "2025-03-03").size());
+        }
+    }
+
+    @Test
+    public void acknowledgedEvents_stayAcknowledgedAfterReopen() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+            ClockEventJournal.Entry second = journal.append(clockIn("emp2", "2025-03-03"));
+            journal.append(clockIn("emp3", "2025-03-03"));
+            journal.acknowledge(second);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            List<ClockEventJournal.Entry> pending = journal.peek(10);
+            assertEquals(1, pending.size());
+            assertEquals("emp3", pending.get(0).event.employeeDocId);
+        }
+    }
+
+    @Test
+    public void tornTailWrite_isTruncatedAndEarlierEventsKept() throws IOException {
+        long validSize;
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            for (int i = 0; i < 3; i++) journal.append(clockIn("emp" + i, "2025-03-03"));
+            validSize = journal.getSizeBytes();
+        }
+
+        // Crash half way through the fourth append: header says 200 bytes, only 10 made it to disk
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.seek(validSize);
+            file.writeInt(200);
+            file.writeInt(0x12345678);
+            file.write(new byte[10]);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(3, journal.getPendingCount());
+            assertEquals(18, journal.getRecoveredTruncatedBytes());
+            assertEquals(validSize, journalFile().length());
+
+            // New appends land after the recovered tail and survive another reopen
+            journal.append(clockIn("emp9", "2025-03-03"));
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(4, journal.getPendingCount());
+            assertEquals(0, journal.getRecoveredTruncatedBytes());
+        }
+    }
+
+    @Test
+    public void corruptRecord_isDroppedWithEverythingAfterIt() throws IOException {
+        long secondOffset;
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+            secondOffset = journal.append(clockIn("emp2", "2025-03-03")).offset;
+            journal.append(clockIn("emp3", "2025-03-03"));
+        }
+
+        // Flip a payload byte inside the second record so its checksum no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            long position = secondOffset + 8 + 5;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(1, journal.getPendingCount());
+            assertEquals("emp1", journal.peek(1).get(0).event.employeeDocId);
+            assertEquals(secondOffset, journalFile().length());
+        }
+    }
+
+    @Test
+    public void emptyJournalFile_isReinitialised() throws IOException {
+        new FileOutputStream(journalFile()).close();
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(0, journal.getPendingCount());
+            journal.append(clockIn("emp1", "2025-03-03"));
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(1, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void tornAckFile_replaysInsteadOfLosingEvents() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            ClockEventJournal.Entry first = journal.append(clockIn("emp1", "2025-03-03"));
+            journal.append(clockIn("emp2", "2025-03-03"));
+            journal.acknowledge(first);
+        }
+
+        // Half-written cursor: the check word doesn't match
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(ackFile()))) {
+            out.writeLong(12345);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            // Falls back to replaying from the start; the syncer treats replays as no-ops
+            assertEquals(2, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void interruptedCompaction_resetsCursorPastEnd() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+        }
+
+        // Compaction truncated the journal, then crashed before rewriting the cursor
+        long staleOffset = 500_000;
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(ackFile()))) {
+            out.writeLong(staleOffset);
+            out.writeLong(~staleOffset);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.setLength(4);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(0, journal.getPendingCount());
+            journal.append(clockIn("emp2", "2025-03-03"));
+        }
+
+        // The new event must not be hidden behind the stale cursor
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(1, journal.getPendingCount());
+            assertEquals("emp2", journal.peek(1).get(0).event.employeeDocId);
+        }
+    }
+
+    @Test
+    public void fullyAcknowledgedJournal_isCompacted() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            ClockEventJournal.Entry last = null;
+            while (journal.getSizeBytes() < 80 * 1024) {
+                last = journal.append(clockIn("emp1", "2025-03-03"));
+            }
+            journal.acknowledge(last);
+
+            assertEquals(0, journal.getPendingCount());
+            assertEquals(4, journalFile().length());
+
+            journal.append(clockIn("emp2", "2025-03-03"));
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(1, journal.getPendingCount());
+            assertEquals("emp2", journal.peek(1).get(0).event.employeeDocId);
+        }
+    }
+
+    @Test
+    public void groupCommit_appendsInOrder() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            List<ClockEventJournal.Entry> entries = journal.appendAll(java.util.Arrays.asList(
+                    clockIn("emp1", "2025-03-03"), clockIn("emp2", "2025-03-03"), clockIn("emp3", "2025-03-03")));
+
+            assertEquals(3, entries.size());
+            assertEquals(entries.get(0).nextOffset, entries.get(1).offset);
+            assertEquals(entries.get(2).nextOffset, journal.getSizeBytes());
+        }
+    }
+
+    @Test
+    public void rejectedEvent_movesToDeadLettersAndUnblocksTheRest() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+            journal.append(clockIn("emp2", "2025-03-03"));
+
+            journal.reject(journal.peek(1).get(0));
+
+            assertEquals(1, journal.getPendingCount());
+            assertEquals("emp2", journal.peek(1).get(0).event.employeeDocId);
+        }
+
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            assertEquals(1, journal.getPendingCount());
+            List<ClockEvent> deadLetters = journal.getDeadLetters();
+            assertEquals(1, deadLetters.size());
+            assertEquals("emp1", deadLetters.get(0).employeeDocId);
+            assertEquals("07:58:12", deadLetters.get(0).payload.get("clockInTime"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void reject_onlyTakesTheHead() throws IOException {
+        try (ClockEventJournal journal = ClockEventJournal.open(directory)) {
+            journal.append(clockIn("emp1", "2025-03-03"));
+            journal.append(clockIn("emp2", "2025-03-03"));
+
+            journal.reject(journal.peek(2).get(1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedPayloadValue_isRefusedWhenTheEventIsBuilt() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("clockInTimestamp", new java.util.Date());
+        ClockEvent.create(ClockEvent.TYPE_CLOCK_IN, "emp1", "2025-03-03", "device-1", 0, 0, 0, payload);
+    }
+
+    private File journalFile() {
+        return new File(directory, ClockEventJournal.JOURNAL_FILE);
+    }
+
+    private File ackFile() {
+        return new File(directory, ClockEventJournal.ACK_FILE);
+    }
+
+    static ClockEvent clockIn(String employeeDocId, String date) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("employeeDocId", employeeDocId);
+        payload.put("date", date);
+        payload.put("clockInTime", "07:58:12");
+        payload.put("clockInLatitude", -1.2921);
+        payload.put("clockInLongitude", 36.8219);
+        payload.put("officeId", "hq");
+        payload.put("officeName", "Head Office");
+        payload.put("isLate", true);
+        payload.put("lateMinutes", 3);
+        payload.put("department", null);
+        payload.put("sessionActive", true);
+
+        return ClockEvent.create(ClockEvent.TYPE_CLOCK_IN, employeeDocId, date, "device-1",
+                1500, -1.2921, 36.8219, payload);
+    }
+}
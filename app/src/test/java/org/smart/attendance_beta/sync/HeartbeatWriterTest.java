@@ -0,0 +1,227 @@
+package org.smart.attendance_beta.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smart.attendance_beta.utils.DeviceSessionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HeartbeatWriterTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    /**
+     * Records writes; completes them immediately unless told to fail or hold them
+     */
+    private static class FakeSink implements HeartbeatWriter.Sink {
+        final List<long[]> writes = new ArrayList<>(); // {lastBeatMs, beats}
+        final List<HeartbeatWriter.WriteCallback> held = new ArrayList<>();
+        boolean fail;
+        boolean reject;
+        boolean hold;
+
+        @Override
+        public void write(String sessionId, long lastBeatMs, int beats, HeartbeatWriter.WriteCallback callback) {
+            writes.add(new long[]{lastBeatMs, beats});
+            if (hold) {
+                held.add(callback);
+            } else if (reject) {
+                callback.onRejected("NOT_FOUND");
+            } else if (fail) {
+                callback.onError("offline");
+            } else {
+                callback.onWritten();
+            }
+        }
+
+        long totalBeats() {
+            long total = 0;
+            for (long[] write : writes) total += write[1];
+            return total;
+        }
+    }
+
+    private FakeSink sink;
+    private HeartbeatWriter writer;
+
+    @Before
+    public void setUp() {
+        sink = new FakeSink();
+        writer = new HeartbeatWriter(sink, null);
+    }
+
+    @Test
+    public void beatsWithinInterval_areWrittenOnceWithLatestTimeAndCount() {
+        for (long t = 0; t < MINUTE; t += 10 * SECOND) {
+            writer.beat("s1", t);
+            writer.flushDue(t);
+        }
+        assertEquals(0, sink.writes.size());
+
+        writer.flushDue(MINUTE);
+
+        assertEquals(1, sink.writes.size());
+        assertEquals(50 * SECOND, sink.writes.get(0)[0]);
+        assertEquals(6, sink.writes.get(0)[1]);
+        assertEquals(5, writer.getMetrics().getWritesSaved());
+    }
+
+    @Test
+    public void interval_doublesUpToMaximum() {
+        List<Long> writeTimes = new ArrayList<>();
+        for (long t = 0; t <= 2 * 60 * MINUTE; t += 10 * SECOND) {
+            writer.beat("s1", t);
+            int before = sink.writes.size();
+            writer.flushDue(t);
+            if (sink.writes.size() > before) writeTimes.add(t);
+        }
+
+        // 1, 2, 4, 8 minutes, then capped at 15. Each interval starts at the first beat after the
+        // previous write, which comes one 10 second tick later.
+        long tick = 10 * SECOND;
+        assertEquals(MINUTE, (long) writeTimes.get(0));
+        assertEquals(2 * MINUTE + tick, writeTimes.get(1) - writeTimes.get(0));
+        assertEquals(4 * MINUTE + tick, writeTimes.get(2) - writeTimes.get(1));
+        assertEquals(8 * MINUTE + tick, writeTimes.get(3) - writeTimes.get(2));
+        for (int i = 4; i < writeTimes.size(); i++) {
+            assertEquals(HeartbeatWriter.MAX_FLUSH_INTERVAL_MS + tick, writeTimes.get(i) - writeTimes.get(i - 1));
+        }
+        assertTrue(writer.getMetrics().getWritesSaved() > 700);
+    }
+
+    @Test
+    public void storedHeartbeat_neverLagsAnywhereNearTheSessionTimeout() {
+        long stored = -1;
+        long worstLag = 0;
+        for (long t = 0; t <= 26 * 60 * MINUTE; t += HeartbeatWriter.TICK_MS) {
+            if (t % (30 * SECOND) == 0) writer.beat("s1", t);
+            writer.flushDue(t);
+            if (!sink.writes.isEmpty()) {
+                stored = sink.writes.get(sink.writes.size() - 1)[0];
+                worstLag = Math.max(worstLag, t - stored);
+            }
+        }
+
+        assertTrue(stored > 0);
+        assertTrue("lag " + worstLag, worstLag <= HeartbeatWriter.MAX_FLUSH_INTERVAL_MS + HeartbeatWriter.TICK_MS);
+        assertTrue(worstLag < DeviceSessionManager.SESSION_TIMEOUT_MS / 10);
+    }
+
+    @Test
+    public void failedWrite_foldsBeatsIntoNextWrite() {
+        writer.beat("s1", 0);
+        writer.beat("s1", 10 * SECOND);
+        sink.fail = true;
+        writer.flushDue(MINUTE);
+
+        writer.beat("s1", MINUTE + 5 * SECOND);
+        sink.fail = false;
+        writer.flushDue(3 * MINUTE);
+
+        assertEquals(2, sink.writes.size());
+        assertEquals(3, sink.writes.get(1)[1]);
+        assertEquals(MINUTE + 5 * SECOND, sink.writes.get(1)[0]);
+        assertEquals(1, writer.getMetrics().failedWrites);
+        assertEquals(1, writer.getMetrics().writes);
+    }
+
+    @Test
+    public void failingWrites_backOffUpToMaximum() {
+        sink.fail = true;
+        List<Long> attempts = new ArrayList<>();
+        for (long t = 0; t <= 60 * MINUTE; t += 10 * SECOND) {
+            writer.beat("s1", t);
+            int before = sink.writes.size();
+            writer.flushDue(t);
+            if (sink.writes.size() > before) attempts.add(t);
+        }
+
+        // 1 minute after the first beat, then 2, 4, 8 and 15 after each failure
+        assertEquals(Long.valueOf(MINUTE), attempts.get(0));
+        assertEquals(2 * MINUTE, attempts.get(1) - attempts.get(0));
+        assertEquals(4 * MINUTE, attempts.get(2) - attempts.get(1));
+        assertEquals(8 * MINUTE, attempts.get(3) - attempts.get(2));
+        assertEquals(HeartbeatWriter.MAX_FLUSH_INTERVAL_MS, attempts.get(4) - attempts.get(3));
+        assertEquals(attempts.size(), writer.getMetrics().failedWrites);
+    }
+
+    @Test
+    public void failedWriteAtClockOut_isRetriedAfterBackoff() {
+        writer.beat("s1", 0);
+        sink.fail = true;
+        writer.onClockOut("s1");
+        assertEquals(1, sink.writes.size());
+
+        sink.fail = false;
+        writer.flushDue(Long.MAX_VALUE);
+        assertEquals(2, sink.writes.size());
+        assertEquals(1, writer.getMetrics().writes);
+
+        // Forgotten once written
+        writer.flushDue(Long.MAX_VALUE);
+        assertEquals(2, sink.writes.size());
+    }
+
+    @Test
+    public void rejectedSession_isNoLongerWritten() {
+        writer.beat("s1", 0);
+        sink.reject = true;
+        writer.flushDue(MINUTE);
+        assertEquals(1, sink.writes.size());
+
+        sink.reject = false;
+        for (long t = MINUTE; t <= 60 * MINUTE; t += 10 * SECOND) {
+            writer.beat("s1", t);
+            writer.flushDue(t);
+        }
+        writer.onBackground();
+        assertEquals(1, sink.writes.size());
+        assertEquals(1, writer.getMetrics().failedWrites);
+        assertEquals(1, writer.getMetrics().beats);
+
+        // A new session on the next clock-in is tracked as usual
+        writer.onClockOut("s1");
+        writer.beat("s1", 61 * MINUTE);
+        writer.flushDue(62 * MINUTE);
+        assertEquals(2, sink.writes.size());
+    }
+
+    @Test
+    public void lifecycleEvents_flushImmediately() {
+        writer.beat("s1", 0);
+        writer.beat("s2", 0);
+        writer.onBackground();
+        assertEquals(2, sink.writes.size());
+
+        writer.beat("s1", 5 * SECOND);
+        writer.onClockOut("s1");
+        assertEquals(3, sink.writes.size());
+
+        // Forgotten after clock-out, nothing left to write
+        writer.onForeground();
+        writer.flushDue(60 * MINUTE);
+        assertEquals(3, sink.writes.size());
+    }
+
+    @Test
+    public void beatsDuringInFlightWrite_areWrittenAfterIt() {
+        sink.hold = true;
+        writer.beat("s1", 0);
+        writer.onClockOut("s1");
+        writer.beat("s1", SECOND);
+        writer.onClockOut("s1");
+        assertEquals(1, sink.writes.size());
+        assertEquals(0, writer.getMetrics().writes);
+
+        sink.hold = false;
+        sink.held.remove(0).onWritten();
+
+        assertEquals(2, sink.writes.size());
+        assertEquals(2, sink.totalBeats());
+        assertEquals(2, writer.getMetrics().writes);
+    }
+}
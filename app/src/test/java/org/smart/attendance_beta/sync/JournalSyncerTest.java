@@ -0,0 +1,148 @@
+package org.smart.attendance_beta.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.smart.attendance_beta.data.AttendanceFields;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JournalSyncerTest {
+
+    private static final String DATE = "2025-03-03";
+
+    /**
+     * Counts what a batch would write, the way the heatmap and counter shards would sum it
+     */
+    private static class CountingWrites implements JournalSyncer.Writes {
+        final List<String> records = new ArrayList<>();
+        final List<String> updates = new ArrayList<>();
+        final Map<String, Integer> arrivals = new HashMap<>();
+        int present;
+        int late;
+        int completed;
+        double hours;
+
+        @Override
+        public void record(Map<String, Object> attendanceData) {
+            records.add((String) attendanceData.get(AttendanceFields.EMPLOYEE_DOC_ID));
+        }
+
+        @Override
+        public void arrival(String officeId, String date, String clockInTime) {
+            arrivals.merge(officeId, 1, Integer::sum);
+        }
+
+        @Override
+        public void clockIn(String date, boolean isLate) {
+            present++;
+            if (isLate) late++;
+        }
+
+        @Override
+        public void update(String attendanceId, Map<String, Object> attendanceUpdates) {
+            updates.add(attendanceId);
+        }
+
+        @Override
+        public void clockOut(String date, double hoursWorked, boolean early) {
+            completed++;
+            hours += hoursWorked;
+        }
+
+        int total() {
+            return records.size() + updates.size() + arrivals.size() + present + completed;
+        }
+    }
+
+    private Map<String, Map<String, Object>> records;
+    private CountingWrites writes;
+
+    @Before
+    public void setUp() {
+        records = new HashMap<>();
+        writes = new CountingWrites();
+    }
+
+    @Test
+    public void batchOfClockInsAndOuts_isAppliedInOrder() {
+        List<String> rejections = JournalSyncer.apply(Arrays.asList(
+                clockIn("emp1", "device-1", "07:55", false),
+                clockIn("emp2", "device-2", "08:20", true),
+                clockOut("emp1", "device-1", 8.5)), records, writes);
+
+        assertEquals(Arrays.asList(null, null, null), rejections);
+        assertEquals(Arrays.asList("emp1", "emp2"), writes.records);
+        assertEquals(Integer.valueOf(2), writes.arrivals.get("office1"));
+        assertEquals(2, writes.present);
+        assertEquals(1, writes.late);
+        assertEquals(Arrays.asList("emp1_20250303"), writes.updates);
+        assertEquals(1, writes.completed);
+        assertEquals(8.5, writes.hours, 1e-9);
+
+        assertEquals(false, records.get("emp1_20250303").get(AttendanceFields.SESSION_ACTIVE));
+        assertEquals(true, records.get("emp2_20250303").get(AttendanceFields.SESSION_ACTIVE));
+    }
+
+    @Test
+    public void replayedBatch_writesNothing() {
+        List<ClockEvent> batch = Arrays.asList(
+                clockIn("emp1", "device-1", "07:55", false),
+                clockOut("emp1", "device-1", 8));
+        JournalSyncer.apply(batch, records, writes);
+
+        // Committed but never acknowledged, so the next pass sends it again
+        CountingWrites replay = new CountingWrites();
+        assertEquals(Arrays.asList(null, null), JournalSyncer.apply(batch, records, replay));
+        assertEquals(0, replay.total());
+    }
+
+    @Test
+    public void eventsTheRecordRefuses_areRejectedWithoutWriting() {
+        List<String> rejections = JournalSyncer.apply(Arrays.asList(
+                clockOut("emp1", "device-1", 8),
+                clockIn("emp1", "device-1", "07:55", false),
+                clockIn("emp1", "device-1", "07:56", false),
+                clockIn("emp1", "device-2", "07:57", false),
+                clockOut("emp1", "device-1", 8),
+                clockIn("emp1", "device-1", "17:30", false),
+                clockOut("emp1", "device-1", 1)), records, writes);
+
+        assertEquals(Arrays.asList(
+                JournalSyncer.REJECT_NOT_CLOCKED_IN,
+                null,
+                null, // Double tap on the same device
+                JournalSyncer.REJECT_DEVICE_CONFLICT,
+                null,
+                JournalSyncer.REJECT_DAY_COMPLETE,
+                JournalSyncer.REJECT_DAY_COMPLETE), rejections);
+        assertEquals(1, writes.records.size());
+        assertEquals(1, writes.present);
+        assertEquals(1, writes.completed);
+    }
+
+    private static ClockEvent clockIn(String employeeDocId, String deviceId, String clockInTime, boolean late) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(AttendanceFields.EMPLOYEE_DOC_ID, employeeDocId);
+        payload.put(AttendanceFields.DATE, DATE);
+        payload.put(AttendanceFields.DEVICE_ID, deviceId);
+        payload.put(AttendanceFields.OFFICE_ID, "office1");
+        payload.put(AttendanceFields.CLOCK_IN_TIME, clockInTime);
+        payload.put(AttendanceFields.IS_LATE, late);
+        payload.put(AttendanceFields.SESSION_ACTIVE, true);
+        return ClockEvent.create(ClockEvent.TYPE_CLOCK_IN, employeeDocId, DATE, deviceId, 0, 0, 0, payload);
+    }
+
+    private static ClockEvent clockOut(String employeeDocId, String deviceId, double hours) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put(AttendanceFields.CLOCK_OUT_TIME, "17:00");
+        payload.put(AttendanceFields.TOTAL_HOURS, hours);
+        payload.put(AttendanceFields.SESSION_ACTIVE, false);
+        return ClockEvent.create(ClockEvent.TYPE_CLOCK_OUT, employeeDocId, DATE, deviceId, 0, 0, 0, payload);
+    }
+}
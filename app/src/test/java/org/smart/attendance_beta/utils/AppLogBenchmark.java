@@ -0,0 +1,90 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-call cost of AppLog on a hot path: a call below the level (what release builds pay for debug
+ * logging), a kept call into a no-op sink (formatting plus the ring buffer), and the eager string
+ * concatenation the old Log.d calls paid even when logcat dropped the line.
+ * Numbers depend on the host JVM; the assertions only check that records were kept or dropped.
+ * Left out of the default test run: ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class AppLogBenchmark {
+
+    private static final int CALLS = 200_000;
+    private static final int WARMUP = 20_000;
+
+    private long kept;
+
+    @Before
+    public void setUp() {
+        AppLog.setSink((level, tag, message, error) -> kept++);
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.reset();
+    }
+
+    @Test
+    public void disabledCall() {
+        AppLog.setLevel(AppLog.INFO);
+        run(i -> AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i);
+        report("disabled d()", start);
+        assertEquals(0, kept);
+    }
+
+    @Test
+    public void enabledCall() {
+        run(i -> AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i));
+        kept = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i);
+        report("enabled d() + ring", start);
+        assertEquals(CALLS, kept);
+    }
+
+    @Test
+    public void sampledCall() {
+        AppLog.sample("Bench", 6);
+        run(i -> AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i));
+        kept = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) AppLog.d("Bench", "📍 Office {} at {}m", "HQ", i);
+        report("sampled d() 1/6", start);
+        assertTrue(kept > 0 && kept < CALLS);
+    }
+
+    @Test
+    public void eagerConcatenation() {
+        long length = 0;
+        for (int i = 0; i < WARMUP; i++) length += ("📍 Office " + "HQ" + " at " + i + "m").length();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) length += ("📍 Office " + "HQ" + " at " + i + "m").length();
+        report("eager concatenation", start);
+        assertTrue(length > 0);
+    }
+
+    private interface Call {
+        void run(int i);
+    }
+
+    private static void run(Call call) {
+        for (int i = 0; i < WARMUP; i++) call.run(i);
+    }
+
+    private static void report(String label, long startNanos) {
+        double elapsedNs = System.nanoTime() - startNanos;
+        System.out.printf("%-22s %8d calls  (%6.1f ns/call)%n", label, CALLS, elapsedNs / CALLS);
+    }
+}
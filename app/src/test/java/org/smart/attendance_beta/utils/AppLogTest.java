@@ -0,0 +1,135 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AppLogTest {
+
+    private final List<String> written = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        AppLog.setSink((level, tag, message, error) -> {
+            written.add(tag + ": " + message);
+            if (error != null) errors.add(error);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.reset();
+    }
+
+    @Test
+    public void fillsPlaceholdersInOrder() {
+        assertEquals("a 1 b 2", AppLog.format("a {} b {}", new Object[]{1, 2}));
+        assertEquals("only 1 {}", AppLog.format("only {} {}", new Object[]{1}));
+        assertEquals("null here", AppLog.format("{} here", new Object[]{null}));
+        assertEquals("plain", AppLog.format("plain", new Object[]{}));
+    }
+
+    @Test
+    public void dropsRecordsBelowTheLevelWithoutFormattingThem() {
+        AppLog.setLevel(AppLog.INFO);
+        Object expensive = new Object() {
+            @Override
+            public String toString() {
+                fail("Formatted a record that was dropped");
+                return "";
+            }
+        };
+
+        AppLog.d("Tag", "value {}", expensive);
+        AppLog.i("Tag", "kept {}", 1);
+
+        assertFalse(AppLog.isLoggable("Tag", AppLog.DEBUG));
+        assertEquals(1, written.size());
+        assertEquals("Tag: kept 1", written.get(0));
+    }
+
+    @Test
+    public void tagLevelOverridesTheDefault() {
+        AppLog.setLevel(AppLog.WARN);
+        AppLog.setLevel("Chatty", AppLog.DEBUG);
+        AppLog.setLevel("Quiet", AppLog.ERROR);
+
+        AppLog.d("Chatty", "kept");
+        AppLog.d("Other", "dropped");
+        AppLog.w("Quiet", "dropped");
+        AppLog.e("Quiet", "kept");
+
+        assertEquals(2, written.size());
+        assertEquals("Chatty: kept", written.get(0));
+        assertEquals("Quiet: kept", written.get(1));
+    }
+
+    @Test
+    public void samplesDebugButNeverWarnings() {
+        AppLog.sample("Tick", 3);
+
+        for (int i = 0; i < 9; i++) AppLog.d("Tick", "tick {}", i);
+        for (int i = 0; i < 2; i++) AppLog.w("Tick", "warn {}", i);
+
+        assertEquals(5, written.size());
+        assertEquals("Tick: tick 0", written.get(0));
+        assertEquals("Tick: tick 3", written.get(1));
+        assertEquals("Tick: tick 6", written.get(2));
+    }
+
+    @Test
+    public void trailingThrowableBecomesTheError() {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        AppLog.w("Tag", "Write failed for {}", "s1", failure);
+        AppLog.w("Tag", "Passed as {}", failure);
+
+        assertEquals("Tag: Write failed for s1", written.get(0));
+        assertEquals(1, errors.size());
+        assertSame(failure, errors.get(0));
+        assertTrue(written.get(1).startsWith("Tag: Passed as java.lang.IllegalStateException"));
+    }
+
+    @Test
+    public void ringDropsTheOldestRecordsWhenFull() {
+        AppLog.RingBuffer ring = new AppLog.RingBuffer(64);
+
+        // 13 header bytes + 7 message bytes: three records fit in 64 bytes
+        for (int i = 0; i < 5; i++) ring.write(0, AppLog.INFO, "T", "record" + i);
+
+        List<String> lines = ring.dump();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).endsWith("I/T: record2"));
+        assertTrue(lines.get(2).endsWith("I/T: record4"));
+        assertEquals(2, ring.dropped());
+    }
+
+    @Test
+    public void ringKeepsUtf8AndWrapsAcrossTheEnd() {
+        AppLog.RingBuffer ring = new AppLog.RingBuffer(100);
+
+        for (int i = 0; i < 20; i++) ring.write(0, AppLog.DEBUG, i % 2 == 0 ? "Even" : "Odd", "📍 at " + i);
+
+        List<String> lines = ring.dump();
+        assertFalse(lines.isEmpty());
+        assertTrue(lines.get(lines.size() - 1).endsWith("D/Odd: 📍 at 19"));
+        assertTrue(lines.get(lines.size() - 2).endsWith("D/Even: 📍 at 18"));
+    }
+
+    @Test
+    public void keptRecordsAreBuffered() {
+        AppLog.d("Tag", "first");
+        AppLog.e("Tag", "second {}", 2);
+
+        List<String> lines = AppLog.dump();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith("D/Tag: first"));
+        assertTrue(lines.get(1).endsWith("E/Tag: second 2"));
+    }
+}
@@ -0,0 +1,190 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+import org.smart.attendance_beta.data.AttendanceFields;
+import org.smart.attendance_beta.data.AttendanceRepository;
+import org.smart.attendance_beta.data.InMemoryAttendanceRepository;
+import org.smart.attendance_beta.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ClockInTransactionTest {
+
+    private static final String DATE = "2025-03-03"; // A Monday
+
+    /**
+     * Writes as a list of "kind:args" strings
+     */
+    private static class RecordedWrites implements ClockInTransaction.Writes {
+        final List<String> writes = new ArrayList<>();
+
+        @Override
+        public void record(Map<String, Object> attendanceData) {
+            writes.add("record:" + attendanceData.get(AttendanceFields.EMPLOYEE_DOC_ID));
+        }
+
+        @Override
+        public void arrival(String officeId, String date, String clockInTime) {
+            writes.add("arrival:" + officeId + "@" + clockInTime);
+        }
+
+        @Override
+        public void clockIn(String date, boolean late) {
+            writes.add("clockIn:" + late);
+        }
+    }
+
+    @Test
+    public void apply_createsRecordAndCountsArrivalAndClockIn() {
+        Map<String, Object> data = clockInData("emp1", "device-a", "office1", "08:07", true);
+        RecordedWrites writes = new RecordedWrites();
+
+        assertEquals(ClockInTransaction.Outcome.CREATED, ClockInTransaction.apply(null, data, writes));
+        assertEquals(Arrays.asList("record:emp1", "arrival:office1@08:07", "clockIn:true"), writes.writes);
+
+        data.remove(AttendanceFields.OFFICE_ID);
+        RecordedWrites noOffice = new RecordedWrites();
+        ClockInTransaction.apply(null, data, noOffice);
+        assertEquals(Arrays.asList("record:emp1", "clockIn:true"), noOffice.writes);
+    }
+
+    @Test
+    public void apply_writesNothingWhenTodaysRecordExists() {
+        Map<String, Object> open = clockInData("emp1", "device-a", "office1", "07:55", false);
+        Map<String, Object> closed = new HashMap<>(open);
+        closed.put(AttendanceFields.SESSION_ACTIVE, false);
+        RecordedWrites writes = new RecordedWrites();
+
+        assertEquals(ClockInTransaction.Outcome.ALREADY_CLOCKED_IN,
+                ClockInTransaction.apply(open, clockInData("emp1", "device-a", "office1", "07:56", false), writes));
+        assertEquals(ClockInTransaction.Outcome.DEVICE_CONFLICT,
+                ClockInTransaction.apply(open, clockInData("emp1", "device-b", "office1", "07:56", false), writes));
+        assertEquals(ClockInTransaction.Outcome.DAY_COMPLETE,
+                ClockInTransaction.apply(closed, clockInData("emp1", "device-a", "office1", "17:30", false), writes));
+        assertTrue(writes.writes.isEmpty());
+    }
+
+    @Test
+    public void concurrentTaps_createOneRecordPerEmployeeAndCountItOnce() throws InterruptedException {
+        InMemoryAttendanceRepository repository = new InMemoryAttendanceRepository(200);
+        int employees = 60;
+        int tapsPerEmployee = 3;
+
+        Map<ClockInTransaction.Outcome, AtomicLong> outcomes = new EnumMap<>(ClockInTransaction.Outcome.class);
+        for (ClockInTransaction.Outcome outcome : ClockInTransaction.Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService devices = Executors.newFixedThreadPool(16);
+        for (int tap = 0; tap < tapsPerEmployee; tap++) {
+            for (int i = 0; i < employees; i++) {
+                AttendanceRecord record = record("emp" + i, "device-" + i, "office" + (i % 3), i % 4 == 0);
+                devices.execute(() -> repository.clockIn(record, new AttendanceRepository.Callback<ClockInTransaction.Outcome>() {
+                    @Override
+                    public void onSuccess(ClockInTransaction.Outcome result) {
+                        outcomes.get(result).incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        errors.add(error);
+                    }
+                }));
+            }
+        }
+        devices.shutdown();
+        assertTrue(devices.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(Collections.emptyList(), errors);
+        assertEquals(employees, outcomes.get(ClockInTransaction.Outcome.CREATED).get());
+        assertEquals(employees * (tapsPerEmployee - 1), outcomes.get(ClockInTransaction.Outcome.ALREADY_CLOCKED_IN).get());
+        assertEquals(employees, repository.getRecordCount());
+
+        long arrivals = 0;
+        for (int office = 0; office < 3; office++) {
+            arrivals += repository.getArrivalCount("office" + office, DATE);
+        }
+        assertEquals(employees, arrivals);
+        DailyCounters.Totals counters = repository.getDailyCounters(DATE);
+        assertEquals(employees, counters.present);
+        assertEquals(employees / 4, counters.late);
+    }
+
+    @Test
+    public void secondDeviceAndClosedDay_areRejectedWithoutCounting() {
+        InMemoryAttendanceRepository repository = new InMemoryAttendanceRepository();
+        assertEquals(ClockInTransaction.Outcome.CREATED, clockIn(repository, record("emp1", "device-a", "office1", false)));
+        assertEquals(ClockInTransaction.Outcome.DEVICE_CONFLICT, clockIn(repository, record("emp1", "device-b", "office1", false)));
+
+        Map<String, Object> clockOut = new HashMap<>();
+        clockOut.put(AttendanceFields.SESSION_ACTIVE, false);
+        repository.updateRecord("emp1", DATE, clockOut, new AttendanceRepository.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {}
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        assertEquals(ClockInTransaction.Outcome.DAY_COMPLETE, clockIn(repository, record("emp1", "device-a", "office1", false)));
+
+        assertEquals(1, repository.getRecordCount());
+        assertEquals(1, repository.getArrivalCount("office1", DATE));
+        assertEquals(1, repository.getDailyCounters(DATE).present);
+    }
+
+    private static ClockInTransaction.Outcome clockIn(InMemoryAttendanceRepository repository, AttendanceRecord record) {
+        List<ClockInTransaction.Outcome> result = new ArrayList<>();
+        repository.clockIn(record, new AttendanceRepository.Callback<ClockInTransaction.Outcome>() {
+            @Override
+            public void onSuccess(ClockInTransaction.Outcome outcome) {
+                result.add(outcome);
+            }
+
+            @Override
+            public void onError(String error) {
+                fail(error);
+            }
+        });
+        return result.get(0);
+    }
+
+    private static AttendanceRecord record(String employeeDocId, String deviceId, String officeId, boolean late) {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setEmployeeDocId(employeeDocId);
+        record.setDate(DATE);
+        record.setClockInTime(late ? "08:20" : "07:55");
+        record.setOfficeId(officeId);
+        record.setLate(late);
+        record.setDeviceId(deviceId);
+        record.setSessionActive(true);
+        return record;
+    }
+
+    private static Map<String, Object> clockInData(String employeeDocId, String deviceId, String officeId,
+                                                   String clockInTime, boolean late) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(AttendanceFields.EMPLOYEE_DOC_ID, employeeDocId);
+        data.put(AttendanceFields.DATE, DATE);
+        data.put(AttendanceFields.DEVICE_ID, deviceId);
+        data.put(AttendanceFields.OFFICE_ID, officeId);
+        data.put(AttendanceFields.CLOCK_IN_TIME, clockInTime);
+        data.put(AttendanceFields.IS_LATE, late);
+        data.put(AttendanceFields.SESSION_ACTIVE, true);
+        return data;
+    }
+}
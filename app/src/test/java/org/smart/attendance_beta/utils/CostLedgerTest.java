@@ -0,0 +1,109 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CostLedgerTest {
+
+    @Test
+    public void record_addsUpPerCallSite() {
+        CostLedger ledger = new CostLedger();
+
+        ledger.record(CostLedger.BACKGROUND, "reminder.clockIn", 1, 0, 0, 120, 40);
+        ledger.record(CostLedger.BACKGROUND, "reminder.clockIn", 0, 1, 0, 120, 10);
+        ledger.record(CostLedger.BACKGROUND, "repo.saveRecord", 0, 0, 1, 300, 80);
+
+        CostLedger.Cost clockIn = ledger.forSite("reminder.clockIn");
+        assertEquals(2, clockIn.calls);
+        assertEquals(1, clockIn.reads);
+        assertEquals(1, clockIn.cacheReads);
+        assertEquals(25, clockIn.averageLatencyMs());
+        assertEquals(40, clockIn.maxLatencyMs);
+
+        CostLedger.Cost total = ledger.total();
+        assertEquals(3, total.calls);
+        assertEquals(1, total.writes);
+        assertEquals(540, total.bytes);
+        assertEquals(0, ledger.forSite("never.called").calls);
+    }
+
+    @Test
+    public void screenSession_countsOnlyCallsWhileItIsOpen() {
+        CostLedger ledger = new CostLedger();
+
+        ledger.record("AdminDashboardActivity", "adminStats.present", 1, 0, 0, 0, 5);
+        ledger.beginScreen("AdminDashboardActivity");
+        String screen = ledger.currentScreen();
+        ledger.record(screen, "adminStats.present", 1, 0, 0, 0, 5);
+        ledger.record(screen, "leaderboard.page", 50, 0, 0, 0, 30);
+        CostLedger.ScreenSession session = ledger.endScreen("AdminDashboardActivity");
+
+        assertEquals(CostLedger.BACKGROUND, ledger.currentScreen());
+        assertEquals(51, session.total.reads);
+        assertEquals(2, session.bySite.size());
+        assertTrue(session.summary().startsWith("screen=AdminDashboardActivity reads=51 "));
+        assertTrue(session.summary().contains("leaderboard.page=50r0w"));
+        // The app-wide totals still include the call made before the screen started
+        assertEquals(52, ledger.total().reads);
+    }
+
+    @Test
+    public void dump_listsSitesInOrderThenTotal() {
+        CostLedger ledger = new CostLedger();
+        ledger.record(null, "repo.getRecords", 7, 0, 0, 0, 0);
+        ledger.record(null, "adminStats.late", 1, 0, 0, 0, 0);
+
+        List<String> dump = ledger.dump();
+
+        assertEquals(3, dump.size());
+        assertTrue(dump.get(0).startsWith("site=adminStats.late calls=1 reads=1 "));
+        assertTrue(dump.get(1).startsWith("site=repo.getRecords calls=1 reads=7 "));
+        assertTrue(dump.get(2).startsWith("total calls=2 reads=8 "));
+    }
+
+    @Test
+    public void estimateBytes_followsStorageSizeRules() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("date", "2026-10-19");      // 5 + 11
+        data.put("isLate", true);            // 7 + 1
+        data.put("lateMinutes", 5L);         // 12 + 8
+
+        assertEquals(32 + 16 + 8 + 20, CostLedger.estimateBytes(data));
+        assertEquals(0, CostLedger.estimateBytes(null));
+    }
+
+    @Test
+    public void budget_reportsEveryExceededLimit() {
+        CostLedger ledger = new CostLedger();
+        ledger.record(null, "repo.getRecords", 14, 0, 0, 0, 0);
+        ledger.record(null, "repo.saveRecord", 0, 0, 1, 0, 0);
+
+        CostBudget budget = new CostBudget()
+                .maxReads("repo.getRecords", 7)
+                .maxWrites("repo.saveRecord", 1)
+                .maxTotalReads(10);
+
+        assertEquals(Arrays.asList("repo.getRecords: 14 reads, budget 7", "total: 14 reads, budget 10"),
+                budget.violations(ledger));
+        try {
+            budget.check(ledger);
+            fail("Expected the budget check to fail");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("repo.getRecords: 14 reads, budget 7"));
+        }
+    }
+
+    @Test
+    public void budget_ignoresCacheReads() {
+        CostLedger ledger = new CostLedger();
+        ledger.record(null, "todayState.record", 1, 20, 0, 0, 0);
+
+        new CostBudget().maxReads("todayState.record", 1).maxTotalReads(1).check(ledger);
+    }
+}
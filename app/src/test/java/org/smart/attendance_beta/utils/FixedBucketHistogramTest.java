@@ -0,0 +1,65 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FixedBucketHistogramTest {
+
+    @Test
+    public void valuesOutsideTheRange_landInTheEdgeBuckets() {
+        FixedBucketHistogram histogram = new FixedBucketHistogram(0, 0.25, 64); // 0 to 16 hours
+
+        histogram.add(-1.0);
+        histogram.add(0.0);
+        histogram.add(15.99);
+        histogram.add(16.0);
+        histogram.add(24.0);
+
+        assertEquals(2, histogram.getBucket(0));
+        assertEquals(3, histogram.getBucket(63));
+        assertEquals(5, histogram.getTotal());
+    }
+
+    @Test
+    public void bucketBoundary_belongsToTheUpperBucket() {
+        FixedBucketHistogram histogram = new FixedBucketHistogram(0, 5, 288); // Minute of day, 5-minute buckets
+
+        assertEquals(0, histogram.bucketIndex(4.99));
+        assertEquals(1, histogram.bucketIndex(5));
+        assertEquals(96, histogram.bucketIndex(8 * 60));
+        assertEquals(287, histogram.bucketIndex(24 * 60 - 1));
+    }
+
+    @Test
+    public void percentile_interpolatesWithinBucketsAndStaysInRange() {
+        FixedBucketHistogram histogram = new FixedBucketHistogram(0, 5, 288);
+        for (int i = 0; i < 4; i++) histogram.add(8 * 60 + 1); // Bucket 08:00-08:05
+
+        assertEquals(8 * 60 + 2.5, histogram.percentile(50), 1e-9);
+        assertEquals(8 * 60, histogram.percentile(0), 1e-9);
+        assertEquals(8 * 60 + 5, histogram.percentile(100), 1e-9);
+        assertEquals(8 * 60 + 5, histogram.percentile(250), 1e-9); // Clamped to 100
+        assertEquals(0, new FixedBucketHistogram(0, 5, 288).percentile(50), 0);
+    }
+
+    @Test
+    public void merge_addsBucketsAndTotals() {
+        FixedBucketHistogram first = new FixedBucketHistogram(0, 5, 288);
+        FixedBucketHistogram second = new FixedBucketHistogram(0, 5, 288);
+        first.add(0);
+        second.add(0);
+        second.add(2000);
+
+        first.merge(second);
+
+        assertEquals(2, first.getBucket(0));
+        assertEquals(1, first.getBucket(287));
+        assertEquals(3, first.getTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_rejectsADifferentLayout() {
+        new FixedBucketHistogram(0, 5, 288).merge(new FixedBucketHistogram(0, 0.25, 64));
+    }
+}
@@ -0,0 +1,108 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+import org.smart.attendance_beta.data.AttendanceFields;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LiveAttendanceStatsTest {
+
+    private static Map<String, Object> record(boolean late, boolean earlyOut, double hours) {
+        Map<String, Object> record = new HashMap<>();
+        record.put(AttendanceFields.IS_LATE, late);
+        record.put(AttendanceFields.IS_EARLY_CLOCK_OUT, earlyOut);
+        record.put(AttendanceFields.TOTAL_HOURS, hours);
+        return record;
+    }
+
+    @Test
+    public void clockInThenClockOut_movesRecordIntoAverage() {
+        LiveAttendanceStats stats = new LiveAttendanceStats();
+        assertTrue(stats.put("a", record(true, false, 0)));
+        assertTrue(stats.put("b", record(false, false, 0)));
+
+        AdminStatsService.DashboardStats snapshot = stats.snapshot(10);
+        assertEquals(10, snapshot.totalEmployees);
+        assertEquals(2, snapshot.presentToday);
+        assertEquals(1, snapshot.lateToday);
+        assertEquals(0.0, snapshot.averageHours, 0);
+
+        assertTrue(stats.put("a", record(true, true, 6.0)));
+        assertTrue(stats.put("b", record(false, false, 9.0)));
+
+        snapshot = stats.snapshot(10);
+        assertEquals(2, snapshot.presentToday);
+        assertEquals(1, snapshot.lateToday);
+        assertEquals(1, snapshot.earlyOutToday);
+        assertEquals(2, snapshot.completedToday);
+        assertEquals(7.5, snapshot.averageHours, 1e-9);
+    }
+
+    @Test
+    public void modificationOfUncountedFields_reportsNoChange() {
+        LiveAttendanceStats stats = new LiveAttendanceStats();
+        stats.put("a", record(false, false, 0));
+
+        Map<String, Object> heartbeat = record(false, false, 0);
+        heartbeat.put(AttendanceFields.HEARTBEAT_COUNT, 12);
+        assertFalse(stats.put("a", heartbeat));
+    }
+
+    @Test
+    public void removal_takesRecordBackOut() {
+        LiveAttendanceStats stats = new LiveAttendanceStats();
+        stats.put("a", record(true, true, 4.0));
+        assertTrue(stats.remove("a"));
+        assertFalse(stats.remove("a"));
+
+        AdminStatsService.DashboardStats snapshot = stats.snapshot(0);
+        assertEquals(0, snapshot.presentToday);
+        assertEquals(0, snapshot.lateToday);
+        assertEquals(0, snapshot.earlyOutToday);
+        assertEquals(0.0, snapshot.averageHours, 0);
+    }
+
+    @Test
+    public void randomDeltas_matchRecomputingFromScratch() {
+        Random random = new Random(7);
+        LiveAttendanceStats stats = new LiveAttendanceStats();
+        Map<String, Map<String, Object>> current = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            String id = "emp" + random.nextInt(300);
+            if (random.nextInt(10) == 0) {
+                stats.remove(id);
+                current.remove(id);
+            } else {
+                Map<String, Object> record = record(random.nextBoolean(), random.nextInt(5) == 0,
+                        random.nextBoolean() ? 0 : 4 + random.nextInt(600) / 100.0);
+                stats.put(id, record);
+                current.put(id, record);
+            }
+        }
+
+        long late = 0, earlyOut = 0;
+        List<Double> hours = new ArrayList<>();
+        for (Map<String, Object> record : current.values()) {
+            if ((Boolean) record.get(AttendanceFields.IS_LATE)) late++;
+            if ((Boolean) record.get(AttendanceFields.IS_EARLY_CLOCK_OUT)) earlyOut++;
+            double h = (Double) record.get(AttendanceFields.TOTAL_HOURS);
+            if (h > 0) hours.add(h);
+        }
+        double sum = 0;
+        for (double h : hours) sum += h;
+
+        AdminStatsService.DashboardStats snapshot = stats.snapshot(300);
+        assertEquals(current.size(), snapshot.presentToday);
+        assertEquals(late, snapshot.lateToday);
+        assertEquals(earlyOut, snapshot.earlyOutToday);
+        assertEquals(hours.size(), snapshot.completedToday);
+        assertEquals(sum / hours.size(), snapshot.averageHours, 1e-9);
+    }
+}
@@ -0,0 +1,182 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegistrationLookupTest {
+
+    private long nowMs = 1000;
+
+    private final List<String> loadedKeys = new ArrayList<>();
+    private final List<RegistrationLookup.Callback<String>> pending = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private RegistrationLookup<String> lookup;
+
+    /**
+     * Records what reaches the screen: the employee, "not found" or "error: ..."
+     */
+    private static class Recorder implements RegistrationLookup.Callback<String> {
+        final List<String> shown = new ArrayList<>();
+
+        @Override
+        public void onResolved(String value) {
+            shown.add(value);
+        }
+
+        @Override
+        public void onNotFound() {
+            shown.add("not found");
+        }
+
+        @Override
+        public void onError(String error) {
+            shown.add("error: " + error);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        lookup = new RegistrationLookup<>(
+                (key, done) -> {
+                    loadedKeys.add(key);
+                    pending.add(done);
+                },
+                (task, delayMs) -> {
+                    scheduled.add(task);
+                    return () -> scheduled.remove(task);
+                },
+                () -> nowMs,
+                400, 60_000, 10_000);
+    }
+
+    private void runScheduled() {
+        List<Runnable> due = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : due) task.run();
+    }
+
+    @Test
+    public void typing_readsOnlyTheLastKeyAfterThePause() {
+        Recorder screen = new Recorder();
+
+        lookup.onInput("PF1", screen);
+        lookup.onInput("PF12", screen);
+        lookup.onInput("PF123", screen);
+        assertEquals(1, scheduled.size());
+        assertTrue(loadedKeys.isEmpty());
+
+        runScheduled();
+        pending.get(0).onResolved("Asha");
+
+        assertEquals(Arrays.asList("PF123"), loadedKeys);
+        assertEquals(Arrays.asList("Asha"), screen.shown);
+    }
+
+    @Test
+    public void submit_usesTheSnapshotTheScreenShowed() {
+        Recorder screen = new Recorder();
+        Recorder submit = new Recorder();
+
+        lookup.lookupNow("PF123", screen);
+        pending.get(0).onResolved("Asha");
+        lookup.resolve("PF123", submit);
+
+        assertEquals(1, lookup.loads());
+        assertEquals(Arrays.asList("Asha"), submit.shown);
+    }
+
+    @Test
+    public void submit_joinsTheLookupInFlight() {
+        Recorder screen = new Recorder();
+        Recorder submit = new Recorder();
+
+        lookup.lookupNow("PF123", screen);
+        lookup.resolve("PF123", submit);
+        pending.get(0).onResolved("Asha");
+
+        assertEquals(1, lookup.loads());
+        assertEquals(Arrays.asList("Asha"), screen.shown);
+        assertEquals(Arrays.asList("Asha"), submit.shown);
+    }
+
+    @Test
+    public void staleLookup_isMutedButCached() {
+        Recorder screen = new Recorder();
+
+        lookup.lookupNow("PF1", screen);
+        lookup.lookupNow("PF2", screen);
+        pending.get(1).onResolved("Ravi");
+        pending.get(0).onResolved("Asha"); // Late answer for the old key
+
+        assertEquals(Arrays.asList("Ravi"), screen.shown);
+
+        Recorder back = new Recorder();
+        lookup.lookupNow("PF1", back);
+        assertEquals(2, lookup.loads());
+        assertEquals(Arrays.asList("Asha"), back.shown);
+    }
+
+    @Test
+    public void cancel_dropsThePendingLookup() {
+        Recorder screen = new Recorder();
+
+        lookup.onInput("PF123", screen);
+        lookup.cancel();
+        runScheduled();
+
+        assertEquals(0, lookup.loads());
+        assertTrue(screen.shown.isEmpty());
+    }
+
+    @Test
+    public void results_expireByKind() {
+        Recorder screen = new Recorder();
+
+        lookup.lookupNow("PF1", screen);
+        pending.get(0).onResolved("Asha");
+        lookup.lookupNow("PF9", screen);
+        pending.get(1).onNotFound();
+
+        nowMs += 10_000;
+        lookup.lookupNow("PF1", screen);
+        assertEquals(2, lookup.loads());
+        lookup.lookupNow("PF9", screen);
+        assertEquals(3, lookup.loads());
+
+        nowMs += 50_000;
+        lookup.lookupNow("PF1", screen);
+        assertEquals(4, lookup.loads());
+        assertEquals(Arrays.asList("Asha", "not found", "Asha"), screen.shown);
+    }
+
+    @Test
+    public void errors_areNotCached() {
+        Recorder screen = new Recorder();
+
+        lookup.lookupNow("PF1", screen);
+        pending.get(0).onError("offline");
+        lookup.lookupNow("PF1", screen);
+
+        assertEquals(2, lookup.loads());
+        assertEquals(Arrays.asList("error: offline"), screen.shown);
+    }
+
+    @Test
+    public void invalidate_readsAgain() {
+        Recorder screen = new Recorder();
+
+        lookup.lookupNow("PF1", screen);
+        pending.get(0).onResolved("Asha");
+        lookup.invalidate("PF1");
+        lookup.resolve("PF1", screen);
+
+        assertEquals(2, lookup.loads());
+    }
+}
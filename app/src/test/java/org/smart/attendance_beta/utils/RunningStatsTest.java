@@ -0,0 +1,65 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RunningStatsTest {
+
+    private static final double[] HOURS = {7.5, 8.0, 9.25, 6.0, 8.75, 10.5, 7.0};
+
+    @Test
+    public void merge_matchesAddingEveryValueToOneAccumulator() {
+        RunningStats all = new RunningStats();
+        RunningStats first = new RunningStats();
+        RunningStats second = new RunningStats();
+        for (int i = 0; i < HOURS.length; i++) {
+            all.add(HOURS[i]);
+            (i < 3 ? first : second).add(HOURS[i]);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMean(), first.getMean(), 1e-12);
+        assertEquals(all.getVariance(), first.getVariance(), 1e-12);
+        assertEquals(all.getSampleVariance(), first.getSampleVariance(), 1e-12);
+        assertEquals(6.0, first.getMin(), 0);
+        assertEquals(10.5, first.getMax(), 0);
+    }
+
+    @Test
+    public void merge_withEmptySides() {
+        RunningStats filled = new RunningStats();
+        for (double hours : HOURS) filled.add(hours);
+        double mean = filled.getMean();
+        double variance = filled.getVariance();
+
+        filled.merge(new RunningStats());
+        filled.merge(null);
+        assertEquals(HOURS.length, filled.getCount());
+        assertEquals(mean, filled.getMean(), 0);
+        assertEquals(variance, filled.getVariance(), 0);
+
+        RunningStats empty = new RunningStats();
+        empty.merge(filled);
+        assertEquals(HOURS.length, empty.getCount());
+        assertEquals(mean, empty.getMean(), 0);
+        assertEquals(variance, empty.getVariance(), 0);
+        assertEquals(6.0, empty.getMin(), 0);
+        assertEquals(10.5, empty.getMax(), 0);
+    }
+
+    @Test
+    public void emptyAndSingleValue() {
+        RunningStats stats = new RunningStats();
+        assertEquals(0, stats.getMean(), 0);
+        assertEquals(0, stats.getVariance(), 0);
+        assertEquals(0, stats.getMin(), 0);
+
+        stats.add(8.0);
+        assertEquals(8.0, stats.getMean(), 0);
+        assertEquals(0, stats.getVariance(), 0);
+        assertEquals(0, stats.getSampleVariance(), 0);
+    }
+}
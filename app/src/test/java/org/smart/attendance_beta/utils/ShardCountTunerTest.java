@@ -0,0 +1,106 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ShardCountTunerTest {
+
+    @Test
+    public void steadyRate_sizesShardsWithHeadroom() {
+        ShardCountTuner tuner = new ShardCountTuner();
+        for (long second = 0; second <= 60; second++) {
+            tuner.observe(second * 1000, second * 5); // 5 writes a second
+        }
+
+        assertEquals(5.0, tuner.getPeakWritesPerSecond(), 1e-9);
+        assertEquals(10, tuner.recommendedShards());
+    }
+
+    @Test
+    public void shortSpike_isAveragedOverTheWindow() {
+        ShardCountTuner tuner = new ShardCountTuner();
+        long total = 0;
+        for (long second = 0; second <= 60; second++) {
+            total += second == 30 ? 50 : 1; // One burst of 50 in a 1/s stream
+            tuner.observe(second * 1000, total);
+        }
+
+        // (50 + 9) writes over the 10 s window, not 50/s
+        assertEquals(5.9, tuner.getPeakWritesPerSecond(), 1e-9);
+        assertEquals(12, tuner.recommendedShards());
+    }
+
+    @Test
+    public void lessThanAWindowOfData_recommendsMinimum() {
+        ShardCountTuner tuner = new ShardCountTuner();
+        tuner.observe(0, 0);
+        tuner.observe(5_000, 1_000);
+
+        assertEquals(0.0, tuner.getPeakWritesPerSecond(), 0);
+        assertEquals(ShardCountTuner.MIN_SHARDS, tuner.recommendedShards());
+        assertEquals(ShardCountTuner.MAX_SHARDS, ShardCountTuner.shardsFor(10_000));
+    }
+
+    @Test
+    public void totals_sumShardFields() {
+        Map<String, Object> first = new HashMap<>();
+        first.put(DailyCounters.PRESENT, 3L);
+        first.put(DailyCounters.LATE, 1L);
+        first.put(DailyCounters.COMPLETED, 2L);
+        first.put(DailyCounters.HOURS, 15.0);
+        Map<String, Object> second = new HashMap<>();
+        second.put(DailyCounters.PRESENT, 2L);
+        second.put(DailyCounters.COMPLETED, 1L);
+        second.put(DailyCounters.HOURS, 9.0);
+        second.put(DailyCounters.EARLY_OUT, 1L);
+
+        DailyCounters.Totals totals = new DailyCounters.Totals();
+        totals.add(first);
+        totals.add(second);
+
+        assertEquals(5, totals.present);
+        assertEquals(1, totals.late);
+        assertEquals(3, totals.completed);
+        assertEquals(1, totals.earlyOut);
+        assertEquals(2, totals.shards);
+        assertEquals(8.0, totals.averageHours(), 1e-9);
+    }
+
+    @Test
+    public void shardWindows_sizeShardsFromTheBusiestWindow() {
+        Map<String, Object> firstWrites = new HashMap<>();
+        firstWrites.put("2880", 30L); // 08:00:00-08:00:10
+        firstWrites.put("2881", 12L);
+        Map<String, Object> first = new HashMap<>();
+        first.put(DailyCounters.WRITES, firstWrites);
+        Map<String, Object> secondWrites = new HashMap<>();
+        secondWrites.put("2880", 20L);
+        Map<String, Object> second = new HashMap<>();
+        second.put(DailyCounters.WRITES, secondWrites);
+
+        DailyCounters.Totals totals = new DailyCounters.Totals();
+        totals.add(first);
+        totals.add(second);
+        totals.add(new HashMap<>()); // A shard written before windows were recorded
+
+        assertEquals(Long.valueOf(50), totals.writesByWindow.get("2880"));
+        ShardCountTuner tuner = new ShardCountTuner();
+        tuner.observeWindows(totals.writesByWindow);
+        assertEquals(5.0, tuner.getPeakWritesPerSecond(), 1e-9);
+        assertEquals(10, tuner.recommendedShards());
+    }
+
+    @Test
+    public void windowKey_countsWindowsFromLocalMidnight() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2026, Calendar.OCTOBER, 19, 8, 0, 25);
+        cal.set(Calendar.MILLISECOND, 0);
+
+        assertEquals("2882", DailyCounters.windowKey(cal.getTimeInMillis()));
+    }
+}
@@ -0,0 +1,169 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private long nowMs = 1000;
+
+    /**
+     * Loader that holds every load until the test completes it
+     */
+    private static class HeldLoader implements SingleFlight.Loader<String> {
+        final List<SingleFlight.Callback<String>> pending = new ArrayList<>();
+
+        @Override
+        public void load(SingleFlight.Callback<String> done) {
+            pending.add(done);
+        }
+    }
+
+    private static class Recorder implements SingleFlight.Callback<String> {
+        final List<String> results = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void onSuccess(String result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            errors.add(e.getMessage());
+        }
+    }
+
+    private SingleFlight<String> flights(long freshnessMs) {
+        return new SingleFlight<>(freshnessMs, () -> nowMs);
+    }
+
+    @Test
+    public void concurrentRequests_shareOneLoad() {
+        SingleFlight<String> flights = flights(0);
+        HeldLoader loader = new HeldLoader();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+
+        flights.execute("records/emp1/2026-10-19..2026-10-25", loader, first);
+        flights.execute("records/emp1/2026-10-19..2026-10-25", loader, second);
+        assertEquals(1, loader.pending.size());
+
+        loader.pending.get(0).onSuccess("week");
+
+        assertEquals(Arrays.asList("week"), first.results);
+        assertEquals(Arrays.asList("week"), second.results);
+        SingleFlight.Stats stats = flights.stats("records/emp1/2026-10-19..2026-10-25");
+        assertEquals(2, stats.requests);
+        assertEquals(1, stats.loads);
+        assertEquals(1, stats.joined);
+        assertEquals(0.5, stats.savedRatio(), 1e-9);
+    }
+
+    @Test
+    public void differentKeys_loadSeparately() {
+        SingleFlight<String> flights = flights(0);
+        HeldLoader loader = new HeldLoader();
+
+        flights.execute("a", loader, new Recorder());
+        flights.execute("b", loader, new Recorder());
+
+        assertEquals(2, loader.pending.size());
+    }
+
+    @Test
+    public void result_isReusedOnlyInsideFreshnessWindow() {
+        SingleFlight<String> flights = flights(2000);
+        HeldLoader loader = new HeldLoader();
+        Recorder recorder = new Recorder();
+
+        flights.execute("k", loader, recorder);
+        loader.pending.get(0).onSuccess("v1");
+
+        nowMs += 1999;
+        flights.execute("k", loader, recorder);
+        assertEquals(1, loader.pending.size());
+        assertEquals(Arrays.asList("v1", "v1"), recorder.results);
+
+        nowMs += 1;
+        flights.execute("k", loader, recorder);
+        assertEquals(2, loader.pending.size());
+        assertEquals(1, flights.stats("k").freshHits);
+    }
+
+    @Test
+    public void failure_reachesAllWaitersAndIsNotKept() {
+        SingleFlight<String> flights = flights(2000);
+        HeldLoader loader = new HeldLoader();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+
+        flights.execute("k", loader, first);
+        flights.execute("k", loader, second);
+        loader.pending.get(0).onError(new Exception("offline"));
+
+        assertEquals(Arrays.asList("offline"), first.errors);
+        assertEquals(Arrays.asList("offline"), second.errors);
+
+        flights.execute("k", loader, new Recorder());
+        assertEquals(2, loader.pending.size());
+        assertEquals(1, flights.stats("k").failures);
+    }
+
+    @Test
+    public void invalidate_detachesLoadInFlight() {
+        SingleFlight<String> flights = flights(2000);
+        HeldLoader loader = new HeldLoader();
+        Recorder before = new Recorder();
+        Recorder after = new Recorder();
+
+        flights.execute("k", loader, before);
+        flights.invalidate("k");
+        flights.execute("k", loader, after);
+        assertEquals(2, loader.pending.size());
+
+        // The older load still answers its own caller but isn't kept as fresh
+        loader.pending.get(0).onSuccess("stale");
+        loader.pending.get(1).onSuccess("current");
+        assertEquals(Arrays.asList("stale"), before.results);
+        assertEquals(Arrays.asList("current"), after.results);
+
+        Recorder later = new Recorder();
+        flights.execute("k", loader, later);
+        assertEquals(Arrays.asList("current"), later.results);
+    }
+
+    @Test
+    public void invalidatePrefix_dropsMatchingKeysOnly() {
+        SingleFlight<String> flights = flights(2000);
+        SingleFlight.Loader<String> loader = done -> done.onSuccess("v");
+
+        flights.execute("record/emp1/2026-10-19", loader, new Recorder());
+        flights.execute("record/emp2/2026-10-19", loader, new Recorder());
+        flights.invalidatePrefix("record/emp1/");
+        flights.execute("record/emp1/2026-10-19", loader, new Recorder());
+        flights.execute("record/emp2/2026-10-19", loader, new Recorder());
+
+        assertEquals(2, flights.stats("record/emp1/2026-10-19").loads);
+        assertEquals(1, flights.stats("record/emp2/2026-10-19").loads);
+    }
+
+    @Test
+    public void throwingLoader_failsTheFlightInsteadOfStickingIt() {
+        SingleFlight<String> flights = flights(0);
+        Recorder recorder = new Recorder();
+
+        flights.execute("k", done -> {
+            throw new IllegalStateException("boom");
+        }, recorder);
+        flights.execute("k", done -> done.onSuccess("ok"), recorder);
+
+        assertEquals(Arrays.asList("boom"), recorder.errors);
+        assertEquals(Arrays.asList("ok"), recorder.results);
+    }
+}
@@ -0,0 +1,62 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StageTimerTest {
+
+    @Test
+    public void overlappingStages_totalIsWallClockNotSum() {
+        StageTimer timer = new StageTimer();
+        timer.start(1000);
+        timer.begin("resolve", 1000);
+        timer.end("resolve", 1120);
+        timer.begin("session", 1120);
+        timer.begin("auth", 1120);
+        timer.end("session", 1200);
+        timer.end("auth", 1430);
+
+        assertEquals(120, timer.duration("resolve"));
+        assertEquals(80, timer.duration("session"));
+        assertEquals(310, timer.duration("auth"));
+        assertEquals(430, timer.total());
+        assertEquals("resolve=120ms session=80ms auth=310ms total=430ms", timer.summary());
+    }
+
+    @Test
+    public void unfinishedStage_isReportedAsMissing() {
+        StageTimer timer = new StageTimer();
+        timer.start(0);
+        timer.begin("auth", 0);
+
+        assertEquals(-1, timer.duration("auth"));
+        assertEquals(-1, timer.duration("never"));
+        assertEquals("auth=- total=0ms", timer.summary());
+    }
+
+    @Test
+    public void secondEnd_isIgnored() {
+        StageTimer timer = new StageTimer();
+        timer.start(0);
+        timer.begin("session", 0);
+        timer.end("session", 50);
+        timer.end("session", 90);
+
+        assertEquals(50, timer.duration("session"));
+        assertEquals(50, timer.total());
+    }
+
+    @Test
+    public void start_clearsThePreviousRun() {
+        StageTimer timer = new StageTimer();
+        timer.start(0);
+        timer.begin("auth", 0);
+        timer.end("auth", 500);
+
+        timer.start(1000);
+
+        assertEquals(-1, timer.duration("auth"));
+        assertEquals(0, timer.total());
+    }
+}
@@ -0,0 +1,142 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+import org.smart.attendance_beta.sync.ClockEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TodayStateTest {
+
+    private static final String EMPLOYEE = "emp1";
+    private static final String DATE = "2026-10-19";
+    private static final String THIS_DEVICE = "device-a";
+    private static final List<ClockEvent> NONE = Collections.emptyList();
+
+    private static Map<String, Object> openSession(String deviceId) {
+        Map<String, Object> record = new HashMap<>();
+        record.put("clockInTime", "08:05:00");
+        record.put("officeName", "HQ");
+        record.put("deviceId", deviceId);
+        record.put("deviceModel", "Pixel 7");
+        record.put("deviceManufacturer", "Google");
+        record.put("sessionActive", true);
+        record.put("isLate", true);
+        record.put("lateMinutes", 5L);
+        return record;
+    }
+
+    private static ClockEvent event(String type, Map<String, Object> payload) {
+        return new ClockEvent("e-" + type, type, EMPLOYEE, DATE, THIS_DEVICE, 0, 0, 0, 0, payload);
+    }
+
+    @Test
+    public void noRecord_isFreeAndNotClockedIn() {
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, null, true, NONE, null);
+
+        assertEquals(TodayState.Status.NOT_CLOCKED_IN, state.status);
+        assertEquals(TodayState.DeviceVerdict.FREE, state.deviceVerdict);
+        assertEquals("emp1_20261019", state.attendanceId);
+        assertFalse(state.pendingSync);
+    }
+
+    @Test
+    public void unreadableRecord_isUnverified() {
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, null, false, NONE, null);
+
+        assertEquals(TodayState.DeviceVerdict.UNVERIFIED, state.deviceVerdict);
+        assertEquals(TodayState.Status.NOT_CLOCKED_IN, state.status);
+    }
+
+    @Test
+    public void openSessionOnThisDevice_isClockedIn() {
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, openSession(THIS_DEVICE), true, NONE, null);
+
+        assertEquals(TodayState.DeviceVerdict.THIS_DEVICE, state.deviceVerdict);
+        assertTrue(state.isClockedIn());
+        assertEquals("08:05:00", state.clockInTime);
+        assertEquals("HQ", state.displayOfficeName());
+        assertTrue(state.late);
+        assertEquals(5, state.lateMinutes);
+        assertNull(state.activeDeviceModel);
+    }
+
+    @Test
+    public void openSessionOnOtherDevice_isConflictWithoutItsTimes() {
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, openSession("device-b"), true, NONE, null);
+
+        assertEquals(TodayState.DeviceVerdict.OTHER_DEVICE, state.deviceVerdict);
+        assertEquals(TodayState.Status.NOT_CLOCKED_IN, state.status);
+        assertNull(state.clockInTime);
+        assertEquals("Pixel 7", state.activeDeviceModel);
+        assertEquals("Google", state.activeDeviceManufacturer);
+        assertEquals("08:05:00", state.activeClockInTime);
+    }
+
+    @Test
+    public void closedDay_isCompleteOnEveryDevice() {
+        Map<String, Object> record = openSession("device-b");
+        record.put("sessionActive", false);
+        record.put("clockOutTime", "17:10:00");
+        record.put("clockOutOfficeName", "Annex");
+
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, record, true, NONE, null);
+
+        assertEquals(TodayState.DeviceVerdict.FREE, state.deviceVerdict);
+        assertEquals(TodayState.Status.COMPLETE, state.status);
+        assertEquals("17:10:00", state.clockOutTime);
+        assertEquals("Annex", state.displayOfficeName());
+    }
+
+    @Test
+    public void sweptSession_withoutClockOut_isComplete() {
+        Map<String, Object> record = openSession(THIS_DEVICE);
+        record.put("sessionActive", false);
+
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, record, true, NONE, null);
+
+        assertEquals(TodayState.Status.COMPLETE, state.status);
+        assertNull(state.clockOutTime);
+    }
+
+    @Test
+    public void pendingClockIn_overridesEmptyRecord() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("clockInTime", "07:55:00");
+        payload.put("officeName", "HQ");
+
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, null, false,
+                Collections.singletonList(event(ClockEvent.TYPE_CLOCK_IN, payload)), null);
+
+        assertTrue(state.isClockedIn());
+        assertTrue(state.pendingSync);
+        assertEquals("07:55:00", state.clockInTime);
+        assertEquals(TodayState.DeviceVerdict.UNVERIFIED, state.deviceVerdict);
+    }
+
+    @Test
+    public void pendingClockInAndOut_takesClockInFromTheJournal() {
+        Map<String, Object> in = new HashMap<>();
+        in.put("clockInTime", "07:55:00");
+        in.put("officeName", "HQ");
+        Map<String, Object> out = new HashMap<>();
+        out.put("clockOutTime", "12:00:00");
+        out.put("isEarlyClockOut", true);
+
+        List<ClockEvent> pending = new ArrayList<>(Arrays.asList(
+                event(ClockEvent.TYPE_CLOCK_IN, in), event(ClockEvent.TYPE_CLOCK_OUT, out)));
+        TodayState state = TodayState.derive(EMPLOYEE, DATE, THIS_DEVICE, null, true, pending, null);
+
+        assertEquals(TodayState.Status.COMPLETE, state.status);
+        assertEquals("07:55:00", state.clockInTime);
+        assertEquals("12:00:00", state.clockOutTime);
+        assertTrue(state.earlyClockOut);
+        assertEquals("HQ", state.displayOfficeName());
+    }
+}
@@ -0,0 +1,63 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TopKLeaderboardTest {
+
+    @Test
+    public void scores_areExactTotalsPastAnyNumberOfKeys() {
+        TopKLeaderboard board = new TopKLeaderboard();
+        for (int i = 0; i < 200; i++) {
+            board.add("emp" + i, "Employee " + i, 1);
+        }
+        board.add("emp7", null, 4);
+        board.add("emp150", "Renamed", 2);
+
+        List<TopKLeaderboard.Entry> top = board.top(3);
+
+        assertEquals(3, top.size());
+        assertEquals("emp7", top.get(0).key);
+        assertEquals(5, top.get(0).score, 0);
+        assertEquals("Employee 7", top.get(0).label);
+        assertEquals("emp150", top.get(1).key);
+        assertEquals(3, top.get(1).score, 0);
+        assertEquals("Renamed", top.get(1).label);
+        assertEquals(1, top.get(2).score, 0);
+        assertEquals(200, board.size());
+    }
+
+    @Test
+    public void topWithExtra_addsPerKeyWithoutChangingEitherBoard() {
+        TopKLeaderboard settled = new TopKLeaderboard();
+        settled.add("a", "Asha", 30);
+        settled.add("b", "Ravi", 20);
+        TopKLeaderboard today = new TopKLeaderboard();
+        today.add("b", "Ravi", 15);
+        today.add("c", "Mary", 40);
+
+        List<TopKLeaderboard.Entry> top = settled.top(2, today);
+
+        assertEquals("c", top.get(0).key);
+        assertEquals(40, top.get(0).score, 0);
+        assertEquals("b", top.get(1).key);
+        assertEquals(35, top.get(1).score, 0);
+        assertEquals(20, settled.get("b"), 0);
+        assertEquals(15, today.get("b"), 0);
+    }
+
+    @Test
+    public void nonPositiveAmounts_andMissingKeys_areIgnored() {
+        TopKLeaderboard board = new TopKLeaderboard();
+        board.add("a", "Asha", 0);
+        board.add("a", "Asha", -5);
+        board.add(null, "Nobody", 10);
+
+        assertEquals(0, board.size());
+        assertTrue(board.top(5).isEmpty());
+        assertTrue(board.top(0).isEmpty());
+    }
+}
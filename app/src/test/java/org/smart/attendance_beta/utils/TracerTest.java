@@ -0,0 +1,145 @@
+package org.smart.attendance_beta.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TracerTest {
+
+    private long nowNanos = 5_000_000;
+
+    private Tracer tracer(int capacity) {
+        return new Tracer(capacity, () -> nowNanos);
+    }
+
+    private void advanceMs(long ms) {
+        nowNanos += ms * 1_000_000;
+    }
+
+    @Test
+    public void childSpans_shareTheFlowAndAreRecordedWhenEnded() {
+        Tracer tracer = tracer(16);
+
+        Tracer.Span clockIn = tracer.begin("clockIn");
+        Tracer.Span locating = tracer.begin("getLastLocation", clockIn);
+        advanceMs(120);
+        locating.end();
+        Tracer.Span write = tracer.begin("clockInTransaction", clockIn);
+        advanceMs(300);
+        write.end();
+
+        assertEquals(2, tracer.snapshot().size()); // The flow itself is still open
+        clockIn.arg("outcome", "clocked in").end();
+
+        List<Tracer.Span> spans = tracer.snapshot();
+        assertEquals(3, spans.size());
+        assertEquals("clockIn", spans.get(0).name);
+        assertEquals(420_000_000, spans.get(0).durationNanos());
+        assertEquals("clockIn", spans.get(2).category);
+        assertEquals(300_000_000, spans.get(2).durationNanos());
+    }
+
+    @Test
+    public void end_isIgnoredAfterTheFirstCall() {
+        Tracer tracer = tracer(16);
+        Tracer.Span span = tracer.begin("login");
+        advanceMs(10);
+        span.end();
+        advanceMs(10);
+        span.end();
+
+        assertEquals(1, tracer.snapshot().size());
+        assertEquals(10_000_000, span.durationNanos());
+    }
+
+    @Test
+    public void endAfterChildren_waitsForTheLastStep() {
+        Tracer tracer = tracer(16);
+        List<String> flowsEnded = new ArrayList<>();
+        tracer.setOnFlowEnded(() -> flowsEnded.add("ended"));
+
+        Tracer.Span load = tracer.begin("employeeDashboardLoad");
+        Tracer.Span profile = tracer.begin("profile", load);
+        Tracer.Span week = tracer.begin("weeklyStats", load);
+        load.endAfterChildren();
+
+        advanceMs(50);
+        profile.end();
+        assertTrue(flowsEnded.isEmpty());
+        advanceMs(50);
+        week.end();
+
+        assertEquals(1, flowsEnded.size());
+        assertEquals(100_000_000, load.durationNanos());
+    }
+
+    @Test
+    public void ringBuffer_keepsTheNewestSpans() {
+        Tracer tracer = tracer(4);
+        for (int i = 0; i < 6; i++) {
+            advanceMs(1);
+            tracer.begin("step" + i).end();
+        }
+
+        List<Tracer.Span> spans = tracer.snapshot();
+        assertEquals(4, spans.size());
+        assertEquals("step2", spans.get(0).name);
+        assertEquals("step5", spans.get(3).name);
+        assertEquals(2, tracer.dropped());
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Tracer tracer = tracer(16);
+        tracer.setEnabled(false);
+
+        Tracer.Span flow = tracer.begin("clockOut");
+        tracer.begin("journal", flow).arg("error", "disk full").end();
+        flow.end();
+
+        assertSame(Tracer.NONE, flow);
+        assertTrue(tracer.snapshot().isEmpty());
+        assertTrue(Tracer.NONE.args().isEmpty());
+    }
+
+    @Test
+    public void chromeTrace_hasBeginAndEndEventsPerSpan() {
+        Tracer tracer = tracer(16);
+        Tracer.Span login = tracer.begin("login");
+        advanceMs(2);
+        Tracer.Span auth = tracer.begin("auth", login);
+        advanceMs(3);
+        auth.arg("ok", true).end();
+        login.arg("outcome", "said \"hi\"").end();
+
+        String json = tracer.toChromeTrace();
+
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json.contains("{\"name\":\"login\",\"cat\":\"login\",\"ph\":\"b\",\"id\":\"0x1\",\"ts\":0,"));
+        assertTrue(json.contains("{\"name\":\"auth\",\"cat\":\"login\",\"ph\":\"b\",\"id\":\"0x1\",\"ts\":2000,"));
+        assertTrue(json.contains("\"args\":{\"ok\":true}"));
+        assertTrue(json.contains("\"args\":{\"outcome\":\"said \\\"hi\\\"\"}"));
+        assertTrue(json.contains("{\"name\":\"auth\",\"cat\":\"login\",\"ph\":\"e\",\"id\":\"0x1\",\"ts\":5000,"));
+        assertTrue(json.endsWith("]}"));
+    }
+
+    @Test
+    public void concurrentRecording_losesNoSpans() throws InterruptedException {
+        Tracer tracer = new Tracer(4096, System::nanoTime);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) tracer.begin("sync").end();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(2000, tracer.snapshot().size());
+        assertEquals(0, tracer.dropped());
+    }
+}
@@ -0,0 +1,181 @@
+#!/usr/bin/env python3
+"""
+Admin Dashboard Stats Benchmark
+Compares the old dashboard load (download every active user and every attendance record for today, count
+and average on the client) with the aggregation queries used by AdminStatsService.java, on the emulator.
+
+Billed reads follow Firestore pricing: one per document returned, and for aggregations one per query plus
+one per 1000 index entries matched. The emulator doesn't bill, so reads are computed from the result sizes.
+
+    python3 benchmark_dashboard_stats.py --employees 5000 --cleanup
+"""
+
+import argparse
+import math
+import random
+import statistics
+import time
+import uuid
+from datetime import datetime
+
+from firestore_env import add_connection_args, connect, chunks
+
+MAX_BATCH_WRITES = 500
+INDEX_ENTRIES_PER_READ = 1000
+
+
+def aggregation_reads(matched):
+    return max(1, math.ceil(matched / INDEX_ENTRIES_PER_READ))
+
+
+def value(result, alias):
+    """Pull one alias out of an aggregation result ([[AggregationResult, ...]])"""
+    for item in result[0]:
+        if item.alias == alias:
+            return item.value
+    return None
+
+
+class DashboardStatsBenchmark:
+    def __init__(self, db, args):
+        self.db = db
+        self.args = args
+        self.run_id = uuid.uuid4().hex[:8]
+        self.date = datetime.now().strftime("%Y-%m-%d")
+        self.seeded = []
+
+    def seed(self):
+        """Active users, and today's attendance for the share that showed up"""
+        rng = random.Random(self.args.seed)
+        writes = []
+        for i in range(self.args.employees):
+            user_id = f"bench_{self.run_id}_{i:05d}"
+            writes.append((self.db.collection("users").document(user_id), {"isActive": True, "role": "employee"}))
+            if rng.random() >= self.args.present_ratio:
+                continue
+
+            late = rng.random() < 0.2
+            completed = rng.random() < 0.6
+            writes.append((self.db.collection("attendance").document(f"{user_id}_{self.date.replace('-', '')}"), {
+                "employeeDocId": user_id,
+                "date": self.date,
+                "status": "Late" if late else "Present",
+                "isLate": late,
+                "sessionActive": not completed,
+                "totalHours": round(rng.uniform(6, 10), 2) if completed else 0.0,
+            }))
+
+        for chunk in chunks(writes, MAX_BATCH_WRITES):
+            batch = self.db.batch()
+            for ref, data in chunk:
+                batch.set(ref, data)
+            batch.commit()
+        self.seeded = [ref for ref, _ in writes]
+        print(f"🌱 Seeded {self.args.employees} users and {len(writes) - self.args.employees} attendance records")
+
+    def today(self):
+        return self.db.collection("attendance").where("date", "==", self.date)
+
+    def load_by_download(self):
+        """What loadDashboardData did: fetch the documents and count them on the device"""
+        users = list(self.db.collection("users").where("isActive", "==", True).stream())
+        records = [doc.to_dict() for doc in self.today().stream()]
+        completed = [r["totalHours"] for r in records if r.get("totalHours", 0) > 0]
+
+        stats = {
+            "employees": len(users),
+            "present": len(records),
+            "late": sum(1 for r in records if r.get("isLate")),
+            "average_hours": statistics.fmean(completed) if completed else 0.0,
+        }
+        reads = max(1, len(users)) + max(1, len(records))
+        return stats, reads
+
+    def load_by_aggregation(self):
+        """AdminStatsService: four aggregation queries, nothing downloaded"""
+        employees = value(self.db.collection("users").where("isActive", "==", True)
+                          .count(alias="n").get(), "n")
+        present = value(self.today().count(alias="n").get(), "n")
+        late = value(self.today().where("isLate", "==", True).count(alias="n").get(), "n")
+        completed_result = (self.today().where("totalHours", ">", 0)
+                            .count(alias="n").avg("totalHours", alias="average").get())
+        completed = value(completed_result, "n")
+        average = value(completed_result, "average")
+
+        stats = {
+            "employees": employees,
+            "present": present,
+            "late": late,
+            "average_hours": average or 0.0,
+        }
+        reads = (aggregation_reads(employees) + aggregation_reads(present)
+                 + aggregation_reads(late) + aggregation_reads(completed))
+        return stats, reads
+
+    def measure(self, name, load):
+        load()  # Warm up connections
+        timings = []
+        for _ in range(self.args.repeat):
+            started = time.perf_counter()
+            stats, reads = load()
+            timings.append((time.perf_counter() - started) * 1000)
+        timings.sort()
+        p95 = timings[min(len(timings) - 1, int(len(timings) * 0.95))]
+        print(f"   {name:<14} {reads:>8} reads   median {statistics.median(timings):8.1f} ms   p95 {p95:8.1f} ms")
+        return stats, reads
+
+    def run(self):
+        self.seed()
+        print(f"\n⏱️  Loading dashboard stats {self.args.repeat} times each")
+        download_stats, download_reads = self.measure("download", self.load_by_download)
+        aggregate_stats, aggregate_reads = self.measure("aggregation", self.load_by_aggregation)
+
+        ok = (download_stats["employees"] == aggregate_stats["employees"]
+              and download_stats["present"] == aggregate_stats["present"]
+              and download_stats["late"] == aggregate_stats["late"]
+              and abs(download_stats["average_hours"] - aggregate_stats["average_hours"]) < 1e-6)
+
+        print("\n" + "=" * 60)
+        print("📊 DASHBOARD STATS BENCHMARK")
+        print("=" * 60)
+        for key in ["employees", "present", "late", "average_hours"]:
+            print(f"   {key.replace('_', ' ').capitalize():<16} {download_stats[key]!s:>10} {aggregate_stats[key]!s:>10}")
+        print(f"   {'Reads saved':<16} {download_reads - aggregate_reads:>10} ({download_reads / aggregate_reads:.0f}x fewer)")
+        print(f"\n{'✅ Both approaches agree' if ok else '❌ Results differ'}")
+        return ok
+
+    def cleanup(self):
+        for chunk in chunks(self.seeded, MAX_BATCH_WRITES):
+            batch = self.db.batch()
+            for ref in chunk:
+                batch.delete(ref)
+            batch.commit()
+        print(f"🧹 Removed {len(self.seeded)} test documents")
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Compare dashboard stats by download vs aggregation queries")
+    parser.add_argument("--employees", type=int, default=2000, help="Active users to seed (default: 2000)")
+    parser.add_argument("--present-ratio", type=float, default=0.85,
+                        help="Share of users with an attendance record today (default: 0.85)")
+    parser.add_argument("--repeat", type=int, default=10, help="Timed loads per approach (default: 10)")
+    parser.add_argument("--seed", type=int, default=42)
+    parser.add_argument("--cleanup", action="store_true", help="Delete the test documents afterwards")
+    add_connection_args(parser)
+    args = parser.parse_args()
+
+    if args.production:
+        parser.error("the benchmark only runs against the emulator")
+
+    db = connect(args)
+    benchmark = DashboardStatsBenchmark(db, args)
+    try:
+        ok = benchmark.run()
+    finally:
+        if args.cleanup:
+            benchmark.cleanup()
+    raise SystemExit(0 if ok else 1)
+
+
+if __name__ == "__main__":
+    main()
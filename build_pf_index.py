@@ -0,0 +1,133 @@
+#!/usr/bin/env python3
+"""
+PF Index Builder
+Builds pf_index/{PFNUMBER} -> {employeeDocId} from the employees collection, so the app resolves a PF
+number with point reads (PfIndex on the device) instead of a pfNumber query. Safe to re-run: entries
+that already point at the right employee are left alone, and entries whose employee is gone or has a
+different PF number are removed.
+
+Runs against the local Firestore emulator by default:
+    python3 build_pf_index.py --dry-run
+    python3 build_pf_index.py
+"""
+
+import argparse
+from collections import defaultdict
+
+from firestore_env import add_connection_args, connect, chunks
+
+PAGE_SIZE = 500
+MAX_BATCH_WRITES = 500
+INDEX_COLLECTION = "pf_index"
+
+
+def normalize(pf_number):
+    """Same key as PfIndex.normalize on the device"""
+    return (pf_number or "").strip().upper()
+
+
+class PfIndexBuilder:
+    def __init__(self, db, dry_run):
+        self.db = db
+        self.dry_run = dry_run
+        self.stats = defaultdict(int)
+
+    def stream(self, collection):
+        """Page through a whole collection in document ID order"""
+        query = self.db.collection(collection).order_by("__name__").limit(PAGE_SIZE)
+        last = None
+        while True:
+            page = list((query.start_after(last) if last else query).stream())
+            yield from page
+            if len(page) < PAGE_SIZE:
+                return
+            last = page[-1]
+
+    def plan(self):
+        """Desired index built from the employees, with PF numbers shared by several employees left out"""
+        owners = defaultdict(list)
+        for doc in self.stream("employees"):
+            self.stats["employees"] += 1
+            key = normalize((doc.to_dict() or {}).get("pfNumber"))
+            if not key or "/" in key:
+                self.stats["skipped_invalid"] += 1
+                print(f"⚠️  Skipping {doc.id}: missing or invalid pfNumber")
+                continue
+            owners[key].append(doc.id)
+
+        desired = {}
+        for key, doc_ids in owners.items():
+            if len(doc_ids) > 1:
+                # Login would pick one arbitrarily; leave it to the query fallback until HR resolves it
+                self.stats["duplicate_pf_numbers"] += 1
+                print(f"⚠️  PF {key} is shared by {', '.join(doc_ids)}; not indexed")
+                continue
+            desired[key] = doc_ids[0]
+        return desired
+
+    def run(self):
+        print("\n🔍 Scanning employees...")
+        desired = self.plan()
+
+        print("🔍 Comparing with the current index...")
+        writes = []
+        for entry in self.stream(INDEX_COLLECTION):
+            self.stats["existing_entries"] += 1
+            wanted = desired.pop(entry.id, None)
+            if wanted is None:
+                writes.append(("delete", entry.reference, None))
+                self.stats["removed"] += 1
+            elif (entry.to_dict() or {}).get("employeeDocId") != wanted:
+                writes.append(("set", entry.reference, wanted))
+                self.stats["repointed"] += 1
+            else:
+                self.stats["unchanged"] += 1
+
+        # Whatever is left in desired has no entry yet
+        for key, employee_doc_id in desired.items():
+            writes.append(("set", self.db.collection(INDEX_COLLECTION).document(key), employee_doc_id))
+            self.stats["added"] += 1
+
+        if self.dry_run:
+            for op, ref, employee_doc_id in writes:
+                print(f"   {op:<6} {ref.id}" + (f" → {employee_doc_id}" if employee_doc_id else ""))
+        else:
+            self.commit(writes)
+
+        self.print_summary()
+
+    def commit(self, writes):
+        from google.cloud.firestore import SERVER_TIMESTAMP
+
+        for chunk in chunks(writes, MAX_BATCH_WRITES):
+            batch = self.db.batch()
+            for op, ref, employee_doc_id in chunk:
+                if op == "set":
+                    batch.set(ref, {"employeeDocId": employee_doc_id, "updatedAt": SERVER_TIMESTAMP})
+                else:
+                    batch.delete(ref)
+            batch.commit()
+            self.stats["batches"] += 1
+
+    def print_summary(self):
+        print("\n" + "=" * 60)
+        print("📊 PF INDEX SUMMARY" + (" (DRY RUN - nothing written)" if self.dry_run else ""))
+        print("=" * 60)
+        for key in ["employees", "existing_entries", "added", "repointed", "removed", "unchanged",
+                    "duplicate_pf_numbers", "skipped_invalid", "batches"]:
+            print(f"   {key.replace('_', ' ').capitalize():<22} {self.stats[key]}")
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Build the pf_index collection from employees")
+    parser.add_argument("--dry-run", action="store_true", help="Print the changes without writing anything")
+    add_connection_args(parser)
+    args = parser.parse_args()
+
+    db = connect(args)
+    PfIndexBuilder(db, args.dry_run).run()
+    print("\n✅ Done")
+
+
+if __name__ == "__main__":
+    main()
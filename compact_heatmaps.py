@@ -0,0 +1,108 @@
+#!/usr/bin/env python3
+"""
+Arrival Heatmap Compactor
+Folds the shards of every closed week's arrival heatmap slice into one compact counts array.
+Clock-ins increment sparse slots on a random shard of arrival_heatmaps/{officeId}_{weekStart}/heatmap_shards,
+which ArrivalHeatmapUtils.loadRange sums; once a week is over this replaces its shards with shard 0
+holding counts (one integer per weekday x 5-minute slot, trailing zeros dropped), so a range read
+costs one document per office-week. Each slice is compacted in a transaction, so an offline
+clock-in that syncs late and lands on a shard mid-compaction is retried rather than lost.
+
+Runs against the local Firestore emulator by default:
+    python3 compact_heatmaps.py --dry-run
+    python3 compact_heatmaps.py
+"""
+
+import argparse
+import time
+from collections import defaultdict
+from datetime import datetime, timedelta
+
+from google.cloud import firestore
+
+from firestore_env import add_connection_args, connect
+
+SHARDS = "heatmap_shards"
+BUCKET_MINUTES = 5
+SLOT_COUNT = 7 * 24 * 60 // BUCKET_MINUTES  # Same layout as ArrivalHeatmap (Monday = 0)
+MAX_SHARDS = 100  # ShardCountTuner.MAX_SHARDS; stays within 500 writes per transaction
+
+
+def current_week_start():
+    today = datetime.now()
+    return (today - timedelta(days=today.weekday())).strftime("%Y-%m-%d")
+
+
+def closed_slices(db, before_week):
+    """Slice document references with shards whose week started before before_week"""
+    slices = defaultdict(int)
+    query = db.collection_group(SHARDS).where("weekStart", "<", before_week)
+    for shard in query.stream():
+        slices[shard.reference.parent.parent.path] += 1
+    return slices
+
+
+def fold(shards):
+    """Sum the counts arrays and sparse slots of a slice's shards into one counts list"""
+    counts = [0] * SLOT_COUNT
+    meta = {}
+    for shard in shards:
+        data = shard.to_dict() or {}
+        meta = meta or {key: data.get(key) for key in ("officeId", "weekStart", "bucketMinutes")}
+        for index, value in enumerate((data.get("counts") or [])[:SLOT_COUNT]):
+            counts[index] += int(value or 0)
+        for key, value in (data.get("slots") or {}).items():
+            if key.isdigit() and int(key) < SLOT_COUNT:
+                counts[int(key)] += int(value or 0)
+
+    while counts and counts[-1] == 0:
+        counts.pop()
+    return meta, counts
+
+
+@firestore.transactional
+def compact_slice(transaction, slice_ref):
+    shards = list(slice_ref.collection(SHARDS).limit(MAX_SHARDS).stream(transaction=transaction))
+    if len(shards) == 1 and shards[0].id == "0" and "slots" not in (shards[0].to_dict() or {}):
+        return 0  # Already compact
+
+    meta, counts = fold(shards)
+    transaction.set(slice_ref.collection(SHARDS).document("0"), {**meta, "counts": counts})
+    for shard in shards:
+        if shard.id != "0":
+            transaction.delete(shard.reference)
+    return sum(counts)
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Fold closed weeks' arrival heatmap shards into compact counts arrays")
+    parser.add_argument("--before", default=current_week_start(),
+                        help="Compact weeks starting before this Monday (default: the current week)")
+    parser.add_argument("--dry-run", action="store_true", help="List the slices that would be compacted")
+    add_connection_args(parser)
+    args = parser.parse_args()
+
+    db = connect(args)
+    started = time.perf_counter()
+    slices = closed_slices(db, args.before)
+    print(f"\n🗜️  {len(slices)} closed slices with {sum(slices.values())} shards before {args.before}")
+
+    compacted, arrivals = 0, 0
+    for path, shard_count in sorted(slices.items()):
+        if args.dry_run:
+            print(f"   {path}: {shard_count} shards")
+            continue
+        arrivals += compact_slice(db.transaction(), db.document(path))
+        compacted += 1
+
+    print("\n" + "=" * 60)
+    print("📊 COMPACTION SUMMARY" + (" (DRY RUN - nothing written)" if args.dry_run else ""))
+    print("=" * 60)
+    print(f"   {'Slices':<22} {compacted}")
+    print(f"   {'Arrivals folded':<22} {arrivals}")
+    print(f"   {'Elapsed':<22} {time.perf_counter() - started:.2f}s")
+    print("\n✅ Done")
+
+
+if __name__ == "__main__":
+    main()
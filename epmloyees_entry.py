@@ -84,9 +84,11 @@ class EmployeeRegistration:
         if not re.match(r'^[A-Z0-9]{3,20}$', pf_number.upper()):
             return False, "PF Number must be 3-20 alphanumeric characters"
         
-        # Check for duplicates in Firestore
+        # Check for duplicates in Firestore: the pf_index point read, then the query for unindexed employees
         try:
-            existing = self.db.collection('employees').where('pfNumber', '==', pf_number.upper()).get()
+            if self.db.collection('pf_index').document(pf_number.upper()).get().exists:
+                return False, "PF Number already exists in database"
+            existing = self.db.collection('employees').where('pfNumber', '==', pf_number.upper()).limit(1).get()
             if len(existing) > 0:
                 return False, "PF Number already exists in database"
         except Exception as e:
@@ -210,10 +212,17 @@ class EmployeeRegistration:
         print("="*60)
     
     def save_employee(self, employee_data):
-        """Save employee to Firestore"""
+        """Save employee to Firestore, with its pf_index entry in the same batch"""
         try:
-            doc_ref = self.db.collection('employees').add(employee_data)
-            return True, doc_ref[1].id
+            doc_ref = self.db.collection('employees').document()
+            batch = self.db.batch()
+            batch.set(doc_ref, employee_data)
+            batch.set(self.db.collection('pf_index').document(employee_data['pfNumber']), {
+                'employeeDocId': doc_ref.id,
+                'updatedAt': firestore.SERVER_TIMESTAMP,
+            })
+            batch.commit()
+            return True, doc_ref.id
         except Exception as e:
             return False, str(e)
     
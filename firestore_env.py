@@ -0,0 +1,57 @@
+#!/usr/bin/env python3
+"""
+Shared Firestore connection helper for the maintenance scripts
+Targets the local Firestore emulator by default; production needs an explicit flag and a service account key
+"""
+
+import os
+import sys
+
+DEFAULT_EMULATOR_HOST = "localhost:8080"
+DEFAULT_PROJECT_ID = "attendance-system-demo-d6c09"
+DEFAULT_KEY_PATH = "service-account-key.json"
+
+
+def add_connection_args(parser):
+    """Add the common --emulator/--project/--production/--key options to an argparse parser"""
+    parser.add_argument("--emulator", default=os.environ.get("FIRESTORE_EMULATOR_HOST", DEFAULT_EMULATOR_HOST),
+                        help=f"Firestore emulator host:port (default: $FIRESTORE_EMULATOR_HOST or {DEFAULT_EMULATOR_HOST})")
+    parser.add_argument("--project", default=os.environ.get("GCLOUD_PROJECT", DEFAULT_PROJECT_ID),
+                        help="Project ID used by the emulator")
+    parser.add_argument("--production", action="store_true",
+                        help="Run against the real project instead of the emulator")
+    parser.add_argument("--key", default=DEFAULT_KEY_PATH,
+                        help="Service account key, only used with --production")
+    return parser
+
+
+def connect(args):
+    """Return a Firestore client for the emulator, or for production when --production is given"""
+    if not args.production:
+        os.environ["FIRESTORE_EMULATOR_HOST"] = args.emulator
+        from google.cloud import firestore as gcloud_firestore
+
+        print(f"🧪 Using Firestore emulator at {args.emulator} (project: {args.project})")
+        return gcloud_firestore.Client(project=args.project)
+
+    os.environ.pop("FIRESTORE_EMULATOR_HOST", None)
+    import firebase_admin
+    from firebase_admin import credentials, firestore
+
+    if not os.path.exists(args.key):
+        print(f"❌ Service account key not found: {args.key}")
+        sys.exit(1)
+
+    try:
+        firebase_admin.get_app()
+    except ValueError:
+        firebase_admin.initialize_app(credentials.Certificate(args.key))
+
+    print("⚠️  Connected to PRODUCTION Firestore")
+    return firestore.client()
+
+
+def chunks(items, size):
+    """Split a list into consecutive chunks of at most size items"""
+    for start in range(0, len(items), size):
+        yield items[start:start + size]
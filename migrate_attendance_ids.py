@@ -0,0 +1,177 @@
+#!/usr/bin/env python3
+"""
+Attendance ID Migration Script
+Re-keys attendance records from random IDs to {employeeDocId}_{yyyyMMdd} so the app can use point reads
+
+Runs against the local Firestore emulator by default:
+    python3 migrate_attendance_ids.py --dry-run
+    python3 migrate_attendance_ids.py
+"""
+
+import argparse
+from collections import defaultdict
+
+from firestore_env import add_connection_args, connect, chunks
+
+PAGE_SIZE = 500
+MAX_BATCH_WRITES = 500
+DUPLICATES_COLLECTION = "attendance_duplicates"
+
+
+def attendance_id(employee_doc_id, date):
+    """Same format as AttendanceIds.forDate on the device"""
+    return f"{employee_doc_id}_{date.replace('-', '')}"
+
+
+def primary_rank(record):
+    """Sort key for picking the record that keeps the deterministic ID when a day has several"""
+    data = record["data"]
+    created = data.get("createdAt") or data.get("clockInTimestamp")
+    return (
+        0 if data.get("sessionActive") else 1,       # An open session must stay reachable
+        0 if data.get("clockOutTime") else 1,        # Then a completed day
+        created.timestamp() if created else float("inf"),  # Then the earliest clock-in
+    )
+
+
+class AttendanceIdMigration:
+    def __init__(self, db, dry_run):
+        self.db = db
+        self.dry_run = dry_run
+        self.stats = defaultdict(int)
+
+    def stream_attendance(self):
+        """Page through the whole attendance collection in document ID order"""
+        query = self.db.collection("attendance").order_by("__name__").limit(PAGE_SIZE)
+        last = None
+        while True:
+            page = list((query.start_after(last) if last else query).stream())
+            yield from page
+            if len(page) < PAGE_SIZE:
+                return
+            last = page[-1]
+
+    def plan(self):
+        """Group legacy records by their deterministic ID"""
+        groups = defaultdict(list)
+
+        for doc in self.stream_attendance():
+            self.stats["scanned"] += 1
+            data = doc.to_dict()
+            employee_doc_id = data.get("employeeDocId")
+            date = data.get("date")
+
+            if not employee_doc_id or not date:
+                self.stats["skipped_incomplete"] += 1
+                print(f"⚠️  Skipping {doc.id}: missing employeeDocId or date")
+                continue
+
+            target = attendance_id(employee_doc_id, date)
+            if doc.id == target:
+                self.stats["already_keyed"] += 1
+            groups[target].append({"id": doc.id, "data": data})
+
+        # Targets that only contain the already-keyed record need no work
+        return {target: records for target, records in groups.items()
+                if not (len(records) == 1 and records[0]["id"] == target)}
+
+    def build_writes(self, target, records):
+        """Writes that move a group onto its deterministic ID, archiving any extra records"""
+        records = sorted(records, key=primary_rank)
+        primary, extras = records[0], records[1:]
+        writes = []
+
+        if primary["id"] != target:
+            data = dict(primary["data"])
+            data["legacyId"] = primary["id"]
+            writes.append(("set", self.db.collection("attendance").document(target), data))
+            writes.append(("delete", self.db.collection("attendance").document(primary["id"]), None))
+            self.stats["rekeyed"] += 1
+
+        for extra in extras:
+            if extra["id"] == target:
+                # A deterministic record lost to an open legacy session; keep a copy before it is overwritten
+                archive_id = f"{target}_replaced"
+            else:
+                archive_id = extra["id"]
+                writes.append(("delete", self.db.collection("attendance").document(extra["id"]), None))
+
+            data = dict(extra["data"])
+            data["duplicateOf"] = target
+            writes.append(("set", self.db.collection(DUPLICATES_COLLECTION).document(archive_id), data))
+            self.stats["archived_duplicates"] += 1
+
+        return writes, {record["id"]: target for record in records if record["id"] != target}
+
+    def remap_security_alerts(self, id_map):
+        """Point security alerts at the new session IDs"""
+        writes = []
+        for legacy_id in id_map:
+            alerts = self.db.collection("security_alerts").where("originalSessionId", "==", legacy_id).stream()
+            for alert in alerts:
+                writes.append(("update", alert.reference, {"originalSessionId": id_map[legacy_id]}))
+                self.stats["alerts_remapped"] += 1
+        return writes
+
+    def commit(self, writes):
+        for chunk in chunks(writes, MAX_BATCH_WRITES):
+            batch = self.db.batch()
+            for op, ref, data in chunk:
+                if op == "set":
+                    batch.set(ref, data)
+                elif op == "update":
+                    batch.update(ref, data)
+                else:
+                    batch.delete(ref)
+            batch.commit()
+            self.stats["batches"] += 1
+
+    def run(self):
+        print("\n🔍 Scanning attendance records...")
+        groups = self.plan()
+        id_map = {}
+
+        writes = []
+        for target, records in groups.items():
+            # Keep each group's set+delete in the same batch so a record is never missing or doubled
+            group_writes, group_map = self.build_writes(target, records)
+            if len(writes) + len(group_writes) > MAX_BATCH_WRITES and not self.dry_run:
+                self.commit(writes)
+                writes = []
+            writes.extend(group_writes)
+            id_map.update(group_map)
+
+            if self.dry_run:
+                for record_id in group_map:
+                    print(f"   {record_id} → {target}")
+
+        alert_writes = self.remap_security_alerts(id_map)
+
+        if not self.dry_run:
+            self.commit(writes)
+            self.commit(alert_writes)
+
+        self.print_summary()
+
+    def print_summary(self):
+        print("\n" + "=" * 60)
+        print("📊 MIGRATION SUMMARY" + (" (DRY RUN - nothing written)" if self.dry_run else ""))
+        print("=" * 60)
+        for key in ["scanned", "already_keyed", "rekeyed", "archived_duplicates",
+                    "skipped_incomplete", "alerts_remapped", "batches"]:
+            print(f"   {key.replace('_', ' ').capitalize():<22} {self.stats[key]}")
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Re-key attendance records to {employeeDocId}_{yyyyMMdd}")
+    parser.add_argument("--dry-run", action="store_true", help="Print the plan without writing anything")
+    add_connection_args(parser)
+    args = parser.parse_args()
+
+    db = connect(args)
+    AttendanceIdMigration(db, args.dry_run).run()
+    print("\n✅ Done")
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,214 @@
+#!/usr/bin/env python3
+"""
+Expired Session Sweeper
+Closes attendance sessions that are still active but haven't sent a heartbeat within the cutoff.
+Same sweep as SessionSweeper on the device: pages ordered by (lastHeartbeat, document ID) with query
+cursors, one update per session, batches committed in parallel with bounded concurrency, and a
+checkpoint file so an interrupted run resumes where it stopped.
+
+Runs against the local Firestore emulator by default:
+    python3 sweep_expired_sessions.py --seed 5000
+    python3 sweep_expired_sessions.py --dry-run
+    python3 sweep_expired_sessions.py
+"""
+
+import argparse
+import json
+import os
+import random
+import time
+from collections import deque
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime, timedelta, timezone
+
+from firestore_env import add_connection_args, connect, chunks
+
+PAGE_SIZE = 400  # One write per session, within the 500 writes per batch limit
+MAX_BATCH_WRITES = 500
+DEFAULT_CHECKPOINT = ".session_sweep_checkpoint.json"
+
+
+class Checkpoint:
+    """Cutoff and cursor of an unfinished sweep, kept in a small JSON file"""
+
+    def __init__(self, path):
+        self.path = path
+
+    def load(self):
+        if not os.path.exists(self.path):
+            return None
+        with open(self.path) as f:
+            state = json.load(f)
+        return {
+            "cutoff": datetime.fromisoformat(state["cutoff"]),
+            "cursor_heartbeat": datetime.fromisoformat(state["cursor_heartbeat"]) if state.get("cursor_heartbeat") else None,
+            "cursor_id": state.get("cursor_id"),
+        }
+
+    def save(self, cutoff, cursor_heartbeat=None, cursor_id=None):
+        state = {
+            "cutoff": cutoff.isoformat(),
+            "cursor_heartbeat": cursor_heartbeat.isoformat() if cursor_heartbeat else None,
+            "cursor_id": cursor_id,
+        }
+        # Write then rename so a kill mid-write never leaves a torn checkpoint
+        tmp_path = self.path + ".tmp"
+        with open(tmp_path, "w") as f:
+            json.dump(state, f)
+        os.replace(tmp_path, self.path)
+
+    def clear(self):
+        if os.path.exists(self.path):
+            os.remove(self.path)
+
+
+class SessionSweeper:
+    def __init__(self, db, args):
+        self.db = db
+        self.args = args
+        self.checkpoint = Checkpoint(args.checkpoint)
+        self.stats = {"pages": 0, "expired": 0, "batches": 0}
+
+    def expired_query(self, cutoff):
+        return (self.db.collection("attendance")
+                .where("sessionActive", "==", True)
+                .where("lastHeartbeat", "<", cutoff)
+                .order_by("lastHeartbeat")
+                .order_by("__name__")
+                .limit(self.args.page_size))
+
+    def pages(self, cutoff, cursor_heartbeat, cursor_id):
+        """Yield pages of expired sessions after the cursor"""
+        query = self.expired_query(cutoff)
+        while True:
+            page_query = query
+            if cursor_id:
+                page_query = query.start_after({
+                    "lastHeartbeat": cursor_heartbeat,
+                    "__name__": self.db.collection("attendance").document(cursor_id),
+                })
+            page = list(page_query.stream())
+            if not page:
+                return
+            yield page
+            if len(page) < self.args.page_size:
+                return
+            cursor_heartbeat, cursor_id = page[-1].get("lastHeartbeat"), page[-1].id
+
+    def commit_page(self, page):
+        for chunk in chunks(page, MAX_BATCH_WRITES):
+            batch = self.db.batch()
+            for doc in chunk:
+                batch.update(doc.reference, {
+                    "sessionActive": False,
+                    "sessionExpired": True,
+                    "sessionExpiredTime": datetime.now(timezone.utc),
+                })
+            batch.commit()
+            self.stats["batches"] += 1
+
+    def advance(self, in_flight, cutoff, wait):
+        """Checkpoint past every leading page whose commit finished; with wait, finish them all"""
+        while in_flight and (wait or in_flight[0][0].done()):
+            future, size, cursor_heartbeat, cursor_id = in_flight.popleft()
+            future.result()  # Re-raises a failed commit; the checkpoint stays before it
+            self.stats["expired"] += size
+            self.checkpoint.save(cutoff, cursor_heartbeat, cursor_id)
+
+    def run(self):
+        resumed = self.checkpoint.load()
+        if resumed and not self.args.dry_run:
+            cutoff = resumed["cutoff"]
+            cursor_heartbeat, cursor_id = resumed["cursor_heartbeat"], resumed["cursor_id"]
+            print(f"\n⏯️  Resuming sweep with cutoff {cutoff.isoformat()} after {cursor_id or 'the start'}")
+        else:
+            cutoff = datetime.now(timezone.utc) - timedelta(hours=self.args.cutoff_hours)
+            cursor_heartbeat, cursor_id = None, None
+            if not self.args.dry_run:
+                self.checkpoint.save(cutoff)
+            print(f"\n🧹 Sweeping sessions idle since {cutoff.isoformat()}")
+
+        started = time.perf_counter()
+        in_flight = deque()
+        with ThreadPoolExecutor(max_workers=self.args.concurrency) as pool:
+            for page in self.pages(cutoff, cursor_heartbeat, cursor_id):
+                self.stats["pages"] += 1
+                last = page[-1]
+
+                if self.args.dry_run:
+                    self.stats["expired"] += len(page)
+                    continue
+
+                # Bound in-flight commits: wait for the oldest before submitting another
+                if len(in_flight) >= self.args.concurrency:
+                    in_flight[0][0].result()
+                in_flight.append((pool.submit(self.commit_page, page), len(page), last.get("lastHeartbeat"), last.id))
+                self.advance(in_flight, cutoff, wait=False)
+
+            self.advance(in_flight, cutoff, wait=True)
+
+        if not self.args.dry_run:
+            self.checkpoint.clear()
+        self.print_summary(time.perf_counter() - started)
+
+    def print_summary(self, elapsed):
+        print("\n" + "=" * 60)
+        print("📊 SWEEP SUMMARY" + (" (DRY RUN - nothing written)" if self.args.dry_run else ""))
+        print("=" * 60)
+        for key in ["pages", "expired", "batches"]:
+            print(f"   {key.capitalize():<22} {self.stats[key]}")
+        print(f"   {'Elapsed':<22} {elapsed:.2f}s")
+        if elapsed > 0 and self.stats["expired"]:
+            print(f"   {'Sessions/second':<22} {self.stats['expired'] / elapsed:.0f}")
+
+
+def seed_sessions(db, count, cutoff_hours):
+    """Create stale and live active sessions to sweep (emulator only)"""
+    rng = random.Random(42)
+    now = datetime.now(timezone.utc)
+    docs = []
+    for i in range(count):
+        stale = i % 10 != 0  # Every tenth session is still live and must survive the sweep
+        age = timedelta(hours=cutoff_hours + rng.uniform(1, 72)) if stale else timedelta(minutes=rng.uniform(0, 30))
+        docs.append((f"sweeptest_{i:06d}_20240101", {
+            "employeeDocId": f"sweeptest_{i:06d}",
+            "date": "2024-01-01",
+            "sessionActive": True,
+            "lastHeartbeat": now - age,
+        }))
+
+    for chunk in chunks(docs, MAX_BATCH_WRITES):
+        batch = db.batch()
+        for doc_id, data in chunk:
+            batch.set(db.collection("attendance").document(doc_id), data)
+        batch.commit()
+    print(f"🌱 Seeded {count} active sessions ({count - (count + 9) // 10} stale)")
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Close active sessions whose heartbeat is older than the cutoff")
+    parser.add_argument("--cutoff-hours", type=float, default=24,
+                        help="Expire sessions idle for longer than this (default: 24, same as the app)")
+    parser.add_argument("--page-size", type=int, default=PAGE_SIZE, help=f"Sessions per page (default: {PAGE_SIZE})")
+    parser.add_argument("--concurrency", type=int, default=4, help="Batch commits in flight (default: 4)")
+    parser.add_argument("--checkpoint", default=DEFAULT_CHECKPOINT,
+                        help=f"Progress file used to resume an interrupted sweep (default: {DEFAULT_CHECKPOINT})")
+    parser.add_argument("--dry-run", action="store_true", help="Count expired sessions without writing anything")
+    parser.add_argument("--seed", type=int, metavar="N", help="Create N test sessions before sweeping (emulator only)")
+    add_connection_args(parser)
+    args = parser.parse_args()
+
+    if args.seed and args.production:
+        parser.error("--seed only runs against the emulator")
+    if not 0 < args.page_size <= MAX_BATCH_WRITES:
+        parser.error(f"--page-size must be between 1 and {MAX_BATCH_WRITES}")
+
+    db = connect(args)
+    if args.seed:
+        seed_sessions(db, args.seed, args.cutoff_hours)
+    SessionSweeper(db, args).run()
+    print("\n✅ Done")
+
+
+if __name__ == "__main__":
+    main()